@@ -0,0 +1,368 @@
+package com.gourav.CodyWar.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gourav.CodyWar.Domain.Dto.BattleEvent;
+import com.gourav.CodyWar.Domain.Dto.BattleEventBatch;
+import com.gourav.CodyWar.Domain.Dto.BattleState;
+import com.gourav.CodyWar.Domain.Dto.MatchmakingEntry;
+import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * {@link BinaryCodec}s for the battle types kept in Redis.
+ * <p>
+ * Layouts are fixed field orders: UUIDs as two longs, instants as seconds plus nanos, enums by
+ * name (so reordering constants is safe) and a presence byte before every nullable field. A
+ * layout change bumps the codec's version and keeps a branch for the older one in {@code read}.
+ */
+public final class BattleCodecs {
+
+    static final byte BATTLE_STATE = 1;
+    static final byte PARTICIPANT_STATE = 2;
+    static final byte MATCHMAKING_ENTRY = 3;
+    static final byte BATTLE_EVENT = 4;
+    static final byte BATTLE_EVENT_BATCH = 5;
+
+    private BattleCodecs() {
+    }
+
+    /**
+     * All codecs; {@code objectMapper} (the typed Redis mapper) encodes the free-form
+     * {@link BattleEvent} payload.
+     */
+    public static List<BinaryCodec<?>> all(ObjectMapper objectMapper) {
+        return List.of(new BattleStateCodec(), new ParticipantStateCodec(), new MatchmakingEntryCodec(),
+                new BattleEventCodec(objectMapper), new BattleEventBatchCodec(objectMapper));
+    }
+
+    static final class BattleStateCodec implements BinaryCodec<BattleState> {
+
+        private final ParticipantStateCodec participants = new ParticipantStateCodec();
+
+        @Override
+        public byte tag() {
+            return BATTLE_STATE;
+        }
+
+        @Override
+        public Class<BattleState> type() {
+            return BattleState.class;
+        }
+
+        @Override
+        public int version() {
+            return 3;
+        }
+
+        @Override
+        public void write(BattleState state, DataOutput out) throws IOException {
+            writeUuid(out, state.getBattleId());
+            writeString(out, state.getRoomCode());
+            writeUuid(out, state.getProblemId());
+            writeString(out, state.getStatus() != null ? state.getStatus().name() : null);
+            out.writeInt(state.getMaxParticipants());
+            out.writeInt(state.getDurationSeconds());
+            out.writeBoolean(state.isPrivate());
+            Set<BattleState.ParticipantState> members = state.getParticipants() != null ? state.getParticipants() : Set.of();
+            out.writeShort(members.size());
+            for (BattleState.ParticipantState participant : members) {
+                participants.write(participant, out);
+            }
+            writeUuid(out, state.getWinnerId());
+            writeInstant(out, state.getCreatedAt());
+            writeInstant(out, state.getStartedAt());
+            writeInstant(out, state.getFinishedAt());
+            out.writeLong(state.getVersion());
+        }
+
+        @Override
+        public BattleState read(DataInput in, int version) throws IOException {
+            BattleState state = new BattleState();
+            state.setBattleId(readUuid(in));
+            state.setRoomCode(readString(in));
+            state.setProblemId(readUuid(in));
+            String status = readString(in);
+            state.setStatus(status != null ? BattleStatus.valueOf(status) : null);
+            state.setMaxParticipants(in.readInt());
+            state.setDurationSeconds(in.readInt());
+            state.setPrivate(in.readBoolean());
+            int count = in.readUnsignedShort();
+            Set<BattleState.ParticipantState> members = new HashSet<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                // v3 embeds v2 participants (with slot)
+                members.add(participants.read(in, version >= 3 ? 2 : 1));
+            }
+            state.setParticipants(members);
+            state.setWinnerId(readUuid(in));
+            state.setCreatedAt(readInstant(in));
+            state.setStartedAt(readInstant(in));
+            state.setFinishedAt(readInstant(in));
+            // v1 had no version counter
+            state.setVersion(version >= 2 ? in.readLong() : 0);
+            return state;
+        }
+    }
+
+    static final class ParticipantStateCodec implements BinaryCodec<BattleState.ParticipantState> {
+
+        @Override
+        public byte tag() {
+            return PARTICIPANT_STATE;
+        }
+
+        @Override
+        public Class<BattleState.ParticipantState> type() {
+            return BattleState.ParticipantState.class;
+        }
+
+        @Override
+        public int version() {
+            return 2;
+        }
+
+        @Override
+        public void write(BattleState.ParticipantState participant, DataOutput out) throws IOException {
+            writeUuid(out, participant.getOduserId());
+            writeString(out, participant.getUsername());
+            out.writeByte((participant.isReady() ? 1 : 0) | (participant.isHasSubmitted() ? 2 : 0));
+            out.writeInt(participant.getScore());
+            writeInstant(out, participant.getJoinedAt());
+            writeUuid(out, participant.getLastSubmissionId());
+            out.writeShort(participant.getSlot());
+        }
+
+        @Override
+        public BattleState.ParticipantState read(DataInput in, int version) throws IOException {
+            BattleState.ParticipantState participant = new BattleState.ParticipantState();
+            participant.setOduserId(readUuid(in));
+            participant.setUsername(readString(in));
+            int flags = in.readUnsignedByte();
+            participant.setReady((flags & 1) != 0);
+            participant.setHasSubmitted((flags & 2) != 0);
+            participant.setScore(in.readInt());
+            participant.setJoinedAt(readInstant(in));
+            participant.setLastSubmissionId(readUuid(in));
+            // v1 had no slot
+            participant.setSlot(version >= 2 ? in.readUnsignedShort() : 0);
+            return participant;
+        }
+    }
+
+    static final class MatchmakingEntryCodec implements BinaryCodec<MatchmakingEntry> {
+
+        @Override
+        public byte tag() {
+            return MATCHMAKING_ENTRY;
+        }
+
+        @Override
+        public Class<MatchmakingEntry> type() {
+            return MatchmakingEntry.class;
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(MatchmakingEntry entry, DataOutput out) throws IOException {
+            writeUuid(out, entry.getOduserId());
+            writeString(out, entry.getUsername());
+            out.writeInt(entry.getRatingScore());
+            writeInstant(out, entry.getQueuedAt());
+            out.writeInt(entry.getPreferredDuration());
+            out.writeShort(entry.getMaxParticipants());
+        }
+
+        @Override
+        public MatchmakingEntry read(DataInput in, int version) throws IOException {
+            return MatchmakingEntry.builder()
+                    .oduserId(readUuid(in))
+                    .username(readString(in))
+                    .ratingScore(in.readInt())
+                    .queuedAt(readInstant(in))
+                    .preferredDuration(in.readInt())
+                    .maxParticipants(in.readUnsignedShort())
+                    .build();
+        }
+    }
+
+    /**
+     * The payload is free-form (maps of whatever the event carries), so it stays JSON inside the
+     * binary frame, written as a declared {@code Object} exactly as the JSON format writes the
+     * field; the fixed fields around it are binary.
+     */
+    static final class BattleEventCodec implements BinaryCodec<BattleEvent> {
+
+        private final ObjectMapper objectMapper;
+
+        BattleEventCodec(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public byte tag() {
+            return BATTLE_EVENT;
+        }
+
+        @Override
+        public Class<BattleEvent> type() {
+            return BattleEvent.class;
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(BattleEvent event, DataOutput out) throws IOException {
+            writeString(out, event.getType() != null ? event.getType().name() : null);
+            writeUuid(out, event.getBattleId());
+            writeString(out, event.getRoomCode());
+            byte[] payload = event.getPayload() != null
+                    ? objectMapper.writerFor(Object.class).writeValueAsBytes(event.getPayload())
+                    : null;
+            out.writeInt(payload != null ? payload.length : -1);
+            if (payload != null) {
+                out.write(payload);
+            }
+            writeInstant(out, event.getTimestamp());
+        }
+
+        @Override
+        public BattleEvent read(DataInput in, int version) throws IOException {
+            BattleEvent event = new BattleEvent();
+            String type = readString(in);
+            event.setType(type != null ? BattleEvent.EventType.valueOf(type) : null);
+            event.setBattleId(readUuid(in));
+            event.setRoomCode(readString(in));
+            int length = in.readInt();
+            if (length >= 0) {
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                event.setPayload(objectMapper.readValue(payload, Object.class));
+            }
+            event.setTimestamp(readInstant(in));
+            return event;
+        }
+    }
+
+    /**
+     * Events reuse the event layout; any other message (submission statuses) is JSON written as
+     * a declared {@code Object}, like an event payload.
+     */
+    static final class BattleEventBatchCodec implements BinaryCodec<BattleEventBatch> {
+
+        private static final byte EVENT = 0;
+        private static final byte OBJECT = 1;
+
+        private final ObjectMapper objectMapper;
+        private final BattleEventCodec events;
+
+        BattleEventBatchCodec(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            this.events = new BattleEventCodec(objectMapper);
+        }
+
+        @Override
+        public byte tag() {
+            return BATTLE_EVENT_BATCH;
+        }
+
+        @Override
+        public Class<BattleEventBatch> type() {
+            return BattleEventBatch.class;
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(BattleEventBatch batch, DataOutput out) throws IOException {
+            writeString(out, batch.getOrigin());
+            out.writeInt(batch.getDeliveries().size());
+            for (BattleEventBatch.Delivery delivery : batch.getDeliveries()) {
+                writeUuid(out, delivery.getBattleId());
+                if (delivery.getMessage() instanceof BattleEvent event) {
+                    out.writeByte(EVENT);
+                    events.write(event, out);
+                } else {
+                    byte[] json = objectMapper.writerFor(Object.class).writeValueAsBytes(delivery.getMessage());
+                    out.writeByte(OBJECT);
+                    out.writeInt(json.length);
+                    out.write(json);
+                }
+            }
+        }
+
+        @Override
+        public BattleEventBatch read(DataInput in, int version) throws IOException {
+            String origin = readString(in);
+            int count = in.readInt();
+            List<BattleEventBatch.Delivery> deliveries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                UUID battleId = readUuid(in);
+                Object message;
+                if (in.readByte() == EVENT) {
+                    message = events.read(in, events.version());
+                } else {
+                    byte[] json = new byte[in.readInt()];
+                    in.readFully(json);
+                    message = objectMapper.readValue(json, Object.class);
+                }
+                deliveries.add(new BattleEventBatch.Delivery(battleId, message));
+            }
+            return new BattleEventBatch(origin, deliveries);
+        }
+    }
+
+    // ── Helper Methods ──
+
+    static void writeUuid(DataOutput out, UUID value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getMostSignificantBits());
+            out.writeLong(value.getLeastSignificantBits());
+        }
+    }
+
+    static UUID readUuid(DataInput in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    static void writeInstant(DataOutput out, Instant value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getEpochSecond());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    static Instant readInstant(DataInput in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.gourav.CodyWar.Configuration;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Schema-based binary encoding of one value type for {@link CompactRedisSerializer}.
+ * <p>
+ * The serializer frames every value with the codec's {@link #tag} and the {@link #version} it was
+ * written with, so a codec can change its layout by bumping the version and still reading the
+ * older layouts in {@link #read}. Tags are stored in Redis and must never be reused.
+ */
+public interface BinaryCodec<T> {
+
+    /** Stable identifier of the type in stored values. */
+    byte tag();
+
+    /** Exact class this codec writes; subclasses fall back to JSON. */
+    Class<T> type();
+
+    /** Layout version written by {@link #write}. */
+    int version();
+
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads a value written with layout {@code version}, which is at most {@link #version()}.
+     */
+    T read(DataInput in, int version) throws IOException;
+}
@@ -0,0 +1,96 @@
+package com.gourav.CodyWar.Configuration;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis value serializer that writes the hot battle types with a {@link BinaryCodec} and
+ * everything else with the JSON serializer it wraps.
+ * <p>
+ * A binary value is {@code MAGIC, tag, version} followed by the codec's body. JSON never starts
+ * with {@code MAGIC}, so values are told apart by their first byte: JSON written before binary
+ * was enabled (or by an instance running with {@code redis.value-codec=json}) is still read, and
+ * is replaced by the binary form the next time it is saved. Reading always understands both
+ * formats; {@code binaryWrites} only decides what is written, which is what lets a rolling deploy
+ * first ship the reader with {@code json} and then switch writers to {@code binary}.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    /** First byte of a binary value; not a valid first byte of UTF-8 JSON. */
+    static final byte MAGIC = (byte) 0xB1;
+
+    private final RedisSerializer<Object> json;
+    private final boolean binaryWrites;
+    private final Map<Class<?>, BinaryCodec<?>> byType = new HashMap<>();
+    private final Map<Byte, BinaryCodec<?>> byTag = new HashMap<>();
+
+    public CompactRedisSerializer(RedisSerializer<Object> json, List<BinaryCodec<?>> codecs, boolean binaryWrites) {
+        this.json = json;
+        this.binaryWrites = binaryWrites;
+        for (BinaryCodec<?> codec : codecs) {
+            if (byTag.put(codec.tag(), codec) != null) {
+                throw new IllegalArgumentException("Duplicate binary codec tag " + codec.tag());
+            }
+            byType.put(codec.type(), codec);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        BinaryCodec<?> codec = binaryWrites && value != null ? byType.get(value.getClass()) : null;
+        if (codec == null) {
+            return json.serialize(value);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(MAGIC);
+            out.writeByte(codec.tag());
+            out.writeByte(codec.version());
+            write(codec, value, out);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Could not encode " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return json.deserialize(bytes);
+        }
+        if (bytes.length < 3) {
+            throw new SerializationException("Truncated binary value");
+        }
+        BinaryCodec<?> codec = byTag.get(bytes[1]);
+        int version = bytes[2] & 0xFF;
+        if (codec == null) {
+            throw new SerializationException("Unknown binary codec tag " + bytes[1]);
+        }
+        if (version > codec.version()) {
+            throw new SerializationException(codec.type().getSimpleName() + " written with newer layout v" + version);
+        }
+        try {
+            return codec.read(new DataInputStream(new ByteArrayInputStream(bytes, 3, bytes.length - 3)), version);
+        } catch (IOException e) {
+            throw new SerializationException("Could not decode " + codec.type().getSimpleName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void write(BinaryCodec<T> codec, Object value, DataOutputStream out) throws IOException {
+        codec.write((T) value, out);
+    }
+}
@@ -0,0 +1,257 @@
+package com.gourav.CodyWar.Configuration;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process STOMP broker standing in for RabbitMQ or ActiveMQ, so relay mode can be run and
+ * load-tested on one machine: {@code websocket.broker.mode=relay} with
+ * {@code websocket.broker.relay.embedded=true}. Every instance pointed at it shares one broker, as
+ * they would share the real one.
+ * <p>
+ * It speaks the subset of STOMP 1.2 the relay uses: CONNECT/STOMP, SUBSCRIBE, UNSUBSCRIBE, SEND
+ * (fanned out as MESSAGE to exact-destination subscribers), DISCONNECT and receipts. It takes any
+ * login and negotiates no heartbeats. Development and tests only: there is no persistence, no
+ * acknowledgement and no flow control.
+ * <p>
+ * Starts before the relay (lower lifecycle phase) and stops after it.
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.broker.relay.embedded", havingValue = "true")
+@Slf4j
+public class EmbeddedStompBroker implements SmartLifecycle {
+
+    private static final AttributeKey<Map<String, String>> SUBSCRIPTIONS = AttributeKey.valueOf("stomp.subscriptions");
+
+    // destination -> channel -> subscription ids on that channel
+    private final Map<String, Map<Channel, Set<String>>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong messageIds = new AtomicLong();
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int port = 61613;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
+
+    public EmbeddedStompBroker() {
+    }
+
+    public EmbeddedStompBroker(int port) {
+        this.port = port;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (serverChannel != null) {
+            return;
+        }
+        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("stomp-broker-boss"));
+        workerGroup = new NioEventLoopGroup(0, new DefaultThreadFactory("stomp-broker"));
+        serverChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .option(ChannelOption.SO_BACKLOG, 4096)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.attr(SUBSCRIPTIONS).set(new ConcurrentHashMap<>());
+                        channel.pipeline().addLast(new StompFrameCodec.Decoder(), new StompFrameCodec.Encoder(),
+                                new FrameHandler());
+                    }
+                })
+                .bind(port)
+                .syncUninterruptibly()
+                .channel();
+        log.info("Embedded STOMP broker listening on port {}", getPort());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (serverChannel == null) {
+            return;
+        }
+        serverChannel.close().syncUninterruptibly();
+        workerGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS).syncUninterruptibly();
+        bossGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS).syncUninterruptibly();
+        serverChannel = null;
+        subscribers.clear();
+        log.info("Embedded STOMP broker stopped");
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return serverChannel != null;
+    }
+
+    @Override
+    public int getPhase() {
+        // The relay handler runs in the last phase; be up before it connects
+        return 0;
+    }
+
+    /**
+     * The bound port; differs from the configured one when that was 0.
+     */
+    public synchronized int getPort() {
+        return serverChannel != null ? ((InetSocketAddress) serverChannel.localAddress()).getPort() : port;
+    }
+
+    /**
+     * Subscriptions currently held, over all connections.
+     */
+    public int subscriptionCount() {
+        return subscribers.values().stream().mapToInt(channels ->
+                channels.values().stream().mapToInt(Set::size).sum()).sum();
+    }
+
+    // ── Helper Methods ──
+
+    private void handle(Channel channel, Message<byte[]> frame) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(frame);
+        StompCommand command = accessor.getCommand();
+        if (command == null) {
+            // Heartbeat
+            return;
+        }
+        switch (command) {
+            case CONNECT, STOMP -> {
+                StompHeaderAccessor connected = StompHeaderAccessor.create(StompCommand.CONNECTED);
+                connected.setVersion("1.2");
+                connected.setHeartbeat(0, 0);
+                send(channel, connected, new byte[0]);
+            }
+            case SUBSCRIBE -> {
+                String destination = accessor.getDestination();
+                String subscriptionId = accessor.getSubscriptionId();
+                if (destination == null || subscriptionId == null) {
+                    error(channel, "SUBSCRIBE requires destination and id");
+                    return;
+                }
+                channel.attr(SUBSCRIPTIONS).get().put(subscriptionId, destination);
+                subscribers.computeIfAbsent(destination, d -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(channel, c -> ConcurrentHashMap.newKeySet())
+                        .add(subscriptionId);
+            }
+            case UNSUBSCRIBE -> {
+                String destination = channel.attr(SUBSCRIPTIONS).get().remove(accessor.getSubscriptionId());
+                if (destination != null) {
+                    unsubscribe(channel, destination, accessor.getSubscriptionId());
+                }
+            }
+            case SEND -> deliver(accessor, frame.getPayload());
+            case DISCONNECT -> {
+                receipt(channel, accessor);
+                channel.close();
+                return;
+            }
+            default -> {
+                error(channel, "Unsupported command " + command);
+                return;
+            }
+        }
+        receipt(channel, accessor);
+    }
+
+    /**
+     * Fans a SEND out to every subscription of its destination, keeping its custom headers.
+     */
+    private void deliver(StompHeaderAccessor send, byte[] payload) {
+        String destination = send.getDestination();
+        Map<Channel, Set<String>> channels = destination != null ? subscribers.get(destination) : null;
+        if (channels == null) {
+            return;
+        }
+        Map<String, List<String>> headers = send.toNativeHeaderMap();
+        channels.forEach((channel, subscriptionIds) -> subscriptionIds.forEach(subscriptionId -> {
+            StompHeaderAccessor message = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            headers.forEach((name, values) -> {
+                if (!"receipt".equals(name) && !"transaction".equals(name) && !"content-length".equals(name)) {
+                    message.setNativeHeaderValues(name, values);
+                }
+            });
+            message.setSubscriptionId(subscriptionId);
+            message.setMessageId(Long.toString(messageIds.incrementAndGet()));
+            send(channel, message, payload);
+        }));
+    }
+
+    private void unsubscribe(Channel channel, String destination, String subscriptionId) {
+        Map<Channel, Set<String>> channels = subscribers.get(destination);
+        if (channels == null) {
+            return;
+        }
+        Set<String> ids = channels.get(channel);
+        if (ids != null && ids.remove(subscriptionId) && ids.isEmpty()) {
+            channels.remove(channel);
+        }
+    }
+
+    private void receipt(Channel channel, StompHeaderAccessor accessor) {
+        String receiptId = accessor.getReceipt();
+        if (receiptId != null) {
+            StompHeaderAccessor receipt = StompHeaderAccessor.create(StompCommand.RECEIPT);
+            receipt.setReceiptId(receiptId);
+            send(channel, receipt, new byte[0]);
+        }
+    }
+
+    private void error(Channel channel, String text) {
+        StompHeaderAccessor error = StompHeaderAccessor.create(StompCommand.ERROR);
+        error.setMessage(text);
+        send(channel, error, new byte[0]);
+        channel.close();
+    }
+
+    private static void send(Channel channel, StompHeaderAccessor accessor, byte[] payload) {
+        channel.writeAndFlush(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+
+    private class FrameHandler extends SimpleChannelInboundHandler<Message<byte[]>> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Message<byte[]> frame) {
+            handle(ctx.channel(), frame);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            ctx.channel().attr(SUBSCRIPTIONS).get()
+                    .forEach((subscriptionId, destination) -> unsubscribe(ctx.channel(), destination, subscriptionId));
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.debug("Embedded STOMP broker connection failed: {}", cause.getMessage());
+            ctx.close();
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.gourav.CodyWar.Domain.Dto.ApiResponse;
 import com.gourav.CodyWar.Exception.BattleNotActiveException;
 import com.gourav.CodyWar.Exception.ResourceNotFoundException;
 import com.gourav.CodyWar.Exception.SubmissionProcessingException;
+import com.gourav.CodyWar.Exception.SubmissionRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -68,6 +70,13 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(SubmissionRejectedException.class)
+    public ResponseEntity<ApiResponse<Void>> handleSubmissionRejectedException(SubmissionRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<Void>> handleGenericException(Exception ex) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
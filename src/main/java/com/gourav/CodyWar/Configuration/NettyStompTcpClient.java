@@ -0,0 +1,210 @@
+package com.gourav.CodyWar.Configuration;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.tcp.ReconnectStrategy;
+import org.springframework.messaging.tcp.TcpConnection;
+import org.springframework.messaging.tcp.TcpConnectionHandler;
+import org.springframework.messaging.tcp.TcpOperations;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TCP client of the STOMP broker relay built on the Netty that already ships with the Redis
+ * client, so relay mode needs no Reactor Netty on the classpath. The relay opens one connection
+ * per WebSocket session plus its shared system connection; all of them run on one small event
+ * loop group.
+ * <p>
+ * Connections made with a {@link ReconnectStrategy} (the system connection) are re-established
+ * whenever they fail or close, until {@link #shutdownAsync()}.
+ */
+@Slf4j
+public class NettyStompTcpClient implements TcpOperations<byte[]> {
+
+    private final String host;
+    private final int port;
+    private final EventLoopGroup eventLoopGroup;
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+    private volatile boolean stopping;
+
+    public NettyStompTcpClient(String host, int port, int ioThreads) {
+        this.host = host;
+        this.port = port;
+        this.eventLoopGroup = new NioEventLoopGroup(ioThreads, new DefaultThreadFactory("stomp-relay"));
+    }
+
+    @Override
+    public CompletableFuture<Void> connectAsync(TcpConnectionHandler<byte[]> handler) {
+        CompletableFuture<Void> connected = new CompletableFuture<>();
+        connect(handler, null, 0, connected);
+        return connected;
+    }
+
+    @Override
+    public CompletableFuture<Void> connectAsync(TcpConnectionHandler<byte[]> handler, ReconnectStrategy strategy) {
+        CompletableFuture<Void> connected = new CompletableFuture<>();
+        connect(handler, strategy, 0, connected);
+        return connected;
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdownAsync() {
+        stopping = true;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        channels.close().addListener(closed -> eventLoopGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS)
+                .addListener(terminated -> done.complete(null)));
+        return done;
+    }
+
+    // ── Helper Methods ──
+
+    private void connect(TcpConnectionHandler<byte[]> handler, ReconnectStrategy strategy, int attempt,
+                         CompletableFuture<Void> connected) {
+        if (stopping) {
+            connected.completeExceptionally(new IllegalStateException("STOMP relay client is shutting down"));
+            return;
+        }
+        ChannelFuture connect = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(new StompFrameCodec.Decoder(), new StompFrameCodec.Encoder(),
+                                new InboundHandler(handler, strategy));
+                    }
+                })
+                .connect(host, port);
+        connect.addListener(future -> {
+            if (future.isSuccess()) {
+                channels.add(connect.channel());
+                handler.afterConnected(new Connection(connect.channel()));
+                connected.complete(null);
+                return;
+            }
+            handler.afterConnectFailure(future.cause());
+            Long delay = strategy != null ? strategy.getTimeToNextAttempt(attempt) : null;
+            if (delay == null || stopping) {
+                connected.completeExceptionally(future.cause());
+                return;
+            }
+            log.warn("STOMP broker {}:{} unreachable, retrying in {} ms", host, port, delay);
+            eventLoopGroup.schedule(() -> connect(handler, strategy, attempt + 1, connected),
+                    delay, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Hands decoded frames to the relay and reports failures and closes; re-connects the
+     * connections that asked for it.
+     */
+    private class InboundHandler extends SimpleChannelInboundHandler<Message<byte[]>> {
+
+        private final TcpConnectionHandler<byte[]> handler;
+        private final ReconnectStrategy strategy;
+
+        InboundHandler(TcpConnectionHandler<byte[]> handler, ReconnectStrategy strategy) {
+            this.handler = handler;
+            this.strategy = strategy;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Message<byte[]> frame) {
+            handler.handleMessage(frame);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            handler.handleFailure(cause);
+            ctx.close();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            handler.afterConnectionClosed();
+            if (strategy != null && !stopping) {
+                Long delay = strategy.getTimeToNextAttempt(0);
+                eventLoopGroup.schedule(() -> connect(handler, strategy, 1, new CompletableFuture<>()),
+                        delay != null ? delay : 0, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * One relay connection; inactivity callbacks are Netty idle handlers added on demand.
+     */
+    private static class Connection implements TcpConnection<byte[]> {
+
+        private final Channel channel;
+
+        Connection(Channel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public CompletableFuture<Void> sendAsync(Message<byte[]> message) {
+            CompletableFuture<Void> sent = new CompletableFuture<>();
+            channel.writeAndFlush(message).addListener(future -> {
+                if (future.isSuccess()) {
+                    sent.complete(null);
+                } else {
+                    sent.completeExceptionally(future.cause());
+                }
+            });
+            return sent;
+        }
+
+        @Override
+        public void onReadInactivity(Runnable runnable, long duration) {
+            channel.pipeline().addFirst("read-inactivity", new InactivityHandler(IdleState.READER_IDLE, runnable, duration));
+        }
+
+        @Override
+        public void onWriteInactivity(Runnable runnable, long duration) {
+            channel.pipeline().addFirst("write-inactivity", new InactivityHandler(IdleState.WRITER_IDLE, runnable, duration));
+        }
+
+        @Override
+        public void close() {
+            channel.close();
+        }
+    }
+
+    private static class InactivityHandler extends IdleStateHandler {
+
+        private final Runnable runnable;
+
+        InactivityHandler(IdleState state, Runnable runnable, long duration) {
+            super(state == IdleState.READER_IDLE ? duration : 0, state == IdleState.WRITER_IDLE ? duration : 0,
+                    0, TimeUnit.MILLISECONDS);
+            this.runnable = runnable;
+        }
+
+        @Override
+        protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent event) {
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.gourav.CodyWar.Configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One session's outbound queue; see {@link SessionOutboundQueues}. {@link #sendMessage} only
+ * enqueues (or conflates, or drops a frame with a conflation key) and returns; one sender thread at
+ * a time writes the queue to the socket. A sender yields its thread after {@value #DRAIN_BATCH}
+ * frames, so a busy session cannot starve the others, and marks when its current write started, so
+ * a write the client never accepts can be found and its session closed ({@link #writeStalled}).
+ */
+@Slf4j
+class OutboundQueueSession extends WebSocketSessionDecorator {
+
+    private static final int DRAIN_BATCH = 64;
+    private static final String MESSAGE_FRAME = "MESSAGE\n";
+    private static final String SUBSCRIPTION_LINE = "subscription:";
+    private static final String CONFLATION_KEY_LINE = SessionOutboundQueues.CONFLATION_KEY_HEADER + ":";
+
+    private final SessionOutboundQueues queues;
+    private final List<Meter> meters;
+
+    // Guarded by this
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private final Map<String, Entry> pendingByKey = new HashMap<>();
+    private boolean draining;
+    private boolean closed;
+    private long queuedBytes;
+    private long fullSinceMs;
+    private long dropped;
+    private long conflated;
+
+    // When the write in progress started, 0 between writes
+    private volatile long writeStartedMs;
+
+    OutboundQueueSession(WebSocketSession delegate, SessionOutboundQueues queues) {
+        super(delegate);
+        this.queues = queues;
+        this.meters = List.of(
+                Gauge.builder("websocket.session.queue.depth", this, OutboundQueueSession::depth)
+                        .description("Frames waiting to be written to the session")
+                        .tag("session", delegate.getId())
+                        .register(queues.meterRegistry()),
+                FunctionCounter.builder("websocket.session.queue.dropped", this, OutboundQueueSession::dropped)
+                        .description("Frames dropped because the session's queue was full")
+                        .tag("session", delegate.getId())
+                        .register(queues.meterRegistry()),
+                FunctionCounter.builder("websocket.session.queue.conflated", this, OutboundQueueSession::conflated)
+                        .description("Queued frames replaced by a newer one with the same conflation key")
+                        .tag("session", delegate.getId())
+                        .register(queues.meterRegistry()));
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        String key = conflationKey(message);
+        long now = System.currentTimeMillis();
+        boolean startDrain = false;
+        long fullForMs = -1;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            Entry pending = key != null ? pendingByKey.get(key) : null;
+            if (pending != null) {
+                queuedBytes += message.getPayloadLength() - pending.message.getPayloadLength();
+                pending.message = message;
+                conflated++;
+                return;
+            }
+            if (queue.size() >= queues.capacity() || queuedBytes >= queues.sendBufferSizeLimit()) {
+                dropped++;
+                if (fullSinceMs == 0) {
+                    fullSinceMs = now;
+                }
+                // Only a frame with a conflation key may go missing: a newer one with the key follows
+                if (key != null && now - fullSinceMs < queues.slowConsumerGraceMs()) {
+                    return;
+                }
+                fullForMs = now - fullSinceMs;
+            } else {
+                Entry entry = new Entry(key, message);
+                queue.add(entry);
+                queuedBytes += message.getPayloadLength();
+                if (key != null) {
+                    pendingByKey.put(key, entry);
+                }
+                if (!draining) {
+                    draining = true;
+                    startDrain = true;
+                }
+            }
+        }
+        if (startDrain) {
+            queues.drainLater(this::drain);
+            return;
+        }
+        if (fullForMs >= 0) {
+            // The caller closes the session with this status
+            queues.slowConsumerDisconnected(this);
+            discard();
+            throw new SessionLimitExceededException("Outbound queue of session " + getId() + " full for "
+                    + fullForMs + " ms" + (key == null ? ", dropped a frame that cannot be conflated" : ""),
+                    SessionOutboundQueues.RESYNC_STATUS);
+        }
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        discard();
+        super.close(status);
+    }
+
+    /**
+     * Whether the write in progress has been waiting on the client for at least {@code limitMs}.
+     */
+    boolean writeStalled(long now, long limitMs) {
+        long started = writeStartedMs;
+        return started != 0 && now - started >= limitMs;
+    }
+
+    synchronized int depth() {
+        return queue.size();
+    }
+
+    synchronized long dropped() {
+        return dropped;
+    }
+
+    synchronized long conflated() {
+        return conflated;
+    }
+
+    /**
+     * Drops whatever is still queued and unregisters the session's meters; the session is gone.
+     */
+    void discard() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            pendingByKey.clear();
+            queuedBytes = 0;
+        }
+        meters.forEach(queues.meterRegistry()::remove);
+        queues.closed(this);
+    }
+
+    /**
+     * The conflation key of a MESSAGE frame, per subscription, or null if it supersedes nothing.
+     * Only the frame's header lines are scanned.
+     */
+    static String conflationKey(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage text) || !text.getPayload().startsWith(MESSAGE_FRAME)) {
+            return null;
+        }
+        String frame = text.getPayload();
+        String subscription = null;
+        String key = null;
+        int start = MESSAGE_FRAME.length();
+        while (start < frame.length()) {
+            int end = frame.indexOf('\n', start);
+            if (end < 0 || end == start) {
+                break;
+            }
+            if (frame.startsWith(SUBSCRIPTION_LINE, start)) {
+                subscription = frame.substring(start + SUBSCRIPTION_LINE.length(), end);
+            } else if (frame.startsWith(CONFLATION_KEY_LINE, start)) {
+                key = frame.substring(start + CONFLATION_KEY_LINE.length(), end);
+            }
+            start = end + 1;
+        }
+        return key != null ? subscription + "|" + key : null;
+    }
+
+    // ── Helper Methods ──
+
+    private void drain() {
+        for (int sent = 0; sent < DRAIN_BATCH; sent++) {
+            WebSocketMessage<?> next;
+            synchronized (this) {
+                Entry entry = queue.poll();
+                if (entry == null || closed) {
+                    draining = false;
+                    return;
+                }
+                if (entry.key != null) {
+                    pendingByKey.remove(entry.key);
+                }
+                queuedBytes -= entry.message.getPayloadLength();
+                // Room again: the slow-consumer clock restarts the next time the queue fills up
+                fullSinceMs = 0;
+                next = entry.message;
+            }
+            writeStartedMs = System.currentTimeMillis();
+            try {
+                getDelegate().sendMessage(next);
+            } catch (IOException | RuntimeException e) {
+                // The transport reports the broken connection and closes the session
+                log.debug("Failed to write to WebSocket session {}: {}", getId(), e.getMessage());
+                synchronized (this) {
+                    queue.clear();
+                    pendingByKey.clear();
+                    queuedBytes = 0;
+                    draining = false;
+                }
+                return;
+            } finally {
+                writeStartedMs = 0;
+            }
+        }
+        queues.drainLater(this::drain);
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private WebSocketMessage<?> message;
+
+        Entry(String key, WebSocketMessage<?> message) {
+            this.key = key;
+            this.message = message;
+        }
+    }
+}
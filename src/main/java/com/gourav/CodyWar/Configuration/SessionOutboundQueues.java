@@ -0,0 +1,185 @@
+package com.gourav.CodyWar.Configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every WebSocket session its own bounded outbound queue ({@link OutboundQueueSession}),
+ * drained by a small pool of sender threads, so a slow client only ever backs up its own queue:
+ * the outbound channel threads hand frames over without blocking on the socket.
+ * <p>
+ * A sender thread writes one frame at a time, blocking until the client takes it. A write still
+ * waiting after {@code websocket.transport.send-time-limit-ms} closes its session with
+ * {@link #RESYNC_STATUS}, which fails the write and frees the thread, so stalled clients cannot pin
+ * the {@code websocket.session.queue.send-threads} senders that every session shares.
+ * <p>
+ * A queued frame carrying the {@value #CONFLATION_KEY_HEADER} header is replaced in place by a
+ * newer frame with the same key on the same subscription (the latest {@code TIMER_UPDATE} of a
+ * battle, the latest status of a submission). While a queue holds
+ * {@code websocket.session.queue.capacity} frames or {@code websocket.transport.send-buffer-size-limit}
+ * bytes, arriving frames with a conflation key are
+ * dropped, since a newer one will follow; a session whose queue stays full for
+ * {@code websocket.session.queue.slow-consumer-grace-ms}, or that would lose a frame without a
+ * key ({@code BATTLE_ENDED}, {@code PLAYER_JOINED}, {@code MATCH_FOUND}, ...), is closed with
+ * {@link #RESYNC_STATUS}, telling the client to reconnect and resync (clock handshake and state
+ * snapshot) rather than trust what it has.
+ * <p>
+ * Metrics, per open session (tag {@code session}): {@code websocket.session.queue.depth} (gauge),
+ * {@code websocket.session.queue.dropped} and {@code websocket.session.queue.conflated}
+ * (counters); overall: {@code websocket.sessions.slow.disconnected} (counter).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SessionOutboundQueues implements WebSocketHandlerDecoratorFactory {
+
+    /** Native header naming what a frame supersedes; see {@code BattleEventBus}. */
+    public static final String CONFLATION_KEY_HEADER = "conflation-key";
+
+    /** Close status of a slow consumer; the reason is the client's hint to reconnect and resync. */
+    public static final CloseStatus RESYNC_STATUS = CloseStatus.SESSION_NOT_RELIABLE.withReason("slow consumer, resync");
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, OutboundQueueSession> sessions = new ConcurrentHashMap<>();
+    private ThreadPoolTaskExecutor senders;
+    private Counter slowDisconnects;
+
+    @Value("${websocket.session.queue.capacity:256}")
+    private int capacity = 256;
+
+    @Value("${websocket.session.queue.slow-consumer-grace-ms:5000}")
+    private long slowConsumerGraceMs = 5000;
+
+    @Value("${websocket.session.queue.send-threads:16}")
+    private int sendThreads = 16;
+
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit = 512 * 1024;
+
+    @Value("${websocket.transport.send-time-limit-ms:10000}")
+    private long sendTimeLimitMs = 10_000;
+
+    @PostConstruct
+    public void init() {
+        senders = new ThreadPoolTaskExecutor();
+        senders.setCorePoolSize(sendThreads);
+        senders.setMaxPoolSize(sendThreads);
+        senders.setThreadNamePrefix("ws-send-");
+        senders.initialize();
+        slowDisconnects = Counter.builder("websocket.sessions.slow.disconnected")
+                .description("Sessions closed for staying over their outbound queue limit or stalling a write")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdown();
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(open(session));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                OutboundQueueSession queued = sessions.get(session.getId());
+                if (queued != null) {
+                    queued.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Open sessions with an outbound queue on this instance.
+     */
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes every session whose current write has waited on the client longer than the send time
+     * limit. Closing the socket fails the blocked write, which hands its sender thread back.
+     */
+    @Scheduled(fixedDelayString = "${websocket.session.queue.stall-check-interval-ms:1000}")
+    public void closeStalledSessions() {
+        long now = System.currentTimeMillis();
+        for (OutboundQueueSession session : sessions.values()) {
+            if (!session.writeStalled(now, sendTimeLimitMs)) {
+                continue;
+            }
+            slowDisconnects.increment();
+            log.warn("Closing slow WebSocket session {}: a write has waited over {} ms", session.getId(),
+                    sendTimeLimitMs);
+            try {
+                session.close(RESYNC_STATUS);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Failed to close stalled WebSocket session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Wraps a newly connected session in its outbound queue.
+     */
+    OutboundQueueSession open(WebSocketSession session) {
+        OutboundQueueSession queued = new OutboundQueueSession(session, this);
+        sessions.put(session.getId(), queued);
+        return queued;
+    }
+
+    // ── Package-private hooks for OutboundQueueSession ──
+
+    int capacity() {
+        return capacity;
+    }
+
+    int sendBufferSizeLimit() {
+        return sendBufferSizeLimit;
+    }
+
+    long slowConsumerGraceMs() {
+        return slowConsumerGraceMs;
+    }
+
+    MeterRegistry meterRegistry() {
+        return meterRegistry;
+    }
+
+    void drainLater(Runnable drain) {
+        senders.execute(drain);
+    }
+
+    void slowConsumerDisconnected(OutboundQueueSession session) {
+        slowDisconnects.increment();
+        log.warn("Closing slow WebSocket session {}: outbound queue full for over {} ms", session.getId(),
+                slowConsumerGraceMs);
+    }
+
+    void closed(OutboundQueueSession session) {
+        sessions.remove(session.getId(), session);
+    }
+}
@@ -0,0 +1,55 @@
+package com.gourav.CodyWar.Configuration;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.MessageToByteEncoder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * STOMP framing for a Netty pipeline, on top of Spring's {@link StompDecoder} and
+ * {@link StompEncoder}: inbound bytes become {@code Message<byte[]>} frames (heartbeats included),
+ * outbound frames are encoded as they are written. Shared by {@link NettyStompTcpClient} and
+ * {@link EmbeddedStompBroker}.
+ */
+final class StompFrameCodec {
+
+    private StompFrameCodec() {
+    }
+
+    /**
+     * Decodes every complete frame in the buffer and leaves a partial one for the next read.
+     * One instance per channel.
+     */
+    static final class Decoder extends ByteToMessageDecoder {
+
+        private final StompDecoder decoder = new StompDecoder();
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            ByteBuffer buffer = in.nioBuffer();
+            int start = buffer.position();
+            List<Message<byte[]>> frames = decoder.decode(buffer);
+            in.skipBytes(buffer.position() - start);
+            out.addAll(frames);
+        }
+    }
+
+    /**
+     * Encodes outbound frames; stateless, one instance per channel for simplicity.
+     */
+    static final class Encoder extends MessageToByteEncoder<Message<byte[]>> {
+
+        private final StompEncoder encoder = new StompEncoder();
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, Message<byte[]> frame, ByteBuf out) {
+            out.writeBytes(encoder.encode(frame));
+        }
+    }
+}
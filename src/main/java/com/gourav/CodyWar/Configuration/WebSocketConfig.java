@@ -1,13 +1,17 @@
 package com.gourav.CodyWar.Configuration;
 
+import com.gourav.CodyWar.Security.CustomUserDetails;
 import com.gourav.CodyWar.Security.JwtUtil;
+import com.gourav.CodyWar.Security.StompAuthenticationToken;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
@@ -19,20 +23,106 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * STOMP over WebSocket on {@code /ws/battle}.
+ * <p>
+ * {@code websocket.broker.mode} picks the broker behind {@code /topic} and {@code /queue}:
+ * {@code simple} keeps subscriptions in this instance's memory (battle room traffic between
+ * instances then goes through the {@code BattleEventBus}); {@code relay} forwards them to an
+ * external STOMP broker shared by all instances, which fans messages out to every instance's
+ * sessions and carries {@code /user} destinations across instances. The relay's TCP client is
+ * {@link NettyStompTcpClient}; {@code websocket.broker.relay.embedded=true} starts an
+ * {@link EmbeddedStompBroker} on the relay port for local runs.
+ * <p>
+ * The inbound (client frames) and outbound (frames to clients) channels run on bounded pools.
+ * Frames to each session go through its own bounded, conflating queue ({@link SessionOutboundQueues}),
+ * so one slow client is disconnected instead of holding outbound threads and memory.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    static final String RELAY_MODE = "relay";
+
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final SessionOutboundQueues sessionOutboundQueues;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode = "simple";
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost = "localhost";
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort = 61613;
+
+    @Value("${websocket.broker.relay.client-login:guest}")
+    private String relayClientLogin = "guest";
+
+    @Value("${websocket.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode = "guest";
+
+    @Value("${websocket.broker.relay.system-login:guest}")
+    private String relaySystemLogin = "guest";
+
+    @Value("${websocket.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode = "guest";
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost = "";
+
+    @Value("${websocket.broker.relay.io-threads:4}")
+    private int relayIoThreads = 4;
+
+    @Value("${websocket.channel.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize = 8;
+
+    @Value("${websocket.channel.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize = 32;
+
+    @Value("${websocket.channel.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity = 10_000;
+
+    @Value("${websocket.channel.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize = 8;
+
+    @Value("${websocket.channel.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize = 32;
+
+    @Value("${websocket.channel.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity = 10_000;
+
+    @Value("${websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit = 64 * 1024;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         // Prefix for messages FROM server TO client
-        registry.enableSimpleBroker("/topic", "/queue");
+        if (RELAY_MODE.equalsIgnoreCase(brokerMode)) {
+            StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setTcpClient(new NettyStompTcpClient(relayHost, relayPort, relayIoThreads))
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    // Users connected to another instance are reached through the broker
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+            log.info("WebSocket broker relay to {}:{}", relayHost, relayPort);
+        } else {
+            registry.enableSimpleBroker("/topic", "/queue");
+        }
+
+        // Frames to one session leave in the order they were sent, whichever outbound thread runs them
+        registry.setPreservePublishOrder(true);
 
         // Prefix for messages FROM client TO server
         registry.setApplicationDestinationPrefixes("/app");
@@ -52,8 +142,28 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*");
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // The send buffer and time limits are enforced by the per-session queues, which sit below
+        // Spring's own send decorator and so keep it from ever seeing a slow write
+        registration.setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(sessionOutboundQueues);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -69,8 +179,11 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                             if (email != null) {
                                 UserDetails userDetails = userDetailsService.loadUserByUsername(email);
                                 if (jwtUtil.isTokenValid(token, userDetails)) {
-                                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                                            userDetails, null, userDetails.getAuthorities());
+                                    UsernamePasswordAuthenticationToken authentication =
+                                            userDetails instanceof CustomUserDetails customUserDetails
+                                                    ? new StompAuthenticationToken(customUserDetails)
+                                                    : new UsernamePasswordAuthenticationToken(
+                                                            userDetails, null, userDetails.getAuthorities());
                                     SecurityContextHolder.getContext().setAuthentication(authentication);
                                     accessor.setUser(authentication);
                                 }
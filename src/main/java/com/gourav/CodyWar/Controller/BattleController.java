@@ -1,16 +1,17 @@
 package com.gourav.CodyWar.Controller;
 
 import com.gourav.CodyWar.Domain.Dto.*;
+import com.gourav.CodyWar.Domain.Entity.Difficulty;
 import com.gourav.CodyWar.Security.CustomUserDetails;
 import com.gourav.CodyWar.Service.BattleService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -60,7 +61,8 @@ public class BattleController {
 
     /**
      * Find a match or queue for matchmaking.
-     * Returns the matched battle or null if queued for matching.
+     * Returns the matched battle or null if queued for matching; a later match is pushed as
+     * MATCH_FOUND on /user/queue/notifications.
      */
     @PostMapping("/matchmaking")
     public ResponseEntity<ApiResponse<BattleResponseDto>> findMatch(
@@ -131,22 +133,34 @@ public class BattleController {
     }
 
     /**
-     * Get user's battle history.
+     * Get user's battle history, newest first. Pass the returned nextCursor as cursor for the next page.
      */
     @GetMapping("/my-battles")
-    public ResponseEntity<ApiResponse<List<BattleResponseDto>>> getMyBattles(
-            @AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<ApiResponse<CursorPage<BattleResponseDto>>> getMyBattles(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
         
-        List<BattleResponseDto> battles = battleService.getUserBattles(userDetails.getUser().getId());
+        CursorPage<BattleResponseDto> battles = battleService.getUserBattles(userDetails.getUser().getId(), cursor, limit);
         return ResponseEntity.ok(ApiResponse.success(battles));
     }
 
     /**
-     * Get list of active public battles that can be joined.
+     * Get list of active public battles that can be joined, newest first, paged like my-battles and
+     * optionally filtered by problem difficulty and free slots. The ETag is the lobby version, so a
+     * client sending it back in If-None-Match gets 304 Not Modified until the lobby changes.
      */
     @GetMapping("/active")
-    public ResponseEntity<ApiResponse<List<BattleResponseDto>>> getActiveBattles() {
-        List<BattleResponseDto> battles = battleService.getActiveBattles();
-        return ResponseEntity.ok(ApiResponse.success(battles));
+    public ResponseEntity<ApiResponse<CursorPage<LobbyBattleDto>>> getActiveBattles(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) Difficulty difficulty,
+            @RequestParam(defaultValue = "0") int minFreeSlots) {
+        CursorPage<LobbyBattleDto> battles = battleService.getActiveBattles(cursor, limit, difficulty, minFreeSlots);
+        // Spring answers 304 itself when the request's If-None-Match matches this ETag
+        return ResponseEntity.ok()
+                .eTag("W/\"lobby-" + battles.getVersion() + "\"")
+                .cacheControl(CacheControl.noCache())
+                .body(ApiResponse.success(battles));
     }
 }
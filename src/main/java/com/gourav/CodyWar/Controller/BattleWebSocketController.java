@@ -3,19 +3,23 @@ package com.gourav.CodyWar.Controller;
 import com.gourav.CodyWar.Domain.Dto.BattleEvent;
 import com.gourav.CodyWar.Domain.Dto.BattleState;
 import com.gourav.CodyWar.Security.CustomUserDetails;
+import com.gourav.CodyWar.Service.BattleEventBus;
 import com.gourav.CodyWar.Service.BattleService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.stereotype.Controller;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 
@@ -26,37 +30,45 @@ public class BattleWebSocketController {
 
     private final BattleService battleService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final BattleEventBus battleEventBus;
 
     /**
      * Handle player joining a battle room via WebSocket.
      * Client sends: /app/battle/{battleId}/join
      * Broadcasts to: /topic/battle/{battleId}
+     * Snapshot to the joining session: /user/queue/battle-state
+     * <p>
+     * The room only hears who joined; the joiner gets the full state once, as a
+     * {@code STATE_SNAPSHOT}, and keeps it current from the {@code BattleStateDelta}s on the topic.
      */
     @MessageMapping("/battle/{battleId}/join")
-    @SendTo("/topic/battle/{battleId}")
-    public BattleEvent handlePlayerJoin(
+    public void handlePlayerJoin(
             @DestinationVariable UUID battleId,
             SimpMessageHeaderAccessor headerAccessor) {
         
         CustomUserDetails userDetails = extractUserDetails(headerAccessor);
         if (userDetails == null) {
-            return createErrorEvent(battleId, "Unauthorized");
+            sendErrorToUser(headerAccessor, "Unauthorized");
+            return;
         }
 
         log.info("WebSocket: User {} joined battle room {}", userDetails.getUser().getId(), battleId);
 
         BattleState state = battleService.getBattleState(battleId);
-        
-        return BattleEvent.builder()
+        if (state != null) {
+            sendToSession(headerAccessor, "/queue/battle-state", snapshotEvent(state));
+        }
+
+        // Through the bus, so players connected to other instances see the join too
+        battleEventBus.publish(battleId, BattleEvent.builder()
                 .type(BattleEvent.EventType.PLAYER_JOINED)
                 .battleId(battleId)
                 .roomCode(state != null ? state.getRoomCode() : null)
                 .payload(Map.of(
                         "userId", userDetails.getUser().getId(),
-                        "username", userDetails.getUsername(),
-                        "battleState", state != null ? state : Map.of()
+                        "username", userDetails.getUsername()
                 ))
-                .build();
+                .build());
     }
 
     /**
@@ -112,27 +124,63 @@ public class BattleWebSocketController {
     }
 
     /**
-     * Handle heartbeat/ping from client.
-     * Client sends: /app/battle/{battleId}/heartbeat
+     * Clock handshake, made by subscribing right after connecting (and again after a reconnect).
+     * Client subscribes: /app/battle/{battleId}/clock
+     * Reply to the subscribing session only, as a {@code CLOCK_SYNC}
+     * <p>
+     * Carries the server time with {@code startedAt} and {@code durationSeconds}, so the client
+     * counts down locally; the server only announces the start, the end and the one authoritative
+     * {@code TIMER_UPDATE} before the end. The simple broker's CONNECTED frame cannot carry the
+     * battle's clock, hence a subscription rather than a connect header.
+     */
+    @SubscribeMapping("/battle/{battleId}/clock")
+    public BattleEvent handleClockSync(@DestinationVariable UUID battleId) {
+        BattleState state = battleService.getBattleState(battleId);
+
+        if (state == null) {
+            return createErrorEvent(battleId, "Battle not found");
+        }
+
+        Map<String, Object> clock = new LinkedHashMap<>();
+        clock.put("serverTime", System.currentTimeMillis());
+        clock.put("status", state.getStatus());
+        clock.put("startedAt", state.getStartedAt());
+        clock.put("durationSeconds", state.getDurationSeconds());
+        return BattleEvent.builder()
+                .type(BattleEvent.EventType.CLOCK_SYNC)
+                .battleId(battleId)
+                .roomCode(state.getRoomCode())
+                .payload(clock)
+                .build();
+    }
+
+    /**
+     * Handle heartbeat/ping from client. Reads no battle state: it returns the server time and
+     * echoes the client's {@code clientTime}, from which the client measures its clock offset and
+     * redoes the clock handshake when that has drifted.
+     * Client sends: /app/battle/{battleId}/heartbeat, optionally {@code {"clientTime": <epoch ms>}}
      * Response to: /user/queue/heartbeat
      */
     @MessageMapping("/battle/{battleId}/heartbeat")
     @SendToUser("/queue/heartbeat")
-    public BattleEvent handleHeartbeat(@DestinationVariable UUID battleId) {
-        BattleState state = battleService.getBattleState(battleId);
-        
+    public BattleEvent handleHeartbeat(
+            @DestinationVariable UUID battleId,
+            @Payload(required = false) Map<String, Object> payload) {
+        Map<String, Object> pong = new LinkedHashMap<>();
+        pong.put("serverTime", System.currentTimeMillis());
+        if (payload != null && payload.get("clientTime") != null) {
+            pong.put("clientTime", payload.get("clientTime"));
+        }
+
         return BattleEvent.builder()
                 .type(BattleEvent.EventType.HEARTBEAT)
                 .battleId(battleId)
-                .payload(Map.of(
-                        "remainingSeconds", state != null ? state.getRemainingTimeSeconds() : 0,
-                        "status", state != null ? state.getStatus() : "UNKNOWN"
-                ))
+                .payload(pong)
                 .build();
     }
 
     /**
-     * Request current battle state.
+     * Request current battle state, e.g. to resync after a gap in the delta sequence.
      * Client sends: /app/battle/{battleId}/state
      * Response to: /user/queue/battle-state
      */
@@ -145,12 +193,7 @@ public class BattleWebSocketController {
             return createErrorEvent(battleId, "Battle not found");
         }
 
-        return BattleEvent.builder()
-                .type(BattleEvent.EventType.TIMER_UPDATE)
-                .battleId(battleId)
-                .roomCode(state.getRoomCode())
-                .payload(state)
-                .build();
+        return snapshotEvent(state);
     }
 
     // ==================== HELPER METHODS ====================
@@ -164,6 +207,32 @@ public class BattleWebSocketController {
         return null;
     }
 
+    /**
+     * The full state; its {@code version} is the sequence number the following deltas continue.
+     */
+    private BattleEvent snapshotEvent(BattleState state) {
+        return BattleEvent.builder()
+                .type(BattleEvent.EventType.STATE_SNAPSHOT)
+                .battleId(state.getBattleId())
+                .roomCode(state.getRoomCode())
+                .payload(state)
+                .build();
+    }
+
+    /**
+     * Sends to the one session the message came from rather than to all of the user's sessions.
+     */
+    private void sendToSession(SimpMessageHeaderAccessor headerAccessor, String destination, Object payload) {
+        if (headerAccessor.getUser() == null || headerAccessor.getSessionId() == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(headerAccessor.getSessionId());
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(headerAccessor.getUser().getName(), destination, payload,
+                headers.getMessageHeaders());
+    }
+
     private BattleEvent createErrorEvent(UUID battleId, String message) {
         return BattleEvent.builder()
                 .type(BattleEvent.EventType.ERROR)
@@ -35,7 +35,7 @@ public class BattleEvent implements Serializable {
         // Battle lifecycle events
         BATTLE_STARTING,   // Countdown before start
         TIMER_START,       // Battle has started
-        TIMER_UPDATE,      // Periodic timer update
+        TIMER_UPDATE,      // Authoritative remaining time, to correct drifted client clocks
         BATTLE_ENDED,      // Battle time is up
         
         // Submission events
@@ -43,10 +43,20 @@ public class BattleEvent implements Serializable {
         SUBMISSION_JUDGED,
         SUBMISSION_UPDATE,
         
+        // Matchmaking events (sent to a single user)
+        MATCH_FOUND,
+        MATCHMAKING_TIMEOUT,
+
         // Result events
         WINNER_ANNOUNCEMENT,
         BATTLE_CANCELLED,
         
+        // State sync: full state with its version, followed by BattleStateDeltas
+        STATE_SNAPSHOT,
+
+        // Clock handshake: server time, startedAt and durationSeconds for a local countdown
+        CLOCK_SYNC,
+
         // System events
         ERROR,
         HEARTBEAT
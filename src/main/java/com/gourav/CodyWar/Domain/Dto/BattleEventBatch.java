@@ -0,0 +1,42 @@
+package com.gourav.CodyWar.Domain.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Battle room messages one instance collected during a flush window, sent in one publish to
+ * another instance whose clients watch those battles. Never forwarded to clients as such.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BattleEventBatch implements Serializable {
+
+    /** Instance that produced the messages. */
+    private String origin;
+
+    @Builder.Default
+    private List<Delivery> deliveries = new ArrayList<>();
+
+    /**
+     * One message for {@code /topic/battle/{battleId}}: a {@link BattleEvent} or a
+     * {@link SubmissionResponseDto}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Delivery implements Serializable {
+
+        private UUID battleId;
+        private Object message;
+    }
+}
@@ -1,6 +1,7 @@
 package com.gourav.CodyWar.Domain.Dto;
 
 import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import com.gourav.CodyWar.Domain.Entity.JudgeMode;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,6 +24,7 @@ public class BattleResponseDto {
     private int currentParticipants;
     private int durationSeconds;
     private boolean isPrivate;
+    private JudgeMode judgeMode;
     private ProblemResponseDto problem;
     private List<ParticipantDto> participants;
     private UserDto winner;
@@ -1,6 +1,7 @@
 package com.gourav.CodyWar.Domain.Dto;
 
 import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -20,6 +21,8 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+// Derived values are written for clients but skipped when the state is read back from Redis
+@JsonIgnoreProperties(value = {"full", "remainingTimeSeconds"}, allowGetters = true)
 public class BattleState implements Serializable {
 
     private UUID battleId;
@@ -38,6 +41,9 @@ public class BattleState implements Serializable {
     private Instant startedAt;
     private Instant finishedAt;
 
+    // Incremented by every change in Redis; used for optimistic updates
+    private long version;
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -50,6 +56,8 @@ public class BattleState implements Serializable {
         private int score;
         private Instant joinedAt;
         private UUID lastSubmissionId;
+        // Stable number within the battle, assigned on join; state deltas refer to it
+        private int slot;
     }
 
     public boolean isFull() {
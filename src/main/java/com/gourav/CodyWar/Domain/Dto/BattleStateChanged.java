@@ -0,0 +1,22 @@
+package com.gourav.CodyWar.Domain.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Sent between instances on the battle events channel when a battle's Redis state changed, so
+ * each instance drops its cached copy. Never forwarded to clients.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BattleStateChanged implements Serializable {
+
+    private UUID battleId;
+}
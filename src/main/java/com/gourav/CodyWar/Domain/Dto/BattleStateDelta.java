@@ -0,0 +1,63 @@
+package com.gourav.CodyWar.Domain.Dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * One change to a battle's {@link BattleState}, sent on {@code /topic/battle/{battleId}} instead of
+ * the whole state. Short property names keep a typical delta to a few dozen bytes, e.g.
+ * {@code {"seq":17,"op":"READY","p":2,"v":true}}.
+ * <p>
+ * {@code seq} is the state's {@code version} after the change; every change bumps it by one. A
+ * client applies the deltas following the {@code version} of its {@code STATE_SNAPSHOT}, ignores
+ * those at or below it, and on a gap (a {@code seq} more than one ahead) requests a new snapshot
+ * from {@code /app/battle/{battleId}/state}. Participants are referenced by their
+ * {@link BattleState.ParticipantState#getSlot() slot}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"seq", "op", "p", "v", "u", "n", "at"})
+public class BattleStateDelta implements Serializable {
+
+    private long seq;
+    private Op op;
+
+    /** Participant slot; absent for battle-level changes. */
+    @JsonProperty("p")
+    private Integer slot;
+
+    /** New value: ready flag, score or status name. */
+    @JsonProperty("v")
+    private Object value;
+
+    /** User id of a joining participant, or the winner of a finished battle. */
+    @JsonProperty("u")
+    private UUID userId;
+
+    /** Username of a joining participant. */
+    @JsonProperty("n")
+    private String username;
+
+    /** Epoch millis of a status change (start or finish). */
+    @JsonProperty("at")
+    private Long at;
+
+    public enum Op {
+        JOIN,    // p, u, n: participant added, not ready, score 0
+        LEAVE,   // p: participant removed
+        READY,   // p, v: ready flag
+        SCORE,   // p, v: best score so far; the participant has submitted
+        STATUS   // v, at (u: winner on COMPLETED): battle status; no at when a rolled back start or end is undone
+    }
+}
@@ -2,6 +2,7 @@ package com.gourav.CodyWar.Domain.Dto;
 
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import com.gourav.CodyWar.Domain.Entity.JudgeMode;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -29,4 +30,6 @@ public class CreateBattleRequest {
     @Max(7200) // Maximum 2 hours
     @Builder.Default
     private int durationSeconds = 1800;  // 30 minutes default
+
+    private JudgeMode judgeMode;  // Optional: overrides the problem's judge mode for this battle
 }
@@ -0,0 +1,26 @@
+package com.gourav.CodyWar.Domain.Dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a listing. Pass {@code nextCursor} back as {@code cursor} to get the following
+ * page; it is absent on the last page. {@code version} identifies the data the page was cut
+ * from, for listings that keep one.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+    private Long version;
+}
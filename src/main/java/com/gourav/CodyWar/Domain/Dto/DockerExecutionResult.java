@@ -1,5 +1,6 @@
 package com.gourav.CodyWar.Domain.Dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -27,7 +28,8 @@ public class DockerExecutionResult {
 
     private String errorMessage;
 
-    // Helper methods for status determination
+    // Helper methods for status determination (derived, so kept out of the JSON cached in Redis)
+    @JsonIgnore
     public boolean isAllPassed() {
         return success && passedTestCases == totalTestCases;
     }
@@ -36,11 +38,18 @@ public class DockerExecutionResult {
         return errorMessage != null && errorMessage.contains("Compilation Error");
     }
 
+    @JsonIgnore
     public boolean isTimeLimitExceeded() {
         return errorMessage != null && errorMessage.contains("Time Limit Exceeded");
     }
 
+    @JsonIgnore
     public boolean isMemoryLimitExceeded() {
         return errorMessage != null && errorMessage.contains("Memory Limit Exceeded");
     }
+
+    @JsonIgnore
+    public boolean isOutputLimitExceeded() {
+        return errorMessage != null && errorMessage.contains("Output Limit Exceeded");
+    }
 }
@@ -8,7 +8,7 @@ import lombok.NoArgsConstructor;
 /**
  * Internal DTO representing the raw result of running user code inside a Docker container.
  * This is NOT exposed via the REST API — it is the contract between
- * {@code CodeExecutionService} (which runs Docker) and {@code SubmissionService}
+ * {@code DockerClientService} (which runs the sandbox) and {@code SubmissionService}
  * (which judges the results against expected test case output).
  */
 @Data
@@ -24,10 +24,21 @@ public class ExecutionResult {
     private boolean success;
 
     /**
-     * Standard output captured from the program (trimmed).
+     * Standard output captured from the program (trimmed). Empty when the output was streamed
+     * into an {@code OutputChecker} instead.
      */
     private String output;
 
+    /**
+     * Checker verdict when the output was streamed into an {@code OutputChecker}; null otherwise.
+     */
+    private Boolean outputMatched;
+
+    /**
+     * True if the program was stopped for writing more than the output limit.
+     */
+    private boolean outputLimitExceeded;
+
     /**
      * Standard error captured from the program (compilation errors, stack traces, etc.).
      */
@@ -58,4 +69,9 @@ public class ExecutionResult {
      * True if the container was killed because it exceeded the memory limit.
      */
     private boolean memoryExceeded;
+
+    /**
+     * True if the source failed to compile; {@link #errorOutput} then holds the compiler diagnostics.
+     */
+    private boolean compilationError;
 }
@@ -0,0 +1,28 @@
+package com.gourav.CodyWar.Domain.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Submission waiting in the Redis judge queue.
+ * Tasks whose battle ends soonest are judged first.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JudgeTask implements Serializable {
+
+    private UUID submissionId;
+    private UUID battleId;
+    private UUID userId;
+    private Instant battleDeadline;
+    private Instant enqueuedAt;
+    private int attempts;  // Deliveries whose worker died before completing
+}
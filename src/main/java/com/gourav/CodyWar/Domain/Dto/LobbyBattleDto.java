@@ -0,0 +1,39 @@
+package com.gourav.CodyWar.Domain.Dto;
+
+import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import com.gourav.CodyWar.Domain.Entity.Difficulty;
+import com.gourav.CodyWar.Domain.Entity.JudgeMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A public battle as listed in the lobby: just what a player needs to pick one to join.
+ * Remaining time is left to clients ({@code startedAt + durationSeconds}) so an entry only
+ * changes on lifecycle events.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LobbyBattleDto {
+
+    private UUID id;
+    private BattleStatus status;
+    private UUID problemId;
+    private String problemTitle;
+    private Difficulty difficulty;
+    private JudgeMode judgeMode;
+    private int maxParticipants;
+    private int currentParticipants;
+    private int freeSlots;
+    private int durationSeconds;
+    private List<String> participants;
+    private Instant createdAt;
+    private Instant startedAt;
+}
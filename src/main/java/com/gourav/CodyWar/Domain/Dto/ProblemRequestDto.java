@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
 import java.util.List;
@@ -37,6 +38,22 @@ public class ProblemRequestDto {
 
     private String examples;
 
+    /**
+     * Optional judge mode (FULL, FAIL_FAST or FAN_OUT); the configured default is used when absent.
+     */
+    private String judgeMode;
+
+    /**
+     * Optional output checker (EXACT, TOKEN or FLOAT); EXACT when absent.
+     */
+    private String checkerType;
+
+    /**
+     * Optional absolute/relative tolerance for the FLOAT checker.
+     */
+    @Positive(message = "Checker epsilon must be positive")
+    private Double checkerEpsilon;
+
     /**
      * Optional list of test cases to be created with the problem.
      * Each entry represents one test case (input, expectedOutput, isHidden, orderIndex).
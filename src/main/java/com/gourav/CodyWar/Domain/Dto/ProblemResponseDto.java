@@ -6,7 +6,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.gourav.CodyWar.Domain.Entity.CheckerType;
 import com.gourav.CodyWar.Domain.Entity.Difficulty;
+import com.gourav.CodyWar.Domain.Entity.JudgeMode;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -52,6 +54,15 @@ public class ProblemResponseDto {
     @JsonProperty("memoryLimitMb")
     private Integer memoryLimitMb;
 
+    @JsonProperty("judgeMode")
+    private JudgeMode judgeMode;
+
+    @JsonProperty("checkerType")
+    private CheckerType checkerType;
+
+    @JsonProperty("checkerEpsilon")
+    private Double checkerEpsilon;
+
     @JsonProperty("createdAt")
     private LocalDateTime createdAt;
 
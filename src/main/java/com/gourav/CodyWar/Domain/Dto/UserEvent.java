@@ -0,0 +1,23 @@
+package com.gourav.CodyWar.Domain.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * A battle event addressed to one user, relayed between instances so it reaches the user
+ * whichever instance holds their WebSocket session.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEvent implements Serializable {
+
+    private UUID userId;
+    private BattleEvent event;
+}
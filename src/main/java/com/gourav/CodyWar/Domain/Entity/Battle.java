@@ -45,6 +45,9 @@ public class Battle {
     @Builder.Default
     private boolean isPrivate = false;
 
+    @Enumerated(EnumType.STRING)
+    private JudgeMode judgeMode;  // Overrides the problem's judge mode when set
+
     @OneToMany(mappedBy = "battle", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private Set<BattleParticipant> participants = new HashSet<>();
@@ -0,0 +1,8 @@
+package com.gourav.CodyWar.Domain.Entity;
+
+// How a program's output is compared with a test case's expected output
+public enum CheckerType {
+    EXACT,  // Identical apart from leading/trailing whitespace of the whole output
+    TOKEN,  // Same whitespace-separated tokens; amount and kind of whitespace is ignored
+    FLOAT   // Same tokens, numeric tokens may differ by the problem's epsilon (absolute or relative)
+}
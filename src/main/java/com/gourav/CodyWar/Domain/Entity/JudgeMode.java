@@ -0,0 +1,8 @@
+package com.gourav.CodyWar.Domain.Entity;
+
+// How a submission's test cases are evaluated; set per problem and optionally overridden per battle
+public enum JudgeMode {
+    FULL,       // Run cases in order, keep going on wrong answers to report a partial score
+    FAIL_FAST,  // Run cases in order, stop at the first case that does not pass
+    FAN_OUT     // Run cases concurrently across sandbox slots, verdict still taken in order
+}
@@ -48,6 +48,17 @@ public class Problem {
     @Builder.Default
     private int memoryLimitMb = 256;
 
+    @Enumerated(EnumType.STRING)
+    private JudgeMode judgeMode;  // Null falls back to judge.default-mode
+
+    @Enumerated(EnumType.STRING)
+    private CheckerType checkerType;  // Null means EXACT
+
+    private Double checkerEpsilon;  // FLOAT checker tolerance; null falls back to judge.checker.default-epsilon
+
+    @Column(length = 64)
+    private String testSetHash;  // SHA-256 of the judged test case content; changes whenever the cases do
+
     @OneToMany(mappedBy = "problem", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private Set<TestCase> testCases = new HashSet<>();
@@ -7,6 +7,7 @@ public enum SubmissionStatus {
     WRONG_ANSWER,
     TIME_LIMIT_EXCEEDED,
     MEMORY_LIMIT_EXCEEDED,
+    OUTPUT_LIMIT_EXCEEDED,
     RUNTIME_ERROR,
     COMPILATION_ERROR
 }
@@ -0,0 +1,20 @@
+package com.gourav.CodyWar.Exception;
+
+/**
+ * Thrown when a submission cannot be admitted to the judge queue, either because
+ * the queue is full or because the user already has too many submissions in flight.
+ * Mapped to HTTP 429 TOO MANY REQUESTS by GlobalExceptionHandler.
+ */
+public class SubmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public SubmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -2,11 +2,14 @@ package com.gourav.CodyWar.Repository;
 
 import com.gourav.CodyWar.Domain.Entity.Battle;
 import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,6 +33,19 @@ public interface BattleRepository extends JpaRepository<Battle, UUID> {
     @Query("SELECT b FROM Battle b JOIN b.participants p WHERE p.user.id = :userId ORDER BY b.createdAt DESC")
     List<Battle> findByUserIdOrderByCreatedAtDesc(@Param("userId") UUID userId);
 
+    // Keyset pages, newest first: the first page, then everything after the last (createdAt, id) seen
+
+    @EntityGraph(attributePaths = {"problem", "winner"})
+    @Query("SELECT b FROM Battle b JOIN b.participants p WHERE p.user.id = :userId ORDER BY b.createdAt DESC, b.id DESC")
+    List<Battle> findPageByUserId(@Param("userId") UUID userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"problem", "winner"})
+    @Query("SELECT b FROM Battle b JOIN b.participants p WHERE p.user.id = :userId " +
+            "AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+            "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Battle> findPageByUserIdAfter(@Param("userId") UUID userId, @Param("createdAt") Instant createdAt,
+                                       @Param("id") UUID id, Pageable pageable);
+
     @Query("SELECT COUNT(b) FROM Battle b JOIN b.participants p WHERE p.user.id = :userId AND b.status = :status")
     long countByUserIdAndStatus(@Param("userId") UUID userId, @Param("status") BattleStatus status);
 
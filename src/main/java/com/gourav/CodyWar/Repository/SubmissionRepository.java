@@ -5,6 +5,7 @@ import com.gourav.CodyWar.Domain.Entity.SubmissionStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -35,6 +36,12 @@ public interface SubmissionRepository extends JpaRepository<Submission, UUID> {
      */
     long countByBattleIdAndUserId(UUID battleId, UUID userId);
 
+    /**
+     * Counts a user's submissions in a battle that are in one of the given states.
+     * Used with PENDING/RUNNING to cap how many submissions a user has in the judge queue.
+     */
+    long countByBattleIdAndUserIdAndStatusIn(UUID battleId, UUID userId, Collection<SubmissionStatus> statuses);
+
     /**
      * A user's full submission history, newest first.
      * Used for the user profile / history page.
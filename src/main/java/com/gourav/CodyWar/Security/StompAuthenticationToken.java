@@ -0,0 +1,19 @@
+package com.gourav.CodyWar.Security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+/**
+ * Authentication attached to a STOMP session. Named by the user's id instead of their email, so
+ * server pushes can address a user as {@code /user/<userId>/queue/...}.
+ */
+public class StompAuthenticationToken extends UsernamePasswordAuthenticationToken {
+
+    public StompAuthenticationToken(CustomUserDetails userDetails) {
+        super(userDetails, null, userDetails.getAuthorities());
+    }
+
+    @Override
+    public String getName() {
+        return ((CustomUserDetails) getPrincipal()).getUser().getId().toString();
+    }
+}
@@ -0,0 +1,391 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.ExecutionResult;
+import com.gourav.CodyWar.Domain.Entity.Language;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Shared compile/run flow for sandbox workers. Subclasses decide how a shell command is
+ * launched (directly on the host or through {@code docker exec}); stdin, stdout and stderr are
+ * always redirected through per-invocation files in {@link #ioDir} so large outputs cannot
+ * dead-lock the pipes and parallel runs of the same artifact do not clobber each other.
+ */
+@Slf4j
+abstract class AbstractSandboxWorker implements SandboxWorker {
+
+    /** Exit code reported for runs killed because they exceeded the time limit. */
+    static final int TIMEOUT_EXIT_CODE = 124;
+
+    /** Upper bound on captured stdout/stderr; anything beyond is dropped. */
+    static final int MAX_CAPTURED_BYTES = 4 * 1024 * 1024;
+
+    private static final long POLL_INTERVAL_MS = 5;
+
+    protected final SandboxToolchain toolchain;
+    protected final Path ioDir;
+    protected final int compileTimeoutSeconds;
+    protected final int memoryCapacityMb;
+    protected volatile boolean healthy = true;
+    protected volatile int parallelSlots = 1;
+
+    private final AtomicLong invocationCounter = new AtomicLong();
+
+    protected AbstractSandboxWorker(SandboxToolchain toolchain, Path ioDir, int compileTimeoutSeconds,
+                                    int memoryCapacityMb) {
+        this.toolchain = toolchain;
+        this.ioDir = ioDir;
+        this.compileTimeoutSeconds = compileTimeoutSeconds;
+        this.memoryCapacityMb = memoryCapacityMb;
+    }
+
+    @Override
+    public Language getLanguage() {
+        return toolchain.getLanguage();
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    @Override
+    public int reserveParallelSlots(int requested, int memoryLimitMb) {
+        int fitting = memoryLimitMb > 0 ? memoryCapacityMb / memoryLimitMb : requested;
+        parallelSlots = Math.max(1, Math.min(requested, fitting));
+        return parallelSlots;
+    }
+
+    @Override
+    public ExecutionResult compile(String code) {
+        try {
+            writeSource(code);
+            if (!toolchain.isCompiled()) {
+                return ExecutionResult.builder().success(true).build();
+            }
+
+            ProcessOutcome compile = runCommand(toolchain.getCompileCommand(), null,
+                    TimeUnit.SECONDS.toMillis(compileTimeoutSeconds), 0, null);
+            if (compile.timedOut() || compile.exitCode() != 0) {
+                return ExecutionResult.builder()
+                        .success(false)
+                        .compilationError(true)
+                        .exitCode(compile.exitCode())
+                        .errorOutput(compile.timedOut()
+                                ? "Compilation timed out after " + compileTimeoutSeconds + "s"
+                                : (compile.stderr() + compile.stdout()).trim())
+                        .executionTimeMs(compile.elapsedMs())
+                        .build();
+            }
+            return ExecutionResult.builder()
+                    .success(true)
+                    .executionTimeMs(compile.elapsedMs())
+                    .build();
+        } catch (IOException e) {
+            throw sandboxFailure(e);
+        } catch (InterruptedException e) {
+            throw interrupted(e);
+        }
+    }
+
+    @Override
+    public ExecutionResult run(String input, int timeLimitSeconds, int memoryLimitMb, OutputChecker checker) {
+        Path inputFile = ioDir.resolve(invocationCounter.incrementAndGet() + ".stdin");
+        try {
+            Files.writeString(inputFile, input != null ? input : "", StandardCharsets.UTF_8);
+            return run(inputFile, timeLimitSeconds, memoryLimitMb, checker);
+        } catch (IOException e) {
+            throw sandboxFailure(e);
+        } finally {
+            try {
+                Files.deleteIfExists(inputFile);
+            } catch (IOException e) {
+                log.debug("Could not delete {}: {}", inputFile, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public ExecutionResult run(Path inputFile, int timeLimitSeconds, int memoryLimitMb, OutputChecker checker) {
+        try {
+            ProcessOutcome run = runCommand(toolchain.getRunCommand(memoryLimitMb), inputFile,
+                    TimeUnit.SECONDS.toMillis(timeLimitSeconds), memoryLimitMb, checker);
+            return toExecutionResult(run, timeLimitSeconds, memoryLimitMb, checker);
+        } catch (IOException e) {
+            throw sandboxFailure(e);
+        } catch (InterruptedException e) {
+            throw interrupted(e);
+        }
+    }
+
+    /**
+     * Places the submission's source where the compile and run commands expect it.
+     */
+    protected abstract void writeSource(String code) throws IOException, InterruptedException;
+
+    /**
+     * Runs a toolchain command inside the sandbox with stdin read from {@code stdinFile} (none when
+     * null) and the given wall-clock budget. A non-zero {@code memoryLimitMb} asks the implementation
+     * to measure and enforce peak memory. With a {@code checker}, stdout is streamed into it instead
+     * of being captured.
+     */
+    protected abstract ProcessOutcome runCommand(String command, Path stdinFile, long timeoutMillis, int memoryLimitMb,
+                                                 OutputChecker checker)
+            throws IOException, InterruptedException;
+
+    // ── Helpers shared by the backends ──
+
+    /**
+     * Starts {@code command} on the host with stdio redirected to files in {@link #ioDir},
+     * waits up to {@code timeoutMillis} and kills the whole process tree if it overruns.
+     * When {@code sampleMemory} is set the peak RSS is sampled from {@code /proc} while it runs
+     * and the process is killed as soon as it exceeds {@code memoryLimitKb}. When a {@code checker}
+     * is given, stdout is fed to it as it is written and the process is killed as soon as the
+     * checker gives up; stdout is then not captured in the outcome.
+     */
+    protected ProcessOutcome runHostProcess(List<String> command, Path workingDir, String stdin,
+                                            long timeoutMillis, boolean sampleMemory, long memoryLimitKb)
+            throws IOException, InterruptedException {
+        return runHostProcess(command, workingDir, stdin, timeoutMillis, sampleMemory, memoryLimitKb, null);
+    }
+
+    protected ProcessOutcome runHostProcess(List<String> command, Path workingDir, String stdin,
+                                            long timeoutMillis, boolean sampleMemory, long memoryLimitKb,
+                                            OutputChecker checker)
+            throws IOException, InterruptedException {
+        if (stdin == null) {
+            return runHostProcess(command, workingDir, (Path) null, timeoutMillis, sampleMemory, memoryLimitKb,
+                    checker);
+        }
+        Path stdinFile = ioDir.resolve(invocationCounter.incrementAndGet() + ".in");
+        Files.writeString(stdinFile, stdin, StandardCharsets.UTF_8);
+        try {
+            return runHostProcess(command, workingDir, stdinFile, timeoutMillis, sampleMemory, memoryLimitKb, checker);
+        } finally {
+            Files.deleteIfExists(stdinFile);
+        }
+    }
+
+    /**
+     * Same as above with stdin redirected straight from an existing file, which is never copied or
+     * loaded into memory; this is how spilled test inputs from {@link TestCaseCache} reach the program.
+     */
+    protected ProcessOutcome runHostProcess(List<String> command, Path workingDir, Path stdinFile,
+                                            long timeoutMillis, boolean sampleMemory, long memoryLimitKb,
+                                            OutputChecker checker)
+            throws IOException, InterruptedException {
+        long invocation = invocationCounter.incrementAndGet();
+        Path stdoutFile = ioDir.resolve(invocation + ".out");
+        Path stderrFile = ioDir.resolve(invocation + ".err");
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workingDir.toFile())
+                .redirectInput(stdinFile != null ? ProcessBuilder.Redirect.from(stdinFile.toFile())
+                        : ProcessBuilder.Redirect.PIPE)
+                .redirectOutput(stdoutFile.toFile())
+                .redirectError(stderrFile.toFile());
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        if (stdinFile == null) {
+            process.getOutputStream().close();
+        }
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long peakKb = 0;
+        boolean timedOut = false;
+        boolean memoryExceeded = false;
+        boolean checkerAborted = false;
+        StdoutFeed feed = checker != null ? new StdoutFeed(stdoutFile, checker) : null;
+
+        while (!process.waitFor(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            if (feed != null && !feed.pump()) {
+                checkerAborted = true;
+                destroyTree(process);
+                break;
+            }
+            if (sampleMemory) {
+                peakKb = Math.max(peakKb, readPeakRssKb(process.pid()));
+                if (memoryLimitKb > 0 && peakKb > memoryLimitKb) {
+                    memoryExceeded = true;
+                    destroyTree(process);
+                    break;
+                }
+            }
+            if (System.nanoTime() >= deadline) {
+                timedOut = true;
+                destroyTree(process);
+                break;
+            }
+        }
+        process.waitFor();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        try {
+            if (feed != null) {
+                if (!checkerAborted && feed.pump()) {
+                    checker.finish();
+                }
+                feed.close();
+            }
+            return new ProcessOutcome(
+                    timedOut ? TIMEOUT_EXIT_CODE : process.exitValue(),
+                    feed != null ? "" : readCapped(stdoutFile),
+                    readCapped(stderrFile),
+                    elapsedMs,
+                    peakKb,
+                    timedOut,
+                    memoryExceeded,
+                    checkerAborted);
+        } finally {
+            Files.deleteIfExists(stdoutFile);
+            Files.deleteIfExists(stderrFile);
+        }
+    }
+
+    protected static void deleteRecursively(Path root, boolean keepRoot) {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .filter(p -> !keepRoot || !p.equals(root))
+                    .forEach(p -> {
+                        try {
+                            Files.deleteIfExists(p);
+                        } catch (IOException e) {
+                            log.debug("Could not delete {}: {}", p, e.getMessage());
+                        }
+                    });
+        } catch (IOException e) {
+            log.warn("Failed to clean sandbox directory {}: {}", root, e.getMessage());
+        }
+    }
+
+    private ExecutionResult toExecutionResult(ProcessOutcome run, int timeLimitSeconds, int memoryLimitMb,
+                                              OutputChecker checker) {
+        boolean timedOut = run.timedOut() || run.elapsedMs() > TimeUnit.SECONDS.toMillis(timeLimitSeconds);
+        boolean memoryExceeded = run.memoryExceeded()
+                || (run.peakMemoryKb() > 0 && run.peakMemoryKb() > memoryLimitMb * 1024L);
+        // A program stopped by the checker did not fail on its own; its kill signal is not a runtime error
+        int exitCode = timedOut ? TIMEOUT_EXIT_CODE : run.checkerAborted() ? 0 : run.exitCode();
+        OutputChecker.Verdict verdict = checker != null ? checker.getVerdict() : null;
+
+        return ExecutionResult.builder()
+                .success(exitCode == 0 && !timedOut && !memoryExceeded)
+                .outputMatched(checker != null ? verdict == OutputChecker.Verdict.MATCH : null)
+                .outputLimitExceeded(verdict == OutputChecker.Verdict.OUTPUT_LIMIT_EXCEEDED)
+                .output(run.stdout().trim())
+                .errorOutput(run.stderr().trim())
+                .exitCode(exitCode)
+                .executionTimeMs(run.elapsedMs())
+                .memoryUsedKb(run.peakMemoryKb())
+                .timedOut(timedOut)
+                .memoryExceeded(memoryExceeded)
+                .build();
+    }
+
+    private IllegalStateException sandboxFailure(IOException e) {
+        healthy = false;
+        return new IllegalStateException("Sandbox I/O failure for " + getLanguage() + ": " + e.getMessage(), e);
+    }
+
+    private IllegalStateException interrupted(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        healthy = false;
+        return new IllegalStateException("Interrupted while executing code", e);
+    }
+
+    private static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * Reads VmHWM (peak resident set) for a live process; returns 0 where {@code /proc} is unavailable.
+     */
+    private static long readPeakRssKb(long pid) {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Process already exited or /proc is not mounted
+        }
+        return 0;
+    }
+
+    private static String readCapped(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return "";
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return new String(in.readNBytes(MAX_CAPTURED_BYTES), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Tails a run's stdout file into its checker in fixed-size chunks while the program writes it.
+     */
+    private static final class StdoutFeed {
+
+        private final Path stdoutFile;
+        private final OutputChecker checker;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private FileChannel channel;
+
+        private StdoutFeed(Path stdoutFile, OutputChecker checker) {
+            this.stdoutFile = stdoutFile;
+            this.checker = checker;
+        }
+
+        /**
+         * Feeds everything written since the last call; false once the checker has given up.
+         */
+        private boolean pump() throws IOException {
+            if (channel == null) {
+                if (!Files.exists(stdoutFile)) {
+                    return true;
+                }
+                channel = FileChannel.open(stdoutFile, StandardOpenOption.READ);
+            }
+            int n;
+            while ((n = channel.read(buffer.clear())) > 0) {
+                if (!checker.accept(buffer.array(), 0, n)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Raw outcome of one sandboxed command before it is mapped to an {@link ExecutionResult}.
+     * {@code checkerAborted} means the process was killed because its output could no longer match.
+     */
+    protected record ProcessOutcome(int exitCode, String stdout, String stderr, long elapsedMs,
+                                    long peakMemoryKb, boolean timedOut, boolean memoryExceeded,
+                                    boolean checkerAborted) {
+    }
+}
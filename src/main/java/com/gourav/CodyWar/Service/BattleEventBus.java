@@ -0,0 +1,416 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Configuration.SessionOutboundQueues;
+import com.gourav.CodyWar.Domain.Dto.BattleEvent;
+import com.gourav.CodyWar.Domain.Dto.BattleEventBatch;
+import com.gourav.CodyWar.Domain.Dto.SubmissionResponseDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The one way battle room messages reach {@code /topic/battle/{battleId}}, whichever instance
+ * produced them and whichever instances hold the watching clients.
+ * <p>
+ * Producers call {@link #publish}; messages are buffered and flushed every
+ * {@code battle.events.flush-interval-ms}. A flush delivers to this instance's subscribers
+ * directly and sends each other instance that has subscribers for any of the flushed battles one
+ * {@link BattleEventBatch} on its own channel {@code battle-events:node:<nodeId>}, all in one
+ * pipelined round trip. Instances with no subscribers for a battle never hear about it, so
+ * cross-instance traffic grows with the rooms being watched rather than with events times
+ * instances.
+ * <p>
+ * The subscription registry is a Redis set per battle, {@code battle:subscribers:{battleId}}, of
+ * the instances with at least one local STOMP subscription to its topic; it is maintained from
+ * the subscribe, unsubscribe and disconnect events of this instance's sessions, each write made
+ * under the same lock as the local change so they reach Redis in order. Every
+ * {@code battle.events.heartbeat-ms} an instance marks itself alive in the sorted set
+ * {@code battle-events:nodes} and re-asserts its registry entries, which expire unless renewed.
+ * Entries of an instance that missed {@value #MISSED_HEARTBEATS} heartbeats are not routed to and
+ * are removed by the next flush that meets them, so a crashed instance drops out. Within a window
+ * a newer {@code TIMER_UPDATE} supersedes an older one for the same battle and a newer status of a
+ * submission supersedes the older one: the older message is dropped and the newer one queued
+ * behind everything published before it, so superseded updates are never sent and no message
+ * overtakes one published earlier. The same key
+ * travels with the frame as the {@code conflation-key} header, so {@link SessionOutboundQueues}
+ * can go on replacing it while it waits in a slow session's queue.
+ * <p>
+ * With {@code websocket.broker.mode=relay} the external STOMP broker already fans each message out
+ * to the subscribers of every instance: a flush then sends everything to the broker once and the
+ * registry and node channels are not used; buffering and coalescing still apply.
+ * <p>
+ * Metrics: {@code battle.events.published} (counter), {@code battle.events.coalesced} (counter)
+ * and {@code battle.events.remote.batches} (counter of cross-instance publishes).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BattleEventBus implements MessageListener {
+
+    static final String NODE_CHANNEL_PREFIX = "battle-events:node:";
+    static final String SUBSCRIBERS_PREFIX = "battle:subscribers:";
+    static final String NODES_KEY = "battle-events:nodes";
+    static final String TOPIC_PREFIX = "/topic/battle/";
+
+    // Heartbeats an instance may miss before it counts as gone
+    static final int MISSED_HEARTBEATS = 3;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Local registry: battle -> "sessionId/subscriptionId", and session -> subscription -> battle
+    private final Map<UUID, Set<String>> localSubscribers = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, UUID>> sessionSubscriptions = new ConcurrentHashMap<>();
+
+    // Messages waiting for the next flush, in publish order, by coalescing key (a fresh object for
+    // messages that never coalesce)
+    private final Map<Object, BattleEventBatch.Delivery> pending = new LinkedHashMap<>();
+
+    private Counter published;
+    private Counter coalesced;
+    private Counter remoteBatches;
+
+    @Value("${battle.events.node-id:}")
+    private String nodeId = "";
+
+    @Value("${battle.events.batching-enabled:true}")
+    private boolean batchingEnabled = true;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode = "simple";
+
+    @Value("${battle.events.heartbeat-ms:5000}")
+    private long heartbeatMs = 5000;
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = ShardLeases.defaultNodeId();
+        }
+        published = Counter.builder("battle.events.published")
+                .description("Battle room messages published on this instance")
+                .register(meterRegistry);
+        coalesced = Counter.builder("battle.events.coalesced")
+                .description("Battle room messages dropped for a newer one in the same flush window")
+                .register(meterRegistry);
+        remoteBatches = Counter.builder("battle.events.remote.batches")
+                .description("Batches of battle room messages sent to other instances")
+                .register(meterRegistry);
+        if (brokerRelayed()) {
+            log.info("Battle event bus on node {}, fan-out left to the STOMP broker relay", nodeId);
+            return;
+        }
+        listenerContainer.addMessageListener(this, new ChannelTopic(NODE_CHANNEL_PREFIX + nodeId));
+        // Alive before the first subscriber registers, or other instances would prune its entry
+        heartbeat();
+        log.info("Battle event bus on node {}, subscribed to {}", nodeId, NODE_CHANNEL_PREFIX + nodeId);
+    }
+
+    /**
+     * Sends {@code message} to every client watching {@code battleId}, on any instance, with the
+     * next flush.
+     */
+    public void publish(UUID battleId, Object message) {
+        published.increment();
+        String coalescingKey = coalescingKey(battleId, message);
+        Object key = coalescingKey != null ? coalescingKey : new Object();
+        synchronized (pending) {
+            // Removed rather than replaced, so the newer message goes out after anything published before it
+            if (pending.remove(key) != null) {
+                coalesced.increment();
+            }
+            pending.put(key, new BattleEventBatch.Delivery(battleId, message));
+        }
+        if (!batchingEnabled) {
+            flush();
+        }
+    }
+
+    /**
+     * Delivers everything published since the last flush: locally, and in one batch per other
+     * instance with subscribers for the battles concerned.
+     */
+    @Scheduled(fixedDelayString = "${battle.events.flush-interval-ms:20}")
+    public void flush() {
+        List<BattleEventBatch.Delivery> deliveries;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            deliveries = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+
+        if (brokerRelayed()) {
+            // One send reaches the subscribers of every instance through the broker
+            deliveries.forEach(this::deliverLocally);
+            return;
+        }
+
+        deliveries.stream()
+                .filter(delivery -> localSubscribers.containsKey(delivery.getBattleId()))
+                .forEach(this::deliverLocally);
+
+        try {
+            Routes routes = routeToOtherNodes(deliveries);
+            if (!routes.byNode().isEmpty() || !routes.goneNodes().isEmpty()) {
+                pipelined(operations -> {
+                    routes.byNode().forEach((node, batch) -> operations.convertAndSend(
+                            NODE_CHANNEL_PREFIX + node, new BattleEventBatch(nodeId, batch)));
+                    routes.goneNodes().forEach((battleId, nodes) ->
+                            operations.opsForSet().remove(SUBSCRIBERS_PREFIX + battleId, nodes.toArray()));
+                });
+                remoteBatches.increment(routes.byNode().size());
+            }
+        } catch (Exception e) {
+            // Clients on other instances miss these; the state request lets them catch up
+            log.error("Failed to relay {} battle messages to other instances", deliveries.size(), e);
+        }
+    }
+
+    /**
+     * Handles a batch another instance sent here.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (body instanceof BattleEventBatch batch) {
+                batch.getDeliveries().forEach(this::deliverLocally);
+                log.debug("Delivered {} battle messages from node {}", batch.getDeliveries().size(), batch.getOrigin());
+            }
+        } catch (Exception e) {
+            log.error("Failed to process battle event batch", e);
+        }
+    }
+
+    /**
+     * Marks this instance alive and re-asserts its registry entries, so one lost to a failed write
+     * or pruned during a long pause comes back; instances silent for {@value #MISSED_HEARTBEATS}
+     * heartbeats leave the membership.
+     */
+    @Scheduled(fixedDelayString = "${battle.events.heartbeat-ms:5000}")
+    public void heartbeat() {
+        if (brokerRelayed()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            synchronized (localSubscribers) {
+                Set<UUID> watched = new HashSet<>(localSubscribers.keySet());
+                pipelined(operations -> {
+                    operations.opsForZSet().add(NODES_KEY, nodeId, now);
+                    operations.opsForZSet().removeRangeByScore(NODES_KEY, 0, now - livenessMs());
+                    watched.forEach(battleId -> {
+                        operations.opsForSet().add(SUBSCRIBERS_PREFIX + battleId, nodeId);
+                        operations.expire(SUBSCRIBERS_PREFIX + battleId, livenessMs(), TimeUnit.MILLISECONDS);
+                    });
+                });
+            }
+        } catch (Exception e) {
+            log.warn("Failed to heartbeat battle event bus node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    // ── Subscription registry ──
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        UUID battleId = battleOf(accessor.getDestination());
+        if (battleId == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        sessionSubscriptions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), battleId);
+        synchronized (localSubscribers) {
+            Set<String> subscribers = localSubscribers.computeIfAbsent(battleId, id -> new HashSet<>());
+            boolean first = subscribers.isEmpty();
+            subscribers.add(accessor.getSessionId() + "/" + accessor.getSubscriptionId());
+            // Under the lock: a concurrent last unsubscribe cannot remove the entry after this adds it
+            if (first && !brokerRelayed()) {
+                redisTemplate.opsForSet().add(SUBSCRIBERS_PREFIX + battleId, nodeId);
+                redisTemplate.expire(SUBSCRIBERS_PREFIX + battleId, livenessMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, UUID> subscriptions = sessionSubscriptions.get(accessor.getSessionId());
+        UUID battleId = subscriptions != null ? subscriptions.remove(accessor.getSubscriptionId()) : null;
+        if (battleId != null) {
+            unsubscribe(battleId, accessor.getSessionId() + "/" + accessor.getSubscriptionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, UUID> subscriptions = sessionSubscriptions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.forEach((subscriptionId, battleId) ->
+                    unsubscribe(battleId, event.getSessionId() + "/" + subscriptionId));
+        }
+    }
+
+    // ── Helper Methods ──
+
+    private void unsubscribe(UUID battleId, String subscription) {
+        synchronized (localSubscribers) {
+            Set<String> subscribers = localSubscribers.get(battleId);
+            if (subscribers != null && subscribers.remove(subscription) && subscribers.isEmpty()) {
+                localSubscribers.remove(battleId);
+                // Under the lock, so it cannot land after a concurrent first subscribe re-added the entry
+                if (!brokerRelayed()) {
+                    redisTemplate.opsForSet().remove(SUBSCRIBERS_PREFIX + battleId, nodeId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Where one flush goes: deliveries by other live instance, and the registry entries of
+     * instances that stopped heartbeating, by battle.
+     */
+    private record Routes(Map<String, List<BattleEventBatch.Delivery>> byNode, Map<UUID, Set<String>> goneNodes) {
+    }
+
+    /**
+     * Groups the deliveries by the other live instances subscribed to their battles, looked up
+     * together with the membership in one round trip.
+     */
+    private Routes routeToOtherNodes(List<BattleEventBatch.Delivery> deliveries) {
+        List<UUID> battleIds = deliveries.stream().map(BattleEventBatch.Delivery::getBattleId).distinct().toList();
+        long now = System.currentTimeMillis();
+        List<Object> results = pipelined(operations -> {
+            battleIds.forEach(battleId -> operations.opsForSet().members(SUBSCRIBERS_PREFIX + battleId));
+            operations.opsForZSet().rangeByScore(NODES_KEY, now - livenessMs(), Double.POSITIVE_INFINITY);
+        });
+
+        // Without the membership every registered instance is taken as alive
+        Set<String> alive = null;
+        if (results.size() > battleIds.size() && results.get(battleIds.size()) instanceof Set<?> set) {
+            alive = new HashSet<>();
+            for (Object node : set) {
+                alive.add(String.valueOf(node));
+            }
+        }
+
+        Map<UUID, Set<String>> nodesByBattle = new HashMap<>();
+        Map<UUID, Set<String>> goneNodes = new HashMap<>();
+        for (int i = 0; i < battleIds.size() && i < results.size(); i++) {
+            Set<String> nodes = new HashSet<>();
+            if (results.get(i) instanceof Set<?> set) {
+                set.forEach(node -> nodes.add(String.valueOf(node)));
+            }
+            nodes.remove(nodeId);
+            if (alive != null) {
+                Set<String> gone = new HashSet<>(nodes);
+                gone.removeAll(alive);
+                if (!gone.isEmpty()) {
+                    nodes.removeAll(gone);
+                    goneNodes.put(battleIds.get(i), gone);
+                }
+            }
+            nodesByBattle.put(battleIds.get(i), nodes);
+        }
+
+        Map<String, List<BattleEventBatch.Delivery>> byNode = new LinkedHashMap<>();
+        for (BattleEventBatch.Delivery delivery : deliveries) {
+            nodesByBattle.getOrDefault(delivery.getBattleId(), Set.of())
+                    .forEach(node -> byNode.computeIfAbsent(node, n -> new ArrayList<>()).add(delivery));
+        }
+        return new Routes(byNode, goneNodes);
+    }
+
+    private long livenessMs() {
+        return heartbeatMs * MISSED_HEARTBEATS;
+    }
+
+    private boolean brokerRelayed() {
+        return "relay".equalsIgnoreCase(brokerMode);
+    }
+
+    private void deliverLocally(BattleEventBatch.Delivery delivery) {
+        String destination = TOPIC_PREFIX + delivery.getBattleId();
+        String key = coalescingKey(delivery.getBattleId(), delivery.getMessage());
+        if (key == null) {
+            messagingTemplate.convertAndSend(destination, delivery.getMessage());
+        } else {
+            // Lets a slow session's outbound queue replace the frame if a newer one comes before it is written
+            messagingTemplate.convertAndSend(destination, delivery.getMessage(),
+                    Map.of(SessionOutboundQueues.CONFLATION_KEY_HEADER, key));
+        }
+    }
+
+    private List<Object> pipelined(Consumer<RedisOperations<String, Object>> commands) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                commands.accept((RedisOperations<String, Object>) operations);
+                return null;
+            }
+        });
+        return results != null ? results : List.of();
+    }
+
+    /**
+     * Messages with the same key supersede each other within a flush window; null if a message
+     * must always be sent.
+     */
+    static String coalescingKey(UUID battleId, Object message) {
+        if (message instanceof BattleEvent event && event.getType() == BattleEvent.EventType.TIMER_UPDATE) {
+            return "timer:" + battleId;
+        }
+        if (message instanceof SubmissionResponseDto submission && submission.getId() != null) {
+            return "submission:" + submission.getId();
+        }
+        return null;
+    }
+
+    static UUID battleOf(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(destination.substring(TOPIC_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
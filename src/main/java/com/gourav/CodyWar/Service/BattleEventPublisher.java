@@ -1,9 +1,11 @@
 package com.gourav.CodyWar.Service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gourav.CodyWar.Domain.Dto.BattleEvent;
+import com.gourav.CodyWar.Domain.Dto.BattleStateChanged;
+import com.gourav.CodyWar.Domain.Dto.UserEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -16,8 +18,12 @@ import jakarta.annotation.PostConstruct;
 import java.util.UUID;
 
 /**
- * Redis Pub/Sub service for broadcasting battle events across multiple application instances.
- * This enables horizontal scaling of WebSocket connections.
+ * Redis Pub/Sub for what every instance must hear: events addressed to one user, and battle
+ * state changes that invalidate the {@link BattleStateCache}. Battle room broadcasts go through
+ * the {@link BattleEventBus}, which only reaches instances whose clients watch the battle.
+ * <p>
+ * With {@code websocket.broker.mode=relay} user events are sent once, straight to the broker
+ * relay, which reaches the user's sessions on any instance.
  */
 @Service
 @RequiredArgsConstructor
@@ -27,29 +33,31 @@ public class BattleEventPublisher implements MessageListener {
     private final RedisTemplate<String, Object> redisTemplate;
     private final RedisMessageListenerContainer listenerContainer;
     private final SimpMessagingTemplate messagingTemplate;
-    private final ObjectMapper objectMapper;
+    private final BattleStateCache battleStateCache;
 
     private static final String BATTLE_EVENTS_CHANNEL = "battle-events";
+    private static final String USER_EVENTS_CHANNEL = "user-events";
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode = "simple";
 
     @PostConstruct
     public void init() {
         // Subscribe to battle events channel
         listenerContainer.addMessageListener(this, new ChannelTopic(BATTLE_EVENTS_CHANNEL));
-        log.info("Subscribed to Redis channel: {}", BATTLE_EVENTS_CHANNEL);
+        listenerContainer.addMessageListener(this, new ChannelTopic(USER_EVENTS_CHANNEL));
+        log.info("Subscribed to Redis channels: {}, {}", BATTLE_EVENTS_CHANNEL, USER_EVENTS_CHANNEL);
     }
 
     /**
-     * Publish a battle event to all application instances via Redis Pub/Sub.
-     * This ensures that all WebSocket clients connected to any instance receive the event.
+     * Tell every instance that a battle's Redis state changed so they drop their cached copy.
      */
-    public void publishEvent(BattleEvent event) {
+    public void publishStateChanged(UUID battleId) {
         try {
-            redisTemplate.convertAndSend(BATTLE_EVENTS_CHANNEL, event);
-            log.debug("Published event to Redis: {} for battle {}", event.getType(), event.getBattleId());
+            redisTemplate.convertAndSend(BATTLE_EVENTS_CHANNEL, BattleStateChanged.builder().battleId(battleId).build());
         } catch (Exception e) {
-            log.error("Failed to publish event to Redis", e);
-            // Fallback to local broadcast
-            broadcastLocally(event);
+            // Other instances fall back on the cache TTL
+            log.warn("Failed to publish state change for battle {}: {}", battleId, e.getMessage());
         }
     }
 
@@ -60,30 +68,45 @@ public class BattleEventPublisher implements MessageListener {
     @Override
     public void onMessage(Message message, byte[] pattern) {
         try {
-            String body = new String(message.getBody());
-            BattleEvent event = objectMapper.readValue(body, BattleEvent.class);
-            broadcastLocally(event);
-            log.debug("Received and broadcast event from Redis: {} for battle {}", event.getType(), event.getBattleId());
+            // Messages were written by the template's value serializer, binary or JSON
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (USER_EVENTS_CHANNEL.equals(new String(message.getChannel()))) {
+                UserEvent userEvent = (UserEvent) body;
+                deliverToUser(userEvent.getUserId(), userEvent.getEvent());
+                return;
+            }
+            if (body instanceof BattleStateChanged changed) {
+                battleStateCache.invalidate(changed.getBattleId());
+            }
         } catch (Exception e) {
             log.error("Failed to process Redis message", e);
         }
     }
 
     /**
-     * Broadcast event to WebSocket clients connected to this instance.
+     * Publish event to a specific user on {@code /user/queue/notifications}, through Redis so it
+     * reaches them whichever instance holds their WebSocket session.
      */
-    private void broadcastLocally(BattleEvent event) {
-        if (event.getBattleId() != null) {
-            String destination = "/topic/battle/" + event.getBattleId();
-            messagingTemplate.convertAndSend(destination, event);
+    public void publishToUser(UUID userId, BattleEvent event) {
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            deliverToUser(userId, event);
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(USER_EVENTS_CHANNEL, UserEvent.builder().userId(userId).event(event).build());
+            log.debug("Published {} to user {}", event.getType(), userId);
+        } catch (Exception e) {
+            log.error("Failed to publish user event to Redis", e);
+            // Fallback to local delivery
+            deliverToUser(userId, event);
         }
     }
 
     /**
-     * Publish event to a specific user.
+     * Deliver event to the user's sessions on this instance, if any. STOMP sessions are named by
+     * user id (see {@code StompAuthenticationToken}).
      */
-    public void publishToUser(UUID userId, BattleEvent event) {
-        String destination = "/user/" + userId + "/queue/notifications";
-        messagingTemplate.convertAndSend(destination, event);
+    private void deliverToUser(UUID userId, BattleEvent event) {
+        messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notifications", event);
     }
 }
@@ -6,13 +6,12 @@ import com.gourav.CodyWar.Repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -28,23 +27,30 @@ public class BattleService {
     private final ProblemRepository problemRepository;
     private final UserRepository userRepository;
     private final RedisTemplate<String, Object> redisTemplate;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final BattleTimerScheduler battleTimerScheduler;
+    private final MatchmakingQueue matchmakingQueue;
+    private final BattleEventPublisher battleEventPublisher;
+    private final BattleEventBus battleEventBus;
+    private final OpenBattleIndex openBattleIndex;
+    private final BattleStateStore battleStateStore;
+    private final LobbyView lobbyView;
 
     // Redis key prefixes
-    private static final String BATTLE_STATE_PREFIX = "battle:state:";
-    private static final String MATCHMAKING_QUEUE_KEY = "matchmaking:queue";
     private static final String USER_ACTIVE_BATTLE_PREFIX = "user:battle:";
     private static final String ROOM_CODE_PREFIX = "room:";
 
+    // Open battles tried from the index before falling back to the matchmaking queue
+    private static final int OPEN_BATTLE_ATTEMPTS = 3;
+
+    // Upper bound on the page size of battle listings
+    static final int MAX_PAGE_SIZE = 100;
+
     @Value("${battle.default.duration-seconds:1800}")
     private int defaultDurationSeconds;
 
     @Value("${battle.default.max-participants:2}")
     private int defaultMaxParticipants;
 
-    @Value("${battle.matchmaking.queue-timeout-seconds:300}")
-    private int queueTimeoutSeconds;
-
     // ==================== BATTLE CREATION ====================
 
     @Transactional
@@ -69,6 +75,7 @@ public class BattleService {
                 .maxParticipants(request.getMaxParticipants())
                 .durationSeconds(request.getDurationSeconds())
                 .isPrivate(request.isPrivate())
+                .judgeMode(request.getJudgeMode())
                 .build();
 
         battle = battleRepository.save(battle);
@@ -90,6 +97,10 @@ public class BattleService {
         // Track user's active battle
         trackUserActiveBattle(userId, battle.getId());
 
+        // List public battles so matchmaking can fill them without a database scan
+        openBattleIndex.open(battle, battle.getMaxParticipants() - 1);
+        lobbyView.put(battle);
+
         log.info("Battle created: {} by user: {}", battle.getId(), userId);
 
         return mapToBattleResponseDto(battle, battleState);
@@ -107,7 +118,7 @@ public class BattleService {
         Battle battle = battleRepository.findByRoomCode(roomCode)
                 .orElseThrow(() -> new IllegalArgumentException("Battle not found with room code: " + roomCode));
 
-        return joinBattle(user, battle);
+        return joinBattle(user, battle, false);
     }
 
     @Transactional
@@ -120,10 +131,14 @@ public class BattleService {
         Battle battle = battleRepository.findById(battleId)
                 .orElseThrow(() -> new IllegalArgumentException("Battle not found"));
 
-        return joinBattle(user, battle);
+        return joinBattle(user, battle, false);
     }
 
-    private BattleResponseDto joinBattle(User user, Battle battle) {
+    /**
+     * Adds {@code user} to a waiting battle. {@code slotReserved} is true when matchmaking already
+     * took the slot in the {@link OpenBattleIndex}; direct joins take it here.
+     */
+    private BattleResponseDto joinBattle(User user, Battle battle, boolean slotReserved) {
         // Validate battle state
         if (battle.getStatus() != BattleStatus.WAITING) {
             throw new IllegalStateException("Battle is not accepting new players");
@@ -148,20 +163,20 @@ public class BattleService {
         participantRepository.save(participant);
         battle.getParticipants().add(participant);
 
-        // Update Redis state
-        BattleState battleState = getBattleStateFromRedis(battle.getId());
-        if (battleState != null) {
-            BattleState.ParticipantState participantState = BattleState.ParticipantState.builder()
-                    .oduserId(user.getId())
-                    .username(user.getUsername())
-                    .isReady(false)
-                    .hasSubmitted(false)
-                    .score(0)
-                    .joinedAt(Instant.now())
-                    .build();
-            battleState.getParticipants().add(participantState);
-            saveBattleStateToRedis(battleState);
+        if (!slotReserved && !battle.isPrivate()) {
+            openBattleIndex.take(battle.getId());
         }
+        lobbyView.put(battle);
+
+        // Update Redis state: only the new participant is written
+        battleStateStore.addParticipant(battle.getId(), BattleState.ParticipantState.builder()
+                .oduserId(user.getId())
+                .username(user.getUsername())
+                .isReady(false)
+                .hasSubmitted(false)
+                .score(0)
+                .joinedAt(Instant.now())
+                .build());
 
         // Track user's active battle
         trackUserActiveBattle(user.getId(), battle.getId());
@@ -180,7 +195,8 @@ public class BattleService {
 
         log.info("User {} joined battle {}", user.getId(), battle.getId());
 
-        return mapToBattleResponseDto(battle, battleState);
+        // The battle is still waiting, so its remaining time is its duration; no state read needed
+        return mapToBattleResponseDto(battle, null);
     }
 
     // ==================== MATCHMAKING ====================
@@ -192,27 +208,48 @@ public class BattleService {
 
         checkUserNotInActiveBattle(userId);
 
-        // First, try to find an available public battle
-        List<Battle> availableBattles = battleRepository.findAvailablePublicBattles(BattleStatus.WAITING);
-        
-        for (Battle battle : availableBattles) {
+        // First, try to fill an open public battle, reserved from the index instead of a table scan
+        for (int attempt = 0; attempt < OPEN_BATTLE_ATTEMPTS; attempt++) {
+            UUID battleId = openBattleIndex.reserve();
+            if (battleId == null) {
+                break;
+            }
+            Battle battle = battleRepository.findById(battleId).orElse(null);
+            if (battle == null) {
+                openBattleIndex.close(battleId);
+                continue;
+            }
+            openBattleIndex.releaseOnRollback(battle);
             try {
-                return joinBattle(user, battle);
-            } catch (Exception e) {
-                // Battle might have filled up, try next one
-                log.debug("Could not join battle {}: {}", battle.getId(), e.getMessage());
+                return joinBattle(user, battle, true);
+            } catch (IllegalStateException e) {
+                // The index was behind the database; hand the slot back if the battle still has room
+                log.debug("Could not join battle {}: {}", battleId, e.getMessage());
+                if (battle.getStatus() == BattleStatus.WAITING
+                        && battle.getParticipants().size() < battle.getMaxParticipants()) {
+                    openBattleIndex.release(battle);
+                } else {
+                    openBattleIndex.close(battleId);
+                }
             }
         }
 
         // No available battle, check matchmaking queue
-        MatchmakingEntry matchedPlayer = findMatchInQueue(user);
+        // Claimed atomically: the player is already out of the queue, so nobody else can match them
+        MatchmakingEntry matchedPlayer = matchmakingQueue.claimMatch(user.getId(), user.getRatingScore());
         
         if (matchedPlayer != null) {
-            // Remove matched player from queue
-            removeFromMatchmakingQueue(matchedPlayer.getOduserId());
-            
             // Create a new battle with both players
-            return createMatchedBattle(user, matchedPlayer);
+            try {
+                BattleResponseDto battle = createMatchedBattle(user, matchedPlayer);
+                // The caller gets the battle in the response; the waiting player only by push
+                notifyMatchFound(List.of(matchedPlayer.getOduserId()), battle);
+                return battle;
+            } catch (RuntimeException e) {
+                // Give the claimed player their place back rather than silently dropping them
+                matchmakingQueue.add(matchedPlayer);
+                throw e;
+            }
         }
 
         // No match found, add to queue
@@ -230,49 +267,13 @@ public class BattleService {
                 .queuedAt(Instant.now())
                 .build();
 
-        redisTemplate.opsForList().rightPush(MATCHMAKING_QUEUE_KEY, entry);
-        redisTemplate.expire(MATCHMAKING_QUEUE_KEY, Duration.ofSeconds(queueTimeoutSeconds));
+        matchmakingQueue.add(entry);
         
         log.info("User {} added to matchmaking queue", user.getId());
     }
 
-    private MatchmakingEntry findMatchInQueue(User user) {
-        List<Object> queue = redisTemplate.opsForList().range(MATCHMAKING_QUEUE_KEY, 0, -1);
-        
-        if (queue == null || queue.isEmpty()) {
-            return null;
-        }
-
-        // Simple matching: find first player within rating range
-        int ratingThreshold = 200;
-        
-        for (Object obj : queue) {
-            if (obj instanceof MatchmakingEntry entry) {
-                if (!entry.getOduserId().equals(user.getId()) &&
-                    Math.abs(entry.getRatingScore() - user.getRatingScore()) <= ratingThreshold) {
-                    return entry;
-                }
-            }
-        }
-        
-        return null;
-    }
-
-    private void removeFromMatchmakingQueue(UUID userId) {
-        List<Object> queue = redisTemplate.opsForList().range(MATCHMAKING_QUEUE_KEY, 0, -1);
-        
-        if (queue != null) {
-            for (Object obj : queue) {
-                if (obj instanceof MatchmakingEntry entry && entry.getOduserId().equals(userId)) {
-                    redisTemplate.opsForList().remove(MATCHMAKING_QUEUE_KEY, 1, obj);
-                    break;
-                }
-            }
-        }
-    }
-
     public void cancelMatchmaking(UUID userId) {
-        removeFromMatchmakingQueue(userId);
+        matchmakingQueue.remove(userId);
         log.info("User {} removed from matchmaking queue", userId);
     }
 
@@ -281,6 +282,44 @@ public class BattleService {
         User user2 = userRepository.findById(user2Entry.getOduserId())
                 .orElseThrow(() -> new IllegalArgumentException("Matched user not found"));
 
+        return createMatchedBattle(List.of(user1, user2), defaultDurationSeconds);
+    }
+
+    /**
+     * Creates a battle for a group the background matchmaker claimed from the queue and pushes
+     * {@code MATCH_FOUND} to every player once it is committed. Players who entered another
+     * battle in the meantime are left out; if fewer than two remain, the rest go back in the
+     * queue and null is returned.
+     */
+    @Transactional
+    public BattleResponseDto createQueuedMatch(List<MatchmakingEntry> entries) {
+        Map<UUID, User> users = userRepository.findAllById(
+                        entries.stream().map(MatchmakingEntry::getOduserId).toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
+
+        List<User> players = new ArrayList<>();
+        List<MatchmakingEntry> available = new ArrayList<>();
+        for (MatchmakingEntry entry : entries) {
+            User user = users.get(entry.getOduserId());
+            if (user != null && redisTemplate.opsForValue().get(USER_ACTIVE_BATTLE_PREFIX + user.getId()) == null) {
+                players.add(user);
+                available.add(entry);
+            }
+        }
+
+        if (players.size() < 2) {
+            available.forEach(matchmakingQueue::add);
+            log.debug("Queued match fell through, {} of {} players still available", players.size(), entries.size());
+            return null;
+        }
+
+        BattleResponseDto battle = createMatchedBattle(players, entries.get(0).getPreferredDuration());
+        notifyMatchFound(players.stream().map(User::getId).toList(), battle);
+        return battle;
+    }
+
+    private BattleResponseDto createMatchedBattle(List<User> players, int durationSeconds) {
         // Get random problem
         Problem problem = getRandomProblem();
 
@@ -288,15 +327,15 @@ public class BattleService {
         Battle battle = Battle.builder()
                 .problem(problem)
                 .status(BattleStatus.WAITING)
-                .maxParticipants(2)
-                .durationSeconds(defaultDurationSeconds)
+                .maxParticipants(players.size())
+                .durationSeconds(durationSeconds)
                 .isPrivate(false)
                 .build();
 
         battle = battleRepository.save(battle);
 
-        // Add both participants
-        for (User user : List.of(user1, user2)) {
+        // Add all participants
+        for (User user : players) {
             BattleParticipant participant = BattleParticipant.builder()
                     .battle(battle)
                     .user(user)
@@ -310,12 +349,29 @@ public class BattleService {
         // Create and save battle state to Redis
         BattleState battleState = createBattleStateFromBattle(battle);
         saveBattleStateToRedis(battleState);
+        lobbyView.put(battle);
 
-        log.info("Matched battle created: {} between {} and {}", battle.getId(), user1.getId(), user2.getId());
+        log.info("Matched battle created: {} between {}", battle.getId(),
+                players.stream().map(User::getId).toList());
 
         return mapToBattleResponseDto(battle, battleState);
     }
 
+    /**
+     * Pushes {@code MATCH_FOUND} to matched players once the battle is committed, so they never
+     * fetch a battle that does not exist yet.
+     */
+    private void notifyMatchFound(List<UUID> userIds, BattleResponseDto battle) {
+        Runnable notify = () -> userIds.forEach(userId -> battleEventPublisher.publishToUser(userId,
+                BattleEvent.builder()
+                        .type(BattleEvent.EventType.MATCH_FOUND)
+                        .battleId(battle.getId())
+                        .roomCode(battle.getRoomCode())
+                        .payload(battle)
+                        .build()));
+        TransactionHooks.afterCommit(notify);
+    }
+
     // ==================== PLAYER READY ====================
 
     @Transactional
@@ -332,15 +388,10 @@ public class BattleService {
         participant.setReady(ready);
         participantRepository.save(participant);
 
-        // Update Redis state
+        // Update Redis state, then read it back so a concurrent ready from the other player counts
+        battleStateStore.setReady(battleId, userId, ready);
         BattleState battleState = getBattleStateFromRedis(battleId);
         if (battleState != null) {
-            battleState.getParticipants().stream()
-                    .filter(p -> p.getOduserId().equals(userId))
-                    .findFirst()
-                    .ifPresent(p -> p.setReady(ready));
-            saveBattleStateToRedis(battleState);
-
             // Broadcast ready event
             broadcastBattleEvent(battleId, BattleEvent.builder()
                     .type(BattleEvent.EventType.PLAYER_READY)
@@ -354,7 +405,12 @@ public class BattleService {
 
             // Check if all players are ready to start
             if (battleState.allParticipantsReady()) {
-                startBattle(battleId);
+                try {
+                    startBattle(battleId);
+                } catch (IllegalStateException e) {
+                    // The other player's ready call started it first; this ready still counts
+                    log.debug("Battle {} not started by user {}: {}", battleId, userId, e.getMessage());
+                }
             }
         }
 
@@ -378,18 +434,24 @@ public class BattleService {
             throw new IllegalStateException("Not enough participants to start battle");
         }
 
+        // Claim the start in Redis first: of two players readying at once, only one starts the battle
+        Instant startedAt = Instant.now();
+        if (!battleStateStore.start(battleId, startedAt)) {
+            throw new IllegalStateException("Battle cannot be started - not in waiting state");
+        }
+        // Redis is outside the transaction: if the start does not commit, the battle waits again
+        TransactionHooks.afterRollback(() -> battleStateStore.revertStart(battleId, startedAt));
+
         // Update battle status
         battle.setStatus(BattleStatus.IN_PROGRESS);
-        battle.setStartedAt(Instant.now());
+        battle.setStartedAt(startedAt);
         battleRepository.save(battle);
+        openBattleIndex.close(battleId);
+        lobbyView.put(battle);
 
-        // Update Redis state
-        BattleState battleState = getBattleStateFromRedis(battleId);
-        if (battleState != null) {
-            battleState.setStatus(BattleStatus.IN_PROGRESS);
-            battleState.setStartedAt(Instant.now());
-            saveBattleStateToRedis(battleState);
-        }
+        // Drive the clock: timer updates and the end of the battle come from the deadline index
+        battleTimerScheduler.schedule(battleId, battle.getRoomCode(),
+                battle.getStartedAt().plusSeconds(battle.getDurationSeconds()));
 
         // Broadcast battle starting event
         broadcastBattleEvent(battleId, BattleEvent.builder()
@@ -399,15 +461,15 @@ public class BattleService {
                 .payload(Map.of("countdown", 5))  // 5 second countdown
                 .build());
 
-        // Schedule timer start after countdown
-        // In production, use a proper scheduler
+        // Clients count down locally from here; the same fields as the CLOCK_SYNC handshake
         broadcastBattleEvent(battleId, BattleEvent.builder()
                 .type(BattleEvent.EventType.TIMER_START)
                 .battleId(battleId)
                 .roomCode(battle.getRoomCode())
                 .payload(Map.of(
                         "durationSeconds", battle.getDurationSeconds(),
-                        "startedAt", battle.getStartedAt()
+                        "startedAt", battle.getStartedAt(),
+                        "serverTime", System.currentTimeMillis()
                 ))
                 .build());
 
@@ -435,19 +497,17 @@ public class BattleService {
         // Clear user's active battle tracking
         clearUserActiveBattle(userId);
 
-        // Update Redis state
-        BattleState battleState = getBattleStateFromRedis(battleId);
-        if (battleState != null) {
-            battleState.getParticipants().removeIf(p -> p.getOduserId().equals(userId));
-            
-            // If no participants left, cancel the battle
-            if (battleState.getParticipants().isEmpty()) {
-                cancelBattle(battleId);
-                return;
-            }
-            
-            saveBattleStateToRedis(battleState);
+        // Update Redis state; if no participants are left, cancel the battle
+        if (battleStateStore.removeParticipant(battleId, userId) == 0) {
+            cancelBattle(battleId);
+            return;
+        }
+
+        // The freed slot is open to matchmaking again
+        if (battle.getStatus() == BattleStatus.WAITING) {
+            openBattleIndex.release(battle);
         }
+        lobbyView.put(battle);
 
         // Broadcast player left event
         broadcastBattleEvent(battleId, BattleEvent.builder()
@@ -468,11 +528,14 @@ public class BattleService {
         battle.setStatus(BattleStatus.CANCELLED);
         battle.setFinishedAt(Instant.now());
         battleRepository.save(battle);
+        openBattleIndex.close(battleId);
+        lobbyView.remove(battleId);
 
         // Clear all participants' active battle tracking
         battle.getParticipants().forEach(p -> clearUserActiveBattle(p.getUser().getId()));
 
         // Remove from Redis
+        battleTimerScheduler.cancel(battleId);
         removeBattleStateFromRedis(battleId);
 
         // Broadcast cancellation
@@ -493,6 +556,16 @@ public class BattleService {
         Battle battle = battleRepository.findById(battleId)
                 .orElseThrow(() -> new IllegalArgumentException("Battle not found"));
 
+        // An accepted submission and the timer can race to end a battle; only the first one does
+        Instant finishedAt = Instant.now();
+        if (!battleStateStore.finish(battleId, winnerId, finishedAt)) {
+            log.info("Battle {} already ended", battleId);
+            return;
+        }
+        // Redis is outside the transaction: if the end does not commit, the battle goes on
+        BattleStatus previousStatus = battle.getStatus();
+        TransactionHooks.afterRollback(() -> battleStateStore.revertFinish(battleId, previousStatus, finishedAt));
+
         if (winnerId != null) {
             User winner = userRepository.findById(winnerId)
                     .orElseThrow(() -> new IllegalArgumentException("Winner not found"));
@@ -504,8 +577,11 @@ public class BattleService {
         }
 
         battle.setStatus(BattleStatus.COMPLETED);
-        battle.setFinishedAt(Instant.now());
+        battle.setFinishedAt(finishedAt);
         battleRepository.save(battle);
+        battleTimerScheduler.cancel(battleId);
+        openBattleIndex.close(battleId);
+        lobbyView.remove(battleId);
 
         // Update all participants' stats
         battle.getParticipants().forEach(p -> {
@@ -515,15 +591,6 @@ public class BattleService {
             clearUserActiveBattle(user.getId());
         });
 
-        // Update Redis state
-        BattleState battleState = getBattleStateFromRedis(battleId);
-        if (battleState != null) {
-            battleState.setStatus(BattleStatus.COMPLETED);
-            battleState.setWinnerId(winnerId);
-            battleState.setFinishedAt(Instant.now());
-            saveBattleStateToRedis(battleState);
-        }
-
         // Broadcast winner announcement
         broadcastBattleEvent(battleId, BattleEvent.builder()
                 .type(BattleEvent.EventType.WINNER_ANNOUNCEMENT)
@@ -538,6 +605,29 @@ public class BattleService {
         log.info("Battle {} ended. Winner: {}", battleId, winnerId);
     }
 
+    // ==================== SUBMISSION RESULTS ====================
+
+    /**
+     * Records a judged submission against the participant. The score keeps the best number of
+     * passed test cases; the first ACCEPTED submission wins and ends the battle.
+     */
+    @Transactional
+    public void recordSubmissionResult(UUID battleId, UUID userId, UUID submissionId, int testCasesPassed,
+                                       boolean accepted) {
+        BattleParticipant participant = participantRepository.findByBattleIdAndUserId(battleId, userId)
+                .orElseThrow(() -> new IllegalArgumentException("Participant not found"));
+
+        participant.setHasSubmitted(true);
+        participant.setScore(Math.max(participant.getScore(), testCasesPassed));
+        participantRepository.save(participant);
+
+        battleStateStore.recordSubmission(battleId, userId, submissionId, participant.getScore());
+
+        if (accepted && participant.getBattle().getStatus() == BattleStatus.IN_PROGRESS) {
+            endBattle(battleId, userId);
+        }
+    }
+
     // ==================== GET BATTLE INFO ====================
 
     public BattleResponseDto getBattle(UUID battleId) {
@@ -553,69 +643,70 @@ public class BattleService {
         return getBattleStateFromRedis(battleId);
     }
 
-    public List<BattleResponseDto> getUserBattles(UUID userId) {
-        List<Battle> battles = battleRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return battles.stream()
-                .map(b -> mapToBattleResponseDto(b, getBattleStateFromRedis(b.getId())))
-                .collect(Collectors.toList());
-    }
-
-    public List<BattleResponseDto> getActiveBattles() {
-        List<Battle> battles = battleRepository.findByStatusIn(
-                List.of(BattleStatus.WAITING, BattleStatus.IN_PROGRESS));
-        return battles.stream()
-                .filter(b -> !b.isPrivate())
-                .map(b -> mapToBattleResponseDto(b, getBattleStateFromRedis(b.getId())))
-                .collect(Collectors.toList());
+    /**
+     * The user's battles, newest first, {@code limit} at a time; {@code cursor} is the
+     * {@code nextCursor} of the previous page, or null for the first.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<BattleResponseDto> getUserBattles(UUID userId, String cursor, int limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable page = PageRequest.of(0, pageSize(limit) + 1);
+        List<Battle> battles = after == null
+                ? battleRepository.findPageByUserId(userId, page)
+                : battleRepository.findPageByUserIdAfter(userId, after.createdAt(), after.id(), page);
+        return toPage(battles, pageSize(limit));
+    }
+
+    /**
+     * Waiting and running public battles from the {@link LobbyView}, newest first, {@code limit}
+     * at a time; optionally only those on problems of {@code difficulty} and with at least
+     * {@code minFreeSlots} open slots.
+     */
+    public CursorPage<LobbyBattleDto> getActiveBattles(String cursor, int limit, Difficulty difficulty, int minFreeSlots) {
+        return lobbyView.page(cursor, pageSize(limit), difficulty, minFreeSlots);
+    }
+
+    // ==================== TIMER EVENTS (BattleTimerScheduler) ====================
+
+    /**
+     * Announces the authoritative remaining time, stamped with the server clock, so clients
+     * counting down locally can correct any drift.
+     */
+    public void broadcastTimerUpdate(UUID battleId, String roomCode, long remainingSeconds) {
+        broadcastBattleEvent(battleId, BattleEvent.builder()
+                .type(BattleEvent.EventType.TIMER_UPDATE)
+                .battleId(battleId)
+                .roomCode(roomCode)
+                .payload(Map.of(
+                        "remainingSeconds", remainingSeconds,
+                        "serverTime", System.currentTimeMillis()
+                ))
+                .build());
     }
 
-    // ==================== TIMER UPDATE (Scheduled) ====================
-
-    @Scheduled(fixedRate = 1000)  // Every second
-    public void updateBattleTimers() {
-        Set<String> battleKeys = redisTemplate.keys(BATTLE_STATE_PREFIX + "*");
-        
-        if (battleKeys == null) return;
-
-        for (String key : battleKeys) {
-            try {
-                Object obj = redisTemplate.opsForValue().get(key);
-                if (obj instanceof BattleState battleState) {
-                    if (battleState.getStatus() == BattleStatus.IN_PROGRESS) {
-                        long remaining = battleState.getRemainingTimeSeconds();
-                        
-                        if (remaining <= 0) {
-                            // Time's up - end the battle
-                            determineWinnerAndEndBattle(battleState.getBattleId());
-                        } else if (remaining % 60 == 0 || remaining <= 10) {
-                            // Broadcast timer update every minute or in last 10 seconds
-                            broadcastBattleEvent(battleState.getBattleId(), BattleEvent.builder()
-                                    .type(BattleEvent.EventType.TIMER_UPDATE)
-                                    .battleId(battleState.getBattleId())
-                                    .roomCode(battleState.getRoomCode())
-                                    .payload(Map.of("remainingSeconds", remaining))
-                                    .build());
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.error("Error updating timer for battle: {}", key, e);
-            }
+    /**
+     * Ends a battle whose time ran out. The scheduler calls this once per battle; a battle that
+     * already finished in the meantime is left alone.
+     */
+    @Transactional
+    public void expireBattle(UUID battleId) {
+        Battle battle = battleRepository.findById(battleId).orElse(null);
+        if (battle == null || battle.getStatus() != BattleStatus.IN_PROGRESS) {
+            return;
         }
+        determineWinnerAndEndBattle(battle);
     }
 
-    private void determineWinnerAndEndBattle(UUID battleId) {
-        BattleState battleState = getBattleStateFromRedis(battleId);
-        if (battleState == null) return;
-
-        // Find winner based on score (most test cases passed / fastest time)
-        UUID winnerId = battleState.getParticipants().stream()
-                .filter(BattleState.ParticipantState::isHasSubmitted)
-                .max(Comparator.comparingInt(BattleState.ParticipantState::getScore))
-                .map(BattleState.ParticipantState::getOduserId)
+    private void determineWinnerAndEndBattle(Battle battle) {
+        // Find winner based on score (most test cases passed); the database is authoritative
+        // since Redis state may have expired
+        UUID winnerId = battle.getParticipants().stream()
+                .filter(BattleParticipant::isHasSubmitted)
+                .max(Comparator.comparingInt(BattleParticipant::getScore))
+                .map(p -> p.getUser().getId())
                 .orElse(null);
 
-        endBattle(battleId, winnerId);
+        endBattle(battle.getId(), winnerId);
     }
 
     // ==================== HELPER METHODS ====================
@@ -666,26 +757,41 @@ public class BattleService {
     // ==================== REDIS OPERATIONS ====================
 
     private void saveBattleStateToRedis(BattleState battleState) {
-        String key = BATTLE_STATE_PREFIX + battleState.getBattleId();
-        redisTemplate.opsForValue().set(key, battleState, 4, TimeUnit.HOURS);
+        battleStateStore.save(battleState);
     }
 
     private BattleState getBattleStateFromRedis(UUID battleId) {
-        String key = BATTLE_STATE_PREFIX + battleId;
-        Object obj = redisTemplate.opsForValue().get(key);
-        return obj instanceof BattleState ? (BattleState) obj : null;
+        return battleStateStore.get(battleId);
     }
 
     private void removeBattleStateFromRedis(UUID battleId) {
-        String key = BATTLE_STATE_PREFIX + battleId;
-        redisTemplate.delete(key);
+        battleStateStore.delete(battleId);
+    }
+
+    /**
+     * Maps one page of a listing, fetching the Redis state of all its battles in one go.
+     * {@code battles} holds up to one row more than {@code size}, telling whether a next page exists.
+     */
+    private CursorPage<BattleResponseDto> toPage(List<Battle> battles, int size) {
+        List<Battle> items = battles.size() > size ? battles.subList(0, size) : battles;
+        Map<UUID, BattleState> states = battleStateStore.getAll(items.stream().map(Battle::getId).toList());
+        Battle last = items.isEmpty() ? null : items.get(items.size() - 1);
+        return CursorPage.<BattleResponseDto>builder()
+                .items(items.stream()
+                        .map(b -> mapToBattleResponseDto(b, states.get(b.getId())))
+                        .collect(Collectors.toList()))
+                .nextCursor(battles.size() > size ? new PageCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .build();
+    }
+
+    private static int pageSize(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
     }
 
     // ==================== WEBSOCKET BROADCAST ====================
 
     private void broadcastBattleEvent(UUID battleId, BattleEvent event) {
-        String destination = "/topic/battle/" + battleId;
-        messagingTemplate.convertAndSend(destination, event);
+        battleEventBus.publish(battleId, event);
     }
 
     // ==================== MAPPERS ====================
@@ -768,6 +874,9 @@ public class BattleService {
                 .difficulty(problem.getDifficulty())
                 .timeLimitSeconds(problem.getTimeLimitSeconds())
                 .memoryLimitMb(problem.getMemoryLimitMb())
+                .judgeMode(problem.getJudgeMode())
+                .checkerType(problem.getCheckerType())
+                .checkerEpsilon(problem.getCheckerEpsilon())
                 .build();
 
         UserDto winnerDto = battle.getWinner() != null ? UserDto.builder()
@@ -785,6 +894,7 @@ public class BattleService {
                 .currentParticipants(battle.getParticipants().size())
                 .durationSeconds(battle.getDurationSeconds())
                 .isPrivate(battle.isPrivate())
+                .judgeMode(battle.getJudgeMode() != null ? battle.getJudgeMode() : problem.getJudgeMode())
                 .problem(problemDto)
                 .participants(participants)
                 .winner(winnerDto)
@@ -0,0 +1,239 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.BattleState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * In-process near cache of {@link BattleState} in front of {@link BattleStateStore}, so the reads
+ * repeated for every STOMP heartbeat, state request and battle listing stop going to Redis.
+ * <p>
+ * Entries live for {@code battle.state-cache.ttl-ms} at most and the least recently used are
+ * evicted beyond {@code battle.state-cache.max-entries}. {@link BattleStateStore} invalidates an
+ * entry after every write and announces the change on the {@code battle-events} channel, where
+ * {@link BattleEventPublisher} invalidates it on every other instance; the TTL bounds staleness if
+ * an announcement is lost. A load that raced with an invalidation of the same battle is returned but
+ * not cached; loads of other battles are unaffected.
+ * Cached states are shared between callers and must not be modified.
+ * <p>
+ * Metrics: {@code battle.state.cache.requests} (counter, tagged {@code result=hit|miss}),
+ * {@code battle.state.cache.invalidations} (counter), {@code battle.state.cache.hit.ratio} and
+ * {@code battle.state.cache.size} (gauges).
+ */
+@Component
+@RequiredArgsConstructor
+public class BattleStateCache {
+
+    private final MeterRegistry meterRegistry;
+
+    // Access-ordered, so the eldest entry is the least recently used
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    // Battles with a load in flight; guarded by entries
+    private final Map<UUID, Generation> generations = new HashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter invalidations;
+
+    @Value("${battle.state-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${battle.state-cache.ttl-ms:2000}")
+    private long ttlMs = 2000;
+
+    @Value("${battle.state-cache.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    @PostConstruct
+    public void registerMetrics() {
+        hits = Counter.builder("battle.state.cache.requests")
+                .description("Battle state reads")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("battle.state.cache.requests")
+                .description("Battle state reads")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        invalidations = Counter.builder("battle.state.cache.invalidations")
+                .description("Battle states dropped after a change on this or another instance")
+                .register(meterRegistry);
+        Gauge.builder("battle.state.cache.hit.ratio", this, BattleStateCache::hitRatio)
+                .description("Share of battle state reads served from memory")
+                .register(meterRegistry);
+        Gauge.builder("battle.state.cache.size", this, BattleStateCache::size)
+                .description("Battle states held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached state of {@code battleId}, loading it with {@code loader} on a miss or after
+     * the TTL. Missing states (null) are not cached.
+     */
+    public BattleState get(UUID battleId, Function<UUID, BattleState> loader) {
+        if (!enabled) {
+            return loader.apply(battleId);
+        }
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry cached = entries.get(battleId);
+            if (cached != null && now - cached.loadedAt() < ttlMs) {
+                hits.increment();
+                return cached.state();
+            }
+        }
+
+        misses.increment();
+        Generation generation;
+        long stamp;
+        synchronized (entries) {
+            generation = startLoad(battleId);
+            stamp = generation.value;
+        }
+        BattleState loaded = null;
+        try {
+            loaded = loader.apply(battleId);
+        } finally {
+            synchronized (entries) {
+                // Skip caching if the battle was invalidated while loading; the value may predate it
+                if (loaded != null && generation.value == stamp) {
+                    entries.put(battleId, new Entry(loaded, now));
+                }
+                endLoad(battleId, generation);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * The cached states of {@code battleIds}, loading all misses with one call to
+     * {@code bulkLoader}. Battles without state are absent from the result.
+     */
+    public Map<UUID, BattleState> getAll(Collection<UUID> battleIds,
+                                         Function<List<UUID>, Map<UUID, BattleState>> bulkLoader) {
+        if (!enabled) {
+            return bulkLoader.apply(List.copyOf(battleIds));
+        }
+        long now = System.currentTimeMillis();
+        Map<UUID, BattleState> result = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        synchronized (entries) {
+            for (UUID battleId : new LinkedHashSet<>(battleIds)) {
+                Entry cached = entries.get(battleId);
+                if (cached != null && now - cached.loadedAt() < ttlMs) {
+                    result.put(battleId, cached.state());
+                } else {
+                    missing.add(battleId);
+                }
+            }
+        }
+        hits.increment(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        misses.increment(missing.size());
+        Map<UUID, Generation> loading = new HashMap<>();
+        Map<UUID, Long> stamps = new HashMap<>();
+        synchronized (entries) {
+            missing.forEach(battleId -> {
+                Generation generation = startLoad(battleId);
+                loading.put(battleId, generation);
+                stamps.put(battleId, generation.value);
+            });
+        }
+        Map<UUID, BattleState> loaded = Map.of();
+        try {
+            loaded = bulkLoader.apply(missing);
+        } finally {
+            synchronized (entries) {
+                loaded.forEach((battleId, state) -> {
+                    Generation generation = loading.get(battleId);
+                    if (generation != null && generation.value == stamps.get(battleId)) {
+                        entries.put(battleId, new Entry(state, now));
+                    }
+                });
+                loading.forEach(this::endLoad);
+            }
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * Drops the cached state of {@code battleId}.
+     */
+    public void invalidate(UUID battleId) {
+        synchronized (entries) {
+            Generation generation = generations.get(battleId);
+            if (generation != null) {
+                generation.value++;
+            }
+            if (entries.remove(battleId) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // ── Helper Methods ──
+
+    /**
+     * Registers a load of {@code battleId}; the caller holds the lock on entries.
+     */
+    private Generation startLoad(UUID battleId) {
+        Generation generation = generations.computeIfAbsent(battleId, id -> new Generation());
+        generation.loads++;
+        return generation;
+    }
+
+    /**
+     * Ends a load started by {@link #startLoad}; the caller holds the lock on entries.
+     */
+    private void endLoad(UUID battleId, Generation generation) {
+        if (--generation.loads == 0) {
+            generations.remove(battleId);
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private record Entry(BattleState state, long loadedAt) {
+    }
+
+    /**
+     * Invalidations of one battle while loads of it are in flight.
+     */
+    private static final class Generation {
+
+        private long value;
+        private int loads;
+    }
+}
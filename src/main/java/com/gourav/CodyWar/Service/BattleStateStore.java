@@ -0,0 +1,647 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.BattleState;
+import com.gourav.CodyWar.Domain.Dto.BattleStateDelta;
+import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Real-time battle state in Redis, one field per value so a mutation writes only what changed.
+ * <p>
+ * {@code battle:state:{id}} is a hash of the battle's fields plus a {@code version} counter,
+ * {@code battle:state:{id}:participants} the set of participant user ids and
+ * {@code battle:state:{id}:participant:<userId>} a hash per participant. The braces keep all keys
+ * of a battle in one cluster slot so the scripts can touch them together.
+ * <p>
+ * Every mutation is a single script that sets its fields (a score only ever grows, via
+ * {@code max}) and increments {@code version}, so concurrent ready/join/submission updates no
+ * longer overwrite each other the way the old read-modify-write of a whole {@link BattleState}
+ * did. Decisions taken from a read, such as starting or ending a battle, are made with optimistic
+ * versioning: the update only applies if {@code version} is still the one that was read, and is
+ * retried on a fresh read otherwise.
+ * <p>
+ * Values go through the template's hash value serializer (JSON scalars): ids and enums as strings,
+ * instants as epoch millis. State written by older builds as one {@code battle:state:<id>} value
+ * is moved into this layout the first time it is read.
+ * <p>
+ * Reads go through the {@link BattleStateCache}; every write invalidates it here and, via
+ * {@link BattleEventPublisher#publishStateChanged}, on the other instances.
+ * <p>
+ * Every mutation also publishes a {@link BattleStateDelta} to the battle's room through the
+ * {@link BattleEventBus}, numbered with the version it produced, so clients holding a snapshot
+ * stay current from deltas alone. Participants get a per-battle {@code slot} on join (counter
+ * {@code slots} in the battle hash) which the deltas use instead of user ids.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BattleStateStore {
+
+    static final String KEY_PREFIX = "battle:state:";
+
+    private static final long TTL_HOURS = 4;
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(TTL_HOURS);
+    private static final int MAX_CAS_ATTEMPTS = 5;
+    private static final Set<BattleStatus> STARTABLE = Set.of(BattleStatus.WAITING, BattleStatus.READY);
+    private static final Set<BattleStatus> FINISHABLE =
+            Set.of(BattleStatus.WAITING, BattleStatus.READY, BattleStatus.IN_PROGRESS);
+
+    // Battle hash fields
+    static final String VERSION = "version";
+    static final String STATUS = "status";
+    static final String STARTED_AT = "startedAt";
+    static final String FINISHED_AT = "finishedAt";
+    static final String WINNER_ID = "winnerId";
+    static final String SLOTS = "slots";
+
+    // Participant hash fields
+    static final String READY = "ready";
+    static final String SUBMITTED = "submitted";
+    static final String SCORE = "score";
+    static final String LAST_SUBMISSION_ID = "lastSubmissionId";
+    static final String SLOT = "slot";
+
+    /**
+     * Applies ARGV[3..] as (op, field, value) triples to hash KEYS[2] of battle KEYS[1] and bumps
+     * the battle's version; op is {@code set}, {@code max} or {@code del} (value ignored). ARGV[1]
+     * is the expected version, 0 for any. Every change restarts the ARGV[2] millisecond TTL of the
+     * battle hash, its member set KEYS[3] and each participant hash (named from the members, in the
+     * battle's slot), so a battle still in play never expires. Returns {new version, slot of the
+     * target hash (0 for the battle hash), resulting value of each max op}, {0} if the battle or
+     * target hash is gone, {-1} on a version conflict. Ops, fields and members are JSON-encoded
+     * arguments, values are stored as encoded.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> MUTATE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 or redis.call('EXISTS', KEYS[2]) == 0 then return {0} end " +
+            "local expected = tonumber(ARGV[1]) " +
+            "if expected > 0 and tonumber(redis.call('HGET', KEYS[1], 'version') or '0') ~= expected then " +
+            "  return {-1} " +
+            "end " +
+            "local maxed = {} " +
+            "for i = 3, #ARGV, 3 do " +
+            "  local op, field = cjson.decode(ARGV[i]), cjson.decode(ARGV[i + 1]) " +
+            "  if op == 'max' then " +
+            "    local current = tonumber(redis.call('HGET', KEYS[2], field) or '0') " +
+            "    if tonumber(ARGV[i + 2]) > current then " +
+            "      redis.call('HSET', KEYS[2], field, ARGV[i + 2]) " +
+            "      current = tonumber(ARGV[i + 2]) " +
+            "    end " +
+            "    maxed[#maxed + 1] = current " +
+            "  elseif op == 'del' then " +
+            "    redis.call('HDEL', KEYS[2], field) " +
+            "  else " +
+            "    redis.call('HSET', KEYS[2], field, ARGV[i + 2]) " +
+            "  end " +
+            "end " +
+            "local ttl = tonumber(ARGV[2]) " +
+            "redis.call('PEXPIRE', KEYS[1], ttl) " +
+            "redis.call('PEXPIRE', KEYS[3], ttl) " +
+            "for _, member in ipairs(redis.call('SMEMBERS', KEYS[3])) do " +
+            "  redis.call('PEXPIRE', KEYS[1] .. ':participant:' .. cjson.decode(member), ttl) " +
+            "end " +
+            "local result = {redis.call('HINCRBY', KEYS[1], 'version', 1), " +
+            "  tonumber(redis.call('HGET', KEYS[2], 'slot') or '0')} " +
+            "for _, value in ipairs(maxed) do result[#result + 1] = value end " +
+            "return result",
+            List.class);
+
+    /**
+     * Adds participant ARGV[1] with the ARGV[2..] field/value pairs to battle KEYS[1] (member set
+     * KEYS[2], participant hash KEYS[3]) under the battle's next slot, expiring with the battle.
+     * Returns {new version, slot}, or {0} if the battle is gone.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ADD_PARTICIPANT_SCRIPT = new DefaultRedisScript<>(
+            "local ttl = redis.call('PTTL', KEYS[1]) " +
+            "if ttl == -2 then return {0} end " +
+            "redis.call('DEL', KEYS[3]) " +
+            "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[3], cjson.decode(ARGV[i]), ARGV[i + 1]) end " +
+            "local slot = redis.call('HINCRBY', KEYS[1], 'slots', 1) " +
+            "redis.call('HSET', KEYS[3], 'slot', slot) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "if ttl > 0 then redis.call('PEXPIRE', KEYS[2], ttl) redis.call('PEXPIRE', KEYS[3], ttl) end " +
+            "return {redis.call('HINCRBY', KEYS[1], 'version', 1), slot}",
+            List.class);
+
+    /**
+     * Removes participant ARGV[1] (hash KEYS[3]) from battle KEYS[1] (member set KEYS[2]). Returns
+     * {participants left, new version, slot}, with version 0 if they were not a participant, or
+     * {-1} if the battle is gone.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REMOVE_PARTICIPANT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {-1} end " +
+            "local slot = tonumber(redis.call('HGET', KEYS[3], 'slot') or '0') " +
+            "redis.call('DEL', KEYS[3]) " +
+            "if redis.call('SREM', KEYS[2], ARGV[1]) == 0 then return {redis.call('SCARD', KEYS[2]), 0, 0} end " +
+            "return {redis.call('SCARD', KEYS[2]), redis.call('HINCRBY', KEYS[1], 'version', 1), slot}",
+            List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final BattleStateCache battleStateCache;
+    private final BattleEventPublisher battleEventPublisher;
+    private final BattleEventBus battleEventBus;
+
+    /**
+     * Writes a whole battle state, replacing any earlier one; used when a battle is created.
+     */
+    public void save(BattleState state) {
+        UUID battleId = state.getBattleId();
+        deleteKeys(battleId);
+
+        int slot = 0;
+        for (BattleState.ParticipantState participant : state.getParticipants()) {
+            participant.setSlot(++slot);
+        }
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(VERSION, 1);
+        fields.put(SLOTS, slot);
+        fields.put("battleId", battleId.toString());
+        putIfPresent(fields, "roomCode", state.getRoomCode());
+        putIfPresent(fields, "problemId", state.getProblemId());
+        putIfPresent(fields, STATUS, state.getStatus());
+        fields.put("maxParticipants", state.getMaxParticipants());
+        fields.put("durationSeconds", state.getDurationSeconds());
+        fields.put("private", state.isPrivate());
+        putIfPresent(fields, WINNER_ID, state.getWinnerId());
+        putIfPresent(fields, "createdAt", state.getCreatedAt());
+        putIfPresent(fields, STARTED_AT, state.getStartedAt());
+        putIfPresent(fields, FINISHED_AT, state.getFinishedAt());
+        redisTemplate.opsForHash().putAll(battleKey(battleId), fields);
+        redisTemplate.expire(battleKey(battleId), TTL_HOURS, TimeUnit.HOURS);
+
+        for (BattleState.ParticipantState participant : state.getParticipants()) {
+            String userId = participant.getOduserId().toString();
+            redisTemplate.opsForHash().putAll(participantKey(battleId, userId), participantFields(participant));
+            redisTemplate.expire(participantKey(battleId, userId), TTL_HOURS, TimeUnit.HOURS);
+            redisTemplate.opsForSet().add(membersKey(battleId), userId);
+        }
+        redisTemplate.expire(membersKey(battleId), TTL_HOURS, TimeUnit.HOURS);
+        changed(battleId);
+    }
+
+    /**
+     * The battle's current state, or null if Redis has none (never created, ended or expired).
+     * Served from the {@link BattleStateCache} when it holds a recent copy; do not modify it.
+     */
+    public BattleState get(UUID battleId) {
+        return battleStateCache.get(battleId, this::load);
+    }
+
+    /**
+     * The states of several battles, for listings: whatever the cache misses is read in two
+     * pipelined round trips however many battles there are. Battles without state are absent
+     * from the result.
+     */
+    public Map<UUID, BattleState> getAll(Collection<UUID> battleIds) {
+        return battleIds.isEmpty() ? Map.of() : battleStateCache.getAll(battleIds, this::loadAll);
+    }
+
+    /**
+     * Adds a participant who joined the battle.
+     */
+    public void addParticipant(UUID battleId, BattleState.ParticipantState participant) {
+        String userId = participant.getOduserId().toString();
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        participantFields(participant).forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        long[] result = longs(redisTemplate.execute(ADD_PARTICIPANT_SCRIPT,
+                List.of(battleKey(battleId), membersKey(battleId), participantKey(battleId, userId)), args.toArray()));
+        changed(battleId);
+        if (result[0] > 0) {
+            publishDelta(battleId, BattleStateDelta.builder()
+                    .seq(result[0])
+                    .op(BattleStateDelta.Op.JOIN)
+                    .slot((int) result[1])
+                    .userId(participant.getOduserId())
+                    .username(participant.getUsername())
+                    .build());
+        }
+    }
+
+    /**
+     * Removes a participant who left; returns how many remain, or -1 if the battle has no state.
+     */
+    public long removeParticipant(UUID battleId, UUID userId) {
+        String id = userId.toString();
+        long[] result = longs(redisTemplate.execute(REMOVE_PARTICIPANT_SCRIPT,
+                List.of(battleKey(battleId), membersKey(battleId), participantKey(battleId, id)), id));
+        changed(battleId);
+        if (result.length > 2 && result[1] > 0) {
+            publishDelta(battleId, BattleStateDelta.builder()
+                    .seq(result[1])
+                    .op(BattleStateDelta.Op.LEAVE)
+                    .slot((int) result[2])
+                    .build());
+        }
+        return result.length > 0 ? result[0] : -1;
+    }
+
+    /**
+     * Sets one participant's ready flag.
+     */
+    public void setReady(UUID battleId, UUID userId, boolean ready) {
+        long[] result = mutate(battleId, participantKey(battleId, userId.toString()), 0,
+                "set", READY, ready);
+        if (result[0] > 0) {
+            publishDelta(battleId, BattleStateDelta.builder()
+                    .seq(result[0])
+                    .op(BattleStateDelta.Op.READY)
+                    .slot((int) result[1])
+                    .value(ready)
+                    .build());
+        }
+    }
+
+    /**
+     * Records a judged submission; the score only moves up, whatever order results arrive in.
+     */
+    public void recordSubmission(UUID battleId, UUID userId, UUID submissionId, int score) {
+        long[] result = mutate(battleId, participantKey(battleId, userId.toString()), 0,
+                "set", SUBMITTED, true,
+                "max", SCORE, score,
+                "set", LAST_SUBMISSION_ID, submissionId.toString());
+        if (result[0] > 0) {
+            publishDelta(battleId, BattleStateDelta.builder()
+                    .seq(result[0])
+                    .op(BattleStateDelta.Op.SCORE)
+                    .slot((int) result[1])
+                    // The best score, which may be higher than this submission's
+                    .value(result.length > 2 ? (int) result[2] : score)
+                    .build());
+        }
+    }
+
+    /**
+     * Moves a waiting battle to {@code IN_PROGRESS}. False if the state shows it already left
+     * the waiting state (another caller started or cancelled it); true if there is no state.
+     */
+    public boolean start(UUID battleId, Instant startedAt) {
+        long version = transition(battleId, state -> STARTABLE.contains(state.getStatus()),
+                "set", STATUS, BattleStatus.IN_PROGRESS.name(),
+                "set", STARTED_AT, startedAt.toEpochMilli());
+        if (version > 0) {
+            publishDelta(battleId, BattleStateDelta.builder()
+                    .seq(version)
+                    .op(BattleStateDelta.Op.STATUS)
+                    .value(BattleStatus.IN_PROGRESS.name())
+                    .at(startedAt.toEpochMilli())
+                    .build());
+        }
+        return version != -1;
+    }
+
+    /**
+     * Moves a battle that has not finished to {@code COMPLETED}. False if the state shows it
+     * already finished, so it is ended once; true if there is no state.
+     */
+    public boolean finish(UUID battleId, UUID winnerId, Instant finishedAt) {
+        List<Object> ops = new ArrayList<>(List.of(
+                "set", STATUS, BattleStatus.COMPLETED.name(),
+                "set", FINISHED_AT, finishedAt.toEpochMilli()));
+        if (winnerId != null) {
+            ops.addAll(List.of("set", WINNER_ID, winnerId.toString()));
+        }
+        long version = transition(battleId, state -> FINISHABLE.contains(state.getStatus()), ops.toArray());
+        if (version > 0) {
+            publishDelta(battleId, BattleStateDelta.builder()
+                    .seq(version)
+                    .op(BattleStateDelta.Op.STATUS)
+                    .value(BattleStatus.COMPLETED.name())
+                    .at(finishedAt.toEpochMilli())
+                    .userId(winnerId)
+                    .build());
+        }
+        return version != -1;
+    }
+
+    /**
+     * Takes back a {@link #start} whose transaction rolled back: a battle still in progress from
+     * that start returns to {@code WAITING}. A battle that moved on since is left alone.
+     */
+    public void revertStart(UUID battleId, Instant startedAt) {
+        long version = transition(battleId, state -> state.getStatus() == BattleStatus.IN_PROGRESS
+                        && sameMillis(state.getStartedAt(), startedAt),
+                "set", STATUS, BattleStatus.WAITING.name(),
+                "del", STARTED_AT, "");
+        if (version > 0) {
+            publishReverted(battleId, version, BattleStatus.WAITING);
+        }
+    }
+
+    /**
+     * Takes back a {@link #finish} whose transaction rolled back: a battle still completed by
+     * that finish returns to {@code previous}, the status the database kept, without a winner.
+     */
+    public void revertFinish(UUID battleId, BattleStatus previous, Instant finishedAt) {
+        long version = transition(battleId, state -> state.getStatus() == BattleStatus.COMPLETED
+                        && sameMillis(state.getFinishedAt(), finishedAt),
+                "set", STATUS, previous.name(),
+                "del", FINISHED_AT, "",
+                "del", WINNER_ID, "");
+        if (version > 0) {
+            publishReverted(battleId, version, previous);
+        }
+    }
+
+    /**
+     * Drops all of a battle's state.
+     */
+    public void delete(UUID battleId) {
+        deleteKeys(battleId);
+        changed(battleId);
+    }
+
+    // ── Helper Methods ──
+
+    /**
+     * Reads the state from Redis, bypassing the cache.
+     */
+    private BattleState load(UUID battleId) {
+        return loadAll(List.of(battleId)).get(battleId);
+    }
+
+    /**
+     * Reads the states of {@code battleIds} from Redis, bypassing the cache: one pipeline for the
+     * battle hashes, member sets and any values left in the legacy layout, then one for every
+     * participant hash of every battle.
+     */
+    private Map<UUID, BattleState> loadAll(List<UUID> battleIds) {
+        List<Object> heads = pipelined(operations -> battleIds.forEach(battleId -> {
+            operations.opsForHash().entries(battleKey(battleId));
+            operations.opsForSet().members(membersKey(battleId));
+            operations.opsForValue().get(KEY_PREFIX + battleId);
+        }));
+
+        Map<UUID, BattleState> states = new HashMap<>();
+        Map<UUID, Map<?, ?>> battleFields = new LinkedHashMap<>();
+        List<UUID> rowBattles = new ArrayList<>();
+        List<String> rowUsers = new ArrayList<>();
+        for (int i = 0; i < battleIds.size(); i++) {
+            UUID battleId = battleIds.get(i);
+            Map<?, ?> fields = heads.size() > 3 * i && heads.get(3 * i) instanceof Map<?, ?> map ? map : Map.of();
+            if (fields.isEmpty()) {
+                if (heads.size() > 3 * i + 2 && heads.get(3 * i + 2) instanceof BattleState legacy) {
+                    states.put(battleId, migrateLegacy(legacy));
+                }
+                continue;
+            }
+            battleFields.put(battleId, fields);
+            if (heads.size() > 3 * i + 1 && heads.get(3 * i + 1) instanceof Set<?> members) {
+                members.forEach(member -> {
+                    rowBattles.add(battleId);
+                    rowUsers.add(String.valueOf(member));
+                });
+            }
+        }
+
+        List<Object> rows = rowUsers.isEmpty() ? List.of() : pipelined(operations -> {
+            for (int i = 0; i < rowUsers.size(); i++) {
+                operations.opsForHash().entries(participantKey(rowBattles.get(i), rowUsers.get(i)));
+            }
+        });
+
+        Map<UUID, Set<BattleState.ParticipantState>> participants = new HashMap<>();
+        battleFields.keySet().forEach(battleId -> participants.put(battleId, new HashSet<>()));
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) instanceof Map<?, ?> row && !row.isEmpty()) {
+                participants.get(rowBattles.get(i)).add(toParticipant(UUID.fromString(rowUsers.get(i)), row));
+            }
+        }
+        battleFields.forEach((battleId, fields) -> states.put(battleId, toState(fields, participants.get(battleId))));
+        return states;
+    }
+
+    /**
+     * Optimistic status change: reads the state, checks it with {@code allowed} and applies
+     * {@code ops} only if nobody changed the battle since that read. Returns the new version, 0 if
+     * there is no state and -1 if {@code allowed} refused it.
+     */
+    private long transition(UUID battleId, Predicate<BattleState> allowed, Object... ops) {
+        for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+            // Straight from Redis: a cached copy could carry an old version
+            BattleState state = load(battleId);
+            if (state == null) {
+                return 0;
+            }
+            if (!allowed.test(state)) {
+                return -1;
+            }
+            long version = mutate(battleId, battleKey(battleId), state.getVersion(), ops)[0];
+            if (version != -1) {
+                return version;
+            }
+            log.debug("Battle {} changed since version {}, retrying", battleId, state.getVersion());
+        }
+        throw new IllegalStateException("Battle state is changing too fast, try again");
+    }
+
+    /**
+     * Runs the reads in {@code commands} in one round trip and returns their deserialized results.
+     */
+    private List<Object> pipelined(Consumer<RedisOperations<String, Object>> commands) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                commands.accept((RedisOperations<String, Object>) operations);
+                return null;
+            }
+        });
+        return results != null ? results : List.of();
+    }
+
+    /**
+     * Runs {@link #MUTATE_SCRIPT}; returns {version, slot, max results...}, version 0 if nothing
+     * was there to change and -1 on a version conflict.
+     */
+    private long[] mutate(UUID battleId, String targetKey, long expectedVersion, Object... ops) {
+        Object[] args = new Object[ops.length + 2];
+        args[0] = expectedVersion;
+        args[1] = TTL_MILLIS;
+        System.arraycopy(ops, 0, args, 2, ops.length);
+        long[] result = longs(redisTemplate.execute(MUTATE_SCRIPT,
+                List.of(battleKey(battleId), targetKey, membersKey(battleId)), args));
+        if (result[0] > 0) {
+            changed(battleId);
+        }
+        return result;
+    }
+
+    /**
+     * Sends a state change to the battle's room; clients that missed one resync from a snapshot.
+     */
+    private void publishDelta(UUID battleId, BattleStateDelta delta) {
+        try {
+            battleEventBus.publish(battleId, delta);
+        } catch (Exception e) {
+            log.warn("Failed to publish state delta {} for battle {}: {}", delta.getSeq(), battleId, e.getMessage());
+        }
+    }
+
+    /**
+     * A status delta without {@code at}: clients drop the start or finish time they had.
+     */
+    private void publishReverted(UUID battleId, long version, BattleStatus status) {
+        publishDelta(battleId, BattleStateDelta.builder()
+                .seq(version)
+                .op(BattleStateDelta.Op.STATUS)
+                .value(status.name())
+                .build());
+        log.info("Battle {} state back to {} after a rolled back transaction", battleId, status);
+    }
+
+    private static boolean sameMillis(Instant stored, Instant expected) {
+        return stored != null && stored.toEpochMilli() == expected.toEpochMilli();
+    }
+
+    /**
+     * A script's integer array reply; {0} for no reply, so callers can always read element 0.
+     */
+    private static long[] longs(List<?> reply) {
+        if (reply == null || reply.isEmpty()) {
+            return new long[] {0};
+        }
+        return reply.stream().mapToLong(value -> value instanceof Number number ? number.longValue() : 0).toArray();
+    }
+
+    private void deleteKeys(UUID battleId) {
+        List<String> keys = new ArrayList<>(List.of(battleKey(battleId), membersKey(battleId)));
+        Set<Object> members = redisTemplate.opsForSet().members(membersKey(battleId));
+        if (members != null) {
+            members.forEach(member -> keys.add(participantKey(battleId, String.valueOf(member))));
+        }
+        redisTemplate.delete(keys);
+    }
+
+    /**
+     * Drops cached copies here and, through the battle events channel, on every other instance.
+     */
+    private void changed(UUID battleId) {
+        battleStateCache.invalidate(battleId);
+        battleEventPublisher.publishStateChanged(battleId);
+    }
+
+    private BattleState migrateLegacy(BattleState state) {
+        // Older builds stored the whole state as one value under battle:state:<id> (no braces)
+        UUID battleId = state.getBattleId();
+        save(state);
+        redisTemplate.delete(KEY_PREFIX + battleId);
+        state.setVersion(1);
+        log.info("Moved battle {} state to the per-field layout", battleId);
+        return state;
+    }
+
+    private static Map<String, Object> participantFields(BattleState.ParticipantState participant) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        putIfPresent(fields, "username", participant.getUsername());
+        fields.put(READY, participant.isReady());
+        fields.put(SUBMITTED, participant.isHasSubmitted());
+        fields.put(SCORE, participant.getScore());
+        putIfPresent(fields, "joinedAt", participant.getJoinedAt());
+        putIfPresent(fields, LAST_SUBMISSION_ID, participant.getLastSubmissionId());
+        if (participant.getSlot() > 0) {
+            fields.put(SLOT, participant.getSlot());
+        }
+        return fields;
+    }
+
+    private static void putIfPresent(Map<String, Object> fields, String field, Object value) {
+        if (value instanceof UUID || value instanceof Enum<?>) {
+            fields.put(field, value.toString());
+        } else if (value instanceof Instant instant) {
+            fields.put(field, instant.toEpochMilli());
+        } else if (value != null) {
+            fields.put(field, value);
+        }
+    }
+
+    private static BattleState toState(Map<?, ?> fields, Set<BattleState.ParticipantState> participants) {
+        String status = string(fields, STATUS);
+        return BattleState.builder()
+                .battleId(uuid(fields, "battleId"))
+                .roomCode(string(fields, "roomCode"))
+                .problemId(uuid(fields, "problemId"))
+                .status(status != null ? BattleStatus.valueOf(status) : null)
+                .maxParticipants((int) number(fields, "maxParticipants"))
+                .durationSeconds((int) number(fields, "durationSeconds"))
+                .isPrivate(Boolean.TRUE.equals(fields.get("private")))
+                .participants(participants)
+                .winnerId(uuid(fields, WINNER_ID))
+                .createdAt(instant(fields, "createdAt"))
+                .startedAt(instant(fields, STARTED_AT))
+                .finishedAt(instant(fields, FINISHED_AT))
+                .version(number(fields, VERSION))
+                .build();
+    }
+
+    private static BattleState.ParticipantState toParticipant(UUID userId, Map<?, ?> fields) {
+        return BattleState.ParticipantState.builder()
+                .oduserId(userId)
+                .username(string(fields, "username"))
+                .isReady(Boolean.TRUE.equals(fields.get(READY)))
+                .hasSubmitted(Boolean.TRUE.equals(fields.get(SUBMITTED)))
+                .score((int) number(fields, SCORE))
+                .joinedAt(instant(fields, "joinedAt"))
+                .lastSubmissionId(uuid(fields, LAST_SUBMISSION_ID))
+                .slot((int) number(fields, SLOT))
+                .build();
+    }
+
+    private static String string(Map<?, ?> fields, String field) {
+        Object value = fields.get(field);
+        return value != null ? value.toString() : null;
+    }
+
+    private static UUID uuid(Map<?, ?> fields, String field) {
+        String value = string(fields, field);
+        return value != null ? UUID.fromString(value) : null;
+    }
+
+    private static long number(Map<?, ?> fields, String field) {
+        return fields.get(field) instanceof Number number ? number.longValue() : 0;
+    }
+
+    private static Instant instant(Map<?, ?> fields, String field) {
+        return fields.get(field) instanceof Number millis ? Instant.ofEpochMilli(millis.longValue()) : null;
+    }
+
+    static String battleKey(UUID battleId) {
+        return KEY_PREFIX + "{" + battleId + "}";
+    }
+
+    static String membersKey(UUID battleId) {
+        return battleKey(battleId) + ":participants";
+    }
+
+    static String participantKey(UUID battleId, String userId) {
+        return battleKey(battleId) + ":participant:" + userId;
+    }
+}
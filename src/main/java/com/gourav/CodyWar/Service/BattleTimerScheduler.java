@@ -0,0 +1,393 @@
+package com.gourav.CodyWar.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Drives battle clocks without polling every battle. Each running battle's end time is indexed
+ * in the Redis sorted set {@code battle:deadlines:<shard>}, the battle id hashed onto one of
+ * {@code battle.timer.shards} shards. Each shard is leased to one live instance
+ * ({@link ShardLeases}, rebalanced as instances join and leave); the owner keeps the next timer of
+ * every battle in its shards in a local {@link TimingWheel}, so the timer thread only wakes a
+ * battle when its one authoritative {@code TIMER_UPDATE} is due or it expires, and no two
+ * instances announce the same battle. Clients count down locally from the {@code CLOCK_SYNC}
+ * handshake; the update {@code battle.timer.resync-seconds} before the end only corrects clocks
+ * that drifted since.
+ * <p>
+ * A battle started on an instance that does not own its shard is handed to the owner through the
+ * list {@code battle:timer:inbox:<shard>}; an instance taking over a shard loads all of its
+ * deadlines. Expiry is claimed by removing the battle from its deadline set; only the caller
+ * whose {@code ZREM} succeeds ends the battle, so it is ended exactly once even across a lease
+ * handover, and a battle that already ended early (accepted solution, cancellation) is never
+ * ended again. Overdue deadlines the owner is not timing are picked up by
+ * {@link #recoverOrphans()} once they are {@code battle.timer.orphan-grace-ms} late.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BattleTimerScheduler {
+
+    static final String DEADLINES_PREFIX = "battle:deadlines:";
+    static final String INBOX_PREFIX = "battle:timer:inbox:";
+    static final String ROOMS_KEY = "battle:timer:rooms";
+    static final String LEASE_NAMESPACE = "battle:timer";
+
+    private static final int WHEEL_SIZE = 64;
+
+    /** Battles handed over through a shard inbox per rebalance; the rest wait for the next one. */
+    private static final int INBOX_BATCH = 500;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectProvider<BattleService> battleService;
+    private final MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private final Map<UUID, TimingWheel<BattleTimer>.Timer> scheduled = new HashMap<>();
+    private TimingWheel<BattleTimer> wheel;
+    private ShardLeases leases;
+
+    private Thread thread;
+    private volatile boolean running = false;
+
+    @Value("${battle.timer.tick-ms:100}")
+    private long tickMs = 100;
+
+    @Value("${battle.timer.orphan-grace-ms:5000}")
+    private long orphanGraceMs = 5000;
+
+    @Value("${battle.timer.shards:64}")
+    private int shardCount = 64;
+
+    @Value("${battle.timer.lease-ms:15000}")
+    private long leaseMs = 15000;
+
+    @Value("${battle.timer.node-id:}")
+    private String nodeId = "";
+
+    /** Seconds before the end at which the authoritative {@code TIMER_UPDATE} is sent; 0 sends none. */
+    @Value("${battle.timer.resync-seconds:10}")
+    private long resyncSeconds = 10;
+
+    @PostConstruct
+    public void init() {
+        wheel = new TimingWheel<>(tickMs, WHEEL_SIZE, System.currentTimeMillis());
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = ShardLeases.defaultNodeId();
+        }
+        leases = new ShardLeases(redisTemplate, LEASE_NAMESPACE, shardCount, leaseMs, nodeId);
+        Gauge.builder("battle.timers.scheduled", this, BattleTimerScheduler::scheduledCount)
+                .description("Battle clocks driven by this instance")
+                .register(meterRegistry);
+        Gauge.builder("battle.timers.shards.owned", this,
+                        scheduler -> scheduler.leases.ownedShards(System.currentTimeMillis()).size())
+                .description("Battle timer shards leased to this instance")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "battle-timer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        try {
+            // Hand the shards over now instead of letting the other instances wait out the leases
+            leases.releaseAll().forEach(this::dropShard);
+        } catch (RuntimeException e) {
+            log.warn("Could not release battle timer shards: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Indexes a started battle's deadline and starts driving its clock on the instance that owns
+     * its shard, once the surrounding transaction commits.
+     */
+    public void schedule(UUID battleId, String roomCode, Instant deadline) {
+        TransactionHooks.afterCommit(() -> {
+            long deadlineMs = deadline.toEpochMilli();
+            int shard = leases.shardOf(battleId);
+            redisTemplate.opsForHash().put(ROOMS_KEY, battleId.toString(), roomCode);
+            redisTemplate.opsForZSet().add(DEADLINES_PREFIX + shard, battleId.toString(), deadlineMs);
+            if (leases.owns(shard, System.currentTimeMillis())) {
+                scheduleNext(battleId, roomCode, deadlineMs, System.currentTimeMillis());
+            } else {
+                // The owner drains this on its next rebalance; a new owner loads the deadline set instead
+                redisTemplate.opsForList().rightPush(INBOX_PREFIX + shard, battleId.toString());
+            }
+            log.debug("Battle {} timer scheduled on shard {}, deadline {}", battleId, shard, deadline);
+        });
+    }
+
+    /**
+     * Stops the clock of a battle that ended or was cancelled before its deadline, once the
+     * surrounding transaction commits; a rolled back end keeps the clock running.
+     */
+    public void cancel(UUID battleId) {
+        TransactionHooks.afterCommit(() -> {
+            redisTemplate.opsForZSet().remove(DEADLINES_PREFIX + leases.shardOf(battleId), battleId.toString());
+            redisTemplate.opsForHash().delete(ROOMS_KEY, battleId.toString());
+            cancelLocally(battleId);
+        });
+    }
+
+    /**
+     * Heartbeats this instance, takes over the shards now assigned to it, gives up the others,
+     * and adopts battles that other instances started in its shards.
+     */
+    @Scheduled(fixedDelayString = "${battle.timer.rebalance-interval-ms:3000}")
+    public void rebalance() {
+        long now = System.currentTimeMillis();
+        ShardLeases.Change change = leases.rebalance(now);
+        change.lost().forEach(this::dropShard);
+        for (int shard : change.acquired()) {
+            redisTemplate.delete(INBOX_PREFIX + shard);
+            adoptShard(shard);
+        }
+        if (!change.acquired().isEmpty() || !change.lost().isEmpty()) {
+            log.info("Battle timer node {} took shards {}, gave up {}", leases.nodeId(), change.acquired(),
+                    change.lost());
+        }
+        for (int shard : leases.ownedShards(now)) {
+            if (!change.acquired().contains(shard)) {
+                drainInbox(shard);
+            }
+        }
+    }
+
+    /**
+     * Ends battles in this instance's shards whose deadline passed without a timer, e.g. because
+     * the inbox hand-off was lost.
+     */
+    @Scheduled(fixedDelayString = "${battle.timer.reconcile-interval-ms:10000}")
+    public void recoverOrphans() {
+        long now = System.currentTimeMillis();
+        long cutoff = now - orphanGraceMs;
+        for (int shard : leases.ownedShards(now)) {
+            Set<Object> overdue = redisTemplate.opsForZSet().rangeByScore(DEADLINES_PREFIX + shard, 0, cutoff);
+            if (overdue == null) {
+                continue;
+            }
+            for (Object member : overdue) {
+                UUID battleId = UUID.fromString(member.toString());
+                if (isScheduledLocally(battleId)) {
+                    continue;
+                }
+                log.warn("Battle {} missed its deadline without a timer, ending it now", battleId);
+                try {
+                    expire(battleId, cutoff);
+                } catch (RuntimeException e) {
+                    log.error("Could not end overdue battle {}, will retry", battleId, e);
+                }
+            }
+        }
+    }
+
+    int scheduledCount() {
+        synchronized (this) {
+            return scheduled.size();
+        }
+    }
+
+    /**
+     * Advances the wheel to {@code nowMs} and fires whatever came due; the timer thread calls this
+     * every tick.
+     */
+    void tick(long nowMs) {
+        List<BattleTimer> due;
+        synchronized (this) {
+            due = wheel.advance(nowMs);
+            due.forEach(timer -> scheduled.remove(timer.battleId()));
+        }
+        for (BattleTimer timer : due) {
+            try {
+                fire(timer, nowMs);
+            } catch (RuntimeException e) {
+                log.error("Timer for battle {} failed", timer.battleId(), e);
+            }
+        }
+    }
+
+    /**
+     * When the next clock event after {@code nowMs} happens for a battle ending at
+     * {@code deadlineMs}: {@code resyncSeconds} while that point is still ahead, otherwise 0 for
+     * the deadline itself.
+     */
+    static long nextAnnouncedSeconds(long deadlineMs, long nowMs, long resyncSeconds) {
+        long remainingMs = deadlineMs - nowMs;
+        if (remainingMs <= 0 || resyncSeconds <= 0) {
+            return 0;
+        }
+        // Largest whole second strictly ahead of now
+        long candidate = (remainingMs - 1) / 1000;
+        return candidate >= resyncSeconds ? resyncSeconds : 0;
+    }
+
+    // ── Helper Methods ──
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(tickMs);
+                tick(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Battle timer tick failed", e);
+            }
+        }
+    }
+
+    private void fire(BattleTimer timer, long nowMs) {
+        if (!leases.owns(leases.shardOf(timer.battleId()), nowMs)) {
+            // Lease ran out before the rebalance noticed; the new owner loads this battle itself
+            return;
+        }
+        if (timer.announcedSeconds() == 0) {
+            expire(timer.battleId(), timer.deadlineMs());
+            return;
+        }
+        battleService.getObject().broadcastTimerUpdate(timer.battleId(), timer.roomCode(), timer.announcedSeconds());
+        scheduleNext(timer.battleId(), timer.roomCode(), timer.deadlineMs(), Math.max(nowMs, timer.fireAtMs()));
+    }
+
+    private void expire(UUID battleId, long deadlineMs) {
+        String deadlinesKey = DEADLINES_PREFIX + leases.shardOf(battleId);
+        Long removed = redisTemplate.opsForZSet().remove(deadlinesKey, battleId.toString());
+        if (removed == null || removed == 0) {
+            // Ended early, or another instance claimed the expiry
+            return;
+        }
+        try {
+            battleService.getObject().expireBattle(battleId);
+        } catch (RuntimeException e) {
+            // Put the claim back so orphan recovery retries instead of the battle running forever
+            redisTemplate.opsForZSet().add(deadlinesKey, battleId.toString(), deadlineMs);
+            throw e;
+        }
+        redisTemplate.opsForHash().delete(ROOMS_KEY, battleId.toString());
+    }
+
+    /**
+     * Loads every deadline of a shard this instance just took over.
+     */
+    private void adoptShard(int shard) {
+        Set<ZSetOperations.TypedTuple<Object>> deadlines =
+                redisTemplate.opsForZSet().rangeWithScores(DEADLINES_PREFIX + shard, 0, -1);
+        if (deadlines == null || deadlines.isEmpty()) {
+            return;
+        }
+        Map<UUID, Long> deadlineMs = new HashMap<>();
+        for (ZSetOperations.TypedTuple<Object> tuple : deadlines) {
+            if (tuple.getValue() != null && tuple.getScore() != null) {
+                deadlineMs.put(UUID.fromString(tuple.getValue().toString()), tuple.getScore().longValue());
+            }
+        }
+        adopt(deadlineMs);
+        log.info("Battle timer shard {} adopted with {} running battles", shard, deadlineMs.size());
+    }
+
+    /**
+     * Takes over battles that other instances started in a shard this instance already owns.
+     */
+    private void drainInbox(int shard) {
+        List<Object> ids = redisTemplate.opsForList().leftPop(INBOX_PREFIX + shard, INBOX_BATCH);
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        Map<UUID, Long> deadlineMs = new HashMap<>();
+        for (Object id : ids) {
+            Double score = redisTemplate.opsForZSet().score(DEADLINES_PREFIX + shard, id);
+            if (score != null) {
+                deadlineMs.put(UUID.fromString(id.toString()), score.longValue());
+            }
+        }
+        adopt(deadlineMs);
+    }
+
+    private void adopt(Map<UUID, Long> deadlineMs) {
+        if (deadlineMs.isEmpty()) {
+            return;
+        }
+        List<UUID> battleIds = new ArrayList<>(deadlineMs.keySet());
+        List<Object> roomCodes = redisTemplate.opsForHash().multiGet(ROOMS_KEY,
+                battleIds.stream().<Object>map(UUID::toString).toList());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < battleIds.size(); i++) {
+            Object roomCode = roomCodes != null && i < roomCodes.size() ? roomCodes.get(i) : null;
+            UUID battleId = battleIds.get(i);
+            scheduleNext(battleId, roomCode != null ? roomCode.toString() : null, deadlineMs.get(battleId), now);
+        }
+    }
+
+    private synchronized void dropShard(int shard) {
+        scheduled.entrySet().removeIf(entry -> {
+            if (leases.shardOf(entry.getKey()) != shard) {
+                return false;
+            }
+            entry.getValue().cancel();
+            return true;
+        });
+    }
+
+    private void scheduleNext(UUID battleId, String roomCode, long deadlineMs, long nowMs) {
+        long announced = nextAnnouncedSeconds(deadlineMs, nowMs, resyncSeconds);
+        long fireAtMs = deadlineMs - announced * 1000;
+        synchronized (this) {
+            TimingWheel<BattleTimer>.Timer previous = scheduled.put(battleId,
+                    wheel.schedule(new BattleTimer(battleId, roomCode, deadlineMs, fireAtMs, announced), fireAtMs));
+            if (previous != null) {
+                previous.cancel();
+            }
+        }
+    }
+
+    private synchronized void cancelLocally(UUID battleId) {
+        TimingWheel<BattleTimer>.Timer timer = scheduled.remove(battleId);
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
+    private synchronized boolean isScheduledLocally(UUID battleId) {
+        return scheduled.containsKey(battleId);
+    }
+
+    /**
+     * One pending clock event: announce {@code announcedSeconds} at {@code fireAtMs}, or end the
+     * battle when that is 0.
+     */
+    record BattleTimer(UUID battleId, String roomCode, long deadlineMs, long fireAtMs, long announcedSeconds) {
+    }
+}
@@ -0,0 +1,124 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.TestCase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Judge-side copy of one test case, detached from JPA. Small cases keep their input and expected
+ * output on the heap; large ones are spilled by {@link TestCaseCache} to local files: the input is
+ * handed to the sandbox as a file to redirect stdin from, and the expected output is memory-mapped
+ * so checkers page it in on demand instead of holding it as a string.
+ */
+public final class CachedTestCase {
+
+    private final int orderIndex;
+    private final String input;
+    private final String expectedOutput;
+    private final Path inputFile;
+    private final MappedByteBuffer expectedMapping;
+
+    private CachedTestCase(int orderIndex, String input, String expectedOutput, Path inputFile,
+                           MappedByteBuffer expectedMapping) {
+        this.orderIndex = orderIndex;
+        this.input = input;
+        this.expectedOutput = expectedOutput;
+        this.inputFile = inputFile;
+        this.expectedMapping = expectedMapping;
+    }
+
+    public static CachedTestCase of(TestCase testCase) {
+        return new CachedTestCase(testCase.getOrderIndex(), testCase.getInput(), testCase.getExpectedOutput(),
+                null, null);
+    }
+
+    /**
+     * A case whose input and expected output were written to {@code inputFile} and {@code expectedFile}.
+     */
+    static CachedTestCase spilled(int orderIndex, Path inputFile, Path expectedFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(expectedFile, StandardOpenOption.READ)) {
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CachedTestCase(orderIndex, null, null, inputFile, mapping);
+        }
+    }
+
+    public int getOrderIndex() {
+        return orderIndex;
+    }
+
+    public boolean isSpilled() {
+        return inputFile != null;
+    }
+
+    /**
+     * The input on the heap; null when {@link #isSpilled()}.
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * The file holding the input; null unless {@link #isSpilled()}.
+     */
+    public Path getInputFile() {
+        return inputFile;
+    }
+
+    /**
+     * A fresh reader over the expected output. Readers of a spilled case share the mapping but
+     * each has its own position, so parallel runs of the same case are safe.
+     */
+    public Reader openExpected() {
+        if (expectedMapping == null) {
+            return new StringReader(expectedOutput != null ? expectedOutput : "");
+        }
+        return new BufferedReader(new InputStreamReader(
+                new MappedInputStream(expectedMapping.duplicate()), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Approximate heap footprint of the strings this case keeps in memory.
+     */
+    long heapBytes() {
+        return isSpilled() ? 0 : 2L * (length(input) + length(expectedOutput));
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+
+    private static final class MappedInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private MappedInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
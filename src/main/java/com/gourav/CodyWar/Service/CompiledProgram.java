@@ -0,0 +1,109 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.ExecutionResult;
+import com.gourav.CodyWar.Domain.Entity.Language;
+import com.gourav.CodyWar.Exception.SubmissionProcessingException;
+
+import java.nio.file.Path;
+
+/**
+ * A submission compiled once inside a borrowed sandbox worker. The worker, and with it the
+ * compiled artifact, stays reserved until {@link #close()} so every test case runs against the
+ * same binary. Always use with try-with-resources.
+ */
+public class CompiledProgram implements AutoCloseable {
+
+    private final SandboxPool sandboxPool;
+    private final SandboxWorker worker;
+    private final ExecutionResult compileResult;
+    private boolean closed = false;
+
+    CompiledProgram(SandboxPool sandboxPool, SandboxWorker worker, ExecutionResult compileResult) {
+        this.sandboxPool = sandboxPool;
+        this.worker = worker;
+        this.compileResult = compileResult;
+    }
+
+    public Language getLanguage() {
+        return worker.getLanguage();
+    }
+
+    public boolean isCompiled() {
+        return compileResult.isSuccess();
+    }
+
+    /**
+     * Outcome of the compile step; carries the compiler diagnostics when {@link #isCompiled()} is false.
+     */
+    public ExecutionResult getCompileResult() {
+        return compileResult;
+    }
+
+    /**
+     * Asks the worker for room to run up to {@code requested} inputs at once, each within
+     * {@code memoryLimitMb}; returns how many may actually run concurrently (at least one).
+     */
+    public int reserveParallelSlots(int requested, int memoryLimitMb) {
+        return worker.reserveParallelSlots(requested, memoryLimitMb);
+    }
+
+    /**
+     * Runs the compiled artifact against one input. Safe to call from several threads at once
+     * up to the number of slots reserved.
+     *
+     * @throws SubmissionProcessingException if the sandbox itself failed.
+     */
+    public ExecutionResult run(String input, int timeLimitSeconds, int memoryLimitMb) {
+        return run(input, timeLimitSeconds, memoryLimitMb, null);
+    }
+
+    /**
+     * Runs the compiled artifact against one input, streaming its stdout into {@code checker}
+     * (see {@link SandboxWorker#run(String, int, int, OutputChecker)}).
+     *
+     * @throws SubmissionProcessingException if the sandbox itself failed.
+     */
+    public ExecutionResult run(String input, int timeLimitSeconds, int memoryLimitMb, OutputChecker checker) {
+        checkRunnable();
+        try {
+            return worker.run(input, timeLimitSeconds, memoryLimitMb, checker);
+        } catch (IllegalStateException e) {
+            throw new SubmissionProcessingException("Sandbox execution failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs the compiled artifact with stdin streamed from a file on the host
+     * (see {@link SandboxWorker#run(Path, int, int, OutputChecker)}).
+     *
+     * @throws SubmissionProcessingException if the sandbox itself failed.
+     */
+    public ExecutionResult run(Path inputFile, int timeLimitSeconds, int memoryLimitMb, OutputChecker checker) {
+        checkRunnable();
+        try {
+            return worker.run(inputFile, timeLimitSeconds, memoryLimitMb, checker);
+        } catch (IllegalStateException e) {
+            throw new SubmissionProcessingException("Sandbox execution failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void checkRunnable() {
+        if (closed) {
+            throw new IllegalStateException("Compiled program has already been released");
+        }
+        if (!isCompiled()) {
+            throw new IllegalStateException("Cannot run a program that failed to compile");
+        }
+    }
+
+    /**
+     * Drops the artifact and returns the worker to the pool.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            sandboxPool.release(worker);
+        }
+    }
+}
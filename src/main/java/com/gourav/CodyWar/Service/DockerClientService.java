@@ -1,7 +1,54 @@
 package com.gourav.CodyWar.Service;
 
+import com.gourav.CodyWar.Domain.Dto.ExecutionResult;
+import com.gourav.CodyWar.Domain.Entity.Language;
+import com.gourav.CodyWar.Exception.SubmissionProcessingException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+/**
+ * Entry point for running user code. Borrows a pre-warmed worker from {@link SandboxPool},
+ * executes, and hands the worker back, so callers never deal with containers directly.
+ */
 @Service
+@RequiredArgsConstructor
+@Slf4j
 public class DockerClientService {
+
+    private final SandboxPool sandboxPool;
+
+    /**
+     * Compiles {@code code} once in a borrowed worker. The returned program keeps the worker until
+     * it is closed, so it can be run against any number of inputs without recompiling.
+     *
+     * @throws SubmissionProcessingException if no sandbox could be obtained or the sandbox itself failed.
+     */
+    public CompiledProgram compile(Language language, String code) {
+        SandboxWorker worker = sandboxPool.acquire(language);
+        try {
+            ExecutionResult compileResult = worker.compile(code);
+            log.debug("Compiled {} submission in {} ms (success={})",
+                    language, compileResult.getExecutionTimeMs(), compileResult.isSuccess());
+            return new CompiledProgram(sandboxPool, worker, compileResult);
+        } catch (RuntimeException e) {
+            sandboxPool.release(worker);
+            throw new SubmissionProcessingException("Sandbox compilation failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles (if needed) and runs {@code code} once against {@code input}.
+     *
+     * @throws SubmissionProcessingException if no sandbox could be obtained or the sandbox itself failed.
+     */
+    public ExecutionResult execute(Language language, String code, String input,
+                                   int timeLimitSeconds, int memoryLimitMb) {
+        try (CompiledProgram program = compile(language, code)) {
+            if (!program.isCompiled()) {
+                return program.getCompileResult();
+            }
+            return program.run(input, timeLimitSeconds, memoryLimitMb);
+        }
+    }
 }
@@ -0,0 +1,234 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Language;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every worker in its own long-lived container started with {@code sleep infinity};
+ * submissions are then executed with {@code docker exec}, so the container start-up cost is
+ * paid once per worker instead of once per run. Containers have no network, a read-only root
+ * file system and a tmpfs {@code /code} working directory.
+ * <p>
+ * Images are expected to ship GNU {@code time} at {@code /usr/bin/time}, which is used to report
+ * the peak memory of each run.
+ */
+@Component
+@ConditionalOnProperty(name = "execution.backend", havingValue = "docker", matchIfMissing = true)
+@Slf4j
+public class DockerSandboxBackend implements SandboxBackend {
+
+    private static final String PEAK_MEMORY_MARKER = "__CODYWAR_PEAK_KB__=";
+
+    @Value("${execution.temp-dir:${java.io.tmpdir}/codywar-executions}")
+    private String tempDir;
+
+    @Value("${execution.compile-timeout-seconds:30}")
+    private int compileTimeoutSeconds;
+
+    @Value("${execution.docker.image-prefix:codywar-}")
+    private String imagePrefix;
+
+    @Value("${execution.docker.max-memory-mb:512}")
+    private int maxMemoryMb;
+
+    @Value("${execution.docker.cpus:1.0}")
+    private String cpus;
+
+    @Value("${execution.docker.pids-limit:64}")
+    private int pidsLimit;
+
+    @Override
+    public String getName() {
+        return "docker";
+    }
+
+    @Override
+    public SandboxWorker startWorker(Language language) {
+        SandboxToolchain toolchain = SandboxToolchain.forLanguage(language);
+        String containerName = "codywar-sbx-" + language.name().toLowerCase() + "-"
+                + UUID.randomUUID().toString().substring(0, 8);
+
+        List<String> command = List.of(
+                "docker", "run", "-d", "--rm",
+                "--name", containerName,
+                "--network", "none",
+                "--cpus", cpus,
+                "--pids-limit", String.valueOf(pidsLimit),
+                "--memory", maxMemoryMb + "m",
+                "--memory-swap", maxMemoryMb + "m",
+                "--cap-drop", "ALL",
+                "--security-opt", "no-new-privileges",
+                "--read-only",
+                "--tmpfs", "/code:rw,exec,size=64m",
+                "--tmpfs", "/tmp:rw,exec,size=64m",
+                "-w", "/code",
+                "--entrypoint", "sleep",
+                toolchain.getDockerImage(imagePrefix),
+                "infinity");
+
+        try {
+            Path ioDir = Files.createTempDirectory(Files.createDirectories(Path.of(tempDir)), containerName + "-");
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                AbstractSandboxWorker.deleteRecursively(ioDir, false);
+                throw new IllegalStateException("docker run failed for " + language + ": " + output);
+            }
+            log.debug("Started sandbox container {} for {}", containerName, language);
+            return new DockerWorker(toolchain, containerName, ioDir, compileTimeoutSeconds, maxMemoryMb);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start sandbox container for " + language, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting sandbox container", e);
+        }
+    }
+
+    static class DockerWorker extends AbstractSandboxWorker {
+
+        /** Extra host-side wait on top of the in-container timeout before the worker is declared stuck. */
+        private static final long HOST_GRACE_MS = 5_000;
+
+        private final String containerName;
+        private final AtomicLong runCounter = new AtomicLong();
+        private int currentMemoryMb;
+
+        DockerWorker(SandboxToolchain toolchain, String containerName, Path ioDir,
+                     int compileTimeoutSeconds, int initialMemoryMb) {
+            super(toolchain, ioDir, compileTimeoutSeconds, initialMemoryMb);
+            this.containerName = containerName;
+            this.currentMemoryMb = initialMemoryMb;
+        }
+
+        @Override
+        protected void writeSource(String code) throws IOException, InterruptedException {
+            ProcessOutcome outcome = runHostProcess(
+                    List.of("docker", "exec", "-i", containerName, "sh", "-c",
+                            "cat > /code/" + toolchain.getSourceFileName()),
+                    ioDir, code, HOST_GRACE_MS, false, 0);
+            if (outcome.exitCode() != 0) {
+                healthy = false;
+                throw new IOException("Could not copy source into " + containerName + ": " + outcome.stderr());
+            }
+        }
+
+        @Override
+        protected ProcessOutcome runCommand(String command, Path stdinFile, long timeoutMillis, int memoryLimitMb,
+                                            OutputChecker checker)
+                throws IOException, InterruptedException {
+            if (memoryLimitMb > 0) {
+                // Parallel runs share the container cgroup, so it is sized for all reserved slots;
+                // each run's own limit is then checked against its measured peak
+                applyMemoryLimit(Math.min(memoryCapacityMb, memoryLimitMb * parallelSlots));
+            }
+
+            List<String> exec = new ArrayList<>(List.of(
+                    "docker", "exec", "-i", "-w", "/code", containerName,
+                    "timeout", "-s", "KILL", (timeoutMillis / 1000.0) + "s"));
+            if (memoryLimitMb > 0) {
+                exec.addAll(List.of("/usr/bin/time", "-f", PEAK_MEMORY_MARKER + "%M"));
+            }
+            // The PID file lets the run be killed from outside if the checker rejects its output early
+            String pidFile = "/tmp/.run-" + runCounter.incrementAndGet() + ".pid";
+            exec.addAll(List.of("sh", "-c", "echo $$ > " + pidFile + "; exec " + command));
+
+            ProcessOutcome outcome = runHostProcess(exec, ioDir, stdinFile, timeoutMillis + HOST_GRACE_MS, false, 0, checker);
+            if (outcome.checkerAborted()) {
+                // Killing the docker exec client leaves the program running inside the container
+                runHostProcess(List.of("docker", "exec", containerName, "sh", "-c",
+                                "kill -9 $(cat " + pidFile + ") 2>/dev/null; rm -f " + pidFile),
+                        ioDir, null, HOST_GRACE_MS, false, 0);
+            } else if (outcome.timedOut()) {
+                // The in-container timeout should have fired first; the container is unresponsive
+                healthy = false;
+            }
+            return extractPeakMemory(outcome, timeoutMillis, memoryLimitMb);
+        }
+
+        @Override
+        public void reset() {
+            parallelSlots = 1;
+            try {
+                ProcessOutcome outcome = runHostProcess(
+                        List.of("docker", "exec", containerName, "sh", "-c",
+                                "kill -9 -1 2>/dev/null; rm -rf /code/* /code/.[!.]* /tmp/* /tmp/.[!.]* 2>/dev/null; true"),
+                        ioDir, null, HOST_GRACE_MS, false, 0);
+                if (outcome.exitCode() != 0) {
+                    healthy = false;
+                }
+            } catch (IOException e) {
+                healthy = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                healthy = false;
+            }
+        }
+
+        @Override
+        public void close() {
+            healthy = false;
+            try {
+                new ProcessBuilder("docker", "rm", "-f", containerName)
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start()
+                        .waitFor(30, TimeUnit.SECONDS);
+            } catch (IOException e) {
+                log.warn("Failed to remove sandbox container {}: {}", containerName, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                deleteRecursively(ioDir, false);
+            }
+        }
+
+        /**
+         * The cgroup limit is fixed when the container starts, so it is only updated when a
+         * problem with a different memory limit (or slot count) comes along.
+         */
+        private synchronized void applyMemoryLimit(int memoryLimitMb) throws IOException, InterruptedException {
+            if (memoryLimitMb == currentMemoryMb) {
+                return;
+            }
+            ProcessOutcome outcome = runHostProcess(
+                    List.of("docker", "update", "--memory", memoryLimitMb + "m",
+                            "--memory-swap", memoryLimitMb + "m", containerName),
+                    ioDir, null, HOST_GRACE_MS, false, 0);
+            if (outcome.exitCode() != 0) {
+                throw new IOException("docker update failed for " + containerName + ": " + outcome.stderr());
+            }
+            currentMemoryMb = memoryLimitMb;
+        }
+
+        private ProcessOutcome extractPeakMemory(ProcessOutcome outcome, long timeoutMillis, int memoryLimitMb) {
+            String stderr = outcome.stderr();
+            long peakKb = 0;
+            int marker = stderr.lastIndexOf(PEAK_MEMORY_MARKER);
+            if (marker >= 0) {
+                try {
+                    peakKb = Long.parseLong(stderr.substring(marker + PEAK_MEMORY_MARKER.length()).trim());
+                } catch (NumberFormatException e) {
+                    log.debug("Unparseable peak memory in {}", containerName);
+                }
+                stderr = stderr.substring(0, marker);
+            }
+            // SIGKILL before the deadline can only come from the cgroup OOM killer
+            boolean oomKilled = memoryLimitMb > 0 && outcome.exitCode() == 137 && outcome.elapsedMs() < timeoutMillis;
+            return new ProcessOutcome(outcome.exitCode(), outcome.stdout(), stderr, outcome.elapsedMs(),
+                    peakKb, outcome.timedOut(), outcome.memoryExceeded() || oomKilled, outcome.checkerAborted());
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.JudgeTask;
+import com.gourav.CodyWar.Domain.Entity.SubmissionStatus;
+import com.gourav.CodyWar.Exception.SubmissionRejectedException;
+import com.gourav.CodyWar.Repository.SubmissionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded, prioritized judge queue shared by every instance through Redis, so API nodes only
+ * enqueue and judging runs wherever a {@link JudgeWorker} is enabled.
+ * <p>
+ * Layout: {@code judge:queue} is a sorted set of submission ids scored by battle deadline
+ * (soonest first), {@code judge:tasks} holds the {@link JudgeTask} per id, and
+ * {@code judge:processing} is a sorted set of claimed ids scored by their visibility deadline.
+ * A claim atomically moves the most urgent id into {@code judge:processing}; the worker extends
+ * the deadline while it judges and removes the id when done, or lets the lease lapse at once if
+ * judging failed. Ids whose deadline lapses (the worker died or failed) are put back in the
+ * queue, up to {@code judge.queue.max-attempts}; the submissions that exhaust them are failed.
+ * <p>
+ * Admission is refused with a {@link SubmissionRejectedException} (HTTP 429) when the queue is at
+ * {@code judge.queue.capacity} or the user already has {@code judge.queue.max-in-flight-per-user}
+ * submissions pending or running in the battle. The capacity check is per-instance best effort,
+ * so the queue can briefly overshoot by the number of concurrent submitters.
+ * <p>
+ * Metrics: {@code judge.queue.depth} (gauge), {@code judge.queue.wait} (timer, enqueue to claim),
+ * {@code judge.queue.rejections} (counter, tagged with {@code reason}) and
+ * {@code judge.queue.redeliveries} (counter).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JudgeQueue {
+
+    private static final String QUEUE_KEY = "judge:queue";
+    private static final String PROCESSING_KEY = "judge:processing";
+    private static final String TASKS_KEY = "judge:tasks";
+
+    /** Pops the most urgent id and leases it until ARGV[1] (epoch millis). */
+    private static final RedisScript<String> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local popped = redis.call('ZPOPMIN', KEYS[1]) " +
+            "if #popped == 0 then return nil end " +
+            "redis.call('ZADD', KEYS[2], ARGV[1], popped[1]) " +
+            "return popped[1]",
+            String.class);
+
+    /** Pushes the lease of ARGV[2] out to ARGV[1], but only while it is still held. */
+    private static final RedisScript<Long> EXTEND_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('ZSCORE', KEYS[1], ARGV[2]) then " +
+            "return redis.call('ZADD', KEYS[1], 'XX', 'CH', ARGV[1], ARGV[2]) end " +
+            "return 0",
+            Long.class);
+
+    private final SubmissionRepository submissionRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Admitted inside a transaction that has not committed yet; counted against capacity
+    private final AtomicInteger awaitingCommit = new AtomicInteger();
+
+    private Timer waitTimer;
+    private Counter capacityRejections;
+    private Counter userLimitRejections;
+    private Counter redeliveries;
+
+    @Value("${judge.queue.capacity:500}")
+    private int capacity;
+
+    @Value("${judge.queue.max-in-flight-per-user:2}")
+    private int maxInFlightPerUser;
+
+    @Value("${judge.queue.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    @Value("${judge.queue.visibility-timeout-ms:60000}")
+    private long visibilityTimeoutMs;
+
+    @Value("${judge.queue.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${judge.queue.poll-interval-ms:200}")
+    private long pollIntervalMs;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("judge.queue.depth", this, JudgeQueue::size)
+                .description("Submissions waiting to be judged")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("judge.queue.wait")
+                .description("Time a submission spends queued before a worker claims it")
+                .register(meterRegistry);
+        capacityRejections = Counter.builder("judge.queue.rejections")
+                .description("Submissions refused by the judge queue")
+                .tag("reason", "capacity")
+                .register(meterRegistry);
+        userLimitRejections = Counter.builder("judge.queue.rejections")
+                .description("Submissions refused by the judge queue")
+                .tag("reason", "user_limit")
+                .register(meterRegistry);
+        redeliveries = Counter.builder("judge.queue.redeliveries")
+                .description("Claimed submissions put back after their worker stopped responding")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits a freshly saved submission. {@code remainingSeconds} is the battle's remaining time
+     * and becomes the task's priority. When called inside a transaction the task is only pushed
+     * to Redis after commit (so workers never look up an uncommitted submission) and is dropped
+     * on rollback.
+     *
+     * @throws SubmissionRejectedException if the user or the queue is at its limit.
+     */
+    public JudgeTask submit(UUID submissionId, UUID battleId, UUID userId, long remainingSeconds) {
+        // The submission being admitted is already saved as PENDING, so it counts itself
+        long inFlight = submissionRepository.countByBattleIdAndUserIdAndStatusIn(battleId, userId,
+                EnumSet.of(SubmissionStatus.PENDING, SubmissionStatus.RUNNING));
+        if (inFlight > maxInFlightPerUser) {
+            userLimitRejections.increment();
+            throw new SubmissionRejectedException("You already have " + (inFlight - 1)
+                    + " submissions being judged; wait for a verdict before submitting again", retryAfterSeconds);
+        }
+
+        if (size() + awaitingCommit.get() >= capacity) {
+            capacityRejections.increment();
+            log.warn("Judge queue full ({} tasks), rejecting submission {}", capacity, submissionId);
+            throw new SubmissionRejectedException("The judge is busy, please resubmit shortly", retryAfterSeconds);
+        }
+
+        Instant now = Instant.now();
+        JudgeTask task = JudgeTask.builder()
+                .submissionId(submissionId)
+                .battleId(battleId)
+                .userId(userId)
+                .battleDeadline(now.plusSeconds(remainingSeconds))
+                .enqueuedAt(now)
+                .build();
+
+        awaitingCommit.incrementAndGet();
+        TransactionHooks.afterCompletion(committed -> {
+            awaitingCommit.decrementAndGet();
+            if (committed) {
+                push(task);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Blocks until a task can be claimed and returns the most urgent one.
+     */
+    public JudgeTask take() throws InterruptedException {
+        JudgeTask task;
+        while ((task = poll(pollIntervalMs, TimeUnit.MILLISECONDS)) == null) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Claims the most urgent task, polling Redis for up to {@code timeout}; {@code null} if none
+     * arrived. The caller must {@link #complete} the task, or keep it alive with
+     * {@link #extendVisibility}, before {@code judge.queue.visibility-timeout-ms} runs out.
+     */
+    public JudgeTask poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            String id = redisTemplate.execute(CLAIM_SCRIPT, List.of(QUEUE_KEY, PROCESSING_KEY),
+                    System.currentTimeMillis() + visibilityTimeoutMs);
+            if (id != null) {
+                Object obj = redisTemplate.opsForHash().get(TASKS_KEY, id);
+                if (obj instanceof JudgeTask task) {
+                    waitTimer.record(Duration.between(task.getEnqueuedAt(), Instant.now()));
+                    return task;
+                }
+                // Completed by a worker that was presumed dead; nothing left to do
+                redisTemplate.opsForZSet().remove(PROCESSING_KEY, id);
+                continue;
+            }
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                return null;
+            }
+            Thread.sleep(Math.min(pollIntervalMs, remainingMs));
+        }
+    }
+
+    /**
+     * Marks a claimed task as done so it is never redelivered.
+     */
+    public void complete(JudgeTask task) {
+        String id = task.getSubmissionId().toString();
+        redisTemplate.opsForZSet().remove(PROCESSING_KEY, id);
+        redisTemplate.opsForHash().delete(TASKS_KEY, id);
+    }
+
+    /**
+     * Gives up the lease on a task whose judging failed, so the next {@link #requeueExpired} run
+     * redelivers it, counting the attempt, or abandons it after {@code judge.queue.max-attempts}.
+     */
+    public void release(JudgeTask task) {
+        redisTemplate.execute(EXTEND_SCRIPT, List.of(PROCESSING_KEY), 0L, task.getSubmissionId().toString());
+    }
+
+    /**
+     * Renews the lease on tasks that are still being judged.
+     */
+    public void extendVisibility(Collection<UUID> submissionIds) {
+        long visibleAt = System.currentTimeMillis() + visibilityTimeoutMs;
+        for (UUID submissionId : submissionIds) {
+            redisTemplate.execute(EXTEND_SCRIPT, List.of(PROCESSING_KEY), visibleAt, submissionId.toString());
+        }
+    }
+
+    /**
+     * Puts tasks whose lease expired back in the queue. Tasks that already used up
+     * {@code judge.queue.max-attempts} are dropped and returned so the caller can fail them.
+     * Safe to run on several instances at once: only the one that removes an id requeues it.
+     */
+    public List<JudgeTask> requeueExpired() {
+        Set<Object> expired = redisTemplate.opsForZSet()
+                .rangeByScore(PROCESSING_KEY, 0, System.currentTimeMillis(), 0, 100);
+        List<JudgeTask> abandoned = new ArrayList<>();
+        if (expired == null) {
+            return abandoned;
+        }
+
+        for (Object id : expired) {
+            Long removed = redisTemplate.opsForZSet().remove(PROCESSING_KEY, id);
+            if (removed == null || removed == 0) {
+                continue;
+            }
+            Object obj = redisTemplate.opsForHash().get(TASKS_KEY, id.toString());
+            if (!(obj instanceof JudgeTask task)) {
+                continue;
+            }
+
+            task.setAttempts(task.getAttempts() + 1);
+            if (task.getAttempts() >= maxAttempts) {
+                redisTemplate.opsForHash().delete(TASKS_KEY, id.toString());
+                log.warn("Giving up on submission {} after {} attempts", task.getSubmissionId(), task.getAttempts());
+                abandoned.add(task);
+            } else {
+                log.info("Redelivering submission {} (attempt {})", task.getSubmissionId(), task.getAttempts() + 1);
+                redeliveries.increment();
+                push(task);
+            }
+        }
+        return abandoned;
+    }
+
+    public int size() {
+        Long size = redisTemplate.opsForZSet().zCard(QUEUE_KEY);
+        return size != null ? size.intValue() : 0;
+    }
+
+    // ── Helper Methods ──
+
+    private void push(JudgeTask task) {
+        String id = task.getSubmissionId().toString();
+        redisTemplate.opsForHash().put(TASKS_KEY, id, task);
+        redisTemplate.opsForZSet().add(QUEUE_KEY, id, task.getBattleDeadline().toEpochMilli());
+    }
+}
@@ -0,0 +1,152 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.DockerExecutionResult;
+import com.gourav.CodyWar.Domain.Entity.JudgeMode;
+import com.gourav.CodyWar.Domain.Entity.Language;
+import com.gourav.CodyWar.Domain.Entity.Problem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Remembers judge verdicts in Redis so a byte-identical resubmission (double click, reconnect,
+ * retry after a network blip) gets the previous {@link DockerExecutionResult} without another
+ * sandbox run.
+ * <p>
+ * Key: {@code judge:result:<test set hash>:<language>:<digest>}, where the digest covers the
+ * normalized code and everything else that can change a verdict (limits, checker, judge mode).
+ * Because the test set hash is part of the key, editing a problem's test cases makes every old
+ * entry unreachable at once; those entries then expire after {@code judge.result-cache.ttl-minutes}.
+ * <p>
+ * Only verdicts the code alone decides are kept. Time and memory limit verdicts depend on how
+ * loaded the sandbox host was, so an identical resubmission is judged again.
+ * <p>
+ * Metrics: {@code judge.resultcache.requests} (counter, tagged {@code result=hit|miss}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JudgeResultCache {
+
+    private static final String KEY_PREFIX = "judge:result:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private Counter hits;
+    private Counter misses;
+
+    @Value("${judge.result-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${judge.result-cache.ttl-minutes:60}")
+    private long ttlMinutes = 60;
+
+    @PostConstruct
+    public void registerMetrics() {
+        hits = Counter.builder("judge.resultcache.requests")
+                .description("Judge result lookups for submitted code")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("judge.resultcache.requests")
+                .description("Judge result lookups for submitted code")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The verdict an identical submission already got, or null. A null {@code testSetHash}
+     * (problem saved before hashes existed) never hits.
+     */
+    public DockerExecutionResult find(String testSetHash, Language language, String code, Problem problem,
+                                      JudgeMode mode) {
+        if (!enabled || testSetHash == null) {
+            return null;
+        }
+        DockerExecutionResult result = lookup(testSetHash, language, code, problem, mode);
+        (result != null ? hits : misses).increment();
+        return result;
+    }
+
+    /**
+     * Same as {@link #find}, but not counted in the metrics: for the second look a queued
+     * submission takes right before the sandbox, after {@link #find} already counted its lookup at
+     * submit time. Catches identical code judged while this submission waited in the queue.
+     */
+    public DockerExecutionResult recheck(String testSetHash, Language language, String code, Problem problem,
+                                         JudgeMode mode) {
+        if (!enabled || testSetHash == null) {
+            return null;
+        }
+        return lookup(testSetHash, language, code, problem, mode);
+    }
+
+    /**
+     * Stores a verdict produced by the sandbox. Only call for real verdicts, never for sandbox
+     * failures. Time and memory limit verdicts are not stored.
+     */
+    public void put(String testSetHash, Language language, String code, Problem problem, JudgeMode mode,
+                    DockerExecutionResult result) {
+        if (!enabled || testSetHash == null || result.isTimeLimitExceeded() || result.isMemoryLimitExceeded()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(keyFor(testSetHash, language, code, problem, mode), result,
+                    Duration.ofMinutes(ttlMinutes));
+        } catch (RuntimeException e) {
+            log.warn("Could not cache judge result: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Normalizes line endings (editors and browsers differ) and whitespace at the end of the file.
+     * Whitespace inside the code is left alone: it can be significant in Python or sit in a string literal.
+     */
+    static String normalize(String code) {
+        if (code == null) {
+            return "";
+        }
+        return code.replace("\r\n", "\n").replace('\r', '\n').stripTrailing();
+    }
+
+    // ── Helper Methods ──
+
+    private DockerExecutionResult lookup(String testSetHash, Language language, String code, Problem problem,
+                                         JudgeMode mode) {
+        try {
+            Object cached = redisTemplate.opsForValue().get(keyFor(testSetHash, language, code, problem, mode));
+            if (cached instanceof DockerExecutionResult result) {
+                return result;
+            }
+        } catch (RuntimeException e) {
+            // The cache is an optimization only; judge normally when Redis misbehaves
+            log.warn("Judge result cache lookup failed: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private String keyFor(String testSetHash, Language language, String code, Problem problem, JudgeMode mode) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        String settings = problem.getTimeLimitSeconds() + "|" + problem.getMemoryLimitMb() + "|"
+                + problem.getCheckerType() + "|" + problem.getCheckerEpsilon() + "|" + mode + "\n";
+        digest.update(settings.getBytes(StandardCharsets.UTF_8));
+        digest.update(normalize(code).getBytes(StandardCharsets.UTF_8));
+        return KEY_PREFIX + testSetHash + ":" + language + ":" + HexFormat.of().formatHex(digest.digest());
+    }
+}
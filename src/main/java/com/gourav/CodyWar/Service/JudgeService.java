@@ -0,0 +1,337 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.DockerExecutionResult;
+import com.gourav.CodyWar.Domain.Dto.ExecutionResult;
+import com.gourav.CodyWar.Domain.Entity.Battle;
+import com.gourav.CodyWar.Domain.Entity.CheckerType;
+import com.gourav.CodyWar.Domain.Entity.JudgeMode;
+import com.gourav.CodyWar.Domain.Entity.Language;
+import com.gourav.CodyWar.Domain.Entity.Problem;
+import com.gourav.CodyWar.Domain.Entity.TestCase;
+import com.gourav.CodyWar.Exception.SubmissionProcessingException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Judges a submission against a problem's test cases. The code is compiled once and the same
+ * artifact is fed every test case, so compiled languages pay the compiler once per submission
+ * rather than once per test case. How the cases are walked is decided by the {@link JudgeMode};
+ * each run's stdout is streamed into the problem's {@link OutputChecker} rather than captured, so
+ * judging memory does not grow with output size.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JudgeService {
+
+    private final DockerClientService dockerClientService;
+
+    private final ExecutorService fanOutExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "judge-fan-out");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${judge.default-mode:FULL}")
+    private JudgeMode defaultMode = JudgeMode.FULL;
+
+    @Value("${judge.fan-out.max-parallelism:4}")
+    private int maxParallelism = 4;
+
+    @Value("${judge.checker.default-epsilon:1e-6}")
+    private double defaultEpsilon = 1e-6;
+
+    @Value("${judge.output-limit-mb:64}")
+    private long outputLimitMb = 64;
+
+    /**
+     * Picks the judge mode for a battle: the battle's own override, then the problem's, then
+     * {@code judge.default-mode}.
+     */
+    public JudgeMode resolveMode(Battle battle) {
+        if (battle.getJudgeMode() != null) {
+            return battle.getJudgeMode();
+        }
+        if (battle.getProblem() != null && battle.getProblem().getJudgeMode() != null) {
+            return battle.getProblem().getJudgeMode();
+        }
+        return defaultMode;
+    }
+
+    /**
+     * Judges a cached test set against a problem's limits and output checker.
+     *
+     * @throws SubmissionProcessingException if the sandbox itself failed.
+     */
+    public DockerExecutionResult judge(Language language, String code, TestSet testSet, Problem problem,
+                                       JudgeMode mode) {
+        return judgeCases(language, code, testSet.getTestCases(), problem, mode);
+    }
+
+    /**
+     * Judges against a problem's limits and output checker.
+     *
+     * @throws SubmissionProcessingException if the sandbox itself failed.
+     */
+    public DockerExecutionResult judge(Language language, String code, List<TestCase> testCases,
+                                       Problem problem, JudgeMode mode) {
+        return judgeCases(language, code, toCached(testCases), problem, mode);
+    }
+
+    /**
+     * Judges with {@code judge.default-mode} and the exact checker.
+     *
+     * @throws SubmissionProcessingException if the sandbox itself failed.
+     */
+    public DockerExecutionResult judge(Language language, String code, List<TestCase> testCases,
+                                       int timeLimitSeconds, int memoryLimitMb) {
+        return judge(language, code, testCases, timeLimitSeconds, memoryLimitMb, defaultMode);
+    }
+
+    /**
+     * Judges in the given mode with the exact checker.
+     *
+     * @throws SubmissionProcessingException if the sandbox itself failed.
+     */
+    public DockerExecutionResult judge(Language language, String code, List<TestCase> testCases,
+                                       int timeLimitSeconds, int memoryLimitMb, JudgeMode mode) {
+        return judge(language, code, testCases, timeLimitSeconds, memoryLimitMb, mode, CheckerType.EXACT,
+                defaultEpsilon);
+    }
+
+    /**
+     * Compiles the code once and runs it against the test cases, folding the per-case results
+     * into a single {@link DockerExecutionResult} (passed count, max time and max memory).
+     * Every mode stops at the first compilation error, timeout, memory or output overrun or runtime
+     * error; {@link JudgeMode#FAIL_FAST} also stops at the first wrong answer. {@link JudgeMode#FAN_OUT}
+     * gives the same verdict as {@link JudgeMode#FULL} but runs several cases at once.
+     *
+     * @throws SubmissionProcessingException if the sandbox itself failed.
+     */
+    public DockerExecutionResult judge(Language language, String code, List<TestCase> testCases,
+                                       int timeLimitSeconds, int memoryLimitMb, JudgeMode mode,
+                                       CheckerType checkerType, double epsilon) {
+        return judgeCases(language, code, toCached(testCases), timeLimitSeconds, memoryLimitMb, mode,
+                checkerType, epsilon);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    // ── Helper Methods ──
+
+    private DockerExecutionResult judgeCases(Language language, String code, List<CachedTestCase> testCases,
+                                             Problem problem, JudgeMode mode) {
+        CheckerType checkerType = problem.getCheckerType() != null ? problem.getCheckerType() : CheckerType.EXACT;
+        double epsilon = problem.getCheckerEpsilon() != null ? problem.getCheckerEpsilon() : defaultEpsilon;
+        return judgeCases(language, code, testCases, problem.getTimeLimitSeconds(), problem.getMemoryLimitMb(), mode,
+                checkerType, epsilon);
+    }
+
+    private DockerExecutionResult judgeCases(Language language, String code, List<CachedTestCase> testCases,
+                                             int timeLimitSeconds, int memoryLimitMb, JudgeMode mode,
+                                             CheckerType checkerType, double epsilon) {
+        Checkers checkers = new Checkers(checkerType, epsilon, outputLimitMb * 1024 * 1024);
+        long start = System.currentTimeMillis();
+
+        try (CompiledProgram program = dockerClientService.compile(language, code)) {
+            if (!program.isCompiled()) {
+                return buildResult(0, testCases.size(), 0, 0,
+                        "Compilation Error: " + program.getCompileResult().getErrorOutput());
+            }
+
+            if (mode == JudgeMode.FAN_OUT && testCases.size() > 1) {
+                return judgeFanOut(program, testCases, timeLimitSeconds, memoryLimitMb, checkers);
+            }
+            return judgeSequential(program, testCases, timeLimitSeconds, memoryLimitMb, checkers,
+                    mode == JudgeMode.FAIL_FAST);
+        } finally {
+            log.debug("Judged {} submission against {} test cases in {} mode in {} ms",
+                    language, testCases.size(), mode, System.currentTimeMillis() - start);
+        }
+    }
+
+    private static List<CachedTestCase> toCached(List<TestCase> testCases) {
+        return testCases.stream().map(CachedTestCase::of).toList();
+    }
+
+    /**
+     * Runs one case, redirecting stdin from the spill file when the case was too large to keep in memory.
+     */
+    private ExecutionResult runCase(CompiledProgram program, CachedTestCase testCase, int timeLimitSeconds,
+                                    int memoryLimitMb, Checkers checkers) {
+        OutputChecker checker = checkers.forTestCase(testCase);
+        if (testCase.isSpilled()) {
+            return program.run(testCase.getInputFile(), timeLimitSeconds, memoryLimitMb, checker);
+        }
+        return program.run(testCase.getInput(), timeLimitSeconds, memoryLimitMb, checker);
+    }
+
+    private DockerExecutionResult judgeSequential(CompiledProgram program, List<CachedTestCase> testCases,
+                                                  int timeLimitSeconds, int memoryLimitMb, Checkers checkers,
+                                                  boolean failFast) {
+        int passed = 0;
+        long maxTimeMs = 0;
+        long maxMemoryKb = 0;
+
+        for (int i = 0; i < testCases.size(); i++) {
+            ExecutionResult result = runCase(program, testCases.get(i), timeLimitSeconds, memoryLimitMb, checkers);
+
+            maxTimeMs = Math.max(maxTimeMs, result.getExecutionTimeMs());
+            maxMemoryKb = Math.max(maxMemoryKb, result.getMemoryUsedKb());
+
+            String failure = describeFailure(result, i + 1);
+            if (failure != null) {
+                return buildResult(passed, testCases.size(), maxTimeMs, maxMemoryKb, failure);
+            }
+            if (Boolean.TRUE.equals(result.getOutputMatched())) {
+                passed++;
+            } else if (failFast) {
+                break;
+            }
+        }
+
+        return buildResult(passed, testCases.size(), maxTimeMs, maxMemoryKb, null);
+    }
+
+    /**
+     * Runs test cases on as many lanes as the sandbox can hold at {@code memoryLimitMb} each.
+     * Lanes pull the next case index from a shared counter and stop picking up cases past the
+     * lowest failing one; the results are then folded in order exactly like a sequential run.
+     * The calling thread works a lane itself, so a busy executor only slows judging down.
+     */
+    private DockerExecutionResult judgeFanOut(CompiledProgram program, List<CachedTestCase> testCases,
+                                              int timeLimitSeconds, int memoryLimitMb, Checkers checkers) {
+        int lanes = program.reserveParallelSlots(Math.min(maxParallelism, testCases.size()), memoryLimitMb);
+        AtomicReferenceArray<ExecutionResult> results = new AtomicReferenceArray<>(testCases.size());
+        AtomicInteger nextIndex = new AtomicInteger();
+        AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+
+        Runnable lane = () -> {
+            int i;
+            while ((i = nextIndex.getAndIncrement()) < testCases.size() && i < firstFailure.get()) {
+                ExecutionResult result = runCase(program, testCases.get(i), timeLimitSeconds, memoryLimitMb,
+                        checkers);
+                results.set(i, result);
+                if (describeFailure(result, i + 1) != null) {
+                    firstFailure.accumulateAndGet(i, Math::min);
+                }
+            }
+        };
+
+        List<AtomicBoolean> started = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int l = 1; l < lanes; l++) {
+            AtomicBoolean laneStarted = new AtomicBoolean();
+            started.add(laneStarted);
+            futures.add(fanOutExecutor.submit(() -> {
+                if (laneStarted.compareAndSet(false, true)) {
+                    lane.run();
+                }
+            }));
+        }
+
+        RuntimeException laneFailure = null;
+        try {
+            lane.run();
+        } catch (RuntimeException e) {
+            laneFailure = e;
+            firstFailure.set(-1);
+        }
+        for (int l = 0; l < futures.size(); l++) {
+            // Lanes the executor never got round to are claimed here so they do not start late
+            if (started.get(l).compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                futures.get(l).get();
+            } catch (ExecutionException e) {
+                if (laneFailure == null) {
+                    laneFailure = e.getCause() instanceof RuntimeException re
+                            ? re : new SubmissionProcessingException("Fan-out lane failed: " + e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SubmissionProcessingException("Interrupted while judging test cases");
+            }
+        }
+        if (laneFailure != null) {
+            throw laneFailure;
+        }
+
+        int passed = 0;
+        long maxTimeMs = 0;
+        long maxMemoryKb = 0;
+        for (int i = 0; i < testCases.size(); i++) {
+            ExecutionResult result = results.get(i);
+            maxTimeMs = Math.max(maxTimeMs, result.getExecutionTimeMs());
+            maxMemoryKb = Math.max(maxMemoryKb, result.getMemoryUsedKb());
+
+            String failure = describeFailure(result, i + 1);
+            if (failure != null) {
+                return buildResult(passed, testCases.size(), maxTimeMs, maxMemoryKb, failure);
+            }
+            if (Boolean.TRUE.equals(result.getOutputMatched())) {
+                passed++;
+            }
+        }
+        return buildResult(passed, testCases.size(), maxTimeMs, maxMemoryKb, null);
+    }
+
+    /**
+     * Maps a failed run to the message prefixes {@link DockerExecutionResult} uses to derive the verdict.
+     */
+    private String describeFailure(ExecutionResult result, int testCaseNumber) {
+        if (result.isTimedOut()) {
+            return "Time Limit Exceeded on test case " + testCaseNumber;
+        }
+        if (result.isMemoryExceeded()) {
+            return "Memory Limit Exceeded on test case " + testCaseNumber;
+        }
+        if (result.isOutputLimitExceeded()) {
+            return "Output Limit Exceeded on test case " + testCaseNumber;
+        }
+        if (result.getExitCode() != 0) {
+            return "Runtime Error on test case " + testCaseNumber + " (exit code " + result.getExitCode() + "): "
+                    + result.getErrorOutput();
+        }
+        return null;
+    }
+
+
+    private DockerExecutionResult buildResult(int passed, int total, long maxTimeMs, long maxMemoryKb,
+                                              String errorMessage) {
+        return DockerExecutionResult.builder()
+                .success(true)
+                .passedTestCases(passed)
+                .totalTestCases(total)
+                .executionTimeMs((int) maxTimeMs)
+                .memoryUsedKb((int) maxMemoryKb)
+                .errorMessage(errorMessage)
+                .build();
+    }
+
+    /**
+     * Builds a fresh single-use checker for each test case of one submission.
+     */
+    private record Checkers(CheckerType type, double epsilon, long outputLimitBytes) {
+        OutputChecker forTestCase(CachedTestCase testCase) {
+            return OutputChecker.create(type, testCase.openExpected(), epsilon, outputLimitBytes);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.JudgeTask;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fixed set of threads claiming submissions from the shared {@link JudgeQueue}. The thread count
+ * ({@code judge.queue.workers}) bounds how many submissions this instance judges at once.
+ * Only created where {@code judge.worker.enabled} is true (the default, and always under the
+ * {@code judge-worker} profile), so API-only nodes can leave sandbox work to dedicated instances.
+ */
+@Component
+@ConditionalOnProperty(name = "judge.worker.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class JudgeWorker {
+
+    private final JudgeQueue judgeQueue;
+    private final SubmissionService submissionService;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private final Set<UUID> inProgress = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = false;
+
+    @Value("${judge.queue.workers:4}")
+    private int workers;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::drain, "judge-worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        log.info("Started {} judge workers", workers);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+        threads.clear();
+    }
+
+    /**
+     * Keeps the leases of submissions this instance is judging from expiring.
+     */
+    @Scheduled(fixedDelayString = "${judge.queue.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        if (!inProgress.isEmpty()) {
+            judgeQueue.extendVisibility(Set.copyOf(inProgress));
+        }
+    }
+
+    /**
+     * Redelivers submissions whose worker died mid-judge and fails the ones that keep dying.
+     */
+    @Scheduled(fixedDelayString = "${judge.queue.reaper-interval-ms:10000}")
+    public void reapExpired() {
+        for (JudgeTask task : judgeQueue.requeueExpired()) {
+            submissionService.failSubmission(task.getSubmissionId(),
+                    "Judging failed after " + task.getAttempts() + " attempts, please resubmit");
+        }
+    }
+
+    private void drain() {
+        while (running) {
+            JudgeTask task;
+            try {
+                task = judgeQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Could not claim from judge queue: {}", e.getMessage());
+                pause();
+                continue;
+            }
+
+            inProgress.add(task.getSubmissionId());
+            try {
+                submissionService.processSubmission(task.getSubmissionId());
+                judgeQueue.complete(task);
+            } catch (RuntimeException e) {
+                // Leave the task to the reaper: redelivered, or failed once out of attempts
+                log.error("Judge worker failed on submission {}", task.getSubmissionId(), e);
+                judgeQueue.release(task);
+            } finally {
+                inProgress.remove(task.getSubmissionId());
+            }
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.CursorPage;
+import com.gourav.CodyWar.Domain.Dto.LobbyBattleDto;
+import com.gourav.CodyWar.Domain.Entity.Battle;
+import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import com.gourav.CodyWar.Domain.Entity.Difficulty;
+import com.gourav.CodyWar.Repository.BattleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Materialized lobby: the waiting and running public battles, kept up to date by the battle
+ * lifecycle instead of being queried from the database on every listing.
+ * <p>
+ * {@code lobby:battles} is a hash of battle id to {@link LobbyBattleDto} and {@code lobby:version}
+ * a counter bumped by every change, both written by one script so they move together.
+ * {@code BattleService} calls {@link #put} on create, join, leave and start and {@link #remove}
+ * on cancel and end; writes are deferred until the surrounding transaction commits, so the lobby
+ * never lists a battle that was rolled back.
+ * <p>
+ * Commits of one battle can run their deferred writes out of order, so {@code lobby:stage:<id>}
+ * records how far the battle got: waiting, running, or removed. A write for an earlier stage is
+ * ignored, so a late waiting entry cannot replace the running one, and nothing re-lists a battle
+ * after its removal. The marker outlives the battle by {@value #STAGE_TTL_HOURS} hours.
+ * <p>
+ * Each instance serves pages from an in-memory snapshot sorted newest first. The snapshot is
+ * reused for {@code battle.lobby.refresh-ms}; after that one {@code GET} of the version tells
+ * whether it is still current, and only a changed lobby is read again. The version doubles as the
+ * listing's ETag, so polling clients of an idle lobby get 304s without touching Redis at all.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LobbyView {
+
+    static final String BATTLES_KEY = "lobby:battles";
+    static final String VERSION_KEY = "lobby:version";
+    static final String STAGE_KEY_PREFIX = "lobby:stage:";
+
+    private static final long STAGE_TTL_HOURS = 24;
+    private static final long WAITING_STAGE = 1;
+    private static final long RUNNING_STAGE = 2;
+    private static final long REMOVED_STAGE = 3;
+
+    /**
+     * Stores entry ARGV[2] for battle ARGV[1] at stage ARGV[3] (stage key KEYS[3], kept for ARGV[4]
+     * ms) and returns the new version, or 0 if the battle already reached a later stage.
+     */
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>(
+            "local stage = tonumber(ARGV[3]) " +
+            "if stage < tonumber(redis.call('GET', KEYS[3]) or '0') then return 0 end " +
+            "redis.call('SET', KEYS[3], stage, 'PX', ARGV[4]) " +
+            "redis.call('HSET', KEYS[1], cjson.decode(ARGV[1]), ARGV[2]) " +
+            "return redis.call('INCR', KEYS[2])",
+            Long.class);
+
+    /**
+     * Drops battle ARGV[1] and marks it removed (stage key KEYS[3], kept for ARGV[3] ms, set to
+     * ARGV[2]); returns the new version, or 0 if it was not listed.
+     */
+    private static final RedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('SET', KEYS[3], ARGV[2], 'PX', ARGV[3]) " +
+            "if redis.call('HDEL', KEYS[1], cjson.decode(ARGV[1])) == 0 then return 0 end " +
+            "return redis.call('INCR', KEYS[2])",
+            Long.class);
+
+    private static final Comparator<LobbyBattleDto> NEWEST_FIRST =
+            Comparator.comparing(LobbyBattleDto::getCreatedAt).thenComparing(LobbyBattleDto::getId).reversed();
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final BattleRepository battleRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(-1, List.of(), 0);
+
+    @Value("${battle.lobby.refresh-ms:500}")
+    private long refreshMs = 500;
+
+    /**
+     * Lists or updates a public battle as it is now; private and finished battles are ignored.
+     */
+    public void put(Battle battle) {
+        if (battle.isPrivate() || !isListed(battle.getStatus())) {
+            return;
+        }
+        LobbyBattleDto entry = entry(battle);
+        long stage = battle.getStatus() == BattleStatus.IN_PROGRESS ? RUNNING_STAGE : WAITING_STAGE;
+        TransactionHooks.afterCommit(() -> redisTemplate.execute(PUT_SCRIPT,
+                List.of(BATTLES_KEY, VERSION_KEY, stageKey(entry.getId())), entry.getId().toString(), entry, stage,
+                TimeUnit.HOURS.toMillis(STAGE_TTL_HOURS)));
+    }
+
+    /**
+     * Takes a battle off the lobby (cancelled or ended).
+     */
+    public void remove(UUID battleId) {
+        TransactionHooks.afterCommit(() -> redisTemplate.execute(REMOVE_SCRIPT,
+                List.of(BATTLES_KEY, VERSION_KEY, stageKey(battleId)), battleId.toString(), REMOVED_STAGE,
+                TimeUnit.HOURS.toMillis(STAGE_TTL_HOURS)));
+    }
+
+    /**
+     * One page of the lobby, newest first, after {@code cursor}. {@code difficulty} (optional)
+     * keeps battles on problems of that difficulty, {@code minFreeSlots} battles with at least
+     * that many open slots. The page carries the lobby version it was cut from.
+     */
+    public CursorPage<LobbyBattleDto> page(String cursor, int limit, Difficulty difficulty, int minFreeSlots) {
+        PageCursor after = PageCursor.decode(cursor);
+        Snapshot current = snapshot();
+
+        List<LobbyBattleDto> items = new ArrayList<>();
+        boolean more = false;
+        for (LobbyBattleDto battle : current.battles()) {
+            if ((after != null && !after.precedes(battle.getCreatedAt(), battle.getId()))
+                    || (difficulty != null && battle.getDifficulty() != difficulty)
+                    || battle.getFreeSlots() < minFreeSlots) {
+                continue;
+            }
+            if (items.size() == limit) {
+                more = true;
+                break;
+            }
+            items.add(battle);
+        }
+
+        LobbyBattleDto last = items.isEmpty() ? null : items.get(items.size() - 1);
+        return CursorPage.<LobbyBattleDto>builder()
+                .items(items)
+                .nextCursor(more ? new PageCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .version(current.version())
+                .build();
+    }
+
+    /**
+     * Rebuilds the lobby from the database when Redis has none, e.g. on first deploy or after a
+     * Redis flush.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void seedIfEmpty() {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(VERSION_KEY))) {
+            return;
+        }
+        redisTemplate.opsForValue().setIfAbsent(VERSION_KEY, 0);
+        List<Battle> battles = Stream.of(BattleStatus.WAITING, BattleStatus.IN_PROGRESS)
+                .flatMap(status -> battleRepository.findPublicBattlesByStatus(status).stream())
+                .toList();
+        battles.forEach(this::put);
+        log.info("Lobby seeded with {} battles", battles.size());
+    }
+
+    // ── Helper Methods ──
+
+    /**
+     * The local snapshot, re-validated against Redis at most every {@code refreshMs}.
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (System.currentTimeMillis() - current.checkedAt() < refreshMs) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            long now = System.currentTimeMillis();
+            if (now - current.checkedAt() < refreshMs) {
+                return current;
+            }
+            Object version = redisTemplate.opsForValue().get(VERSION_KEY);
+            long latest = version instanceof Number number ? number.longValue() : 0;
+            snapshot = latest == current.version() ? new Snapshot(latest, current.battles(), now) : load(now);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Reads the version and all entries in one round trip; entries may be newer than the version,
+     * which only means the next check reads them again.
+     */
+    private Snapshot load(long now) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                redis.opsForValue().get(VERSION_KEY);
+                redis.opsForHash().entries(BATTLES_KEY);
+                return null;
+            }
+        });
+        long version = results.size() > 0 && results.get(0) instanceof Number number ? number.longValue() : 0;
+        Map<?, ?> entries = results.size() > 1 && results.get(1) instanceof Map<?, ?> map ? map : Map.of();
+        List<LobbyBattleDto> battles = entries.values().stream()
+                .filter(LobbyBattleDto.class::isInstance)
+                .map(LobbyBattleDto.class::cast)
+                .sorted(NEWEST_FIRST)
+                .toList();
+        log.debug("Lobby reloaded at version {} with {} battles", version, battles.size());
+        return new Snapshot(version, battles, now);
+    }
+
+    private static LobbyBattleDto entry(Battle battle) {
+        int current = battle.getParticipants().size();
+        return LobbyBattleDto.builder()
+                .id(battle.getId())
+                .status(battle.getStatus())
+                .problemId(battle.getProblem().getId())
+                .problemTitle(battle.getProblem().getTitle())
+                .difficulty(battle.getProblem().getDifficulty())
+                .judgeMode(battle.getJudgeMode() != null ? battle.getJudgeMode() : battle.getProblem().getJudgeMode())
+                .maxParticipants(battle.getMaxParticipants())
+                .currentParticipants(current)
+                .freeSlots(battle.getStatus() == BattleStatus.WAITING ? Math.max(0, battle.getMaxParticipants() - current) : 0)
+                .durationSeconds(battle.getDurationSeconds())
+                // A mutable list: the Redis serializer records its type and must be able to rebuild it
+                .participants(battle.getParticipants().stream()
+                        .map(p -> p.getUser().getUsername())
+                        .collect(Collectors.toCollection(ArrayList::new)))
+                .createdAt(battle.getCreatedAt() != null ? battle.getCreatedAt() : Instant.now())
+                .startedAt(battle.getStartedAt())
+                .build();
+    }
+
+    static String stageKey(UUID battleId) {
+        return STAGE_KEY_PREFIX + battleId;
+    }
+
+    private static boolean isListed(BattleStatus status) {
+        return status == BattleStatus.WAITING || status == BattleStatus.IN_PROGRESS;
+    }
+
+    private record Snapshot(long version, List<LobbyBattleDto> battles, long checkedAt) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Language;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Stand-in backend that runs code as child processes of the application.
+ * It relies on the host having the language toolchains installed and provides NO isolation,
+ * so it is only meant for local development and tests on machines without a Docker daemon.
+ */
+@Component
+@ConditionalOnProperty(name = "execution.backend", havingValue = "local")
+@Slf4j
+public class LocalProcessSandboxBackend implements SandboxBackend {
+
+    @Value("${execution.temp-dir:${java.io.tmpdir}/codywar-executions}")
+    private String tempDir;
+
+    @Value("${execution.compile-timeout-seconds:30}")
+    private int compileTimeoutSeconds;
+
+    @Value("${execution.local.memory-capacity-mb:2048}")
+    private int memoryCapacityMb;
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public SandboxWorker startWorker(Language language) {
+        try {
+            Path root = Files.createDirectories(Path.of(tempDir));
+            Path workerDir = Files.createTempDirectory(root, language.name().toLowerCase() + "-");
+            Path boxDir = Files.createDirectories(workerDir.resolve("box"));
+            Path ioDir = Files.createDirectories(workerDir.resolve("io"));
+            log.debug("Started local sandbox worker for {} in {}", language, workerDir);
+            return new LocalProcessWorker(SandboxToolchain.forLanguage(language), workerDir, boxDir, ioDir,
+                    compileTimeoutSeconds, memoryCapacityMb);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create sandbox directory for " + language, e);
+        }
+    }
+
+    static class LocalProcessWorker extends AbstractSandboxWorker {
+
+        private final Path workerDir;
+        private final Path boxDir;
+
+        LocalProcessWorker(SandboxToolchain toolchain, Path workerDir, Path boxDir, Path ioDir,
+                           int compileTimeoutSeconds, int memoryCapacityMb) {
+            super(toolchain, ioDir, compileTimeoutSeconds, memoryCapacityMb);
+            this.workerDir = workerDir;
+            this.boxDir = boxDir;
+        }
+
+        @Override
+        protected void writeSource(String code) throws IOException {
+            Files.writeString(boxDir.resolve(toolchain.getSourceFileName()), code, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected ProcessOutcome runCommand(String command, Path stdinFile, long timeoutMillis, int memoryLimitMb,
+                                            OutputChecker checker)
+                throws IOException, InterruptedException {
+            // "exec" makes the program replace the shell so the sampled PID is the program itself
+            return runHostProcess(List.of("sh", "-c", "exec " + command), boxDir, stdinFile, timeoutMillis,
+                    memoryLimitMb > 0, memoryLimitMb * 1024L, checker);
+        }
+
+        @Override
+        public void reset() {
+            parallelSlots = 1;
+            deleteRecursively(boxDir, true);
+        }
+
+        @Override
+        public void close() {
+            healthy = false;
+            deleteRecursively(workerDir, false);
+        }
+    }
+}
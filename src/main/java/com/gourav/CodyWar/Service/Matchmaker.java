@@ -0,0 +1,209 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.BattleEvent;
+import com.gourav.CodyWar.Domain.Dto.MatchmakingEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background matchmaker: every {@code battle.matchmaking.batch-interval-ms} it takes up to
+ * {@code battle.matchmaking.batch-size} queued players and pairs them globally, so players are
+ * matched even when nobody else calls the matchmaking endpoint.
+ * <p>
+ * Players are bucketed by {@code preferredDuration} and {@code maxParticipants}, then swept in
+ * rating order: the next {@code maxParticipants} players form a group when their rating spread
+ * fits the window of the longest-waiting one ({@link MatchmakingQueue#windowFor}). Each group is
+ * claimed atomically ({@link MatchmakingQueue#claimAll}), so a player matched over HTTP in the
+ * meantime is never matched twice, and {@link BattleService#createQueuedMatch} pushes
+ * {@code MATCH_FOUND} to the players.
+ * <p>
+ * Only one instance sweeps at a time: the sweep is guarded by a single-shard {@link ShardLeases}
+ * lease that moves to another instance when the holder leaves or stops renewing.
+ * <p>
+ * Every {@code battle.matchmaking.sweep-interval-ms}, players queued longer than
+ * {@code battle.matchmaking.queue-timeout-seconds} are evicted and told so with a
+ * {@code MATCHMAKING_TIMEOUT} event. Eviction is atomic, so any instance may run it and each
+ * player is notified once.
+ * <p>
+ * Metrics: {@code battle.matchmaking.batch.matches} and {@code battle.matchmaking.evictions}
+ * (counters).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class Matchmaker {
+
+    static final String LEASE_NAMESPACE = "matchmaking:sweeper";
+
+    /** Expired entries removed per script call; a backlog is worked off in several calls. */
+    private static final int EVICTION_BATCH = 200;
+
+    private final MatchmakingQueue matchmakingQueue;
+    private final BattleService battleService;
+    private final BattleEventPublisher battleEventPublisher;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private ShardLeases leases;
+    private Counter matches;
+    private Counter evictions;
+
+    @Value("${battle.matchmaking.batch-enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${battle.matchmaking.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${battle.matchmaking.lease-ms:5000}")
+    private long leaseMs = 5000;
+
+    @PostConstruct
+    public void init() {
+        leases = new ShardLeases(redisTemplate, LEASE_NAMESPACE, 1, leaseMs, ShardLeases.defaultNodeId());
+        matches = Counter.builder("battle.matchmaking.batch.matches")
+                .description("Battles created by the background matchmaker")
+                .register(meterRegistry);
+        evictions = Counter.builder("battle.matchmaking.evictions")
+                .description("Players dropped from the matchmaking queue after the queue timeout")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        try {
+            leases.releaseAll();
+        } catch (RuntimeException e) {
+            log.warn("Could not release matchmaking lease: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * One sweep over the queue, on the instance holding the matchmaking lease.
+     */
+    @Scheduled(fixedDelayString = "${battle.matchmaking.batch-interval-ms:500}")
+    public void matchQueuedPlayers() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        leases.rebalance(now);
+        if (!leases.owns(0, now)) {
+            return;
+        }
+
+        List<MatchmakingEntry> waiting = matchmakingQueue.snapshot(batchSize);
+        if (waiting.size() < 2) {
+            return;
+        }
+        for (List<MatchmakingEntry> group : formGroups(waiting, Instant.ofEpochMilli(now))) {
+            try {
+                createMatch(group);
+            } catch (RuntimeException e) {
+                log.error("Could not create matched battle for {} players", group.size(), e);
+            }
+        }
+    }
+
+    /**
+     * Drops players who waited past the queue timeout (closed tab, lost connection) and tells
+     * them so they can queue again.
+     */
+    @Scheduled(fixedDelayString = "${battle.matchmaking.sweep-interval-ms:5000}")
+    public void evictExpiredEntries() {
+        List<MatchmakingEntry> evicted;
+        do {
+            evicted = matchmakingQueue.evictExpired(EVICTION_BATCH);
+            for (MatchmakingEntry entry : evicted) {
+                evictions.increment();
+                battleEventPublisher.publishToUser(entry.getOduserId(), BattleEvent.builder()
+                        .type(BattleEvent.EventType.MATCHMAKING_TIMEOUT)
+                        .payload(Map.of(
+                                "message", "No opponent found in time, removed from matchmaking queue",
+                                "queuedAt", entry.getQueuedAt() != null ? entry.getQueuedAt().toString() : ""))
+                        .build());
+            }
+            if (!evicted.isEmpty()) {
+                log.info("Evicted {} expired matchmaking entries", evicted.size());
+            }
+        } while (evicted.size() == EVICTION_BATCH);
+    }
+
+    /**
+     * Sort-and-sweep: buckets players by duration and size preference and, within each bucket in
+     * rating order, groups consecutive players whose rating spread the longest-waiting member
+     * accepts. Players left over stay queued for the next sweep.
+     */
+    List<List<MatchmakingEntry>> formGroups(List<MatchmakingEntry> waiting, Instant now) {
+        Map<String, List<MatchmakingEntry>> buckets = new LinkedHashMap<>();
+        waiting.stream()
+                .sorted((a, b) -> Integer.compare(a.getRatingScore(), b.getRatingScore()))
+                .forEach(entry -> buckets
+                        .computeIfAbsent(entry.getPreferredDuration() + ":" + groupSize(entry), k -> new ArrayList<>())
+                        .add(entry));
+
+        List<List<MatchmakingEntry>> groups = new ArrayList<>();
+        for (List<MatchmakingEntry> bucket : buckets.values()) {
+            int size = groupSize(bucket.get(0));
+            int i = 0;
+            while (i + size <= bucket.size()) {
+                List<MatchmakingEntry> candidate = bucket.subList(i, i + size);
+                int spread = candidate.get(size - 1).getRatingScore() - candidate.get(0).getRatingScore();
+                long longestWait = candidate.stream()
+                        .mapToLong(entry -> waitedSeconds(entry, now))
+                        .max()
+                        .orElse(0);
+                if (spread <= matchmakingQueue.windowFor(longestWait)) {
+                    groups.add(new ArrayList<>(candidate));
+                    i += size;
+                } else {
+                    i++;
+                }
+            }
+        }
+        return groups;
+    }
+
+    // ── Helper Methods ──
+
+    private void createMatch(List<MatchmakingEntry> group) {
+        if (!matchmakingQueue.claimAll(group.stream().map(MatchmakingEntry::getOduserId).toList())) {
+            // Someone in the group left or was matched over HTTP since the snapshot
+            return;
+        }
+        try {
+            if (battleService.createQueuedMatch(group) != null) {
+                matches.increment();
+            }
+        } catch (RuntimeException e) {
+            // Put the whole group back so nobody silently loses their place
+            group.forEach(matchmakingQueue::add);
+            throw e;
+        }
+    }
+
+    private static int groupSize(MatchmakingEntry entry) {
+        return Math.max(2, entry.getMaxParticipants());
+    }
+
+    private static long waitedSeconds(MatchmakingEntry entry, Instant now) {
+        if (entry.getQueuedAt() == null) {
+            return 0;
+        }
+        return Math.max(0, Duration.between(entry.getQueuedAt(), now).toSeconds());
+    }
+}
@@ -0,0 +1,249 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.MatchmakingEntry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Players waiting for an opponent, indexed by rating in Redis.
+ * <p>
+ * {@code matchmaking:ratings} is a sorted set of user ids scored by {@code ratingScore},
+ * {@code matchmaking:waiting} the same ids scored by when they queued (epoch millis) and
+ * {@code matchmaking:entries} a hash of user id to {@link MatchmakingEntry}. Finding the nearest
+ * opponent reads a bounded slice on either side of the player's rating and removing a player is a
+ * single {@code ZREM}/{@code HDEL}, so both stay logarithmic in the queue length instead of
+ * transferring and deserializing the whole queue.
+ * <p>
+ * {@link #claimMatch} finds, claims and dequeues an opponent in one Lua script, so two players
+ * matching at the same moment can never both get the same opponent. Sorted-set members and script
+ * arguments go through the template's JSON value serializer while hash fields are plain strings,
+ * so the scripts {@code cjson.decode} a member before using it as a hash field.
+ * <p>
+ * The acceptable rating gap grows with how long the waiting player has been queued: it starts at
+ * {@code battle.matchmaking.rating-window}, widens by {@code battle.matchmaking.window-growth-per-second}
+ * and is capped at {@code battle.matchmaking.max-rating-window}, so nobody waits forever for a
+ * perfect match.
+ * <p>
+ * Each entry expires on its own: {@link #evictExpired} removes players queued longer than
+ * {@code battle.matchmaking.queue-timeout-seconds} ago, oldest first, using the
+ * {@code matchmaking:waiting} index. The keys themselves never expire, so steady traffic cannot
+ * keep abandoned entries alive and a lull cannot wipe the whole queue at once.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MatchmakingQueue {
+
+    static final String RATINGS_KEY = "matchmaking:ratings";
+    static final String WAITING_KEY = "matchmaking:waiting";
+    static final String ENTRIES_KEY = "matchmaking:entries";
+
+    /** Players read on each side of a rating when looking for an opponent. */
+    private static final int SCAN_LIMIT = 20;
+
+    /**
+     * Dequeues the requester ARGV[1] (rating ARGV[2]) and claims the nearest other player whose
+     * window covers the gap. The window is ARGV[4] plus ARGV[5] per second waited since the
+     * {@code matchmaking:waiting} score, capped at ARGV[6]; ARGV[3] is now in epoch millis and
+     * ARGV[7] the slice read on each side. Members without an entry are dropped along the way.
+     * Returns the claimed entry, or nil.
+     */
+    private static final RedisScript<MatchmakingEntry> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local rating, now = tonumber(ARGV[2]), tonumber(ARGV[3]) " +
+            "local base, growth, maxWindow = tonumber(ARGV[4]), tonumber(ARGV[5]), tonumber(ARGV[6]) " +
+            "redis.call('ZREM', KEYS[1], ARGV[1]) redis.call('ZREM', KEYS[2], ARGV[1]) " +
+            "redis.call('HDEL', KEYS[3], cjson.decode(ARGV[1])) " +
+            "local candidates = {} " +
+            "local function collect(slice) " +
+            "  for i = 1, #slice, 2 do " +
+            "    table.insert(candidates, {slice[i], math.abs(tonumber(slice[i + 1]) - rating)}) " +
+            "  end " +
+            "end " +
+            "collect(redis.call('ZRANGEBYSCORE', KEYS[1], rating, rating + maxWindow, " +
+            "    'WITHSCORES', 'LIMIT', 0, ARGV[7])) " +
+            "collect(redis.call('ZREVRANGEBYSCORE', KEYS[1], rating, rating - maxWindow, " +
+            "    'WITHSCORES', 'LIMIT', 0, ARGV[7])) " +
+            "table.sort(candidates, function(a, b) return a[2] < b[2] end) " +
+            "for _, candidate in ipairs(candidates) do " +
+            "  local member, gap = candidate[1], candidate[2] " +
+            "  local entry = redis.call('HGET', KEYS[3], cjson.decode(member)) " +
+            "  if not entry then " +
+            "    redis.call('ZREM', KEYS[1], member) redis.call('ZREM', KEYS[2], member) " +
+            "  else " +
+            "    local queuedAt = tonumber(redis.call('ZSCORE', KEYS[2], member) or now) " +
+            "    local waited = math.max(0, math.floor((now - queuedAt) / 1000)) " +
+            "    if gap <= math.min(maxWindow, base + math.floor(growth * waited + 0.5)) then " +
+            "      redis.call('ZREM', KEYS[1], member) redis.call('ZREM', KEYS[2], member) " +
+            "      redis.call('HDEL', KEYS[3], cjson.decode(member)) " +
+            "      return entry " +
+            "    end " +
+            "  end " +
+            "end " +
+            "return nil",
+            MatchmakingEntry.class);
+
+    /**
+     * Removes up to ARGV[2] players queued at or before ARGV[1] (epoch millis) and returns the
+     * entries removed, so each expired player is reported exactly once however many instances sweep.
+     */
+    private static final RedisScript<List> EVICT_SCRIPT = new DefaultRedisScript<>(
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "local evicted = {} " +
+            "for _, member in ipairs(expired) do " +
+            "  local entry = redis.call('HGET', KEYS[3], cjson.decode(member)) " +
+            "  redis.call('ZREM', KEYS[1], member) redis.call('ZREM', KEYS[2], member) " +
+            "  redis.call('HDEL', KEYS[3], cjson.decode(member)) " +
+            "  if entry then table.insert(evicted, entry) end " +
+            "end " +
+            "return evicted",
+            List.class);
+
+    /** Dequeues every user id in ARGV, but only if all of them are still queued; 1 if it did. */
+    private static final RedisScript<Long> CLAIM_ALL_SCRIPT = new DefaultRedisScript<>(
+            "for _, member in ipairs(ARGV) do " +
+            "  if redis.call('HEXISTS', KEYS[3], cjson.decode(member)) == 0 then return 0 end " +
+            "end " +
+            "for _, member in ipairs(ARGV) do " +
+            "  redis.call('ZREM', KEYS[1], member) redis.call('ZREM', KEYS[2], member) " +
+            "  redis.call('HDEL', KEYS[3], cjson.decode(member)) " +
+            "end " +
+            "return 1",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${battle.matchmaking.queue-timeout-seconds:300}")
+    private int queueTimeoutSeconds = 300;
+
+    @Value("${battle.matchmaking.rating-window:200}")
+    private int ratingWindow = 200;
+
+    @Value("${battle.matchmaking.window-growth-per-second:5}")
+    private double windowGrowthPerSecond = 5;
+
+    @Value("${battle.matchmaking.max-rating-window:800}")
+    private int maxRatingWindow = 800;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("battle.matchmaking.queue.size", this, MatchmakingQueue::size)
+                .description("Players waiting for an opponent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a player, replacing any earlier entry of the same user.
+     */
+    public void add(MatchmakingEntry entry) {
+        String userId = entry.getOduserId().toString();
+        Instant queuedAt = entry.getQueuedAt() != null ? entry.getQueuedAt() : Instant.now();
+        redisTemplate.opsForHash().put(ENTRIES_KEY, userId, entry);
+        redisTemplate.opsForZSet().add(WAITING_KEY, userId, queuedAt.toEpochMilli());
+        redisTemplate.opsForZSet().add(RATINGS_KEY, userId, entry.getRatingScore());
+    }
+
+    /**
+     * Atomically takes {@code userId} out of the queue and claims the queued player closest in
+     * rating whose window (widened by their time in the queue) covers the gap. The claimed player
+     * is dequeued before this returns, so no concurrent caller can claim them too. Null when
+     * nobody fits.
+     */
+    public MatchmakingEntry claimMatch(UUID userId, int ratingScore) {
+        return redisTemplate.execute(CLAIM_SCRIPT, List.of(RATINGS_KEY, WAITING_KEY, ENTRIES_KEY),
+                userId.toString(), ratingScore, System.currentTimeMillis(), ratingWindow, windowGrowthPerSecond,
+                maxRatingWindow, SCAN_LIMIT);
+    }
+
+    /**
+     * Atomically dequeues a whole group the background matchmaker picked, or nobody if any of
+     * them left or was matched in the meantime.
+     */
+    public boolean claimAll(Collection<UUID> userIds) {
+        Object[] ids = userIds.stream().map(UUID::toString).toArray();
+        Long claimed = redisTemplate.execute(CLAIM_ALL_SCRIPT, List.of(RATINGS_KEY, WAITING_KEY, ENTRIES_KEY), ids);
+        return claimed != null && claimed == 1;
+    }
+
+    /**
+     * Up to {@code limit} queued players, lowest rating first.
+     */
+    public List<MatchmakingEntry> snapshot(int limit) {
+        Set<Object> ids = redisTemplate.opsForZSet().range(RATINGS_KEY, 0, limit - 1L);
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<Object> entries = redisTemplate.opsForHash().multiGet(ENTRIES_KEY, new ArrayList<>(ids));
+        if (entries == null) {
+            return List.of();
+        }
+        List<MatchmakingEntry> waiting = new ArrayList<>(entries.size());
+        for (Object obj : entries) {
+            if (obj instanceof MatchmakingEntry entry) {
+                waiting.add(entry);
+            }
+        }
+        return waiting;
+    }
+
+    /**
+     * Takes a player out of the queue; false if they were not queued.
+     */
+    public boolean remove(UUID userId) {
+        String id = userId.toString();
+        redisTemplate.opsForZSet().remove(RATINGS_KEY, id);
+        redisTemplate.opsForZSet().remove(WAITING_KEY, id);
+        Long removed = redisTemplate.opsForHash().delete(ENTRIES_KEY, id);
+        return removed != null && removed > 0;
+    }
+
+    /**
+     * Removes up to {@code limit} players who have waited longer than the queue timeout and
+     * returns their entries, oldest first.
+     */
+    public List<MatchmakingEntry> evictExpired(int limit) {
+        long cutoff = System.currentTimeMillis() - queueTimeoutSeconds * 1000L;
+        List<?> evicted = redisTemplate.execute(EVICT_SCRIPT, List.of(RATINGS_KEY, WAITING_KEY, ENTRIES_KEY),
+                cutoff, limit);
+        if (evicted == null || evicted.isEmpty()) {
+            return List.of();
+        }
+        List<MatchmakingEntry> entries = new ArrayList<>(evicted.size());
+        for (Object obj : evicted) {
+            if (obj instanceof MatchmakingEntry entry) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Number of queued players.
+     */
+    public long size() {
+        Long size = redisTemplate.opsForZSet().zCard(RATINGS_KEY);
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * Largest rating gap a player who has waited {@code waitedSeconds} accepts.
+     */
+    int windowFor(long waitedSeconds) {
+        return (int) Math.min(maxRatingWindow, ratingWindow + Math.round(windowGrowthPerSecond * waitedSeconds));
+    }
+}
@@ -0,0 +1,176 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Battle;
+import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import com.gourav.CodyWar.Repository.BattleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Redis index of public battles still waiting for players, so matchmaking can pick one without
+ * querying the database.
+ * <p>
+ * {@code battles:open} is a sorted set of battle ids scored by creation time (oldest first, as
+ * the old {@code findAvailablePublicBattles} query ordered them) and {@code battles:open:slots}
+ * a hash of battle id to free slots. {@link #reserve} claims a slot with one atomic decrement;
+ * a battle leaves the sorted set when its last slot is taken and comes back when a player leaves.
+ * {@code BattleService} keeps the index in step on create, join, leave, start and cancel. The
+ * database stays authoritative: a join through a reservation still checks the battle, and a
+ * failed join hands the slot back. Inside a transaction, every write but the reservation waits for
+ * the commit, and a reservation made in a transaction that rolls back is handed back (see
+ * {@link #releaseOnRollback}), so the index never lists or loses a slot the database did not.
+ * <p>
+ * As in {@link MatchmakingQueue}, sorted-set members and script arguments are JSON-encoded while
+ * hash fields are plain, hence the {@code cjson.decode} calls.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OpenBattleIndex {
+
+    static final String OPEN_KEY = "battles:open";
+    static final String SLOTS_KEY = "battles:open:slots";
+
+    /** Open battles looked at per reservation before giving up. */
+    private static final int RESERVE_SCAN = 20;
+
+    /**
+     * Takes one slot in the oldest open battle (up to ARGV[1] looked at) and returns its id, or
+     * nil. A battle whose last slot is taken leaves {@code battles:open}.
+     */
+    private static final RedisScript<String> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local open = redis.call('ZRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1) " +
+            "for _, id in ipairs(open) do " +
+            "  local free = tonumber(redis.call('HGET', KEYS[2], cjson.decode(id)) or '0') " +
+            "  if free > 0 then " +
+            "    free = redis.call('HINCRBY', KEYS[2], cjson.decode(id), -1) " +
+            "    if free == 0 then redis.call('ZREM', KEYS[1], id) end " +
+            "    return id " +
+            "  end " +
+            "  redis.call('ZREM', KEYS[1], id) " +
+            "end " +
+            "return nil",
+            String.class);
+
+    /** Takes one slot in battle ARGV[1] if it has one; 1 if it did. */
+    private static final RedisScript<Long> TAKE_SCRIPT = new DefaultRedisScript<>(
+            "local free = tonumber(redis.call('HGET', KEYS[2], cjson.decode(ARGV[1])) or '0') " +
+            "if free <= 0 then return 0 end " +
+            "free = redis.call('HINCRBY', KEYS[2], cjson.decode(ARGV[1]), -1) " +
+            "if free == 0 then redis.call('ZREM', KEYS[1], ARGV[1]) end " +
+            "return 1",
+            Long.class);
+
+    /**
+     * Gives a slot back to battle ARGV[1] (created at ARGV[2]), up to ARGV[3] free slots, and
+     * reopens it. Returns the free slots afterwards.
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local free = tonumber(redis.call('HGET', KEYS[2], cjson.decode(ARGV[1])) or '0') " +
+            "if free < tonumber(ARGV[3]) then free = redis.call('HINCRBY', KEYS[2], cjson.decode(ARGV[1]), 1) end " +
+            "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1]) " +
+            "return free",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final BattleRepository battleRepository;
+
+    /**
+     * Lists a public waiting battle with {@code freeSlots} open slots.
+     */
+    public void open(Battle battle, int freeSlots) {
+        if (battle.isPrivate() || freeSlots <= 0) {
+            return;
+        }
+        String id = battle.getId().toString();
+        long createdAt = createdAtMillis(battle);
+        TransactionHooks.afterCommit(() -> {
+            redisTemplate.opsForHash().put(SLOTS_KEY, id, freeSlots);
+            redisTemplate.opsForZSet().add(OPEN_KEY, id, createdAt);
+        });
+    }
+
+    /**
+     * Atomically reserves a slot in the oldest open battle; null when none is open. The caller
+     * must join the battle or {@link #release} the slot, and inside a transaction should
+     * {@link #releaseOnRollback} it once the battle is loaded.
+     */
+    public UUID reserve() {
+        String id = redisTemplate.execute(RESERVE_SCRIPT, List.of(OPEN_KEY, SLOTS_KEY), RESERVE_SCAN);
+        return id != null ? UUID.fromString(id) : null;
+    }
+
+    /**
+     * Hands a slot reserved inside the current transaction back if that transaction rolls back,
+     * so the join it was reserved for does not leak it.
+     */
+    public void releaseOnRollback(Battle battle) {
+        TransactionHooks.afterRollback(() -> release(battle));
+    }
+
+    /**
+     * Takes a slot for a player who joined a battle directly (by id or room code).
+     */
+    public void take(UUID battleId) {
+        TransactionHooks.afterCommit(() -> redisTemplate.execute(TAKE_SCRIPT, List.of(OPEN_KEY, SLOTS_KEY),
+                battleId.toString()));
+    }
+
+    /**
+     * Hands a slot back after a player left or a reserved join failed, and reopens the battle.
+     */
+    public void release(Battle battle) {
+        if (battle.isPrivate()) {
+            return;
+        }
+        String id = battle.getId().toString();
+        long createdAt = createdAtMillis(battle);
+        int maxParticipants = battle.getMaxParticipants();
+        TransactionHooks.afterCommit(() -> redisTemplate.execute(RELEASE_SCRIPT, List.of(OPEN_KEY, SLOTS_KEY), id,
+                createdAt, maxParticipants));
+    }
+
+    /**
+     * Removes a battle that no longer takes players (started, cancelled, ended).
+     */
+    public void close(UUID battleId) {
+        String id = battleId.toString();
+        TransactionHooks.afterCommit(() -> {
+            redisTemplate.opsForZSet().remove(OPEN_KEY, id);
+            redisTemplate.opsForHash().delete(SLOTS_KEY, id);
+        });
+    }
+
+    /**
+     * Seeds the index from the database when Redis has none, e.g. on first deploy or after a
+     * Redis flush.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void seedIfEmpty() {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(SLOTS_KEY))) {
+            return;
+        }
+        List<Battle> battles = battleRepository.findAvailablePublicBattles(BattleStatus.WAITING);
+        battles.forEach(battle -> open(battle, battle.getMaxParticipants() - battle.getParticipants().size()));
+        log.info("Open battle index seeded with {} battles", battles.size());
+    }
+
+    // ── Helper Methods ──
+
+    private static long createdAtMillis(Battle battle) {
+        Instant createdAt = battle.getCreatedAt() != null ? battle.getCreatedAt() : Instant.now();
+        return createdAt.toEpochMilli();
+    }
+}
@@ -0,0 +1,344 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.CheckerType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Compares a program's stdout with the expected output while the program is still writing it.
+ * The sandbox pushes stdout bytes in as they appear via {@link #accept}; the expected output is
+ * pulled from a {@link Reader} only as far as needed. Nothing is buffered beyond a fixed-size
+ * decode window (and, for {@link CheckerType#FLOAT}, one token), so memory stays constant however
+ * large the output is. As soon as the output cannot match any more, or grows past the output
+ * limit, {@link #accept} returns false and the sandbox stops the program.
+ * <p>
+ * A checker is single-use: one instance per test case run.
+ */
+public abstract class OutputChecker {
+
+    public enum Verdict { MATCH, MISMATCH, OUTPUT_LIMIT_EXCEEDED }
+
+    private static final int DECODE_BUFFER_SIZE = 8192;
+
+    private final Reader expected;
+    private final long outputLimitBytes;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(DECODE_BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+
+    private long bytesSeen = 0;
+    private int lookahead = -2;  // -2 = nothing peeked yet
+    private Verdict verdict;
+
+    protected OutputChecker(Reader expected, long outputLimitBytes) {
+        this.expected = expected;
+        this.outputLimitBytes = outputLimitBytes;
+    }
+
+    /**
+     * Creates the checker a problem asked for. {@code epsilon} is only used by {@link CheckerType#FLOAT}.
+     */
+    public static OutputChecker create(CheckerType type, Reader expected, double epsilon, long outputLimitBytes) {
+        return switch (type) {
+            case EXACT -> new ExactChecker(expected, outputLimitBytes);
+            case TOKEN -> new TokenChecker(expected, outputLimitBytes);
+            case FLOAT -> new FloatChecker(expected, outputLimitBytes, epsilon);
+        };
+    }
+
+    public static OutputChecker create(CheckerType type, String expected, double epsilon, long outputLimitBytes) {
+        return create(type, new StringReader(expected != null ? expected : ""), epsilon, outputLimitBytes);
+    }
+
+    /**
+     * Feeds the next chunk of stdout. Returns false once a verdict is already certain to be a
+     * failure (mismatch or output limit), meaning the program can be stopped.
+     */
+    public boolean accept(byte[] buffer, int offset, int length) {
+        if (verdict != null) {
+            return false;
+        }
+        bytesSeen += length;
+        if (bytesSeen > outputLimitBytes) {
+            verdict = Verdict.OUTPUT_LIMIT_EXCEEDED;
+            return false;
+        }
+        while (length > 0) {
+            int n = Math.min(length, bytes.remaining());
+            bytes.put(buffer, offset, n);
+            offset += n;
+            length -= n;
+            bytes.flip();
+            decoder.decode(bytes, chars, false);
+            bytes.compact();
+            if (!drainChars()) {
+                verdict = Verdict.MISMATCH;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Signals the end of stdout and returns the final verdict.
+     */
+    public Verdict finish() {
+        if (verdict != null) {
+            return verdict;
+        }
+        bytes.flip();
+        decoder.decode(bytes, chars, true);
+        decoder.flush(chars);
+        verdict = drainChars() && acceptEnd() ? Verdict.MATCH : Verdict.MISMATCH;
+        return verdict;
+    }
+
+    /**
+     * The verdict so far; null while the output still could match.
+     */
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    /**
+     * Consumes one character of the program's output; false if the output can no longer match.
+     */
+    protected abstract boolean acceptChar(char c);
+
+    /**
+     * Called once the program's output has ended; true if it matched.
+     */
+    protected abstract boolean acceptEnd();
+
+    protected int readExpected() {
+        int c = peekExpected();
+        lookahead = -2;
+        return c;
+    }
+
+    protected int peekExpected() {
+        if (lookahead == -2) {
+            try {
+                lookahead = expected.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read expected output", e);
+            }
+        }
+        return lookahead;
+    }
+
+    protected void skipExpectedWhitespace() {
+        while (isWhitespace(peekExpected())) {
+            readExpected();
+        }
+    }
+
+    protected static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+    }
+
+    private boolean drainChars() {
+        chars.flip();
+        try {
+            while (chars.hasRemaining()) {
+                if (!acceptChar(chars.get())) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            chars.compact();
+        }
+    }
+
+    /**
+     * Equal once leading and trailing whitespace of the whole output are ignored (the same rule as
+     * comparing {@code String.trim()} results). After the first differing character both remaining
+     * tails must be whitespace only.
+     */
+    static class ExactChecker extends OutputChecker {
+
+        private boolean started = false;
+        private boolean diverged = false;
+
+        ExactChecker(Reader expected, long outputLimitBytes) {
+            super(expected, outputLimitBytes);
+        }
+
+        @Override
+        protected boolean acceptChar(char c) {
+            if (!started) {
+                if (isWhitespace(c)) {
+                    return true;
+                }
+                started = true;
+                skipExpectedWhitespace();
+            }
+            if (diverged) {
+                return isWhitespace(c);
+            }
+            int e = readExpected();
+            if (e == c) {
+                return true;
+            }
+            diverged = true;
+            return isWhitespace(c) && (e == -1 || isWhitespace(e)) && expectedRestIsWhitespace();
+        }
+
+        @Override
+        protected boolean acceptEnd() {
+            if (!started) {
+                skipExpectedWhitespace();
+            }
+            return diverged || expectedRestIsWhitespace();
+        }
+
+        private boolean expectedRestIsWhitespace() {
+            skipExpectedWhitespace();
+            return peekExpected() == -1;
+        }
+    }
+
+    /**
+     * Compares both sides as if every run of whitespace were a single space and the ends were trimmed.
+     */
+    static class TokenChecker extends OutputChecker {
+
+        private boolean expectedStarted = false;
+        private boolean seenToken = false;
+        private boolean pendingSpace = false;
+
+        TokenChecker(Reader expected, long outputLimitBytes) {
+            super(expected, outputLimitBytes);
+        }
+
+        @Override
+        protected boolean acceptChar(char c) {
+            if (isWhitespace(c)) {
+                pendingSpace = seenToken;
+                return true;
+            }
+            if (pendingSpace) {
+                pendingSpace = false;
+                if (readNormalizedExpected() != ' ') {
+                    return false;
+                }
+            }
+            seenToken = true;
+            return readNormalizedExpected() == c;
+        }
+
+        @Override
+        protected boolean acceptEnd() {
+            return readNormalizedExpected() == -1;
+        }
+
+        private int readNormalizedExpected() {
+            if (!expectedStarted) {
+                expectedStarted = true;
+                skipExpectedWhitespace();
+            }
+            int c = readExpected();
+            if (isWhitespace(c)) {
+                skipExpectedWhitespace();
+                return peekExpected() == -1 ? -1 : ' ';
+            }
+            return c;
+        }
+    }
+
+    /**
+     * Token comparison where two numeric tokens also match if they differ by at most
+     * {@code epsilon}, absolutely or relative to the expected value. Tokens longer than
+     * {@link #MAX_TOKEN_LENGTH} are compared exactly in chunks so memory stays bounded.
+     */
+    static class FloatChecker extends OutputChecker {
+
+        static final int MAX_TOKEN_LENGTH = 1024;
+
+        private static final Pattern NUMBER = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+
+        private final double epsilon;
+        private final StringBuilder token = new StringBuilder();
+        private boolean inLongToken = false;
+        private boolean expectedInToken = false;
+
+        FloatChecker(Reader expected, long outputLimitBytes, double epsilon) {
+            super(expected, outputLimitBytes);
+            this.epsilon = epsilon;
+        }
+
+        @Override
+        protected boolean acceptChar(char c) {
+            if (isWhitespace(c)) {
+                return (token.isEmpty() && !inLongToken) || endToken();
+            }
+            if (token.length() == MAX_TOKEN_LENGTH) {
+                // The token goes on past the window: this chunk has to match exactly
+                String chunk = readExpectedChunk(MAX_TOKEN_LENGTH);
+                if (chunk == null || !expectedInToken || !chunk.contentEquals(token)) {
+                    return false;
+                }
+                token.setLength(0);
+                inLongToken = true;
+            }
+            token.append(c);
+            return true;
+        }
+
+        @Override
+        protected boolean acceptEnd() {
+            if ((!token.isEmpty() || inLongToken) && !endToken()) {
+                return false;
+            }
+            return readExpectedChunk(1) == null;
+        }
+
+        private boolean endToken() {
+            String chunk = readExpectedChunk(MAX_TOKEN_LENGTH);
+            boolean matches = chunk != null && !expectedInToken
+                    && (inLongToken ? chunk.contentEquals(token) : tokensMatch(token.toString(), chunk));
+            token.setLength(0);
+            inLongToken = false;
+            return matches;
+        }
+
+        private String readExpectedChunk(int max) {
+            if (!expectedInToken) {
+                skipExpectedWhitespace();
+                if (peekExpected() == -1) {
+                    return null;
+                }
+            }
+            StringBuilder chunk = new StringBuilder();
+            while (chunk.length() < max && peekExpected() != -1 && !isWhitespace(peekExpected())) {
+                chunk.append((char) readExpected());
+            }
+            expectedInToken = peekExpected() != -1 && !isWhitespace(peekExpected());
+            return chunk.toString();
+        }
+
+        private boolean tokensMatch(String actual, String expected) {
+            if (actual.equals(expected)) {
+                return true;
+            }
+            if (!NUMBER.matcher(actual).matches() || !NUMBER.matcher(expected).matches()) {
+                return false;
+            }
+            double a = Double.parseDouble(actual);
+            double e = Double.parseDouble(expected);
+            return Math.abs(a - e) <= epsilon * Math.max(1.0, Math.abs(e));
+        }
+    }
+}
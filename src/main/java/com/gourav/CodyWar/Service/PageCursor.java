@@ -0,0 +1,44 @@
+package com.gourav.CodyWar.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position after the last battle of a page in a listing ordered newest first by
+ * {@code (createdAt, id)}; opaque to clients.
+ */
+record PageCursor(Instant createdAt, UUID id) {
+
+    String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * True if a battle created at {@code createdAt} with {@code id} comes after this position.
+     */
+    boolean precedes(Instant createdAt, UUID id) {
+        int byTime = createdAt.compareTo(this.createdAt);
+        return byTime < 0 || (byTime == 0 && id.compareTo(this.id) < 0);
+    }
+
+    /**
+     * The cursor a client sent, null for the first page.
+     *
+     * @throws IllegalArgumentException if it was not issued by {@link #encode}
+     */
+    static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new PageCursor(Instant.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.gourav.CodyWar.Service;
 import com.gourav.CodyWar.Domain.Dto.ProblemRequestDto;
 import com.gourav.CodyWar.Domain.Dto.ProblemResponseDto;
 import com.gourav.CodyWar.Domain.Dto.TestCaseDto;
+import com.gourav.CodyWar.Domain.Entity.CheckerType;
 import com.gourav.CodyWar.Domain.Entity.Difficulty;
+import com.gourav.CodyWar.Domain.Entity.JudgeMode;
 import com.gourav.CodyWar.Domain.Entity.Problem;
 import com.gourav.CodyWar.Domain.Entity.TestCase;
 import com.gourav.CodyWar.Repository.ProblemRepository;
@@ -32,6 +34,7 @@ public class ProblemService {
 
     private final ProblemRepository problemRepository;
     private final TestCaseRepository testCaseRepository;
+    private final TestCaseCache testCaseCache;
 
     /**
      * Create a new problem, optionally with embedded test cases.
@@ -61,16 +64,21 @@ public class ProblemService {
                 .exampleOutput(requestDto.getExamples())
                 .timeLimitSeconds(5)
                 .memoryLimitMb(256)
+                .judgeMode(parseJudgeMode(requestDto.getJudgeMode()))
+                .checkerType(parseCheckerType(requestDto.getCheckerType()))
+                .checkerEpsilon(requestDto.getCheckerEpsilon())
                 .build();
 
         Problem savedProblem = problemRepository.save(problem);
         log.info("Problem created successfully with ID: {}", savedProblem.getId());
 
         // Persist test cases if provided
+        List<TestCase> testCases = List.of();
         if (requestDto.getTestCases() != null && !requestDto.getTestCases().isEmpty()) {
-            saveTestCases(savedProblem, requestDto.getTestCases());
+            testCases = saveTestCases(savedProblem, requestDto.getTestCases());
             log.info("Saved {} test cases for problem ID: {}", requestDto.getTestCases().size(), savedProblem.getId());
         }
+        savedProblem.setTestSetHash(TestSet.hashOf(testCases));
 
         return mapToResponseDto(savedProblem);
     }
@@ -154,6 +162,9 @@ public class ProblemService {
                 .examples(problem.getExampleInput())
                 .timeLimitSeconds(problem.getTimeLimitSeconds())
                 .memoryLimitMb(problem.getMemoryLimitMb())
+                .judgeMode(problem.getJudgeMode())
+                .checkerType(problem.getCheckerType())
+                .checkerEpsilon(problem.getCheckerEpsilon())
                 .createdAt(convertInstantToLocalDateTime(problem.getCreatedAt()))
                 .updatedAt(convertInstantToLocalDateTime(problem.getCreatedAt()))
                 .createdBy(null)
@@ -195,6 +206,9 @@ public class ProblemService {
         existingProblem.setConstraints(requestDto.getConstraints());
         existingProblem.setExampleInput(requestDto.getExamples());
         existingProblem.setExampleOutput(requestDto.getExamples());
+        existingProblem.setJudgeMode(parseJudgeMode(requestDto.getJudgeMode()));
+        existingProblem.setCheckerType(parseCheckerType(requestDto.getCheckerType()));
+        existingProblem.setCheckerEpsilon(requestDto.getCheckerEpsilon());
 
         // Update test cases if provided - clear existing and add new ones
         if (requestDto.getTestCases() != null) {
@@ -202,6 +216,7 @@ public class ProblemService {
             existingProblem.getTestCases().clear();
             
             // Add new test cases
+            List<TestCase> testCases = new ArrayList<>();
             for (int i = 0; i < requestDto.getTestCases().size(); i++) {
                 TestCaseDto dto = requestDto.getTestCases().get(i);
                 TestCase testCase = TestCase.builder()
@@ -211,12 +226,16 @@ public class ProblemService {
                         .isHidden(dto.isHidden())
                         .orderIndex(i)
                         .build();
-                existingProblem.getTestCases().add(testCase);
+                testCases.add(testCase);
             }
+            existingProblem.getTestCases().addAll(testCases);
+            // A new hash makes every instance's judge cache reload the cases
+            existingProblem.setTestSetHash(TestSet.hashOf(testCases));
             log.info("Updated {} test cases for problem ID: {}", requestDto.getTestCases().size(), id);
         }
 
         Problem updatedProblem = problemRepository.save(existingProblem);
+        testCaseCache.invalidate(id);
         log.info("Problem updated successfully with ID: {}", id);
 
         return mapToResponseDto(updatedProblem);
@@ -234,6 +253,7 @@ public class ProblemService {
         }
 
         problemRepository.deleteById(id);
+        testCaseCache.invalidate(id);
         log.info("Problem deleted successfully with ID: {}", id);
     }
 
@@ -241,11 +261,41 @@ public class ProblemService {
     // Private helpers
     // -------------------------------------------------------------------------
 
+    /**
+     * Parse an optional judge mode; null or blank means "use the configured default".
+     */
+    private JudgeMode parseJudgeMode(String judgeMode) {
+        if (judgeMode == null || judgeMode.isBlank()) {
+            return null;
+        }
+        try {
+            return JudgeMode.valueOf(judgeMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid judge mode: " + judgeMode +
+                ". Valid values are: FULL, FAIL_FAST, FAN_OUT");
+        }
+    }
+
+    /**
+     * Parse an optional checker type; null or blank means EXACT.
+     */
+    private CheckerType parseCheckerType(String checkerType) {
+        if (checkerType == null || checkerType.isBlank()) {
+            return null;
+        }
+        try {
+            return CheckerType.valueOf(checkerType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid checker type: " + checkerType +
+                ". Valid values are: EXACT, TOKEN, FLOAT");
+        }
+    }
+
     /**
      * Persist a list of TestCaseDto entries as TestCase entities linked to the given problem.
      * orderIndex is assigned incrementally starting from 0.
      */
-    private void saveTestCases(Problem problem, List<TestCaseDto> testCaseDtos) {
+    private List<TestCase> saveTestCases(Problem problem, List<TestCaseDto> testCaseDtos) {
         List<TestCase> testCases = new ArrayList<>();
         for (int i = 0; i < testCaseDtos.size(); i++) {
             TestCaseDto dto = testCaseDtos.get(i);
@@ -258,7 +308,7 @@ public class ProblemService {
                     .build();
             testCases.add(testCase);
         }
-        testCaseRepository.saveAll(testCases);
+        return testCaseRepository.saveAll(testCases);
     }
 
     /**
@@ -292,6 +342,9 @@ public class ProblemService {
                 .examples(problem.getExampleInput())
                 .timeLimitSeconds(problem.getTimeLimitSeconds())
                 .memoryLimitMb(problem.getMemoryLimitMb())
+                .judgeMode(problem.getJudgeMode())
+                .checkerType(problem.getCheckerType())
+                .checkerEpsilon(problem.getCheckerEpsilon())
                 .createdAt(convertInstantToLocalDateTime(problem.getCreatedAt()))
                 .updatedAt(convertInstantToLocalDateTime(problem.getCreatedAt()))
                 .createdBy(null)
@@ -0,0 +1,18 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Language;
+
+/**
+ * Starts sandbox workers. Selected with {@code execution.backend}: {@code docker} runs every worker
+ * in its own long-lived container, {@code local} runs code as plain child processes for development
+ * and tests on machines without a Docker daemon.
+ */
+public interface SandboxBackend {
+
+    String getName();
+
+    /**
+     * Starts a new worker. This is the cold-start cost the pool exists to hide.
+     */
+    SandboxWorker startWorker(Language language);
+}
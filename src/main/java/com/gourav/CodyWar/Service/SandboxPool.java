@@ -0,0 +1,204 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Language;
+import com.gourav.CodyWar.Exception.SubmissionProcessingException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a pool of pre-started sandbox workers per {@link Language} so a submission does not pay
+ * the container cold-start on every run. Languages listed in {@code execution.pool.warm-languages}
+ * are started in the background once the application is ready and topped back up whenever a
+ * worker is discarded; other languages are started lazily on first use and then reused.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SandboxPool {
+
+    private final SandboxBackend backend;
+
+    private final Map<Language, LanguagePool> pools = new EnumMap<>(Language.class);
+
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "sandbox-warmer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean shuttingDown = false;
+
+    @Value("${execution.pool.warm-languages:JAVA,PYTHON,CPP}")
+    private String[] warmLanguages;
+
+    @Value("${execution.pool.warm-size:2}")
+    private int warmSize;
+
+    @Value("${execution.pool.max-size:8}")
+    private int maxSize;
+
+    @Value("${execution.pool.acquire-timeout-ms:10000}")
+    private long acquireTimeoutMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        log.info("Pre-warming {} sandbox workers per language for {} using the {} backend",
+                warmSize, getWarmLanguages(), backend.getName());
+        getWarmLanguages().forEach(this::scheduleTopUp);
+    }
+
+    /**
+     * Borrows an idle worker, starting a new one if the language is below {@code max-size}, or
+     * waiting up to {@code acquire-timeout-ms} for one to be released.
+     */
+    public SandboxWorker acquire(Language language) {
+        LanguagePool pool = poolFor(language);
+
+        SandboxWorker worker = pool.idle.pollFirst();
+        if (worker != null) {
+            return worker;
+        }
+
+        if (pool.reserveSlot(maxSize)) {
+            try {
+                log.debug("No idle {} sandbox, cold-starting a new worker", language);
+                return backend.startWorker(language);
+            } catch (RuntimeException e) {
+                pool.total.decrementAndGet();
+                throw new SubmissionProcessingException("Could not start " + language + " sandbox", e);
+            }
+        }
+
+        try {
+            worker = pool.idle.pollFirst(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SubmissionProcessingException("Interrupted while waiting for a " + language + " sandbox");
+        }
+        if (worker == null) {
+            throw new SubmissionProcessingException(
+                    "No " + language + " sandbox available within " + acquireTimeoutMs + " ms");
+        }
+        return worker;
+    }
+
+    /**
+     * Returns a worker to the pool after wiping its working directory. Unhealthy workers are
+     * closed instead, and the warm set is refilled in the background.
+     */
+    public void release(SandboxWorker worker) {
+        LanguagePool pool = poolFor(worker.getLanguage());
+
+        if (worker.isHealthy() && !shuttingDown) {
+            worker.reset();
+        }
+        if (worker.isHealthy() && !shuttingDown) {
+            pool.idle.offerFirst(worker);
+            return;
+        }
+
+        discard(pool, worker);
+        scheduleTopUp(worker.getLanguage());
+    }
+
+    public int getIdleCount(Language language) {
+        return poolFor(language).idle.size();
+    }
+
+    public int getTotalCount(Language language) {
+        return poolFor(language).total.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        warmer.shutdownNow();
+        synchronized (pools) {
+            pools.forEach((language, pool) -> {
+                SandboxWorker worker;
+                while ((worker = pool.idle.pollFirst()) != null) {
+                    discard(pool, worker);
+                }
+            });
+        }
+        log.info("Sandbox pool shut down");
+    }
+
+    // ── Helper Methods ──
+
+    private void scheduleTopUp(Language language) {
+        if (shuttingDown || !getWarmLanguages().contains(language)) {
+            return;
+        }
+        warmer.execute(() -> {
+            LanguagePool pool = poolFor(language);
+            while (!shuttingDown && pool.total.get() < Math.min(warmSize, maxSize) && pool.reserveSlot(maxSize)) {
+                try {
+                    pool.idle.offerLast(backend.startWorker(language));
+                } catch (RuntimeException e) {
+                    pool.total.decrementAndGet();
+                    log.warn("Failed to pre-warm {} sandbox: {}", language, e.getMessage());
+                    return;
+                }
+            }
+        });
+    }
+
+    private void discard(LanguagePool pool, SandboxWorker worker) {
+        pool.total.decrementAndGet();
+        try {
+            worker.close();
+        } catch (RuntimeException e) {
+            log.warn("Failed to close {} sandbox: {}", worker.getLanguage(), e.getMessage());
+        }
+    }
+
+    private LanguagePool poolFor(Language language) {
+        synchronized (pools) {
+            return pools.computeIfAbsent(language, l -> new LanguagePool());
+        }
+    }
+
+    private Set<Language> getWarmLanguages() {
+        Set<Language> languages = EnumSet.noneOf(Language.class);
+        if (warmLanguages != null) {
+            for (String name : warmLanguages) {
+                if (!name.isBlank()) {
+                    languages.add(Language.valueOf(name.trim().toUpperCase()));
+                }
+            }
+        }
+        return languages;
+    }
+
+    private static class LanguagePool {
+        private final LinkedBlockingDeque<SandboxWorker> idle = new LinkedBlockingDeque<>();
+        private final AtomicInteger total = new AtomicInteger();
+
+        private boolean reserveSlot(int maxSize) {
+            int current;
+            do {
+                current = total.get();
+                if (current >= maxSize) {
+                    return false;
+                }
+            } while (!total.compareAndSet(current, current + 1));
+            return true;
+        }
+    }
+}
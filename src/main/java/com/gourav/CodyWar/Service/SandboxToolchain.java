@@ -0,0 +1,93 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Language;
+
+/**
+ * Per-language build and run recipe used by every sandbox backend.
+ * Commands are executed with {@code sh -c} inside the worker's working directory;
+ * {@code {mem}} is replaced with the memory limit in MB for runtimes that need it on the command line.
+ */
+public enum SandboxToolchain {
+
+    JAVA(Language.JAVA, "Solution.java",
+            "javac -d . Solution.java",
+            "java -Xss64m -Xmx{mem}m -cp . Solution"),
+    KOTLIN(Language.KOTLIN, "Solution.kt",
+            "kotlinc Solution.kt -include-runtime -d solution.jar",
+            "java -Xss64m -Xmx{mem}m -jar solution.jar"),
+    PYTHON(Language.PYTHON, "Solution.py",
+            null,
+            "python3 Solution.py"),
+    JAVASCRIPT(Language.JAVASCRIPT, "Solution.js",
+            null,
+            "node Solution.js"),
+    TYPESCRIPT(Language.TYPESCRIPT, "Solution.ts",
+            "tsc --target es2020 Solution.ts",
+            "node Solution.js"),
+    CPP(Language.CPP, "Solution.cpp",
+            "g++ -O2 -std=c++17 -o solution Solution.cpp",
+            "./solution"),
+    C(Language.C, "Solution.c",
+            "gcc -O2 -std=c11 -o solution Solution.c -lm",
+            "./solution"),
+    GO(Language.GO, "Solution.go",
+            "go build -o solution Solution.go",
+            "./solution"),
+    RUST(Language.RUST, "Solution.rs",
+            "rustc -O -o solution Solution.rs",
+            "./solution"),
+    RUBY(Language.RUBY, "Solution.rb",
+            null,
+            "ruby Solution.rb"),
+    CSHARP(Language.CSHARP, "Solution.cs",
+            "mcs -out:solution.exe Solution.cs",
+            "mono solution.exe");
+
+    private final Language language;
+    private final String sourceFileName;
+    private final String compileCommand;
+    private final String runCommand;
+
+    SandboxToolchain(Language language, String sourceFileName, String compileCommand, String runCommand) {
+        this.language = language;
+        this.sourceFileName = sourceFileName;
+        this.compileCommand = compileCommand;
+        this.runCommand = runCommand;
+    }
+
+    public static SandboxToolchain forLanguage(Language language) {
+        for (SandboxToolchain toolchain : values()) {
+            if (toolchain.language == language) {
+                return toolchain;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported language: " + language);
+    }
+
+    public Language getLanguage() {
+        return language;
+    }
+
+    public String getSourceFileName() {
+        return sourceFileName;
+    }
+
+    public boolean isCompiled() {
+        return compileCommand != null;
+    }
+
+    public String getCompileCommand() {
+        return compileCommand;
+    }
+
+    public String getRunCommand(int memoryLimitMb) {
+        return runCommand.replace("{mem}", String.valueOf(memoryLimitMb));
+    }
+
+    /**
+     * Docker image expected to contain this toolchain, e.g. {@code codywar-java:latest}.
+     */
+    public String getDockerImage(String imagePrefix) {
+        return imagePrefix + name().toLowerCase() + ":latest";
+    }
+}
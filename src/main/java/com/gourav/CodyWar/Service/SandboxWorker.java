@@ -0,0 +1,73 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.ExecutionResult;
+import com.gourav.CodyWar.Domain.Entity.Language;
+
+import java.nio.file.Path;
+
+/**
+ * A single pre-started sandbox able to compile and run code for one {@link Language}.
+ * Workers are owned by {@link SandboxPool} and are never used by two submissions at once.
+ */
+public interface SandboxWorker extends AutoCloseable {
+
+    Language getLanguage();
+
+    /**
+     * Writes the source and compiles it if the language needs it. The artifact stays in the worker
+     * until {@link #reset()}, so {@link #run} can be called once per test case without recompiling.
+     * Interpreted languages succeed immediately.
+     */
+    ExecutionResult compile(String code);
+
+    /**
+     * Runs the artifact left by the last successful {@link #compile} against {@code input},
+     * capturing stdout in the result.
+     */
+    default ExecutionResult run(String input, int timeLimitSeconds, int memoryLimitMb) {
+        return run(input, timeLimitSeconds, memoryLimitMb, null);
+    }
+
+    /**
+     * Runs the artifact and streams its stdout into {@code checker} instead of capturing it; the
+     * program is stopped as soon as the checker rejects the output. A null checker captures stdout.
+     */
+    ExecutionResult run(String input, int timeLimitSeconds, int memoryLimitMb, OutputChecker checker);
+
+    /**
+     * Like {@link #run(String, int, int, OutputChecker)} with stdin streamed from a host file that
+     * is neither copied nor read into memory, for inputs too large to pass around as strings.
+     */
+    ExecutionResult run(Path inputFile, int timeLimitSeconds, int memoryLimitMb, OutputChecker checker);
+
+    /**
+     * Prepares the worker to run up to {@code requested} copies of the artifact at once, each
+     * allowed {@code memoryLimitMb}. Returns how many slots actually fit in the worker's memory
+     * capacity (at least one). {@link #run} is safe to call concurrently up to that many times.
+     */
+    int reserveParallelSlots(int requested, int memoryLimitMb);
+
+    /**
+     * Compiles and runs once; convenience for single-shot executions.
+     */
+    default ExecutionResult execute(String code, String input, int timeLimitSeconds, int memoryLimitMb) {
+        ExecutionResult compiled = compile(code);
+        if (!compiled.isSuccess()) {
+            return compiled;
+        }
+        return run(input, timeLimitSeconds, memoryLimitMb);
+    }
+
+    /**
+     * False once the worker has hit a host-side failure and must be discarded instead of reused.
+     */
+    boolean isHealthy();
+
+    /**
+     * Wipes everything the previous submission left in the working directory and drops any reserved slots.
+     */
+    void reset();
+
+    @Override
+    void close();
+}
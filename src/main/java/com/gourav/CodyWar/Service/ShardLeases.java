@@ -0,0 +1,214 @@
+package com.gourav.CodyWar.Service;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Splits work into a fixed number of shards and leases each shard to one live node at a time.
+ * <p>
+ * Nodes announce themselves with a heartbeat in the sorted set {@code <namespace>:nodes}. Every
+ * node derives the same assignment from that membership (shard {@code i} belongs to the
+ * {@code i mod n}-th live node by id), takes the leases {@code <namespace>:lease:<shard>} assigned
+ * to it as soon as they are free and gives back the ones now assigned elsewhere, so shards move
+ * when nodes join or leave. A node that stops renewing loses its shards after {@code leaseMs}, and
+ * {@link #owns} stops answering true at the same moment even if Redis cannot be reached.
+ * <p>
+ * {@link #rebalance} and {@link #releaseAll} must be called from one thread at a time;
+ * {@link #owns} may be called from any thread.
+ */
+final class ShardLeases {
+
+    /** Takes or renews each lease in KEYS for ARGV[1] for ARGV[2] millis; 1 per key it now holds. */
+    private static final RedisScript<List> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local held = {} " +
+            "for i, key in ipairs(KEYS) do " +
+            "  local owner = redis.call('GET', key) " +
+            "  if not owner then " +
+            "    redis.call('SET', key, ARGV[1], 'PX', ARGV[2]) held[i] = 1 " +
+            "  elseif owner == ARGV[1] then " +
+            "    redis.call('PEXPIRE', key, ARGV[2]) held[i] = 1 " +
+            "  else held[i] = 0 end " +
+            "end " +
+            "return held",
+            List.class);
+
+    /** Deletes each lease in KEYS that ARGV[1] still holds. */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local released = 0 " +
+            "for _, key in ipairs(KEYS) do " +
+            "  if redis.call('GET', key) == ARGV[1] then redis.call('DEL', key) released = released + 1 end " +
+            "end " +
+            "return released",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final String namespace;
+    private final int shardCount;
+    private final long leaseMs;
+    private final String nodeId;
+
+    // Shard -> epoch millis until which this node may act on it
+    private final Map<Integer, Long> ownedUntil = new ConcurrentHashMap<>();
+
+    ShardLeases(RedisTemplate<String, Object> redisTemplate, String namespace, int shardCount, long leaseMs,
+                String nodeId) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+        this.redisTemplate = redisTemplate;
+        this.namespace = namespace;
+        this.shardCount = shardCount;
+        this.leaseMs = leaseMs;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Outcome of one {@link #rebalance}: shards this node just took over, and shards it gave up
+     * or found taken by another node.
+     */
+    record Change(Set<Integer> acquired, Set<Integer> lost) {
+    }
+
+    static int shardOf(UUID id, int shardCount) {
+        return Math.floorMod(id.hashCode(), shardCount);
+    }
+
+    int shardOf(UUID id) {
+        return shardOf(id, shardCount);
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Whether this node holds the lease on {@code shard} at {@code nowMs}.
+     */
+    boolean owns(int shard, long nowMs) {
+        Long until = ownedUntil.get(shard);
+        return until != null && until > nowMs;
+    }
+
+    Set<Integer> ownedShards(long nowMs) {
+        Set<Integer> owned = new TreeSet<>();
+        ownedUntil.forEach((shard, until) -> {
+            if (until > nowMs) {
+                owned.add(shard);
+            }
+        });
+        return owned;
+    }
+
+    /**
+     * Heartbeats this node, recomputes the assignment from the live membership, releases shards
+     * assigned elsewhere and takes or renews the ones assigned here. Call well within
+     * {@code leaseMs}.
+     */
+    Change rebalance(long nowMs) {
+        String nodesKey = namespace + ":nodes";
+        redisTemplate.opsForZSet().add(nodesKey, nodeId, nowMs);
+        redisTemplate.opsForZSet().removeRangeByScore(nodesKey, 0, nowMs - leaseMs);
+        Set<Object> members = redisTemplate.opsForZSet().range(nodesKey, 0, -1);
+        List<String> nodes = new ArrayList<>();
+        if (members != null) {
+            members.forEach(member -> nodes.add(member.toString()));
+        }
+        Set<Integer> assigned = assignedShards(nodes, shardCount, nodeId);
+
+        Set<Integer> lost = new TreeSet<>();
+        Set<Integer> surrendered = new HashSet<>(ownedUntil.keySet());
+        surrendered.removeAll(assigned);
+        if (!surrendered.isEmpty()) {
+            release(surrendered);
+            lost.addAll(surrendered);
+        }
+
+        Set<Integer> acquired = new TreeSet<>();
+        List<Integer> shards = new ArrayList<>(assigned);
+        List<?> held = shards.isEmpty() ? List.of()
+                : redisTemplate.execute(ACQUIRE_SCRIPT, leaseKeys(shards), nodeId, leaseMs);
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = shards.get(i);
+            boolean holds = held != null && i < held.size() && ((Number) held.get(i)).longValue() == 1;
+            if (holds) {
+                // Measured from before the renewal, so this node gives up a moment before Redis does
+                if (ownedUntil.put(shard, nowMs + leaseMs) == null) {
+                    acquired.add(shard);
+                }
+            } else if (ownedUntil.remove(shard) != null) {
+                lost.add(shard);
+            }
+        }
+        return new Change(acquired, lost);
+    }
+
+    /**
+     * Gives back every lease and leaves the membership so other nodes take over right away.
+     * Returns the shards that were held.
+     */
+    Set<Integer> releaseAll() {
+        Set<Integer> owned = new TreeSet<>(ownedUntil.keySet());
+        if (!owned.isEmpty()) {
+            release(owned);
+        }
+        redisTemplate.opsForZSet().remove(namespace + ":nodes", nodeId);
+        return owned;
+    }
+
+    /**
+     * A node id unique to this process: {@code <host>-<random>}.
+     */
+    static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Shards assigned to {@code nodeId} when {@code nodes} are alive: shard {@code i} goes to the
+     * {@code i mod n}-th node in id order. A node missing from the list (heartbeat not visible
+     * yet) is assigned nothing.
+     */
+    static Set<Integer> assignedShards(Collection<String> nodes, int shardCount, String nodeId) {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(nodes));
+        int index = sorted.indexOf(nodeId);
+        Set<Integer> assigned = new TreeSet<>();
+        if (index < 0) {
+            return assigned;
+        }
+        for (int shard = index; shard < shardCount; shard += sorted.size()) {
+            assigned.add(shard);
+        }
+        return assigned;
+    }
+
+    // ── Helper Methods ──
+
+    private void release(Collection<Integer> shards) {
+        shards.forEach(ownedUntil::remove);
+        redisTemplate.execute(RELEASE_SCRIPT, leaseKeys(shards), nodeId);
+    }
+
+    private List<String> leaseKeys(Collection<Integer> shards) {
+        List<String> keys = new ArrayList<>(shards.size());
+        shards.forEach(shard -> keys.add(namespace + ":lease:" + shard));
+        return keys;
+    }
+}
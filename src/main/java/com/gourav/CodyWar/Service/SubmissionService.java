@@ -1,23 +1,27 @@
 package com.gourav.CodyWar.Service;
 
+import com.gourav.CodyWar.Domain.Dto.BattleState;
+import com.gourav.CodyWar.Domain.Dto.DockerExecutionResult;
 import com.gourav.CodyWar.Domain.Dto.SubmissionRequestDto;
 import com.gourav.CodyWar.Domain.Dto.SubmissionResponseDto;
 import com.gourav.CodyWar.Domain.Entity.*;
 import com.gourav.CodyWar.Exception.BattleNotActiveException;
 import com.gourav.CodyWar.Exception.ResourceNotFoundException;
+import com.gourav.CodyWar.Exception.SubmissionProcessingException;
 import com.gourav.CodyWar.Repository.BattleParticipantRepository;
 import com.gourav.CodyWar.Repository.BattleRepository;
 import com.gourav.CodyWar.Repository.SubmissionRepository;
 import com.gourav.CodyWar.Repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
+import org.hibernate.Hibernate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -35,13 +39,21 @@ public class SubmissionService {
     private final BattleRepository battleRepository;
     private final UserRepository userRepository;
     private final BattleParticipantRepository battleParticipantRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final TestCaseCache testCaseCache;
+    private final JudgeResultCache judgeResultCache;
+    private final JudgeService judgeService;
+    private final BattleService battleService;
+    private final JudgeQueue judgeQueue;
+    private final BattleEventBus battleEventBus;
+    private final TransactionTemplate transactionTemplate;
 
     /**
-     * Creates a new submission, validates battle state, and triggers async judging.
+     * Creates a new submission, validates battle state, and queues it for judging. Code identical
+     * to an earlier submission judged against the same test cases gets that verdict immediately.
      * 
      * @param request User's submission data.
      * @return SubmissionResponseDto in PENDING state.
+     * @throws com.gourav.CodyWar.Exception.SubmissionRejectedException if the judge queue refuses it.
      */
     @Transactional
     public SubmissionResponseDto createSubmission(SubmissionRequestDto request) {
@@ -68,36 +80,70 @@ public class SubmissionService {
                 .build();
 
         Submission saved = submissionRepository.save(submission);
+
+        // Identical code already judged against the same test set: answer without the sandbox
+        Problem problem = battle.getProblem();
+        DockerExecutionResult previous = judgeResultCache.find(problem.getTestSetHash(), saved.getLanguage(),
+                saved.getCode(), problem, judgeService.resolveMode(battle));
+        if (previous != null) {
+            log.info("Submission {} by user {} matches earlier judged code, reusing its verdict", saved.getId(),
+                    username);
+            completeSubmission(saved, previous);
+            return toResponseDto(saved);
+        }
+
+        // Queue for judging; a rejection rolls the submission back
+        BattleState battleState = battleService.getBattleState(battle.getId());
+        long remainingSeconds = battleState != null ? battleState.getRemainingTimeSeconds() : battle.getDurationSeconds();
+        judgeQueue.submit(saved.getId(), battle.getId(), user.getId(), remainingSeconds);
+
         log.info("Submission {} created by user {} for battle {}", saved.getId(), username, battle.getId());
 
         // Notify battle participants of new submission entry
         broadcastStatus(saved);
 
-        // Start async judging process
-        processSubmissionAsync(saved.getId(), request);
-
         return toResponseDto(saved);
     }
 
     /**
-     * Asynchronously processes the submission.
-     * Updates status to RUNNING and eventually maps judging results to the entity.
+     * Judges a queued submission; called by {@link JudgeWorker} threads, in three steps so no
+     * transaction (or pooled connection) is held while the sandbox runs: a short transaction
+     * marks it RUNNING (broadcast once committed), the code is judged against the problem's test
+     * cases outside any transaction, and a second short transaction records the verdict. An
+     * ACCEPTED verdict is reported to the battle, which ends it.
+     *
+     * @throws SubmissionProcessingException if the sandbox failed; no verdict is recorded, so the
+     *         worker releases the task for redelivery and it fails only once out of attempts.
+     */
+    public void processSubmission(UUID submissionId) {
+        JudgeJob job = transactionTemplate.execute(status -> markRunning(submissionId));
+        log.info("Processing submission {}: status set to RUNNING", submissionId);
+
+        DockerExecutionResult result = judge(job);
+
+        transactionTemplate.executeWithoutResult(status -> completeSubmission(
+                submissionRepository.findById(submissionId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Submission", submissionId)),
+                result));
+    }
+
+    /**
+     * Gives up on a submission the judge could not finish (e.g. its workers kept dying) and
+     * reports it to the battle participants as a runtime error.
      */
-    @Async
     @Transactional
-    public void processSubmissionAsync(UUID submissionId, SubmissionRequestDto request) {
+    public void failSubmission(UUID submissionId, String reason) {
         Submission submission = submissionRepository.findById(submissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Submission", submissionId));
 
-        submission.setStatus(SubmissionStatus.RUNNING);
+        applyResult(submission, DockerExecutionResult.builder()
+                .success(false)
+                .errorMessage(reason)
+                .build());
         submissionRepository.save(submission);
         broadcastStatus(submission);
 
-        log.info("Processing submission {}: status set to RUNNING", submissionId);
-
-        // TODO: Integrate DockerClientService for real-time code execution.
-        // Once execution is complete, use the results to update the submission
-        // and check for battle completion if the status is ACCEPTED.
+        log.warn("Submission {} failed without a verdict: {}", submissionId, reason);
     }
 
     /**
@@ -145,14 +191,107 @@ public class SubmissionService {
 
     // ── Helper Methods ──
 
+    /**
+     * Sets a submission RUNNING and captures what judging needs, initialized so it can be used
+     * after the transaction ends.
+     */
+    private JudgeJob markRunning(UUID submissionId) {
+        Submission submission = submissionRepository.findById(submissionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Submission", submissionId));
+
+        submission.setStatus(SubmissionStatus.RUNNING);
+        submissionRepository.save(submission);
+        broadcastStatus(submission);
+
+        Problem problem = (Problem) Hibernate.unproxy(submission.getBattle().getProblem());
+        return new JudgeJob(submissionId, submission.getLanguage(), submission.getCode(), problem,
+                judgeService.resolveMode(submission.getBattle()));
+    }
+
+    private DockerExecutionResult judge(JudgeJob job) {
+        Problem problem = job.problem();
+        try (TestSet testSet = testCaseCache.acquire(problem)) {
+            // Submit time already looked this code up; this only catches a copy judged since
+            DockerExecutionResult previous = judgeResultCache.recheck(testSet.getHash(), job.language(), job.code(),
+                    problem, job.mode());
+            if (previous != null) {
+                log.info("Submission {} matches earlier judged code, reusing its verdict", job.submissionId());
+                return previous;
+            }
+            if (testSet.isEmpty()) {
+                log.warn("Problem {} has no test cases, cannot judge submission {}", problem.getId(),
+                        job.submissionId());
+                return DockerExecutionResult.builder()
+                        .success(false)
+                        .errorMessage("Problem has no test cases configured")
+                        .build();
+            }
+            DockerExecutionResult result = judgeService.judge(job.language(), job.code(), testSet, problem,
+                    job.mode());
+            judgeResultCache.put(testSet.getHash(), job.language(), job.code(), problem, job.mode(), result);
+            return result;
+        }
+    }
+
+    /**
+     * Records a verdict, notifies participants and reports it to the battle (an ACCEPTED verdict ends it).
+     */
+    private void completeSubmission(Submission submission, DockerExecutionResult result) {
+        applyResult(submission, result);
+        submissionRepository.save(submission);
+        broadcastStatus(submission);
+
+        log.info("Submission {} judged: {} ({}/{})", submission.getId(), submission.getStatus(),
+                submission.getTestCasesPassed(), submission.getTotalTestCases());
+
+        battleService.recordSubmissionResult(submission.getBattle().getId(), submission.getUser().getId(),
+                submission.getId(), submission.getTestCasesPassed(),
+                submission.getStatus() == SubmissionStatus.ACCEPTED);
+    }
+
+    /**
+     * Copies judging results onto the submission and derives the final verdict.
+     */
+    private void applyResult(Submission submission, DockerExecutionResult result) {
+        submission.setStatus(resolveStatus(result));
+        submission.setTestCasesPassed(result.getPassedTestCases());
+        submission.setTotalTestCases(result.getTotalTestCases());
+        submission.setExecutionTimeMs(result.getExecutionTimeMs());
+        submission.setMemoryUsedKb(result.getMemoryUsedKb());
+        submission.setErrorMessage(result.getErrorMessage());
+        submission.setJudgedAt(Instant.now());
+    }
+
+    private SubmissionStatus resolveStatus(DockerExecutionResult result) {
+        if (result.hasCompilationError()) {
+            return SubmissionStatus.COMPILATION_ERROR;
+        }
+        if (result.isTimeLimitExceeded()) {
+            return SubmissionStatus.TIME_LIMIT_EXCEEDED;
+        }
+        if (result.isMemoryLimitExceeded()) {
+            return SubmissionStatus.MEMORY_LIMIT_EXCEEDED;
+        }
+        if (result.isOutputLimitExceeded()) {
+            return SubmissionStatus.OUTPUT_LIMIT_EXCEEDED;
+        }
+        if (result.isAllPassed()) {
+            return SubmissionStatus.ACCEPTED;
+        }
+        if (!result.isSuccess() || result.getErrorMessage() != null) {
+            return SubmissionStatus.RUNTIME_ERROR;
+        }
+        return SubmissionStatus.WRONG_ANSWER;
+    }
+
     /**
      * Broadcasts the submission status update to all battle participants via
-     * WebSocket.
+     * WebSocket, on whichever instance they are connected, once the status is committed.
      */
     private void broadcastStatus(Submission submission) {
-        SubmissionResponseDto response = toResponseDto(submission);
-        String destination = "/topic/battle/" + submission.getBattle().getId();
-        messagingTemplate.convertAndSend(destination, response);
+        UUID battleId = submission.getBattle().getId();
+        SubmissionResponseDto status = toResponseDto(submission);
+        TransactionHooks.afterCommit(() -> battleEventBus.publish(battleId, status));
     }
 
     /**
@@ -176,4 +315,10 @@ public class SubmissionService {
                 .judgedAt(submission.getJudgedAt())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * What a worker judges, detached from the persistence context that loaded it.
+     */
+    private record JudgeJob(UUID submissionId, Language language, String code, Problem problem, JudgeMode mode) {
+    }
+}
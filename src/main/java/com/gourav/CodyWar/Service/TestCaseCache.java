@@ -0,0 +1,271 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Problem;
+import com.gourav.CodyWar.Domain.Entity.TestCase;
+import com.gourav.CodyWar.Repository.TestCaseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps each problem's test cases in memory between submissions so judging does not reload
+ * (possibly megabytes of) inputs and expected outputs from the database every time.
+ * <p>
+ * Entries are keyed by problem id and tagged with the content hash of the cases. A cached set is
+ * only served while it matches {@link Problem#getTestSetHash()}, so an update made through another
+ * instance is picked up on the next submission; {@link ProblemService} also calls
+ * {@link #invalidate} directly. The cache is bounded by {@code judge.test-cache.max-heap-mb} and,
+ * for spilled cases, {@code judge.test-cache.max-disk-mb}; the least recently used problems are
+ * evicted first.
+ * <p>
+ * With {@code judge.test-cache.spill-enabled}, cases larger than
+ * {@code judge.test-cache.spill-threshold-kb} are written once to
+ * {@code judge.test-cache.spill-dir}: the sandbox redirects stdin from the input file and the
+ * checker reads the memory-mapped expected output, so neither is held on the heap.
+ * <p>
+ * Metrics: {@code judge.testcache.requests} (counter, tagged {@code result=hit|miss}),
+ * {@code judge.testcache.evictions} (counter) and {@code judge.testcache.heap.bytes} /
+ * {@code judge.testcache.disk.bytes} (gauges).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TestCaseCache {
+
+    private final TestCaseRepository testCaseRepository;
+    private final MeterRegistry meterRegistry;
+
+    // Access-ordered, so iteration starts at the least recently used problem
+    private final LinkedHashMap<UUID, TestSet> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<UUID, Object> loadLocks = new ConcurrentHashMap<>();
+    private long heapBytes = 0;
+    private long diskBytes = 0;
+    private Path instanceSpillDir;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @Value("${judge.test-cache.max-heap-mb:256}")
+    private long maxHeapMb = 256;
+
+    @Value("${judge.test-cache.max-disk-mb:2048}")
+    private long maxDiskMb = 2048;
+
+    @Value("${judge.test-cache.spill-enabled:true}")
+    private boolean spillEnabled = true;
+
+    @Value("${judge.test-cache.spill-threshold-kb:512}")
+    private long spillThresholdKb = 512;
+
+    @Value("${judge.test-cache.spill-dir:${java.io.tmpdir}/codywar-testcases}")
+    private String spillDir;
+
+    @PostConstruct
+    public void registerMetrics() {
+        hits = Counter.builder("judge.testcache.requests")
+                .description("Test set lookups by the judge")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("judge.testcache.requests")
+                .description("Test set lookups by the judge")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        evictions = Counter.builder("judge.testcache.evictions")
+                .description("Test sets dropped to stay within the cache bounds or after a problem update")
+                .register(meterRegistry);
+        Gauge.builder("judge.testcache.heap.bytes", this, TestCaseCache::heapBytes)
+                .description("Approximate heap held by cached test cases")
+                .register(meterRegistry);
+        Gauge.builder("judge.testcache.disk.bytes", this, TestCaseCache::diskBytes)
+                .description("Bytes of spilled test case files")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Borrows the current test set of {@code problem}, loading it on a miss. Must be called inside
+     * a transaction or session that can read the problem's test cases; the returned set does not
+     * need one. Close it when judging is done.
+     */
+    public TestSet acquire(Problem problem) {
+        UUID problemId = problem.getId();
+        TestSet cached = lookup(problemId, problem.getTestSetHash());
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        // One loader per problem; concurrent submissions for it wait and then hit
+        synchronized (loadLocks.computeIfAbsent(problemId, id -> new Object())) {
+            cached = lookup(problemId, problem.getTestSetHash());
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            misses.increment();
+            TestSet loaded = load(problemId);
+            return store(loaded);
+        }
+    }
+
+    /**
+     * Drops a problem's cached cases, e.g. after they were edited or the problem was deleted.
+     */
+    public synchronized void invalidate(UUID problemId) {
+        TestSet removed = entries.remove(problemId);
+        if (removed != null) {
+            release(removed);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void clear() {
+        entries.values().forEach(this::release);
+        entries.clear();
+        if (instanceSpillDir != null) {
+            AbstractSandboxWorker.deleteRecursively(instanceSpillDir, false);
+        }
+    }
+
+    public synchronized long heapBytes() {
+        return heapBytes;
+    }
+
+    public synchronized long diskBytes() {
+        return diskBytes;
+    }
+
+    // ── Helper Methods ──
+
+    private synchronized TestSet lookup(UUID problemId, String expectedHash) {
+        TestSet entry = entries.get(problemId);
+        if (entry == null) {
+            return null;
+        }
+        // A null hash is a problem saved before hashes existed; local invalidation still covers it
+        if (expectedHash != null && !expectedHash.equals(entry.getHash())) {
+            entries.remove(problemId);
+            release(entry);
+            return null;
+        }
+        return entry.borrow();
+    }
+
+    private TestSet load(UUID problemId) {
+        List<TestCase> testCases = testCaseRepository.findByProblemIdOrderByOrderIndexAsc(problemId);
+        String hash = TestSet.hashOf(testCases);
+        long thresholdBytes = spillThresholdKb * 1024;
+
+        Path setDir = null;
+        long spilledBytes = 0;
+        List<CachedTestCase> cached = new ArrayList<>(testCases.size());
+        try {
+            for (int i = 0; i < testCases.size(); i++) {
+                TestCase testCase = testCases.get(i);
+                if (!spillEnabled || caseSize(testCase) <= thresholdBytes) {
+                    cached.add(CachedTestCase.of(testCase));
+                    continue;
+                }
+                if (setDir == null) {
+                    // Unique per load: a reloaded set must not share files with one still borrowed
+                    setDir = Files.createTempDirectory(spillRoot(), problemId + "-");
+                }
+                Path inputFile = setDir.resolve(i + ".in");
+                Path expectedFile = setDir.resolve(i + ".out");
+                Files.writeString(inputFile, nullToEmpty(testCase.getInput()), StandardCharsets.UTF_8);
+                Files.writeString(expectedFile, nullToEmpty(testCase.getExpectedOutput()), StandardCharsets.UTF_8);
+                spilledBytes += Files.size(inputFile) + Files.size(expectedFile);
+                cached.add(CachedTestCase.spilled(testCase.getOrderIndex(), inputFile, expectedFile));
+            }
+        } catch (IOException e) {
+            if (setDir != null) {
+                AbstractSandboxWorker.deleteRecursively(setDir, false);
+            }
+            throw new UncheckedIOException("Could not spill test cases of problem " + problemId, e);
+        }
+
+        log.debug("Loaded {} test cases for problem {} ({} spilled bytes)", cached.size(), problemId, spilledBytes);
+        return new TestSet(problemId, hash, cached, setDir, spilledBytes);
+    }
+
+    /**
+     * Caches the freshly loaded set unless it alone exceeds the bounds, then evicts least recently
+     * used sets until everything fits. Returns the set borrowed for the caller.
+     */
+    private synchronized TestSet store(TestSet loaded) {
+        TestSet borrowed = loaded.borrow();
+        long maxHeapBytes = maxHeapMb * 1024 * 1024;
+        long maxDiskBytes = maxDiskMb * 1024 * 1024;
+        if (loaded.heapBytes() > maxHeapBytes || loaded.diskBytes() > maxDiskBytes) {
+            // Served once and thrown away on close
+            loaded.evict();
+            return borrowed;
+        }
+
+        TestSet previous = entries.put(loaded.getProblemId(), loaded);
+        if (previous != null) {
+            release(previous);
+        }
+        heapBytes += loaded.heapBytes();
+        diskBytes += loaded.diskBytes();
+
+        Iterator<Map.Entry<UUID, TestSet>> lru = entries.entrySet().iterator();
+        while ((heapBytes > maxHeapBytes || diskBytes > maxDiskBytes) && lru.hasNext()) {
+            TestSet candidate = lru.next().getValue();
+            if (candidate == loaded) {
+                continue;
+            }
+            lru.remove();
+            release(candidate);
+        }
+        return borrowed;
+    }
+
+    /**
+     * Accounts for a set leaving the map; must hold the cache lock.
+     */
+    private void release(TestSet set) {
+        heapBytes -= set.heapBytes();
+        diskBytes -= set.diskBytes();
+        set.evict();
+        evictions.increment();
+    }
+
+    private Path spillRoot() throws IOException {
+        synchronized (this) {
+            if (instanceSpillDir == null) {
+                // Per-instance directory, so instances sharing a host never delete each other's files
+                Path root = Files.createDirectories(Path.of(spillDir));
+                instanceSpillDir = Files.createTempDirectory(root, "cache-");
+            }
+            return instanceSpillDir;
+        }
+    }
+
+    private static long caseSize(TestCase testCase) {
+        return (long) nullToEmpty(testCase.getInput()).length() + nullToEmpty(testCase.getExpectedOutput()).length();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
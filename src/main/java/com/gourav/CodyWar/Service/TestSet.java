@@ -0,0 +1,127 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.TestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The test cases of one problem as handed out by {@link TestCaseCache}, identified by the content
+ * hash of the cases. A set stays usable while borrowed even if the cache evicts or invalidates it
+ * meanwhile; its spill files are deleted once it is both evicted and no longer borrowed.
+ * Always use with try-with-resources.
+ */
+public final class TestSet implements AutoCloseable {
+
+    private final UUID problemId;
+    private final String hash;
+    private final List<CachedTestCase> testCases;
+    private final Path spillDir;
+    private final long heapBytes;
+    private final long diskBytes;
+
+    private int borrowers = 0;
+    private boolean evicted = false;
+
+    TestSet(UUID problemId, String hash, List<CachedTestCase> testCases, Path spillDir, long diskBytes) {
+        this.problemId = problemId;
+        this.hash = hash;
+        this.testCases = List.copyOf(testCases);
+        this.spillDir = spillDir;
+        this.heapBytes = testCases.stream().mapToLong(CachedTestCase::heapBytes).sum();
+        this.diskBytes = diskBytes;
+    }
+
+    /**
+     * SHA-256 over the judged content of the cases (order, input, expected output); visibility
+     * flags and ids do not change a verdict and are left out.
+     */
+    public static String hashOf(List<TestCase> testCases) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        List<TestCase> ordered = testCases.stream()
+                .sorted(Comparator.comparingInt(TestCase::getOrderIndex))
+                .toList();
+        update(digest, String.valueOf(ordered.size()));
+        for (TestCase testCase : ordered) {
+            update(digest, String.valueOf(testCase.getOrderIndex()));
+            update(digest, testCase.getInput());
+            update(digest, testCase.getExpectedOutput());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public UUID getProblemId() {
+        return problemId;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public List<CachedTestCase> getTestCases() {
+        return testCases;
+    }
+
+    public int size() {
+        return testCases.size();
+    }
+
+    public boolean isEmpty() {
+        return testCases.isEmpty();
+    }
+
+    long heapBytes() {
+        return heapBytes;
+    }
+
+    long diskBytes() {
+        return diskBytes;
+    }
+
+    synchronized TestSet borrow() {
+        borrowers++;
+        return this;
+    }
+
+    /**
+     * Called by the cache when the set leaves it; the files go as soon as nobody is judging with them.
+     */
+    synchronized void evict() {
+        evicted = true;
+        if (borrowers == 0) {
+            deleteSpillFiles();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (borrowers > 0 && --borrowers == 0 && evicted) {
+            deleteSpillFiles();
+        }
+    }
+
+    private void deleteSpillFiles() {
+        if (spillDir != null) {
+            AbstractSandboxWorker.deleteRecursively(spillDir, false);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        // Length prefix keeps ("ab","c") and ("a","bc") apart
+        digest.update(String.valueOf(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+}
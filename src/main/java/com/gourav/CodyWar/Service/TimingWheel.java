@@ -0,0 +1,154 @@
+package com.gourav.CodyWar.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: level 0 has {@code wheelSize} buckets of {@code tickMs}, each level
+ * above covers {@code wheelSize} times the span of the one below, and levels are added as far-off
+ * timers need them. Scheduling and cancelling are O(1); {@link #advance} only touches the buckets
+ * that come due (plus one cascade per level boundary crossed), so thousands of idle timers cost
+ * nothing between their ticks. Not thread-safe; the owner serializes access.
+ */
+final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final List<List<List<Timer>>> levels = new ArrayList<>();
+    private long currentTick;
+    private int size = 0;
+
+    TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.currentTick = startMs / tickMs;
+        addLevel();
+    }
+
+    /**
+     * Schedules {@code value} to come due at {@code fireAtMs} (rounded up to the next tick).
+     * Times already past come due on the next {@link #advance}.
+     */
+    Timer schedule(T value, long fireAtMs) {
+        Timer timer = new Timer(value, Math.max(ceilDiv(fireAtMs, tickMs), currentTick + 1));
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMs} and returns the values that came due, in firing order.
+     */
+    List<T> advance(long nowMs) {
+        List<T> due = new ArrayList<>();
+        long target = nowMs / tickMs;
+        while (currentTick < target) {
+            currentTick++;
+            // Cascade from the top so timers dropping several levels can still fire on this tick
+            for (int level = levels.size() - 1; level > 0; level--) {
+                long span = levelSpan(level);
+                if (currentTick % span == 0) {
+                    List<Timer> bucket = takeBucket(level, (int) ((currentTick / span) % wheelSize));
+                    bucket.forEach(this::place);
+                }
+            }
+            List<Timer> bucket = takeBucket(0, (int) (currentTick % wheelSize));
+            for (Timer timer : bucket) {
+                if (timer.cancelled) {
+                    continue;
+                }
+                if (timer.tick <= currentTick) {
+                    timer.cancelled = true;  // fired; a late cancel() is a no-op
+                    size--;
+                    due.add(timer.value);
+                } else {
+                    place(timer);
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Number of pending (not yet fired or cancelled) timers.
+     */
+    int size() {
+        return size;
+    }
+
+    // ── Helper Methods ──
+
+    private void place(Timer timer) {
+        if (timer.cancelled) {
+            return;
+        }
+        // A cascaded timer due right now lands in the current level-0 bucket, which is visited next
+        long tick = Math.max(timer.tick, currentTick);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (delta >= levelSpan(level) * wheelSize) {
+            level++;
+            if (level == levels.size()) {
+                addLevel();
+            }
+        }
+        int slot = (int) ((tick / levelSpan(level)) % wheelSize);
+        levels.get(level).get(slot).add(timer);
+    }
+
+    private List<Timer> takeBucket(int level, int slot) {
+        List<List<Timer>> buckets = levels.get(level);
+        List<Timer> bucket = buckets.get(slot);
+        if (bucket.isEmpty()) {
+            return bucket;
+        }
+        buckets.set(slot, new ArrayList<>());
+        return bucket;
+    }
+
+    private long levelSpan(int level) {
+        long span = 1;
+        for (int i = 0; i < level; i++) {
+            span *= wheelSize;
+        }
+        return span;
+    }
+
+    private void addLevel() {
+        List<List<Timer>> buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        levels.add(buckets);
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    /**
+     * Handle to a scheduled value; {@link #cancel} drops it lazily when its bucket is next visited.
+     */
+    final class Timer {
+
+        private final T value;
+        private final long tick;
+        private boolean cancelled = false;
+
+        private Timer(T value, long tick) {
+            this.value = value;
+            this.tick = tick;
+        }
+
+        T getValue() {
+            return value;
+        }
+
+        void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                size--;
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.gourav.CodyWar.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gourav.CodyWar.Domain.Dto.BattleState;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Payload size and serialize/deserialize cost of a two-player {@link BattleState}, JSON vs binary.
+ * Not part of the test suite (no {@code Test} suffix); run {@code main} against the test classpath.
+ */
+public final class CompactRedisSerializerBenchmark {
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 200_000;
+
+    private CompactRedisSerializerBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        ObjectMapper objectMapper = new RedisConfig().redisObjectMapper();
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer(objectMapper);
+        CompactRedisSerializer binary = new CompactRedisSerializer(json, BattleCodecs.all(objectMapper), true);
+        BattleState state = CompactRedisSerializerTest.sampleState();
+
+        run("json", json, state);
+        run("binary", binary, state);
+    }
+
+    private static void run(String name, RedisSerializer<Object> serializer, BattleState state) {
+        byte[] bytes = serializer.serialize(state);
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += serializer.serialize(state).length + (serializer.deserialize(bytes) != null ? 1 : 0);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += serializer.serialize(state).length;
+        }
+        long serializeNs = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += serializer.deserialize(bytes) != null ? 1 : 0;
+        }
+        long deserializeNs = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("%-6s %5d bytes  serialize %6d ns/op  deserialize %6d ns/op  (%d)%n",
+                name, bytes.length, serializeNs, deserializeNs, sink % 10);
+    }
+}
@@ -0,0 +1,229 @@
+package com.gourav.CodyWar.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gourav.CodyWar.Domain.Dto.BattleEvent;
+import com.gourav.CodyWar.Domain.Dto.BattleEventBatch;
+import com.gourav.CodyWar.Domain.Dto.BattleState;
+import com.gourav.CodyWar.Domain.Dto.MatchmakingEntry;
+import com.gourav.CodyWar.Domain.Dto.SubmissionResponseDto;
+import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import com.gourav.CodyWar.Domain.Entity.SubmissionStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Compact Redis Serializer Tests")
+class CompactRedisSerializerTest {
+
+    private ObjectMapper objectMapper;
+    private GenericJackson2JsonRedisSerializer json;
+    private CompactRedisSerializer serializer;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new RedisConfig().redisObjectMapper();
+        json = new GenericJackson2JsonRedisSerializer(objectMapper);
+        serializer = new CompactRedisSerializer(json, BattleCodecs.all(objectMapper), true);
+    }
+
+    @Test
+    @DisplayName("Should round-trip battle state in binary, well under the JSON size")
+    void battleState_RoundTripsCompactly() {
+        // Arrange
+        BattleState state = sampleState();
+
+        // Act
+        byte[] bytes = serializer.serialize(state);
+        Object read = serializer.deserialize(bytes);
+
+        // Assert
+        assertEquals(CompactRedisSerializer.MAGIC, bytes[0]);
+        assertEquals(state, read);
+        assertTrue(bytes.length * 3 < json.serialize(state).length,
+                "binary " + bytes.length + " bytes vs JSON " + json.serialize(state).length);
+    }
+
+    @Test
+    @DisplayName("Should round-trip matchmaking entries and events, keeping event payloads")
+    void entryAndEvent_RoundTrip() {
+        // Arrange
+        MatchmakingEntry entry = MatchmakingEntry.builder()
+                .oduserId(UUID.randomUUID())
+                .username("alice")
+                .ratingScore(1500)
+                .queuedAt(Instant.now())
+                .maxParticipants(3)
+                .build();
+        BattleEvent event = BattleEvent.builder()
+                .type(BattleEvent.EventType.PLAYER_JOINED)
+                .battleId(UUID.randomUUID())
+                .payload(Map.of("username", "alice", "currentParticipants", 2))
+                .build();
+
+        // Act & Assert
+        assertEquals(entry, serializer.deserialize(serializer.serialize(entry)));
+        assertEquals(event, serializer.deserialize(serializer.serialize(event)));
+    }
+
+    @Test
+    @DisplayName("Should round-trip event batches mixing events and submission statuses")
+    void eventBatch_RoundTrips() {
+        // Arrange
+        UUID battleId = UUID.randomUUID();
+        BattleEvent event = BattleEvent.builder()
+                .type(BattleEvent.EventType.TIMER_UPDATE)
+                .battleId(battleId)
+                .payload(Map.of("remainingSeconds", 42L))
+                .build();
+        SubmissionResponseDto status = SubmissionResponseDto.builder()
+                .id(UUID.randomUUID())
+                .battleId(battleId)
+                .status(SubmissionStatus.ACCEPTED)
+                .testCasesPassed(10)
+                .submittedAt(Instant.now())
+                .build();
+        BattleEventBatch batch = new BattleEventBatch("node-a", new ArrayList<>(List.of(
+                new BattleEventBatch.Delivery(battleId, event),
+                new BattleEventBatch.Delivery(battleId, status))));
+
+        // Act
+        byte[] bytes = serializer.serialize(batch);
+
+        // Assert
+        assertEquals(CompactRedisSerializer.MAGIC, bytes[0]);
+        assertEquals(batch, serializer.deserialize(bytes));
+    }
+
+    @Test
+    @DisplayName("Should still read values stored as JSON before the binary codec")
+    void deserialize_LegacyJson_Migrates() {
+        // Arrange
+        BattleState state = sampleState();
+        byte[] legacy = json.serialize(state);
+
+        // Act & Assert
+        assertEquals(state, serializer.deserialize(legacy));
+    }
+
+    @Test
+    @DisplayName("Should write JSON for other types and for every type in json mode")
+    void serialize_OtherTypesAndJsonMode_WriteJson() {
+        // Arrange
+        CompactRedisSerializer jsonMode = new CompactRedisSerializer(json, BattleCodecs.all(objectMapper), false);
+
+        // Act & Assert
+        assertArrayEquals(json.serialize("ABC123"), serializer.serialize("ABC123"));
+        assertArrayEquals(json.serialize(3), serializer.serialize(3));
+        assertEquals('{', jsonMode.serialize(sampleState())[0]);
+    }
+
+    @Test
+    @DisplayName("Should read battle state written with the v1 and v2 layouts, before version counter and slots")
+    void deserialize_OlderBattleStateLayouts_Read() throws IOException {
+        // Arrange
+        BattleState state = sampleState();
+        state.setVersion(12);
+        state.getParticipants().forEach(participant -> participant.setSlot(0));
+        // Re-hash the members after changing them
+        state.setParticipants(new HashSet<>(state.getParticipants()));
+
+        // Act
+        BattleState v1 = (BattleState) serializer.deserialize(olderLayout(state, 1));
+        BattleState v2 = (BattleState) serializer.deserialize(olderLayout(state, 2));
+
+        // Assert
+        assertEquals(0, v1.getVersion());
+        assertEquals(state.getParticipants(), v1.getParticipants());
+        assertEquals(state, v2);
+    }
+
+    @Test
+    @DisplayName("Should refuse a value written with a newer layout than this instance knows")
+    void deserialize_NewerVersion_Throws() {
+        // Arrange
+        byte[] bytes = serializer.serialize(sampleState());
+        bytes[2] = 99;
+
+        // Act & Assert
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+
+    // Helper methods
+
+    /**
+     * {@code state} as layout v1 (no version counter) or v2 wrote it, participants without slots.
+     */
+    private static byte[] olderLayout(BattleState state, int version) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(CompactRedisSerializer.MAGIC);
+        out.writeByte(BattleCodecs.BATTLE_STATE);
+        out.writeByte(version);
+        BattleCodecs.writeUuid(out, state.getBattleId());
+        BattleCodecs.writeString(out, state.getRoomCode());
+        BattleCodecs.writeUuid(out, state.getProblemId());
+        BattleCodecs.writeString(out, state.getStatus().name());
+        out.writeInt(state.getMaxParticipants());
+        out.writeInt(state.getDurationSeconds());
+        out.writeBoolean(state.isPrivate());
+        out.writeShort(state.getParticipants().size());
+        for (BattleState.ParticipantState participant : state.getParticipants()) {
+            BattleCodecs.writeUuid(out, participant.getOduserId());
+            BattleCodecs.writeString(out, participant.getUsername());
+            out.writeByte((participant.isReady() ? 1 : 0) | (participant.isHasSubmitted() ? 2 : 0));
+            out.writeInt(participant.getScore());
+            BattleCodecs.writeInstant(out, participant.getJoinedAt());
+            BattleCodecs.writeUuid(out, participant.getLastSubmissionId());
+        }
+        BattleCodecs.writeUuid(out, state.getWinnerId());
+        BattleCodecs.writeInstant(out, state.getCreatedAt());
+        BattleCodecs.writeInstant(out, state.getStartedAt());
+        BattleCodecs.writeInstant(out, state.getFinishedAt());
+        if (version >= 2) {
+            out.writeLong(state.getVersion());
+        }
+        return bytes.toByteArray();
+    }
+
+    static BattleState sampleState() {
+        Set<BattleState.ParticipantState> participants = new HashSet<>();
+        int slot = 0;
+        for (String name : new String[]{"alice", "bob"}) {
+            participants.add(BattleState.ParticipantState.builder()
+                    .oduserId(UUID.randomUUID())
+                    .username(name)
+                    .isReady(true)
+                    .hasSubmitted(name.equals("bob"))
+                    .score(7)
+                    .joinedAt(Instant.now())
+                    .lastSubmissionId(name.equals("bob") ? UUID.randomUUID() : null)
+                    .slot(++slot)
+                    .build());
+        }
+        return BattleState.builder()
+                .battleId(UUID.randomUUID())
+                .problemId(UUID.randomUUID())
+                .status(BattleStatus.IN_PROGRESS)
+                .maxParticipants(2)
+                .durationSeconds(1800)
+                .participants(participants)
+                .createdAt(Instant.now().minusSeconds(60))
+                .startedAt(Instant.now())
+                .build();
+    }
+}
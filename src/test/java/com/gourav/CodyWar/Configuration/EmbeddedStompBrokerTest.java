@@ -0,0 +1,179 @@
+package com.gourav.CodyWar.Configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.tcp.TcpConnection;
+import org.springframework.messaging.tcp.TcpConnectionHandler;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Embedded STOMP Broker Tests")
+class EmbeddedStompBrokerTest {
+
+    private EmbeddedStompBroker broker;
+    private NettyStompTcpClient client;
+
+    @BeforeEach
+    void setUp() {
+        broker = new EmbeddedStompBroker(0);
+        broker.start();
+        client = new NettyStompTcpClient("localhost", broker.getPort(), 1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.shutdownAsync().get(5, TimeUnit.SECONDS);
+        broker.stop();
+    }
+
+    @Test
+    @DisplayName("Should accept any login and negotiate no heartbeats")
+    void connect_RepliesConnected() throws Exception {
+        // Arrange
+        Session session = open();
+
+        // Act
+        session.send(StompHeaderAccessor.create(StompCommand.CONNECT), "");
+
+        // Assert
+        StompHeaderAccessor connected = session.next();
+        assertEquals(StompCommand.CONNECTED, connected.getCommand());
+        assertArrayEquals(new long[] {0, 0}, connected.getHeartbeat());
+    }
+
+    @Test
+    @DisplayName("Should fan a SEND out to the destination's subscribers only, keeping its headers")
+    void send_FansOutToSubscribers() throws Exception {
+        // Arrange
+        Session watcher = open();
+        Session other = open();
+        Session sender = open();
+        watcher.subscribe("sub-1", "/topic/battle/1");
+        other.subscribe("sub-9", "/topic/battle/2");
+        StompHeaderAccessor send = StompHeaderAccessor.create(StompCommand.SEND);
+        send.setDestination("/topic/battle/1");
+        send.setContentType(MimeTypeUtils.APPLICATION_JSON);
+
+        // Act
+        sender.send(send, "{\"type\":\"TIMER_UPDATE\"}");
+
+        // Assert
+        Message<byte[]> frame = watcher.nextFrame();
+        StompHeaderAccessor message = StompHeaderAccessor.wrap(frame);
+        assertEquals(StompCommand.MESSAGE, message.getCommand());
+        assertEquals("sub-1", message.getSubscriptionId());
+        assertEquals("/topic/battle/1", message.getDestination());
+        assertEquals("application/json", message.getFirstNativeHeader("content-type"));
+        assertEquals("{\"type\":\"TIMER_UPDATE\"}", new String(frame.getPayload(), StandardCharsets.UTF_8));
+        assertNull(other.frames.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Should drop a connection's subscriptions on unsubscribe and on close")
+    void subscriptions_DroppedOnUnsubscribeAndClose() throws Exception {
+        // Arrange
+        Session first = open();
+        Session second = open();
+        first.subscribe("sub-1", "/topic/battle/1");
+        first.subscribe("sub-2", "/topic/battle/2");
+        second.subscribe("sub-1", "/topic/battle/1");
+        assertEquals(3, broker.subscriptionCount());
+
+        // Act
+        StompHeaderAccessor unsubscribe = StompHeaderAccessor.create(StompCommand.UNSUBSCRIBE);
+        unsubscribe.setSubscriptionId("sub-2");
+        unsubscribe.setReceipt("r-unsub");
+        first.send(unsubscribe, "");
+        assertEquals("r-unsub", first.next().getReceiptId());
+        second.connection.close();
+
+        // Assert
+        long deadline = System.currentTimeMillis() + 5000;
+        while (broker.subscriptionCount() != 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, broker.subscriptionCount());
+    }
+
+    // Helper methods
+
+    private Session open() throws Exception {
+        Session session = new Session();
+        client.connectAsync(session).get(5, TimeUnit.SECONDS);
+        session.connection = session.connected.get(5, TimeUnit.SECONDS);
+        return session;
+    }
+
+    /**
+     * A raw broker connection collecting the frames it receives.
+     */
+    private static class Session implements TcpConnectionHandler<byte[]> {
+
+        private final CompletableFuture<TcpConnection<byte[]>> connected = new CompletableFuture<>();
+        private final BlockingQueue<Message<byte[]>> frames = new LinkedBlockingQueue<>();
+        private TcpConnection<byte[]> connection;
+
+        void send(StompHeaderAccessor accessor, String body) throws Exception {
+            connection.sendAsync(MessageBuilder.createMessage(body.getBytes(StandardCharsets.UTF_8),
+                    accessor.getMessageHeaders())).get(5, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Subscribes and waits for the receipt, so the subscription is in place on return.
+         */
+        void subscribe(String subscriptionId, String destination) throws Exception {
+            StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+            subscribe.setSubscriptionId(subscriptionId);
+            subscribe.setDestination(destination);
+            subscribe.setReceipt("r-" + subscriptionId);
+            send(subscribe, "");
+            assertEquals("r-" + subscriptionId, next().getReceiptId());
+        }
+
+        Message<byte[]> nextFrame() throws InterruptedException {
+            Message<byte[]> frame = frames.poll(5, TimeUnit.SECONDS);
+            assertNotNull(frame, "no frame within 5s");
+            return frame;
+        }
+
+        StompHeaderAccessor next() throws InterruptedException {
+            return StompHeaderAccessor.wrap(nextFrame());
+        }
+
+        @Override
+        public void afterConnected(TcpConnection<byte[]> connection) {
+            connected.complete(connection);
+        }
+
+        @Override
+        public void afterConnectFailure(Throwable ex) {
+            connected.completeExceptionally(ex);
+        }
+
+        @Override
+        public void handleMessage(Message<byte[]> message) {
+            frames.add(message);
+        }
+
+        @Override
+        public void handleFailure(Throwable ex) {
+        }
+
+        @Override
+        public void afterConnectionClosed() {
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.gourav.CodyWar.Configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Session Outbound Queue Tests")
+class SessionOutboundQueuesTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SessionOutboundQueues queues;
+    private WebSocketSession socket;
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+    private final CountDownLatch socketUnblocked = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        queues = new SessionOutboundQueues(meterRegistry);
+        ReflectionTestUtils.setField(queues, "capacity", 3);
+        ReflectionTestUtils.setField(queues, "sendThreads", 2);
+        queues.init();
+
+        // A client that stalls on the first frame until released
+        socket = mock(WebSocketSession.class);
+        when(socket.getId()).thenReturn("s1");
+        doAnswer(invocation -> {
+            firstWriteStarted.countDown();
+            assertTrue(socketUnblocked.await(5, TimeUnit.SECONDS));
+            written.add(body(invocation.getArgument(0)));
+            return null;
+        }).when(socket).sendMessage(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        socketUnblocked.countDown();
+        queues.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should replace a queued frame with a newer one of the same key, keeping order")
+    void sendMessage_ConflatesSupersededFrames() throws Exception {
+        // Arrange
+        OutboundQueueSession session = queues.open(socket);
+        session.sendMessage(frame("sub-1", null, "joined"));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+
+        // Act
+        session.sendMessage(frame("sub-1", "timer:b1", "timer-60"));
+        session.sendMessage(frame("sub-1", null, "delta-7"));
+        session.sendMessage(frame("sub-1", "timer:b1", "timer-10"));
+        session.sendMessage(frame("sub-2", "timer:b1", "timer-10-other-subscription"));
+        socketUnblocked.countDown();
+
+        // Assert
+        awaitWritten(4);
+        assertEquals(List.of("joined", "timer-10", "delta-7", "timer-10-other-subscription"), written);
+        assertEquals(1, meter("websocket.session.queue.conflated"));
+        assertEquals(0, meter("websocket.session.queue.dropped"));
+    }
+
+    @Test
+    @DisplayName("Should drop frames over capacity and close a session that stays full with a resync hint")
+    void sendMessage_SlowConsumer_DropsThenDisconnects() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(queues, "slowConsumerGraceMs", 0L);
+        OutboundQueueSession session = queues.open(socket);
+        session.sendMessage(frame("sub-1", null, "in-flight"));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            session.sendMessage(frame("sub-1", null, "delta-" + i));
+        }
+
+        // Act
+        SessionLimitExceededException thrown = assertThrows(SessionLimitExceededException.class,
+                () -> session.sendMessage(frame("sub-1", null, "delta-3")));
+
+        // Assert
+        assertEquals(SessionOutboundQueues.RESYNC_STATUS, thrown.getStatus());
+        assertEquals(1, meterRegistry.get("websocket.sessions.slow.disconnected").counter().count());
+        assertEquals(0, queues.sessionCount());
+        assertNull(meterRegistry.find("websocket.session.queue.depth").gauge());
+    }
+
+    @Test
+    @DisplayName("Should drop only frames with a conflation key while full and close at once on any other")
+    void sendMessage_FullQueue_ClosesRatherThanLoseUnkeyedFrame() throws Exception {
+        // Arrange
+        OutboundQueueSession session = queues.open(socket);
+        session.sendMessage(frame("sub-1", null, "in-flight"));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            session.sendMessage(frame("sub-1", null, "delta-" + i));
+        }
+
+        // Act: within the grace period, a timer update is dropped but a battle end is not
+        session.sendMessage(frame("sub-1", "timer:b1", "timer-10"));
+        SessionLimitExceededException thrown = assertThrows(SessionLimitExceededException.class,
+                () -> session.sendMessage(frame("sub-1", null, "battle-ended")));
+
+        // Assert
+        assertEquals(SessionOutboundQueues.RESYNC_STATUS, thrown.getStatus());
+        assertEquals(1, meterRegistry.get("websocket.sessions.slow.disconnected").counter().count());
+        assertEquals(0, queues.sessionCount());
+    }
+
+    @Test
+    @DisplayName("Should count queued bytes against the send buffer limit as well as frames")
+    void sendMessage_OverSendBufferLimit_DropsKeyedFrames() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(queues, "sendBufferSizeLimit", 1);
+        OutboundQueueSession session = queues.open(socket);
+        session.sendMessage(frame("sub-1", null, "in-flight"));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+        session.sendMessage(frame("sub-1", null, "delta-1"));
+
+        // Act
+        session.sendMessage(frame("sub-1", "timer:b1", "timer-10"));
+
+        // Assert
+        assertEquals(1, meter("websocket.session.queue.dropped"));
+        assertEquals(1, queues.sessionCount());
+    }
+
+    @Test
+    @DisplayName("Should close a session whose write stalls past the send time limit with a resync hint")
+    void closeStalledSessions_WriteOverTimeLimit_ClosesSession() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(queues, "sendTimeLimitMs", 0L);
+        OutboundQueueSession session = queues.open(socket);
+        session.sendMessage(frame("sub-1", null, "in-flight"));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+
+        // Act
+        queues.closeStalledSessions();
+
+        // Assert
+        verify(socket).close(SessionOutboundQueues.RESYNC_STATUS);
+        assertEquals(1, meterRegistry.get("websocket.sessions.slow.disconnected").counter().count());
+        assertEquals(0, queues.sessionCount());
+    }
+
+    @Test
+    @DisplayName("Should leave sessions alone while no write is waiting")
+    void closeStalledSessions_Idle_KeepsSession() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(queues, "sendTimeLimitMs", 0L);
+        queues.open(socket);
+
+        // Act
+        queues.closeStalledSessions();
+
+        // Assert
+        verify(socket, never()).close(any());
+        assertEquals(1, queues.sessionCount());
+    }
+
+    @Test
+    @DisplayName("Should expose queue depth per session and only conflate MESSAGE frames with a key")
+    void meters_TrackDepthPerSession() throws Exception {
+        // Arrange
+        OutboundQueueSession session = queues.open(socket);
+        session.sendMessage(frame("sub-1", null, "in-flight"));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+
+        // Act
+        session.sendMessage(frame("sub-1", null, "delta-1"));
+        session.sendMessage(new TextMessage("\n"));
+
+        // Assert
+        assertEquals(2, meterRegistry.get("websocket.session.queue.depth").tag("session", "s1").gauge().value());
+        assertNull(OutboundQueueSession.conflationKey(new TextMessage("\n")));
+        assertEquals("sub-1|timer\\cb1", OutboundQueueSession.conflationKey(frame("sub-1", "timer:b1", "x")));
+    }
+
+    // Helper methods
+
+    /**
+     * A MESSAGE frame as the STOMP sub-protocol handler writes it to the socket.
+     */
+    private TextMessage frame(String subscriptionId, String conflationKey, String body) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination("/topic/battle/b1");
+        accessor.setMessageId("1");
+        if (conflationKey != null) {
+            accessor.setNativeHeader(SessionOutboundQueues.CONFLATION_KEY_HEADER, conflationKey);
+        }
+        byte[] bytes = new StompEncoder().encode(MessageBuilder.createMessage(
+                body.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders()));
+        return new TextMessage(bytes);
+    }
+
+    private static String body(WebSocketMessage<?> message) {
+        String frame = ((TextMessage) message).getPayload();
+        int start = frame.indexOf("\n\n") + 2;
+        return frame.substring(start, frame.length() - 1);
+    }
+
+    private double meter(String name) {
+        return meterRegistry.get(name).tag("session", "s1").functionCounter().count();
+    }
+
+    private void awaitWritten(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (written.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.gourav.CodyWar.Configuration;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sessions held and battle room broadcast latency of the simple broker vs the broker relay against
+ * an {@link EmbeddedStompBroker}, without the web layer: sessions are simulated at the broker
+ * handler, the way the client inbound channel would hand their frames over, and deliveries are
+ * timed when they reach the client outbound channel.
+ * <p>
+ * Simple mode runs one instance holding every session. Relay mode spreads the same sessions over
+ * {@code NODES} instances sharing the broker, each holding one broker connection per session, and
+ * broadcasts from the first instance only, so the numbers include the cross-instance hop.
+ * Not part of the test suite (no {@code Test} suffix); run {@code main} against the test classpath,
+ * optionally with {@code sessions battles rounds} as arguments.
+ */
+public final class WebSocketBrokerBenchmark {
+
+    private static final int NODES = 2;
+    private static final List<String> PREFIXES = List.of("/topic", "/queue");
+
+    private WebSocketBrokerBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int battles = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        run("simple", sessions, battles, rounds, null);
+
+        EmbeddedStompBroker broker = new EmbeddedStompBroker(0);
+        broker.start();
+        try {
+            run("relay", sessions, battles, rounds, broker);
+        } finally {
+            broker.stop();
+        }
+    }
+
+    private static void run(String mode, int sessions, int battles, int rounds, EmbeddedStompBroker broker)
+            throws Exception {
+        int nodes = broker != null ? NODES : 1;
+        List<Node> cluster = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            cluster.add(new Node(broker));
+        }
+
+        // Connect and subscribe: session s watches battle s % battles
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        CountDownLatch connected = new CountDownLatch(sessions);
+        cluster.forEach(node -> node.connected = connected);
+        for (int s = 0; s < sessions; s++) {
+            cluster.get(s % nodes).connect("session-" + s);
+        }
+        if (!connected.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(mode + ": only " + (sessions - connected.getCount()) + " sessions connected");
+        }
+        for (int s = 0; s < sessions; s++) {
+            cluster.get(s % nodes).subscribe("session-" + s, "/topic/battle/" + (s % battles));
+        }
+        if (broker != null) {
+            awaitSubscriptions(broker, sessions);
+        }
+        long connectMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long heapPerSession = Math.max(0, usedHeap() - heapBefore) / sessions;
+
+        // Warm up, then time every delivery from send to the outbound channel
+        int perRound = sessions;
+        broadcast(cluster, battles, 5, perRound);
+        cluster.forEach(node -> node.latenciesNs.clear());
+        start = System.nanoTime();
+        broadcast(cluster, battles, rounds, perRound);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = cluster.stream()
+                .flatMap(node -> node.latenciesNs.stream())
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+        System.out.printf("%-6s nodes %d  sessions %5d (%5d per node, %5d broker connections)  connect+subscribe %5d ms"
+                        + "  ~%5d B heap/session%n",
+                mode, nodes, sessions, sessions / nodes, broker != null ? sessions + nodes : 0, connectMs, heapPerSession);
+        System.out.printf("%-6s %d broadcasts -> %d deliveries  %8.0f deliveries/s  latency p50 %6.2f ms  p99 %6.2f ms"
+                        + "  max %6.2f ms%n",
+                mode, rounds * battles, latencies.length, latencies.length / seconds,
+                percentile(latencies, 50), percentile(latencies, 99), percentile(latencies, 100));
+
+        cluster.forEach(Node::stop);
+    }
+
+    private static void broadcast(List<Node> cluster, int battles, int rounds, int perRound) throws InterruptedException {
+        for (int round = 0; round < rounds; round++) {
+            CountDownLatch delivered = new CountDownLatch(perRound);
+            cluster.forEach(node -> node.delivered = delivered);
+            for (int b = 0; b < battles; b++) {
+                cluster.get(0).publish("/topic/battle/" + b);
+            }
+            if (!delivered.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Missing " + delivered.getCount() + " deliveries in round " + round);
+            }
+        }
+    }
+
+    private static void awaitSubscriptions(EmbeddedStompBroker broker, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (broker.subscriptionCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static double percentile(long[] sortedNs, int percentile) {
+        if (sortedNs.length == 0) {
+            return 0;
+        }
+        int index = Math.min(sortedNs.length - 1, (int) Math.ceil(percentile / 100.0 * sortedNs.length) - 1);
+        return sortedNs[Math.max(0, index)] / 1e6;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * One application instance: its broker handler and the channels around it.
+     */
+    private static final class Node {
+
+        private final AbstractBrokerMessageHandler handler;
+        private final ThreadPoolTaskExecutor outboundExecutor = executor("outbound");
+        private final ThreadPoolTaskExecutor inboundExecutor = executor("inbound");
+        private final List<Long> latenciesNs = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile CountDownLatch connected;
+        private volatile CountDownLatch delivered;
+
+        Node(EmbeddedStompBroker broker) throws InterruptedException {
+            ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel(inboundExecutor);
+            ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel(outboundExecutor);
+            ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+            clientOutbound.subscribe(this::onOutbound);
+
+            if (broker == null) {
+                handler = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, PREFIXES);
+            } else {
+                StompBrokerRelayMessageHandler relay =
+                        new StompBrokerRelayMessageHandler(clientInbound, clientOutbound, brokerChannel, PREFIXES);
+                relay.setTcpClient(new NettyStompTcpClient("localhost", broker.getPort(), 4));
+                handler = relay;
+            }
+            handler.start();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!handler.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+
+        void connect(String sessionId) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+            accessor.setSessionId(sessionId);
+            accessor.setAcceptVersion("1.2");
+            accessor.setHeartbeat(0, 0);
+            send(accessor);
+        }
+
+        void subscribe(String sessionId, String destination) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+            accessor.setSessionId(sessionId);
+            accessor.setSubscriptionId("sub-0");
+            accessor.setDestination(destination);
+            send(accessor);
+        }
+
+        /**
+         * A broadcast as the messaging template would send it, stamped with its send time.
+         */
+        void publish(String destination) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(destination);
+            byte[] payload = ByteBuffer.allocate(Long.BYTES).putLong(System.nanoTime()).array();
+            handler.handleMessage(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+        }
+
+        void stop() {
+            handler.stop();
+            outboundExecutor.shutdown();
+            inboundExecutor.shutdown();
+        }
+
+        private void send(StompHeaderAccessor accessor) {
+            handler.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+        }
+
+        private void onOutbound(Message<?> message) {
+            SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+            StompCommand command = StompHeaderAccessor.wrap(message).getCommand();
+            if (type == SimpMessageType.CONNECT_ACK || command == StompCommand.CONNECTED) {
+                connected.countDown();
+            } else if (type == SimpMessageType.MESSAGE && message.getPayload() instanceof byte[] payload
+                    && payload.length == Long.BYTES) {
+                latenciesNs.add(System.nanoTime() - ByteBuffer.wrap(payload).getLong());
+                delivered.countDown();
+            }
+        }
+
+        private static ThreadPoolTaskExecutor executor(String name) {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(8);
+            executor.setMaxPoolSize(32);
+            executor.setQueueCapacity(100_000);
+            executor.setThreadNamePrefix(name + "-");
+            executor.initialize();
+            return executor;
+        }
+    }
+}
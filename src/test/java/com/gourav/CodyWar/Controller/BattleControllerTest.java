@@ -410,8 +410,11 @@ class BattleControllerTest {
     @DisplayName("GET /api/battles/my-battles - Should get user's battle history")
     void getMyBattles_Success() throws Exception {
         // Arrange
-        List<BattleResponseDto> battles = Arrays.asList(battleResponse);
-        when(battleService.getUserBattles(testUser.getId())).thenReturn(battles);
+        CursorPage<BattleResponseDto> battles = CursorPage.<BattleResponseDto>builder()
+                .items(Arrays.asList(battleResponse))
+                .nextCursor("next")
+                .build();
+        when(battleService.getUserBattles(testUser.getId(), null, 20)).thenReturn(battles);
 
         // Act & Assert
         mockMvc.perform(get("/api/battles/my-battles")
@@ -420,39 +423,71 @@ class BattleControllerTest {
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data").isArray())
-                .andExpect(jsonPath("$.data", hasSize(1)))
-                .andExpect(jsonPath("$.data[0].id").value(battleResponse.getId().toString()));
+                .andExpect(jsonPath("$.data.items").isArray())
+                .andExpect(jsonPath("$.data.items", hasSize(1)))
+                .andExpect(jsonPath("$.data.items[0].id").value(battleResponse.getId().toString()))
+                .andExpect(jsonPath("$.data.nextCursor").value("next"));
 
-        verify(battleService).getUserBattles(testUser.getId());
+        verify(battleService).getUserBattles(testUser.getId(), null, 20);
     }
 
     @Test
     @DisplayName("GET /api/battles/active - Should get active battles")
     void getActiveBattles_Success() throws Exception {
         // Arrange
-        List<BattleResponseDto> battles = Arrays.asList(battleResponse);
-        when(battleService.getActiveBattles()).thenReturn(battles);
+        CursorPage<LobbyBattleDto> battles = CursorPage.<LobbyBattleDto>builder()
+                .items(Arrays.asList(LobbyBattleDto.builder()
+                        .id(battleResponse.getId())
+                        .status(BattleStatus.WAITING)
+                        .freeSlots(1)
+                        .build()))
+                .version(7L)
+                .build();
+        when(battleService.getActiveBattles("abc", 5, Difficulty.EASY, 1)).thenReturn(battles);
 
         // Act & Assert
         mockMvc.perform(get("/api/battles/active")
+                        .param("cursor", "abc")
+                        .param("limit", "5")
+                        .param("difficulty", "EASY")
+                        .param("minFreeSlots", "1")
                         .with(user(testUserDetails))
                         .contentType(MediaType.APPLICATION_JSON))
                 .andDo(print())
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"lobby-7\""))
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data").isArray())
-                .andExpect(jsonPath("$.data", hasSize(1)))
-                .andExpect(jsonPath("$.data[0].status").value("WAITING"));
+                .andExpect(jsonPath("$.data.items").isArray())
+                .andExpect(jsonPath("$.data.items", hasSize(1)))
+                .andExpect(jsonPath("$.data.items[0].status").value("WAITING"))
+                .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
 
-        verify(battleService).getActiveBattles();
+        verify(battleService).getActiveBattles("abc", 5, Difficulty.EASY, 1);
+    }
+
+    @Test
+    @DisplayName("GET /api/battles/active - Should answer 304 while the lobby version is unchanged")
+    void getActiveBattles_SameVersion_NotModified() throws Exception {
+        // Arrange
+        when(battleService.getActiveBattles(null, 20, null, 0)).thenReturn(CursorPage.<LobbyBattleDto>builder()
+                .items(Collections.emptyList())
+                .version(7L)
+                .build());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/battles/active")
+                        .header("If-None-Match", "W/\"lobby-7\"")
+                        .with(user(testUserDetails)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
     }
 
     @Test
     @DisplayName("GET /api/battles/active - Should return empty list when no active battles")
     void getActiveBattles_NoBattles_ReturnsEmptyList() throws Exception {
         // Arrange
-        when(battleService.getActiveBattles()).thenReturn(Collections.emptyList());
+        when(battleService.getActiveBattles(null, 20, null, 0))
+                .thenReturn(CursorPage.<LobbyBattleDto>builder().items(Collections.emptyList()).version(0L).build());
 
         // Act & Assert
         mockMvc.perform(get("/api/battles/active")
@@ -461,10 +496,10 @@ class BattleControllerTest {
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data").isArray())
-                .andExpect(jsonPath("$.data", hasSize(0)));
+                .andExpect(jsonPath("$.data.items").isArray())
+                .andExpect(jsonPath("$.data.items", hasSize(0)));
 
-        verify(battleService).getActiveBattles();
+        verify(battleService).getActiveBattles(null, 20, null, 0);
     }
 
     // ==================== ERROR HANDLING TESTS ====================
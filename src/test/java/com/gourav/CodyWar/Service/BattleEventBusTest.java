@@ -0,0 +1,266 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Configuration.SessionOutboundQueues;
+import com.gourav.CodyWar.Domain.Dto.BattleEvent;
+import com.gourav.CodyWar.Domain.Dto.BattleEventBatch;
+import com.gourav.CodyWar.Domain.Dto.SubmissionResponseDto;
+import com.gourav.CodyWar.Domain.Entity.SubmissionStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Battle Event Bus Tests")
+class BattleEventBusTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisOperations<String, Object> pipeline;
+
+    @Mock
+    private SetOperations<String, Object> setOperations;
+
+    @Mock
+    private ZSetOperations<String, Object> zSetOperations;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BattleEventBus bus;
+    private final UUID battleId = UUID.randomUUID();
+    private final List<List<Object>> pipelineResults = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bus = new BattleEventBus(redisTemplate, listenerContainer, messagingTemplate, meterRegistry);
+        ReflectionTestUtils.setField(bus, "nodeId", "node-a");
+        bus.init();
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(pipeline.opsForSet()).thenReturn(setOperations);
+        when(pipeline.opsForZSet()).thenReturn(zSetOperations);
+        // Run the callback against a mock connection and answer with the queued results
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<?>>getArgument(0).execute(pipeline);
+            return pipelineResults.isEmpty() ? List.of() : pipelineResults.remove(0);
+        });
+    }
+
+    @Test
+    @DisplayName("Should deliver locally on flush, keeping only the latest timer update, after earlier messages")
+    void flush_CoalescesTimerUpdates() {
+        // Arrange
+        subscribe("s1", "sub-1", battleId);
+        pipelineResults.add(List.of(Set.of("node-a"), Set.of("node-a")));
+        BattleEvent joined = event(BattleEvent.EventType.PLAYER_JOINED, Map.of());
+        BattleEvent timer60 = event(BattleEvent.EventType.TIMER_UPDATE, Map.of("remainingSeconds", 60L));
+        BattleEvent timer59 = event(BattleEvent.EventType.TIMER_UPDATE, Map.of("remainingSeconds", 59L));
+
+        // Act
+        bus.publish(battleId, timer60);
+        bus.publish(battleId, joined);
+        bus.publish(battleId, timer59);
+        bus.flush();
+
+        // Assert
+        InOrder inOrder = inOrder(messagingTemplate);
+        inOrder.verify(messagingTemplate).convertAndSend("/topic/battle/" + battleId, (Object) joined);
+        inOrder.verify(messagingTemplate).convertAndSend("/topic/battle/" + battleId, timer59,
+                Map.of(SessionOutboundQueues.CONFLATION_KEY_HEADER, "timer:" + battleId));
+        verify(messagingTemplate, never()).convertAndSend("/topic/battle/" + battleId, timer60,
+                Map.of(SessionOutboundQueues.CONFLATION_KEY_HEADER, "timer:" + battleId));
+        assertEquals(1, meterRegistry.get("battle.events.coalesced").counter().count());
+        verify(pipeline, never()).convertAndSend(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should send one batch per other subscribed instance and nothing to the rest")
+    void flush_SendsOneBatchPerSubscribedNode() {
+        // Arrange
+        UUID quietBattle = UUID.randomUUID();
+        SubmissionResponseDto running = status(SubmissionStatus.RUNNING);
+        SubmissionResponseDto accepted = status(SubmissionStatus.ACCEPTED);
+        accepted.setId(running.getId());
+        // Subscriber lookups in flush order: the accepted status now follows the quiet battle's event
+        pipelineResults.add(List.of(Set.of(), Set.of("node-b", "node-c"), Set.of("node-a", "node-b", "node-c")));
+
+        // Act
+        bus.publish(battleId, running);
+        bus.publish(quietBattle, event(BattleEvent.EventType.PLAYER_LEFT, Map.of()));
+        bus.publish(battleId, accepted);
+        bus.flush();
+
+        // Assert
+        ArgumentCaptor<Object> batches = ArgumentCaptor.forClass(Object.class);
+        verify(pipeline).convertAndSend(eq(BattleEventBus.NODE_CHANNEL_PREFIX + "node-b"), batches.capture());
+        verify(pipeline).convertAndSend(eq(BattleEventBus.NODE_CHANNEL_PREFIX + "node-c"), any());
+        BattleEventBatch batch = (BattleEventBatch) batches.getValue();
+        assertEquals("node-a", batch.getOrigin());
+        assertEquals(List.of(new BattleEventBatch.Delivery(battleId, accepted)), batch.getDeliveries());
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        assertEquals(2, meterRegistry.get("battle.events.remote.batches").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should route around an instance that stopped heartbeating and drop its registry entry")
+    void flush_PrunesGoneNodes() {
+        // Arrange
+        pipelineResults.add(List.of(Set.of("node-b", "node-gone"), Set.of("node-a", "node-b")));
+
+        // Act
+        bus.publish(battleId, event(BattleEvent.EventType.PLAYER_JOINED, Map.of()));
+        bus.flush();
+
+        // Assert
+        verify(pipeline).convertAndSend(eq(BattleEventBus.NODE_CHANNEL_PREFIX + "node-b"), any());
+        verify(pipeline, never()).convertAndSend(eq(BattleEventBus.NODE_CHANNEL_PREFIX + "node-gone"), any());
+        verify(setOperations).remove(BattleEventBus.SUBSCRIBERS_PREFIX + battleId, "node-gone");
+        assertEquals(1, meterRegistry.get("battle.events.remote.batches").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should heartbeat and re-assert the registry entries of locally watched battles")
+    void heartbeat_ReassertsRegistryEntries() {
+        // Arrange
+        subscribe("s1", "sub-1", battleId);
+
+        // Act
+        bus.heartbeat();
+
+        // Assert: once on subscribe, once more on the heartbeat
+        verify(zSetOperations).add(eq(BattleEventBus.NODES_KEY), eq("node-a"), anyDouble());
+        verify(zSetOperations).removeRangeByScore(eq(BattleEventBus.NODES_KEY), eq(0.0), anyDouble());
+        verify(setOperations, times(2)).add(BattleEventBus.SUBSCRIBERS_PREFIX + battleId, "node-a");
+        verify(pipeline).expire(eq(BattleEventBus.SUBSCRIBERS_PREFIX + battleId), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Should register the instance on the first local subscriber and leave on the last")
+    void subscriptions_MaintainRegistry() {
+        // Act
+        subscribe("s1", "sub-1", battleId);
+        subscribe("s2", "sub-7", battleId);
+        subscribe("s2", "sub-8", UUID.randomUUID());
+        disconnect("s1");
+
+        // Assert: still watched by s2
+        verify(setOperations, times(1)).add(BattleEventBus.SUBSCRIBERS_PREFIX + battleId, "node-a");
+        verify(setOperations, never()).remove(BattleEventBus.SUBSCRIBERS_PREFIX + battleId, "node-a");
+
+        // Act
+        disconnect("s2");
+
+        // Assert
+        verify(setOperations).remove(BattleEventBus.SUBSCRIBERS_PREFIX + battleId, "node-a");
+    }
+
+    @Test
+    @DisplayName("Should deliver a batch from another instance to local subscribers")
+    @SuppressWarnings("unchecked")
+    void onMessage_DeliversBatch() {
+        // Arrange
+        BattleEvent event = event(BattleEvent.EventType.PLAYER_READY, Map.of());
+        BattleEventBatch batch = new BattleEventBatch("node-b",
+                new ArrayList<>(List.of(new BattleEventBatch.Delivery(battleId, event))));
+        RedisSerializer<Object> serializer = mock(RedisSerializer.class);
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) serializer);
+        when(serializer.deserialize(any())).thenReturn(batch);
+
+        // Act
+        bus.onMessage(new DefaultMessage("battle-events:node:node-a".getBytes(), new byte[0]), null);
+
+        // Assert
+        verify(messagingTemplate).convertAndSend("/topic/battle/" + battleId, (Object) event);
+    }
+
+    @Test
+    @DisplayName("Should leave fan-out to the STOMP broker relay and keep out of the registry")
+    void relayMode_SendsOnceToBroker() {
+        // Arrange
+        ReflectionTestUtils.setField(bus, "brokerMode", "relay");
+        // init() heartbeated before the switch to relay mode
+        clearInvocations(redisTemplate);
+        BattleEvent timer60 = event(BattleEvent.EventType.TIMER_UPDATE, Map.of("remainingSeconds", 60L));
+        BattleEvent timer59 = event(BattleEvent.EventType.TIMER_UPDATE, Map.of("remainingSeconds", 59L));
+
+        // Act
+        subscribe("s1", "sub-1", battleId);
+        bus.publish(battleId, timer60);
+        bus.publish(battleId, timer59);
+        bus.flush();
+
+        // Assert
+        verify(messagingTemplate).convertAndSend("/topic/battle/" + battleId, timer59,
+                Map.of(SessionOutboundQueues.CONFLATION_KEY_HEADER, "timer:" + battleId));
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+        verify(setOperations, never()).add(anyString(), any());
+    }
+
+    // Helper methods
+
+    private void subscribe(String sessionId, String subscriptionId, UUID battle) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination("/topic/battle/" + battle);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        bus.onSubscribe(new SessionSubscribeEvent(this, message));
+    }
+
+    private void disconnect(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        accessor.setSessionId(sessionId);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        bus.onDisconnect(new SessionDisconnectEvent(this, message, sessionId, CloseStatus.NORMAL));
+    }
+
+    private BattleEvent event(BattleEvent.EventType type, Map<String, Object> payload) {
+        return BattleEvent.builder().type(type).battleId(battleId).payload(payload).build();
+    }
+
+    private SubmissionResponseDto status(SubmissionStatus status) {
+        return SubmissionResponseDto.builder().id(UUID.randomUUID()).battleId(battleId).status(status).build();
+    }
+}
@@ -7,13 +7,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 import java.util.*;
@@ -45,10 +47,22 @@ class BattleServiceTest {
     private ValueOperations<String, Object> valueOperations;
 
     @Mock
-    private ListOperations<String, Object> listOperations;
+    private BattleTimerScheduler battleTimerScheduler;
 
     @Mock
-    private SimpMessagingTemplate messagingTemplate;
+    private MatchmakingQueue matchmakingQueue;
+
+    @Mock
+    private OpenBattleIndex openBattleIndex;
+
+    @Mock
+    private BattleStateStore battleStateStore;
+
+    @Mock
+    private LobbyView lobbyView;
+
+    @Mock
+    private BattleEventBus battleEventBus;
 
     @InjectMocks
     private BattleService battleService;
@@ -65,7 +79,6 @@ class BattleServiceTest {
         // Set configuration values using reflection
         ReflectionTestUtils.setField(battleService, "defaultDurationSeconds", 1800);
         ReflectionTestUtils.setField(battleService, "defaultMaxParticipants", 2);
-        ReflectionTestUtils.setField(battleService, "queueTimeoutSeconds", 300);
 
         // Create test user 1
         testUser1 = User.builder()
@@ -177,7 +190,8 @@ class BattleServiceTest {
         assertEquals(testBattle.getId(), result.getId());
         verify(battleRepository).save(any(Battle.class));
         verify(participantRepository).save(any(BattleParticipant.class));
-        verify(valueOperations).set(eq("battle:state:" + testBattle.getId()), any(BattleState.class), anyLong(), any());
+        verify(openBattleIndex).open(testBattle, 1);
+        verify(battleStateStore).save(argThat(state -> state.getBattleId().equals(testBattle.getId())));
         verify(valueOperations).set(eq("user:battle:" + testUser1.getId()), anyString(), anyLong(), any());
     }
 
@@ -261,7 +275,6 @@ class BattleServiceTest {
         when(battleRepository.findByRoomCode("TEST1234")).thenReturn(Optional.of(testBattle));
         when(participantRepository.existsByBattleIdAndUserId(testBattle.getId(), testUser2.getId())).thenReturn(false);
         when(participantRepository.save(any(BattleParticipant.class))).thenReturn(testParticipant);
-        when(valueOperations.get("battle:state:" + testBattle.getId())).thenReturn(testBattleState);
 
         // Act
         BattleResponseDto result = battleService.joinBattleByRoomCode(testUser2.getId(), "TEST1234");
@@ -270,7 +283,9 @@ class BattleServiceTest {
         assertNotNull(result);
         assertEquals(testBattle.getId(), result.getId());
         verify(participantRepository).save(any(BattleParticipant.class));
-        verify(messagingTemplate).convertAndSend(eq("/topic/battle/" + testBattle.getId()), any(BattleEvent.class));
+        verify(battleStateStore).addParticipant(eq(testBattle.getId()),
+                argThat(participant -> participant.getOduserId().equals(testUser2.getId())));
+        verify(battleEventBus).publish(eq(testBattle.getId()), any(BattleEvent.class));
     }
 
     @Test
@@ -283,7 +298,6 @@ class BattleServiceTest {
         when(battleRepository.findById(testBattle.getId())).thenReturn(Optional.of(testBattle));
         when(participantRepository.existsByBattleIdAndUserId(testBattle.getId(), testUser2.getId())).thenReturn(false);
         when(participantRepository.save(any(BattleParticipant.class))).thenReturn(testParticipant);
-        when(valueOperations.get("battle:state:" + testBattle.getId())).thenReturn(testBattleState);
 
         // Act
         BattleResponseDto result = battleService.joinBattleById(testUser2.getId(), testBattle.getId());
@@ -291,6 +305,7 @@ class BattleServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(testBattle.getId(), result.getId());
+        verify(openBattleIndex).take(testBattle.getId());
     }
 
     @Test
@@ -380,38 +395,29 @@ class BattleServiceTest {
         when(userRepository.findById(testUser1.getId())).thenReturn(Optional.of(testUser1));
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         when(valueOperations.get("user:battle:" + testUser1.getId())).thenReturn(null);
-        when(battleRepository.findAvailablePublicBattles(BattleStatus.WAITING)).thenReturn(Collections.emptyList());
-        when(redisTemplate.opsForList()).thenReturn(listOperations);
-        when(listOperations.range(eq("matchmaking:queue"), eq(0L), eq(-1L))).thenReturn(Collections.emptyList());
+        when(openBattleIndex.reserve()).thenReturn(null);
+        when(matchmakingQueue.claimMatch(testUser1.getId(), testUser1.getRatingScore())).thenReturn(null);
 
         // Act
         BattleResponseDto result = battleService.findOrQueueMatch(testUser1.getId());
 
         // Assert
         assertNull(result);
-        verify(listOperations).rightPush(eq("matchmaking:queue"), any(MatchmakingEntry.class));
+        verify(matchmakingQueue).add(argThat(entry -> entry.getOduserId().equals(testUser1.getId())
+                && entry.getRatingScore() == testUser1.getRatingScore()));
     }
 
     @Test
     @DisplayName("Should cancel matchmaking successfully")
     void cancelMatchmaking_Success() {
         // Arrange
-        MatchmakingEntry entry = MatchmakingEntry.builder()
-                .oduserId(testUser1.getId())
-                .username(testUser1.getUsername())
-                .ratingScore(testUser1.getRatingScore())
-                .queuedAt(Instant.now())
-                .build();
-
-        when(redisTemplate.opsForList()).thenReturn(listOperations);
-        when(listOperations.range(eq("matchmaking:queue"), eq(0L), eq(-1L)))
-                .thenReturn(Collections.singletonList(entry));
+        when(matchmakingQueue.remove(testUser1.getId())).thenReturn(true);
 
         // Act
         battleService.cancelMatchmaking(testUser1.getId());
 
         // Assert
-        verify(listOperations).remove(eq("matchmaking:queue"), eq(1L), eq(entry));
+        verify(matchmakingQueue).remove(testUser1.getId());
     }
 
     // ==================== PLAYER READY TESTS ====================
@@ -425,8 +431,7 @@ class BattleServiceTest {
         when(participantRepository.findByBattleIdAndUserId(testBattle.getId(), testUser1.getId()))
                 .thenReturn(Optional.of(testParticipant));
         when(participantRepository.save(any(BattleParticipant.class))).thenReturn(testParticipant);
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get("battle:state:" + testBattle.getId())).thenReturn(testBattleState);
+        when(battleStateStore.get(testBattle.getId())).thenReturn(testBattleState);
 
         // Act
         BattleResponseDto result = battleService.setPlayerReady(testUser1.getId(), testBattle.getId(), true);
@@ -434,7 +439,8 @@ class BattleServiceTest {
         // Assert
         assertNotNull(result);
         verify(participantRepository).save(argThat(participant -> participant.isReady()));
-        verify(messagingTemplate).convertAndSend(eq("/topic/battle/" + testBattle.getId()), any(BattleEvent.class));
+        verify(battleStateStore).setReady(testBattle.getId(), testUser1.getId(), true);
+        verify(battleEventBus).publish(eq(testBattle.getId()), any(BattleEvent.class));
     }
 
     @Test
@@ -482,8 +488,7 @@ class BattleServiceTest {
 
         when(battleRepository.findById(testBattle.getId())).thenReturn(Optional.of(testBattle));
         when(battleRepository.save(any(Battle.class))).thenReturn(testBattle);
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get("battle:state:" + testBattle.getId())).thenReturn(testBattleState);
+        when(battleStateStore.start(eq(testBattle.getId()), any(Instant.class))).thenReturn(true);
 
         // Act
         battleService.startBattle(testBattle.getId());
@@ -492,10 +497,38 @@ class BattleServiceTest {
         verify(battleRepository).save(argThat(battle -> 
                 battle.getStatus() == BattleStatus.IN_PROGRESS && battle.getStartedAt() != null
         ));
-        verify(messagingTemplate, atLeast(2)).convertAndSend(
-                eq("/topic/battle/" + testBattle.getId()), 
-                any(BattleEvent.class)
-        );
+        verify(battleTimerScheduler).schedule(eq(testBattle.getId()), eq(testBattle.getRoomCode()), any(Instant.class));
+        verify(battleEventBus, atLeast(2)).publish(eq(testBattle.getId()), any(BattleEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should put the Redis state back when the start does not commit")
+    void startBattle_RolledBack_RevertsState() {
+        // Arrange
+        testBattle.getParticipants().add(testParticipant);
+        testBattle.getParticipants().add(BattleParticipant.builder()
+                .id(UUID.randomUUID())
+                .battle(testBattle)
+                .user(testUser2)
+                .build());
+
+        when(battleRepository.findById(testBattle.getId())).thenReturn(Optional.of(testBattle));
+        when(battleStateStore.start(eq(testBattle.getId()), any(Instant.class))).thenReturn(true);
+        List<TransactionSynchronization> synchronizations;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            battleService.startBattle(testBattle.getId());
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Act
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Assert
+        verify(battleStateStore).revertStart(testBattle.getId(), testBattle.getStartedAt());
     }
 
     @Test
@@ -533,21 +566,30 @@ class BattleServiceTest {
         
         when(participantRepository.findByBattleIdAndUserId(testBattle.getId(), testUser1.getId()))
                 .thenReturn(Optional.of(testParticipant));
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get("battle:state:" + testBattle.getId())).thenReturn(testBattleState);
+        when(battleStateStore.removeParticipant(testBattle.getId(), testUser1.getId())).thenReturn(1L);
 
-        // Act
         // Act
         battleService.leaveBattle(testUser1.getId(), testBattle.getId());
 
         // Assert
         verify(participantRepository).delete(testParticipant);
         verify(redisTemplate).delete("user:battle:" + testUser1.getId());
-        verify(messagingTemplate).convertAndSend(eq("/topic/battle/" + testBattle.getId()), any(BattleEvent.class));
-    }@Test
+        verify(battleEventBus).publish(eq(testBattle.getId()), any(BattleEvent.class));
+    }
 
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get("battle:state:" + testBattle.getId())).thenReturn(testBattleState);
+    // ==================== END BATTLE TESTS ====================
+
+    @Test
+    @DisplayName("Should end battle with winner successfully")
+    void endBattle_WithWinner_Success() {
+        // Arrange
+        testBattle.getParticipants().add(testParticipant);
+
+        when(battleRepository.findById(testBattle.getId())).thenReturn(Optional.of(testBattle));
+        when(battleRepository.save(any(Battle.class))).thenReturn(testBattle);
+        when(userRepository.findById(testUser1.getId())).thenReturn(Optional.of(testUser1));
+        when(userRepository.save(any(User.class))).thenReturn(testUser1);
+        when(battleStateStore.finish(eq(testBattle.getId()), any(), any(Instant.class))).thenReturn(true);
 
         // Act
         battleService.endBattle(testBattle.getId(), testUser1.getId());
@@ -558,10 +600,11 @@ class BattleServiceTest {
                 battle.getWinner() != null &&
                 battle.getFinishedAt() != null
         ));
-        verify(userRepository).save(argThat(user -> 
+        // The winner is saved once for the win and once more as a participant
+        verify(userRepository, times(2)).save(argThat(user -> 
                 user.getId().equals(testUser1.getId()) && user.getBattlesWon() == 6
         ));
-        verify(messagingTemplate).convertAndSend(eq("/topic/battle/" + testBattle.getId()), any(BattleEvent.class));
+        verify(battleEventBus).publish(eq(testBattle.getId()), any(BattleEvent.class));
     }
 
     @Test
@@ -573,8 +616,7 @@ class BattleServiceTest {
         when(battleRepository.findById(testBattle.getId())).thenReturn(Optional.of(testBattle));
         when(battleRepository.save(any(Battle.class))).thenReturn(testBattle);
         when(userRepository.save(any(User.class))).thenReturn(testUser1);
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get("battle:state:" + testBattle.getId())).thenReturn(testBattleState);
+        when(battleStateStore.finish(eq(testBattle.getId()), any(), any(Instant.class))).thenReturn(true);
 
         // Act
         battleService.endBattle(testBattle.getId(), null);
@@ -594,8 +636,7 @@ class BattleServiceTest {
         testBattle.getParticipants().add(testParticipant);
         
         when(battleRepository.findById(testBattle.getId())).thenReturn(Optional.of(testBattle));
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get("battle:state:" + testBattle.getId())).thenReturn(testBattleState);
+        when(battleStateStore.get(testBattle.getId())).thenReturn(testBattleState);
 
         // Act
         BattleResponseDto result = battleService.getBattle(testBattle.getId());
@@ -622,8 +663,7 @@ class BattleServiceTest {
     @DisplayName("Should get battle state from Redis")
     void getBattleState_Success() {
         // Arrange
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get("battle:state:" + testBattle.getId())).thenReturn(testBattleState);
+        when(battleStateStore.get(testBattle.getId())).thenReturn(testBattleState);
 
         // Act
         BattleState result = battleService.getBattleState(testBattle.getId());
@@ -639,33 +679,33 @@ class BattleServiceTest {
     void getUserBattles_Success() {
         // Arrange
         List<Battle> battles = Arrays.asList(testBattle);
-        when(battleRepository.findByUserIdOrderByCreatedAtDesc(testUser1.getId())).thenReturn(battles);
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get(anyString())).thenReturn(testBattleState);
+        when(battleRepository.findPageByUserId(eq(testUser1.getId()), any(Pageable.class))).thenReturn(battles);
+        when(battleStateStore.getAll(anyList())).thenReturn(Map.of(testBattle.getId(), testBattleState));
 
         // Act
-        List<BattleResponseDto> result = battleService.getUserBattles(testUser1.getId());
+        CursorPage<BattleResponseDto> result = battleService.getUserBattles(testUser1.getId(), null, 20);
 
         // Assert
         assertNotNull(result);
-        assertEquals(1, result.size());
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
     }
 
     @Test
-    @DisplayName("Should get active battles successfully")
+    @DisplayName("Should get active battles from the lobby view")
     void getActiveBattles_Success() {
         // Arrange
-        List<Battle> battles = Arrays.asList(testBattle);
-        when(battleRepository.findByStatusIn(anyList())).thenReturn(battles);
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get(anyString())).thenReturn(testBattleState);
+        CursorPage<LobbyBattleDto> page = CursorPage.<LobbyBattleDto>builder()
+                .items(List.of(LobbyBattleDto.builder().id(testBattle.getId()).build()))
+                .version(3L)
+                .build();
+        when(lobbyView.page(null, BattleService.MAX_PAGE_SIZE, Difficulty.EASY, 1)).thenReturn(page);
 
         // Act
-        List<BattleResponseDto> result = battleService.getActiveBattles();
+        CursorPage<LobbyBattleDto> result = battleService.getActiveBattles(null, 500, Difficulty.EASY, 1);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(1, result.size());
+        assertSame(page, result);
     }
 
     // ==================== CANCEL BATTLE TESTS ====================
@@ -678,7 +718,6 @@ class BattleServiceTest {
         
         when(battleRepository.findById(testBattle.getId())).thenReturn(Optional.of(testBattle));
         when(battleRepository.save(any(Battle.class))).thenReturn(testBattle);
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
 
         // Act
         battleService.cancelBattle(testBattle.getId());
@@ -687,8 +726,10 @@ class BattleServiceTest {
         verify(battleRepository).save(argThat(battle -> 
                 battle.getStatus() == BattleStatus.CANCELLED && battle.getFinishedAt() != null
         ));
+        verify(battleTimerScheduler).cancel(testBattle.getId());
+        verify(openBattleIndex).close(testBattle.getId());
         verify(redisTemplate).delete("user:battle:" + testUser1.getId());
-        verify(redisTemplate).delete("battle:state:" + testBattle.getId());
-        verify(messagingTemplate).convertAndSend(eq("/topic/battle/" + testBattle.getId()), any(BattleEvent.class));
+        verify(battleStateStore).delete(testBattle.getId());
+        verify(battleEventBus).publish(eq(testBattle.getId()), any(BattleEvent.class));
     }
 }
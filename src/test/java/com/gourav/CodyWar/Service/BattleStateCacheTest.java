@@ -0,0 +1,152 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.BattleState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Battle State Cache Tests")
+class BattleStateCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BattleStateCache cache;
+    private final UUID battleId = UUID.randomUUID();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<UUID, BattleState> loader = id -> {
+        loads.incrementAndGet();
+        return BattleState.builder().battleId(id).build();
+    };
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new BattleStateCache(meterRegistry);
+        cache.registerMetrics();
+    }
+
+    @Test
+    @DisplayName("Should serve repeated reads from memory and report the hit ratio")
+    void get_RepeatedReads_Hit() {
+        // Act
+        BattleState first = cache.get(battleId, loader);
+        BattleState second = cache.get(battleId, loader);
+        cache.get(battleId, loader);
+        cache.get(battleId, loader);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(0.75, meterRegistry.get("battle.state.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should reload after an invalidation")
+    void invalidate_ForcesReload() {
+        // Arrange
+        cache.get(battleId, loader);
+
+        // Act
+        cache.invalidate(battleId);
+        cache.get(battleId, loader);
+
+        // Assert
+        assertEquals(2, loads.get());
+        assertEquals(1, meterRegistry.get("battle.state.cache.invalidations").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not cache a value loaded while the battle was being invalidated")
+    void get_InvalidatedDuringLoad_NotCached() {
+        // Act
+        cache.get(battleId, id -> {
+            cache.invalidate(id);
+            return loader.apply(id);
+        });
+        cache.get(battleId, loader);
+
+        // Assert
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should still cache a value when only another battle was invalidated during the load")
+    void get_OtherBattleInvalidatedDuringLoad_Cached() {
+        // Act
+        cache.get(battleId, id -> {
+            cache.invalidate(UUID.randomUUID());
+            return loader.apply(id);
+        });
+        cache.get(battleId, loader);
+
+        // Assert
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should reload once the TTL has passed")
+    void get_Expired_Reloads() {
+        // Arrange
+        ReflectionTestUtils.setField(cache, "ttlMs", 0L);
+
+        // Act
+        cache.get(battleId, loader);
+        cache.get(battleId, loader);
+
+        // Assert
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should load only the misses of a bulk read, in one call")
+    void getAll_LoadsMissesTogether() {
+        // Arrange
+        UUID other = UUID.randomUUID();
+        cache.get(battleId, loader);
+        List<List<UUID>> bulkLoads = new ArrayList<>();
+
+        // Act
+        Map<UUID, BattleState> states = cache.getAll(List.of(battleId, other, other), ids -> {
+            bulkLoads.add(ids);
+            return Map.of(other, loader.apply(other));
+        });
+        cache.get(other, loader);
+
+        // Assert
+        assertEquals(Set.of(battleId, other), states.keySet());
+        assertEquals(List.of(List.of(other)), bulkLoads);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used battle beyond the size bound")
+    void get_OverCapacity_EvictsLeastRecentlyUsed() {
+        // Arrange
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        UUID other = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        cache.get(battleId, loader);
+        cache.get(other, loader);
+        cache.get(battleId, loader);
+
+        // Act
+        cache.get(third, loader);
+        cache.get(battleId, loader);
+        cache.get(other, loader);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(4, loads.get());
+    }
+}
@@ -0,0 +1,382 @@
+package com.gourav.CodyWar.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gourav.CodyWar.Domain.Dto.BattleState;
+import com.gourav.CodyWar.Domain.Dto.BattleStateDelta;
+import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Battle State Store Tests")
+class BattleStateStoreTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private SetOperations<String, Object> setOperations;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    @Mock
+    private BattleEventPublisher battleEventPublisher;
+
+    @Mock
+    private BattleEventBus battleEventBus;
+
+    private BattleStateStore store;
+    private final UUID battleId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        BattleStateCache cache = new BattleStateCache(new SimpleMeterRegistry());
+        cache.registerMetrics();
+        store = new BattleStateStore(redisTemplate, cache, battleEventPublisher, battleEventBus);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    @DisplayName("Should assemble the state from the battle hash and one hash per participant")
+    void get_AssemblesStateFromHashes() {
+        // Arrange
+        Instant startedAt = Instant.ofEpochMilli(1_700_000_000_000L);
+        Map<Object, Object> battle = battleFields("IN_PROGRESS", 7);
+        battle.put("startedAt", startedAt.toEpochMilli());
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(battle, Set.of(userId.toString())))
+                .thenReturn(List.of(Map.of("username", "alice", "ready", true, "score", 4)));
+
+        // Act
+        BattleState state = store.get(battleId);
+
+        // Assert
+        assertEquals(battleId, state.getBattleId());
+        assertEquals(BattleStatus.IN_PROGRESS, state.getStatus());
+        assertEquals(startedAt, state.getStartedAt());
+        assertEquals(7, state.getVersion());
+        BattleState.ParticipantState participant = state.getParticipants().iterator().next();
+        assertEquals(userId, participant.getOduserId());
+        assertTrue(participant.isReady());
+        assertEquals(4, participant.getScore());
+    }
+
+    @Test
+    @DisplayName("Should flip ready with one field update on the participant hash")
+    void setReady_UpdatesSingleField() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of(2L, 1L));
+
+        // Act
+        store.setReady(battleId, userId, true);
+
+        // Assert
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of(BattleStateStore.battleKey(battleId),
+                        BattleStateStore.participantKey(battleId, userId.toString()),
+                        BattleStateStore.membersKey(battleId))),
+                args.capture());
+        // Expected version, then the TTL every change restarts, then the op
+        assertArrayEquals(new Object[]{0L, TimeUnit.HOURS.toMillis(4), "set", BattleStateStore.READY, true},
+                args.getValue());
+        verify(valueOperations, never()).set(anyString(), any());
+        verify(battleEventPublisher).publishStateChanged(battleId);
+    }
+
+    @Test
+    @DisplayName("Should keep the best score whatever order results arrive in")
+    void recordSubmission_UsesMaxForScore() {
+        // Arrange
+        UUID submissionId = UUID.randomUUID();
+
+        // Act
+        store.recordSubmission(battleId, userId, submissionId, 3);
+
+        // Assert
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), args.capture());
+        List<Object> ops = List.of(args.getValue());
+        int score = ops.indexOf(BattleStateStore.SCORE);
+        assertEquals("max", ops.get(score - 1));
+        assertEquals(3, ops.get(score + 1));
+    }
+
+    @Test
+    @DisplayName("Should retry a start on a fresh read when the version moved")
+    void start_VersionConflict_RetriesWithFreshVersion() {
+        // Arrange
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(battleFields("WAITING", 3), Set.of()))
+                .thenReturn(List.of(battleFields("WAITING", 4), Set.of()));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of(-1L), List.of(5L, 0L));
+
+        // Act
+        boolean started = store.start(battleId, Instant.now());
+
+        // Assert
+        assertTrue(started);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), args.capture());
+        assertEquals(3L, args.getAllValues().get(0)[0]);
+        assertEquals(4L, args.getAllValues().get(1)[0]);
+        ArgumentCaptor<Object> delta = ArgumentCaptor.forClass(Object.class);
+        verify(battleEventBus, times(1)).publish(eq(battleId), delta.capture());
+        assertEquals(5L, ((BattleStateDelta) delta.getValue()).getSeq());
+        assertEquals("IN_PROGRESS", ((BattleStateDelta) delta.getValue()).getValue());
+    }
+
+    @Test
+    @DisplayName("Should refuse to start a battle another caller already started")
+    void start_AlreadyStarted_ReturnsFalse() {
+        // Arrange
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(battleFields("IN_PROGRESS", 9), Set.of()));
+
+        // Act & Assert
+        assertFalse(store.start(battleId, Instant.now()));
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Should put a battle back to waiting when the transaction that started it rolled back")
+    void revertStart_StillStartedBySameCall_GoesBackToWaiting() {
+        // Arrange
+        Instant startedAt = Instant.ofEpochMilli(1_700_000_000_000L);
+        Map<Object, Object> fields = battleFields("IN_PROGRESS", 6);
+        fields.put("startedAt", startedAt.toEpochMilli());
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(fields, Set.of()));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of(7L, 0L));
+
+        // Act
+        store.revertStart(battleId, startedAt);
+
+        // Assert
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), args.capture());
+        List<Object> ops = List.of(args.getValue());
+        assertEquals(6L, ops.get(0));
+        assertEquals("WAITING", ops.get(ops.indexOf(BattleStateStore.STATUS) + 1));
+        assertEquals("del", ops.get(ops.indexOf(BattleStateStore.STARTED_AT) - 1));
+        ArgumentCaptor<Object> delta = ArgumentCaptor.forClass(Object.class);
+        verify(battleEventBus).publish(eq(battleId), delta.capture());
+        assertEquals("WAITING", ((BattleStateDelta) delta.getValue()).getValue());
+        assertNull(((BattleStateDelta) delta.getValue()).getAt());
+    }
+
+    @Test
+    @DisplayName("Should leave a battle alone that a later start or end moved on")
+    void revertFinish_FinishedByAnotherCall_LeavesState() {
+        // Arrange
+        Map<Object, Object> fields = battleFields("COMPLETED", 8);
+        fields.put("finishedAt", 1_700_000_500_000L);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(fields, Set.of()));
+
+        // Act
+        store.revertFinish(battleId, BattleStatus.IN_PROGRESS, Instant.ofEpochMilli(1_700_000_400_000L));
+
+        // Assert
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        verify(battleEventBus, never()).publish(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should move state stored as a single value by older builds into the hashes")
+    void get_LegacyValue_Migrates() {
+        // Arrange
+        BattleState legacy = BattleState.builder()
+                .battleId(battleId)
+                .status(BattleStatus.WAITING)
+                .maxParticipants(2)
+                .build();
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(Map.of(), Set.of(), legacy));
+
+        // Act
+        BattleState state = store.get(battleId);
+
+        // Assert
+        assertSame(legacy, state);
+        verify(hashOperations).putAll(eq(BattleStateStore.battleKey(battleId)), anyMap());
+        verify(redisTemplate).delete(BattleStateStore.KEY_PREFIX + battleId);
+        // Read in the same pipeline as the hashes, not by a GET per battle
+        verify(valueOperations, never()).get(any());
+    }
+
+    @Test
+    @DisplayName("Should read a whole page of battles in two pipelined round trips, legacy values included")
+    void getAll_LoadsEveryBattleInTwoRoundTrips() {
+        // Arrange
+        UUID otherBattleId = UUID.randomUUID();
+        UUID otherUserId = UUID.randomUUID();
+        UUID missingBattleId = UUID.randomUUID();
+        Map<Object, Object> other = battleFields("IN_PROGRESS", 2);
+        other.put("battleId", otherBattleId.toString());
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(Arrays.asList(
+                        battleFields("WAITING", 1), Set.of(userId.toString()), null,
+                        other, Set.of(otherUserId.toString()), null,
+                        Map.of(), Set.of(), null))
+                .thenReturn(List.of(
+                        Map.of("username", "alice", "ready", true),
+                        Map.of("username", "bob", "score", 9)));
+
+        // Act
+        Map<UUID, BattleState> states = store.getAll(List.of(battleId, otherBattleId, missingBattleId));
+
+        // Assert
+        verify(redisTemplate, times(2)).executePipelined(any(SessionCallback.class));
+        assertEquals(Set.of(battleId, otherBattleId), states.keySet());
+        assertEquals("alice", states.get(battleId).getParticipants().iterator().next().getUsername());
+        BattleState.ParticipantState bob = states.get(otherBattleId).getParticipants().iterator().next();
+        assertEquals(otherUserId, bob.getOduserId());
+        assertEquals(9, bob.getScore());
+
+        // Cached now: a second listing of the same battles only reads the one without state
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(Map.of(), Set.of()));
+        store.getAll(List.of(battleId, otherBattleId, missingBattleId));
+        verify(redisTemplate, times(3)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    @DisplayName("Should publish a ready flip as a delta numbered with the new version, in a few dozen bytes")
+    void setReady_PublishesCompactDelta() throws Exception {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of(17L, 2L));
+
+        // Act
+        store.setReady(battleId, userId, true);
+
+        // Assert
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(battleEventBus).publish(eq(battleId), published.capture());
+        BattleStateDelta delta = (BattleStateDelta) published.getValue();
+        assertEquals(BattleStateDelta.builder().seq(17).op(BattleStateDelta.Op.READY).slot(2).value(true).build(), delta);
+        String json = new ObjectMapper().writeValueAsString(delta);
+        assertEquals("{\"seq\":17,\"op\":\"READY\",\"p\":2,\"v\":true}", json);
+    }
+
+    @Test
+    @DisplayName("Should announce a join with the slot the script assigned")
+    void addParticipant_PublishesJoinWithSlot() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of(4L, 3L));
+
+        // Act
+        store.addParticipant(battleId, BattleState.ParticipantState.builder()
+                .oduserId(userId)
+                .username("carol")
+                .build());
+
+        // Assert
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(battleEventBus).publish(eq(battleId), published.capture());
+        BattleStateDelta delta = (BattleStateDelta) published.getValue();
+        assertEquals(BattleStateDelta.Op.JOIN, delta.getOp());
+        assertEquals(4L, delta.getSeq());
+        assertEquals(3, delta.getSlot());
+        assertEquals(userId, delta.getUserId());
+        assertEquals("carol", delta.getUsername());
+    }
+
+    @Test
+    @DisplayName("Should send the best score, not the one just submitted")
+    void recordSubmission_DeltaCarriesBestScore() {
+        // Arrange: the script kept an earlier 9 over this 3
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of(8L, 1L, 9L));
+
+        // Act
+        store.recordSubmission(battleId, userId, UUID.randomUUID(), 3);
+
+        // Assert
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(battleEventBus).publish(eq(battleId), published.capture());
+        assertEquals(BattleStateDelta.builder().seq(8).op(BattleStateDelta.Op.SCORE).slot(1).value(9).build(),
+                published.getValue());
+    }
+
+    @Test
+    @DisplayName("Should publish nothing when the change did not happen")
+    void noChange_NoDelta() {
+        // Arrange: battle gone, and a leave of someone who was not a participant
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of(0L), List.of(1L, 0L, 0L));
+
+        // Act
+        store.setReady(battleId, userId, true);
+        long remaining = store.removeParticipant(battleId, userId);
+
+        // Assert
+        assertEquals(1, remaining);
+        verify(battleEventBus, never()).publish(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should number participants of a saved state and read the slots back")
+    void save_AssignsSlots() {
+        // Arrange
+        BattleState state = BattleState.builder()
+                .battleId(battleId)
+                .status(BattleStatus.WAITING)
+                .maxParticipants(2)
+                .build();
+        state.getParticipants().add(BattleState.ParticipantState.builder().oduserId(userId).username("alice").build());
+
+        // Act
+        store.save(state);
+
+        // Assert
+        ArgumentCaptor<Map<String, Object>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(hashOperations, times(2)).putAll(anyString(), fields.capture());
+        assertEquals(1, fields.getAllValues().get(0).get(BattleStateStore.SLOTS));
+        assertEquals(1, fields.getAllValues().get(1).get(BattleStateStore.SLOT));
+    }
+
+    // Helper methods
+
+    private Map<Object, Object> battleFields(String status, int version) {
+        Map<Object, Object> fields = new HashMap<>();
+        fields.put("battleId", battleId.toString());
+        fields.put("status", status);
+        fields.put("maxParticipants", 2);
+        fields.put("durationSeconds", 1800);
+        fields.put("version", version);
+        return fields;
+    }
+}
@@ -0,0 +1,274 @@
+package com.gourav.CodyWar.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Battle Timer Scheduler Tests")
+class BattleTimerSchedulerTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, Object> zSetOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ListOperations<String, Object> listOperations;
+
+    @Mock
+    private ObjectProvider<BattleService> battleServiceProvider;
+
+    @Mock
+    private BattleService battleService;
+
+    private BattleTimerScheduler scheduler;
+    private final UUID battleId = UUID.randomUUID();
+    private final String deadlinesKey = BattleTimerScheduler.DEADLINES_PREFIX + "0";
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new BattleTimerScheduler(redisTemplate, battleServiceProvider, new SimpleMeterRegistry());
+        // One shard keeps every battle on the single lease these tests hand out
+        ReflectionTestUtils.setField(scheduler, "shardCount", 1);
+        ReflectionTestUtils.setField(scheduler, "nodeId", "node-a");
+        // Ticks jump ahead without rebalancing in between, so the lease must outlast them
+        ReflectionTestUtils.setField(scheduler, "leaseMs", 3_600_000L);
+        scheduler.init();
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.opsForList()).thenReturn(listOperations);
+        when(zSetOperations.range("battle:timer:nodes", 0, -1)).thenReturn(Set.of("node-a"));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(List.of(1L));
+        when(battleServiceProvider.getObject()).thenReturn(battleService);
+    }
+
+    @Test
+    @DisplayName("Should announce only the resync point, then expire")
+    void nextAnnouncedSeconds_AnnouncesResyncPointOnly() {
+        long deadline = 10_000_000;
+
+        assertEquals(10, BattleTimerScheduler.nextAnnouncedSeconds(deadline, deadline - 1_800_000, 10));
+        assertEquals(10, BattleTimerScheduler.nextAnnouncedSeconds(deadline, deadline - 10_001, 10));
+        assertEquals(0, BattleTimerScheduler.nextAnnouncedSeconds(deadline, deadline - 10_000, 10));
+        assertEquals(0, BattleTimerScheduler.nextAnnouncedSeconds(deadline, deadline - 1_000, 10));
+        assertEquals(0, BattleTimerScheduler.nextAnnouncedSeconds(deadline, deadline + 5, 10));
+        assertEquals(0, BattleTimerScheduler.nextAnnouncedSeconds(deadline, deadline - 1_800_000, 0));
+    }
+
+    @Test
+    @DisplayName("Should only wake a battle for its resync update and end it exactly once")
+    void tick_AnnouncesThenExpiresOnce() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        when(zSetOperations.remove(deadlinesKey, battleId.toString())).thenReturn(1L, 0L);
+        scheduler.rebalance();
+        scheduler.schedule(battleId, "ROOM", Instant.ofEpochMilli(now + 70_000));
+
+        // Act
+        scheduler.tick(now + 5_000);
+        scheduler.tick(now + 10_200);
+        verifyNoInteractions(battleService);
+        scheduler.tick(now + 60_200);
+        scheduler.tick(now + 61_200);
+        scheduler.tick(now + 70_200);
+        scheduler.tick(now + 70_400);
+        scheduler.tick(now + 80_000);
+        scheduler.recoverOrphans();
+
+        // Assert
+        InOrder inOrder = inOrder(battleService);
+        inOrder.verify(battleService).broadcastTimerUpdate(battleId, "ROOM", 10);
+        inOrder.verify(battleService).expireBattle(battleId);
+        verify(battleService, times(1)).broadcastTimerUpdate(eq(battleId), eq("ROOM"), anyLong());
+        verify(battleService, times(1)).expireBattle(battleId);
+        assertEquals(0, scheduler.scheduledCount());
+    }
+
+    @Test
+    @DisplayName("Should stop a cancelled battle's clock")
+    void cancel_StopsTimer() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        scheduler.rebalance();
+        scheduler.schedule(battleId, "ROOM", Instant.ofEpochMilli(now + 30_000));
+
+        // Act
+        scheduler.cancel(battleId);
+        scheduler.tick(now + 40_000);
+
+        // Assert
+        verify(zSetOperations).remove(deadlinesKey, battleId.toString());
+        verifyNoInteractions(battleService);
+        assertEquals(0, scheduler.scheduledCount());
+    }
+
+    @Test
+    @DisplayName("Should index and cancel a clock only once the surrounding transaction commits")
+    void scheduleAndCancel_InTransaction_WaitForCommit() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        scheduler.rebalance();
+        List<TransactionSynchronization> synchronizations;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            scheduler.schedule(battleId, "ROOM", Instant.ofEpochMilli(now + 30_000));
+            scheduler.cancel(UUID.randomUUID());
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(zSetOperations, never()).add(eq(deadlinesKey), any(), anyDouble());
+        verify(zSetOperations, never()).remove(anyString(), any());
+
+        // Act
+        synchronizations.get(0).afterCommit();
+        synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Assert
+        verify(zSetOperations).add(deadlinesKey, battleId.toString(), (double) (now + 30_000));
+        verify(zSetOperations, never()).remove(anyString(), any());
+        assertEquals(1, scheduler.scheduledCount());
+    }
+
+    @Test
+    @DisplayName("Should end overdue battles nobody is timing and retry if ending fails")
+    void recoverOrphans_EndsOverdueBattles() {
+        // Arrange
+        UUID orphan = UUID.randomUUID();
+        UUID failing = UUID.randomUUID();
+        when(zSetOperations.rangeByScore(eq(deadlinesKey), eq(0.0), anyDouble()))
+                .thenReturn(Set.of(orphan.toString(), failing.toString()));
+        when(zSetOperations.remove(eq(deadlinesKey), any())).thenReturn(1L);
+        doThrow(new IllegalStateException("database down")).when(battleService).expireBattle(failing);
+        scheduler.rebalance();
+
+        // Act
+        scheduler.recoverOrphans();
+
+        // Assert
+        verify(battleService).expireBattle(orphan);
+        verify(zSetOperations).add(eq(deadlinesKey), eq(failing.toString()), anyDouble());
+        verify(zSetOperations, never()).add(eq(deadlinesKey), eq(orphan.toString()), anyDouble());
+    }
+
+    @Test
+    @DisplayName("Should hand a battle to the shard owner and only time it once the shard is taken over")
+    void schedule_ShardNotOwned_HandsOverAndAdoptsOnAcquire() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        long deadline = now + 30_000;
+        when(zSetOperations.rangeWithScores(deadlinesKey, 0, -1))
+                .thenReturn(Set.of(new DefaultTypedTuple<>(battleId.toString(), (double) deadline)));
+        when(hashOperations.multiGet(BattleTimerScheduler.ROOMS_KEY, List.of(battleId.toString())))
+                .thenReturn(List.of("ROOM"));
+
+        // Act
+        scheduler.schedule(battleId, "ROOM", Instant.ofEpochMilli(deadline));
+        int beforeLease = scheduler.scheduledCount();
+        scheduler.rebalance();
+        scheduler.tick(deadline - 9_900);
+
+        // Assert
+        assertEquals(0, beforeLease);
+        verify(listOperations).rightPush(BattleTimerScheduler.INBOX_PREFIX + "0", battleId.toString());
+        verify(redisTemplate).delete(BattleTimerScheduler.INBOX_PREFIX + "0");
+        verify(battleService).broadcastTimerUpdate(battleId, "ROOM", 10);
+        assertEquals(1, scheduler.scheduledCount());
+    }
+
+    @Test
+    @DisplayName("Should stop timing a shard's battles once its lease is lost")
+    void rebalance_LeaseLost_DropsShardTimers() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        scheduler.rebalance();
+        scheduler.schedule(battleId, "ROOM", Instant.ofEpochMilli(now + 30_000));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(List.of(0L));
+
+        // Act
+        scheduler.rebalance();
+        scheduler.tick(now + 40_000);
+
+        // Assert
+        assertEquals(0, scheduler.scheduledCount());
+        verifyNoInteractions(battleService);
+    }
+
+    @Test
+    @DisplayName("Shard assignment should give every shard to exactly one live node")
+    void assignedShards_PartitionsShards() {
+        // Arrange
+        List<String> nodes = List.of("node-c", "node-a", "node-b");
+
+        // Act
+        Set<Integer> a = ShardLeases.assignedShards(nodes, 8, "node-a");
+        Set<Integer> b = ShardLeases.assignedShards(nodes, 8, "node-b");
+        Set<Integer> c = ShardLeases.assignedShards(nodes, 8, "node-c");
+
+        // Assert
+        assertEquals(Set.of(0, 3, 6), a);
+        assertEquals(Set.of(1, 4, 7), b);
+        assertEquals(Set.of(2, 5), c);
+        assertTrue(ShardLeases.assignedShards(nodes, 8, "node-d").isEmpty());
+        assertEquals(Set.of(0, 1, 2, 3, 4, 5, 6, 7), ShardLeases.assignedShards(List.of("node-a"), 8, "node-a"));
+    }
+
+    @Test
+    @DisplayName("Timing wheel should fire near and far timers on their tick across level cascades")
+    void timingWheel_FiresOnTime() {
+        // Arrange
+        TimingWheel<Long> wheel = new TimingWheel<>(100, 8, 0);
+        List<Long> fireTimes = List.of(250L, 800L, 801L, 6_400L, 51_300L, 3_600_000L);
+        fireTimes.forEach(t -> wheel.schedule(t, t));
+        TimingWheel<Long>.Timer cancelled = wheel.schedule(-1L, 5_000);
+        cancelled.cancel();
+
+        // Act
+        List<long[]> fired = new ArrayList<>();
+        for (long now = 0; now <= 3_700_000; now += 100) {
+            for (Long value : wheel.advance(now)) {
+                fired.add(new long[]{value, now});
+            }
+        }
+
+        // Assert
+        assertEquals(fireTimes.size(), fired.size());
+        for (long[] f : fired) {
+            assertTrue(f[1] >= f[0] && f[1] < f[0] + 100, "timer " + f[0] + " fired at " + f[1]);
+        }
+        assertEquals(0, wheel.size());
+    }
+}
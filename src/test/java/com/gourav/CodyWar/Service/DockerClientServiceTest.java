@@ -0,0 +1,165 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.ExecutionResult;
+import com.gourav.CodyWar.Domain.Entity.CheckerType;
+import com.gourav.CodyWar.Domain.Entity.Language;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs real code through the pool using the local process backend, so it needs python3 on the PATH
+ * but no Docker daemon.
+ */
+@DisplayName("Docker Client Service Tests (local backend)")
+class DockerClientServiceTest {
+
+    private static final String ECHO_SUM = "a, b = map(int, input().split())\nprint(a + b)\n";
+
+    @TempDir
+    Path tempDir;
+
+    private SandboxPool sandboxPool;
+    private DockerClientService dockerClientService;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(isOnPath("python3"), "python3 is required for the local sandbox backend");
+
+        LocalProcessSandboxBackend backend = new LocalProcessSandboxBackend();
+        ReflectionTestUtils.setField(backend, "tempDir", tempDir.toString());
+        ReflectionTestUtils.setField(backend, "compileTimeoutSeconds", 30);
+
+        sandboxPool = new SandboxPool(backend);
+        ReflectionTestUtils.setField(sandboxPool, "warmLanguages", new String[0]);
+        ReflectionTestUtils.setField(sandboxPool, "warmSize", 1);
+        ReflectionTestUtils.setField(sandboxPool, "maxSize", 2);
+        ReflectionTestUtils.setField(sandboxPool, "acquireTimeoutMs", 1000L);
+
+        dockerClientService = new DockerClientService(sandboxPool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (sandboxPool != null) {
+            sandboxPool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should capture output, exit code and timing of a clean run")
+    void execute_ValidProgram_ReturnsOutput() {
+        // Act
+        ExecutionResult result = dockerClientService.execute(Language.PYTHON, ECHO_SUM, "2 3\n", 5, 256);
+
+        // Assert
+        assertTrue(result.isSuccess());
+        assertEquals("5", result.getOutput());
+        assertEquals(0, result.getExitCode());
+        assertFalse(result.isTimedOut());
+        assertTrue(result.getExecutionTimeMs() >= 0);
+    }
+
+    @Test
+    @DisplayName("Should kill and flag programs that exceed the time limit")
+    void execute_InfiniteLoop_TimesOut() {
+        // Act
+        ExecutionResult result = dockerClientService.execute(Language.PYTHON, "while True:\n    pass\n", "", 1, 256);
+
+        // Assert
+        assertFalse(result.isSuccess());
+        assertTrue(result.isTimedOut());
+        assertEquals(124, result.getExitCode());
+    }
+
+    @Test
+    @DisplayName("Should compile once and run the same artifact for every input")
+    void compile_CompiledLanguage_ReusesArtifact() {
+        // Arrange
+        assumeTrue(isOnPath("gcc"), "gcc is required for this test");
+        String code = "#include <stdio.h>\nint main(){int a,b;scanf(\"%d %d\",&a,&b);printf(\"%d\\n\",a*b);return 0;}\n";
+
+        // Act & Assert
+        try (CompiledProgram program = dockerClientService.compile(Language.C, code)) {
+            assertTrue(program.isCompiled());
+            assertEquals("6", program.run("2 3", 5, 256).getOutput());
+            assertEquals("20", program.run("4 5", 5, 256).getOutput());
+        }
+        assertEquals(1, sandboxPool.getIdleCount(Language.C));
+    }
+
+    @Test
+    @DisplayName("Should report compiler diagnostics without running")
+    void compile_InvalidSource_ReturnsCompilationError() {
+        // Arrange
+        assumeTrue(isOnPath("gcc"), "gcc is required for this test");
+
+        // Act
+        ExecutionResult result = dockerClientService.execute(Language.C, "int main( {", "", 5, 256);
+
+        // Assert
+        assertFalse(result.isSuccess());
+        assertTrue(result.isCompilationError());
+        assertFalse(result.getErrorOutput().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should stop a program as soon as its streamed output stops matching")
+    void run_StreamingMismatch_StopsEarly() {
+        // Arrange
+        OutputChecker checker = OutputChecker.create(CheckerType.EXACT, "right", 0, 1024 * 1024);
+
+        // Act
+        ExecutionResult result;
+        try (CompiledProgram program = dockerClientService.compile(Language.PYTHON, "while True:\n    print('wrong')\n")) {
+            result = program.run("", 5, 256, checker);
+        }
+
+        // Assert
+        assertFalse(result.getOutputMatched());
+        assertFalse(result.isTimedOut());
+        assertEquals(0, result.getExitCode());
+        assertEquals("", result.getOutput());
+        assertTrue(result.getExecutionTimeMs() < 5000);
+    }
+
+    @Test
+    @DisplayName("Should stop a program that writes past the output limit")
+    void run_StreamingOverflow_FlagsOutputLimit() {
+        // Arrange
+        OutputChecker checker = OutputChecker.create(CheckerType.TOKEN, "y\n".repeat(100_000), 0, 1000);
+
+        // Act
+        ExecutionResult result;
+        try (CompiledProgram program = dockerClientService.compile(Language.PYTHON, "while True:\n    print('y')\n")) {
+            result = program.run("", 5, 256, checker);
+        }
+
+        // Assert
+        assertTrue(result.isOutputLimitExceeded());
+        assertFalse(result.getOutputMatched());
+        assertFalse(result.isTimedOut());
+    }
+
+    private static boolean isOnPath(String binary) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return false;
+        }
+        for (String dir : path.split(java.io.File.pathSeparator)) {
+            if (Files.isExecutable(Path.of(dir, binary))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,227 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.JudgeTask;
+import com.gourav.CodyWar.Exception.SubmissionRejectedException;
+import com.gourav.CodyWar.Repository.SubmissionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Judge Queue Tests")
+class JudgeQueueTest {
+
+    @Mock
+    private SubmissionRepository submissionRepository;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, Object> zSetOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private MeterRegistry meterRegistry;
+    private JudgeQueue judgeQueue;
+
+    private final UUID battleId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        judgeQueue = new JudgeQueue(submissionRepository, redisTemplate, meterRegistry);
+        ReflectionTestUtils.setField(judgeQueue, "capacity", 2);
+        ReflectionTestUtils.setField(judgeQueue, "maxInFlightPerUser", 2);
+        ReflectionTestUtils.setField(judgeQueue, "retryAfterSeconds", 5L);
+        ReflectionTestUtils.setField(judgeQueue, "visibilityTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(judgeQueue, "maxAttempts", 3);
+        ReflectionTestUtils.setField(judgeQueue, "pollIntervalMs", 10L);
+        judgeQueue.registerMetrics();
+
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(submissionRepository.countByBattleIdAndUserIdAndStatusIn(any(), any(), any())).thenReturn(1L);
+    }
+
+    @Test
+    @DisplayName("Should score queued submissions by their battle deadline")
+    void submit_ScoresByBattleDeadline() {
+        // Arrange
+        UUID submissionId = UUID.randomUUID();
+        when(zSetOperations.zCard("judge:queue")).thenReturn(0L);
+
+        // Act
+        JudgeTask task = judgeQueue.submit(submissionId, battleId, userId, 30);
+
+        // Assert
+        verify(hashOperations).put("judge:tasks", submissionId.toString(), task);
+        verify(zSetOperations).add("judge:queue", submissionId.toString(), task.getBattleDeadline().toEpochMilli());
+        assertTrue(task.getBattleDeadline().isBefore(Instant.now().plusSeconds(31)));
+    }
+
+    @Test
+    @DisplayName("Should reject with 429 semantics once the queue is at capacity")
+    void submit_QueueFull_Rejects() {
+        // Arrange
+        when(zSetOperations.zCard("judge:queue")).thenReturn(2L);
+
+        // Act & Assert
+        SubmissionRejectedException ex = assertThrows(SubmissionRejectedException.class,
+                () -> judgeQueue.submit(UUID.randomUUID(), battleId, userId, 60));
+        assertEquals(5, ex.getRetryAfterSeconds());
+        verify(zSetOperations, never()).add(anyString(), any(), anyDouble());
+        assertEquals(1.0, meterRegistry.get("judge.queue.rejections").tag("reason", "capacity").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should reject a user who already has the maximum number of submissions in flight")
+    void submit_UserLimitReached_Rejects() {
+        // Arrange
+        when(submissionRepository.countByBattleIdAndUserIdAndStatusIn(eq(battleId), eq(userId), any()))
+                .thenReturn(3L);
+
+        // Act & Assert
+        assertThrows(SubmissionRejectedException.class,
+                () -> judgeQueue.submit(UUID.randomUUID(), battleId, userId, 60));
+        verify(zSetOperations, never()).add(anyString(), any(), anyDouble());
+        assertEquals(1.0, meterRegistry.get("judge.queue.rejections").tag("reason", "user_limit").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should only push a task to Redis once the surrounding transaction commits")
+    void submit_InTransaction_PublishesAfterCommit() {
+        // Arrange
+        when(zSetOperations.zCard("judge:queue")).thenReturn(0L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            JudgeTask committed = judgeQueue.submit(UUID.randomUUID(), battleId, userId, 60);
+            JudgeTask rolledBack = judgeQueue.submit(UUID.randomUUID(), battleId, userId, 60);
+            verify(zSetOperations, never()).add(anyString(), any(), anyDouble());
+
+            // Act
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+            // Assert
+            verify(zSetOperations).add(eq("judge:queue"), eq(committed.getSubmissionId().toString()), anyDouble());
+            verify(zSetOperations, never()).add(eq("judge:queue"), eq(rolledBack.getSubmissionId().toString()), anyDouble());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should claim the task returned by the claim script and record its wait time")
+    @SuppressWarnings("unchecked")
+    void poll_ClaimsTask() throws InterruptedException {
+        // Arrange
+        UUID submissionId = UUID.randomUUID();
+        JudgeTask task = JudgeTask.builder()
+                .submissionId(submissionId)
+                .battleDeadline(Instant.now().plusSeconds(60))
+                .enqueuedAt(Instant.now().minusMillis(250))
+                .build();
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any()))
+                .thenReturn(null, submissionId.toString());
+        when(hashOperations.get("judge:tasks", submissionId.toString())).thenReturn(task);
+
+        // Act
+        JudgeTask claimed = judgeQueue.poll(1, TimeUnit.SECONDS);
+
+        // Assert
+        assertSame(task, claimed);
+        assertEquals(1, meterRegistry.get("judge.queue.wait").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should redeliver expired claims and give up after the maximum attempts")
+    void requeueExpired_RedeliversAndAbandons() {
+        // Arrange
+        JudgeTask retry = JudgeTask.builder().submissionId(UUID.randomUUID())
+                .battleDeadline(Instant.now()).attempts(0).build();
+        JudgeTask exhausted = JudgeTask.builder().submissionId(UUID.randomUUID())
+                .battleDeadline(Instant.now()).attempts(2).build();
+        String retryId = retry.getSubmissionId().toString();
+        String exhaustedId = exhausted.getSubmissionId().toString();
+        when(zSetOperations.rangeByScore(eq("judge:processing"), eq(0.0), anyDouble(), eq(0L), eq(100L)))
+                .thenReturn(new LinkedHashSet<>(List.of(retryId, exhaustedId)));
+        when(zSetOperations.remove("judge:processing", retryId)).thenReturn(1L);
+        when(zSetOperations.remove("judge:processing", exhaustedId)).thenReturn(1L);
+        when(hashOperations.get("judge:tasks", retryId)).thenReturn(retry);
+        when(hashOperations.get("judge:tasks", exhaustedId)).thenReturn(exhausted);
+
+        // Act
+        List<JudgeTask> abandoned = judgeQueue.requeueExpired();
+
+        // Assert
+        assertEquals(List.of(exhausted), abandoned);
+        assertEquals(1, retry.getAttempts());
+        verify(zSetOperations).add(eq("judge:queue"), eq(retryId), anyDouble());
+        verify(hashOperations).delete("judge:tasks", exhaustedId);
+        assertEquals(1.0, meterRegistry.get("judge.queue.redeliveries").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should hand a failed task back to the reaper instead of acknowledging it")
+    void release_ExpiresLeaseKeepingTask() {
+        // Arrange
+        JudgeTask task = JudgeTask.builder().submissionId(UUID.randomUUID())
+                .battleDeadline(Instant.now()).attempts(0).build();
+
+        // Act
+        judgeQueue.release(task);
+
+        // Assert
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("judge:processing")), eq(0L),
+                eq(task.getSubmissionId().toString()));
+        verify(hashOperations, never()).delete(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should not requeue a claim another instance already reclaimed")
+    void requeueExpired_LostRace_Skips() {
+        // Arrange
+        String id = UUID.randomUUID().toString();
+        when(zSetOperations.rangeByScore(eq("judge:processing"), eq(0.0), anyDouble(), eq(0L), eq(100L)))
+                .thenReturn(Set.of(id));
+        when(zSetOperations.remove("judge:processing", id)).thenReturn(0L);
+
+        // Act
+        List<JudgeTask> abandoned = judgeQueue.requeueExpired();
+
+        // Assert
+        assertTrue(abandoned.isEmpty());
+        verify(hashOperations, never()).get(anyString(), any());
+        verify(zSetOperations, never()).add(anyString(), any(), anyDouble());
+    }
+}
@@ -0,0 +1,156 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Configuration.RedisConfig;
+import com.gourav.CodyWar.Domain.Dto.DockerExecutionResult;
+import com.gourav.CodyWar.Domain.Entity.JudgeMode;
+import com.gourav.CodyWar.Domain.Entity.Language;
+import com.gourav.CodyWar.Domain.Entity.Problem;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Judge Result Cache Tests")
+class JudgeResultCacheTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    private MeterRegistry meterRegistry;
+    private JudgeResultCache cache;
+    private Problem problem;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new JudgeResultCache(redisTemplate, meterRegistry);
+        cache.registerMetrics();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        problem = new Problem();
+    }
+
+    @Test
+    @DisplayName("Should return the stored verdict for the same code and count hits and misses")
+    void find_SameCode_Hits() {
+        // Arrange
+        DockerExecutionResult result = DockerExecutionResult.builder()
+                .success(true).passedTestCases(3).totalTestCases(3).build();
+        cache.put("hash", Language.PYTHON, "print(1)\n", problem, JudgeMode.FULL, result);
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).set(key.capture(), eq(result), any(Duration.class));
+        when(valueOperations.get(key.getValue())).thenReturn(result);
+
+        // Act
+        DockerExecutionResult hit = cache.find("hash", Language.PYTHON, "print(1)\r\n\n", problem, JudgeMode.FULL);
+        DockerExecutionResult miss = cache.find("hash", Language.PYTHON, "print(2)", problem, JudgeMode.FULL);
+
+        // Assert
+        assertSame(result, hit);
+        assertNull(miss);
+        assertEquals(1.0, meterRegistry.get("judge.resultcache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("judge.resultcache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should key verdicts by test set hash, language and judge settings")
+    void put_KeyCoversEverythingThatChangesAVerdict() {
+        // Arrange
+        DockerExecutionResult result = DockerExecutionResult.builder().success(true).build();
+
+        // Act
+        cache.put("old", Language.PYTHON, "x", problem, JudgeMode.FULL, result);
+        cache.put("new", Language.PYTHON, "x", problem, JudgeMode.FULL, result);
+        cache.put("new", Language.JAVASCRIPT, "x", problem, JudgeMode.FULL, result);
+        cache.put("new", Language.JAVASCRIPT, "x", problem, JudgeMode.FAIL_FAST, result);
+
+        // Assert
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations, times(4)).set(keys.capture(), any(), any(Duration.class));
+        assertEquals(4, keys.getAllValues().stream().distinct().count());
+        assertTrue(keys.getAllValues().get(0).startsWith("judge:result:old:PYTHON:"));
+    }
+
+    @Test
+    @DisplayName("Should not cache time or memory limit verdicts, which depend on sandbox load")
+    void put_LimitVerdicts_NotCached() {
+        // Arrange
+        DockerExecutionResult timeLimit = DockerExecutionResult.builder()
+                .success(true).passedTestCases(1).totalTestCases(2)
+                .errorMessage("Time Limit Exceeded on test case 2").build();
+        DockerExecutionResult memoryLimit = DockerExecutionResult.builder()
+                .success(true).passedTestCases(0).totalTestCases(2)
+                .errorMessage("Memory Limit Exceeded on test case 1").build();
+
+        // Act
+        cache.put("hash", Language.PYTHON, "x", problem, JudgeMode.FULL, timeLimit);
+        cache.put("hash", Language.PYTHON, "x", problem, JudgeMode.FULL, memoryLimit);
+
+        // Assert
+        verify(valueOperations, never()).set(anyString(), any(), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Should return a stored verdict on recheck without counting another lookup")
+    void recheck_NotCounted() {
+        // Arrange
+        DockerExecutionResult result = DockerExecutionResult.builder()
+                .success(true).passedTestCases(3).totalTestCases(3).build();
+        when(valueOperations.get(anyString())).thenReturn(null, result);
+
+        // Act
+        DockerExecutionResult atSubmit = cache.find("hash", Language.PYTHON, "x", problem, JudgeMode.FULL);
+        DockerExecutionResult beforeSandbox = cache.recheck("hash", Language.PYTHON, "x", problem, JudgeMode.FULL);
+
+        // Assert
+        assertNull(atSubmit);
+        assertSame(result, beforeSandbox);
+        assertEquals(0.0, meterRegistry.get("judge.resultcache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("judge.resultcache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should never hit for problems without a test set hash")
+    void find_NoHash_Misses() {
+        // Act & Assert
+        assertNull(cache.find(null, Language.PYTHON, "x", problem, JudgeMode.FULL));
+        verifyNoInteractions(valueOperations);
+    }
+
+    @Test
+    @DisplayName("Should survive a round trip through the Redis JSON serializer")
+    void result_RoundTripsThroughRedisSerializer() {
+        // Arrange
+        GenericJackson2JsonRedisSerializer serializer =
+                new GenericJackson2JsonRedisSerializer(new RedisConfig().redisObjectMapper());
+        DockerExecutionResult result = DockerExecutionResult.builder()
+                .success(true).passedTestCases(1).totalTestCases(2).executionTimeMs(15)
+                .errorMessage("Time Limit Exceeded on test case 2").build();
+
+        // Act
+        Object restored = serializer.deserialize(serializer.serialize(result));
+
+        // Assert
+        assertEquals(result, restored);
+    }
+}
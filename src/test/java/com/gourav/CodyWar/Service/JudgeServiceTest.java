@@ -0,0 +1,211 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.DockerExecutionResult;
+import com.gourav.CodyWar.Domain.Dto.ExecutionResult;
+import com.gourav.CodyWar.Domain.Entity.Battle;
+import com.gourav.CodyWar.Domain.Entity.JudgeMode;
+import com.gourav.CodyWar.Domain.Entity.Language;
+import com.gourav.CodyWar.Domain.Entity.Problem;
+import com.gourav.CodyWar.Domain.Entity.TestCase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Judge Service Tests")
+class JudgeServiceTest {
+
+    @Mock
+    private DockerClientService dockerClientService;
+
+    @Mock
+    private CompiledProgram program;
+
+    @InjectMocks
+    private JudgeService judgeService;
+
+    private List<TestCase> testCases;
+
+    @BeforeEach
+    void setUp() {
+        testCases = List.of(
+                TestCase.builder().input("1 2").expectedOutput("3").orderIndex(0).build(),
+                TestCase.builder().input("2 2").expectedOutput("4").orderIndex(1).build(),
+                TestCase.builder().input("10 5").expectedOutput("15").orderIndex(2).build());
+    }
+
+    @Test
+    @DisplayName("Should compile once and run every test case through the same program")
+    void judge_AllPass_CompilesOnce() {
+        // Arrange
+        when(dockerClientService.compile(Language.CPP, "code")).thenReturn(program);
+        when(program.isCompiled()).thenReturn(true);
+        when(program.run(anyString(), eq(2), eq(256), any()))
+                .thenAnswer(prints("3", 10, 1000))
+                .thenAnswer(prints("4", 30, 2000))
+                .thenAnswer(prints("15", 20, 1500));
+
+        // Act
+        DockerExecutionResult result = judgeService.judge(Language.CPP, "code", testCases, 2, 256);
+
+        // Assert
+        assertTrue(result.isAllPassed());
+        assertEquals(3, result.getPassedTestCases());
+        assertEquals(30, result.getExecutionTimeMs());
+        assertEquals(2000, result.getMemoryUsedKb());
+        verify(dockerClientService, times(1)).compile(Language.CPP, "code");
+        verify(program, times(3)).run(anyString(), eq(2), eq(256), any());
+        verify(program).close();
+    }
+
+    @Test
+    @DisplayName("Should report compilation errors without running any test case")
+    void judge_CompilationError_SkipsRuns() {
+        // Arrange
+        when(dockerClientService.compile(Language.JAVA, "code")).thenReturn(program);
+        when(program.isCompiled()).thenReturn(false);
+        when(program.getCompileResult()).thenReturn(ExecutionResult.builder()
+                .compilationError(true)
+                .errorOutput("Solution.java:1: error: ';' expected")
+                .build());
+
+        // Act
+        DockerExecutionResult result = judgeService.judge(Language.JAVA, "code", testCases, 2, 256);
+
+        // Assert
+        assertTrue(result.hasCompilationError());
+        assertEquals(0, result.getPassedTestCases());
+        assertEquals(3, result.getTotalTestCases());
+        verify(program, never()).run(anyString(), anyInt(), anyInt(), any());
+        verify(program).close();
+    }
+
+    @Test
+    @DisplayName("Should keep going on wrong answers and stop on a timeout")
+    void judge_WrongAnswerThenTimeout_StopsAtTimeout() {
+        // Arrange
+        when(dockerClientService.compile(Language.PYTHON, "code")).thenReturn(program);
+        when(program.isCompiled()).thenReturn(true);
+        when(program.run(anyString(), anyInt(), anyInt(), any()))
+                .thenAnswer(prints("0", 5, 100))
+                .thenReturn(ExecutionResult.builder().timedOut(true).exitCode(124).build());
+
+        // Act
+        DockerExecutionResult result = judgeService.judge(Language.PYTHON, "code", testCases, 2, 256);
+
+        // Assert
+        assertTrue(result.isTimeLimitExceeded());
+        assertEquals(0, result.getPassedTestCases());
+        verify(program, times(2)).run(anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Should stop at the first wrong answer in fail-fast mode")
+    void judge_FailFast_StopsAtWrongAnswer() {
+        // Arrange
+        when(dockerClientService.compile(Language.PYTHON, "code")).thenReturn(program);
+        when(program.isCompiled()).thenReturn(true);
+        when(program.run(anyString(), anyInt(), anyInt(), any()))
+                .thenAnswer(prints("3", 5, 100)).thenAnswer(prints("5", 5, 100));
+
+        // Act
+        DockerExecutionResult result = judgeService.judge(Language.PYTHON, "code", testCases, 2, 256,
+                JudgeMode.FAIL_FAST);
+
+        // Assert
+        assertFalse(result.isAllPassed());
+        assertNull(result.getErrorMessage());
+        assertEquals(1, result.getPassedTestCases());
+        verify(program, times(2)).run(anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Should run test cases in parallel and fold them in order in fan-out mode")
+    void judge_FanOut_FoldsResultsInOrder() {
+        // Arrange
+        when(dockerClientService.compile(Language.CPP, "code")).thenReturn(program);
+        when(program.isCompiled()).thenReturn(true);
+        when(program.reserveParallelSlots(3, 256)).thenReturn(3);
+        when(program.run(eq("1 2"), eq(2), eq(256), any())).thenAnswer(prints("3", 10, 1000));
+        when(program.run(eq("2 2"), eq(2), eq(256), any())).thenAnswer(prints("0", 40, 3000));
+        when(program.run(eq("10 5"), eq(2), eq(256), any())).thenAnswer(prints("15", 20, 1500));
+
+        // Act
+        DockerExecutionResult result = judgeService.judge(Language.CPP, "code", testCases, 2, 256,
+                JudgeMode.FAN_OUT);
+
+        // Assert
+        assertFalse(result.isAllPassed());
+        assertNull(result.getErrorMessage());
+        assertEquals(2, result.getPassedTestCases());
+        assertEquals(40, result.getExecutionTimeMs());
+        assertEquals(3000, result.getMemoryUsedKb());
+        verify(program, times(3)).run(anyString(), eq(2), eq(256), any());
+        verify(program).close();
+    }
+
+    @Test
+    @DisplayName("Should report the earliest failing test case in fan-out mode")
+    void judge_FanOut_ReportsEarliestFailure() {
+        // Arrange
+        when(dockerClientService.compile(Language.CPP, "code")).thenReturn(program);
+        when(program.isCompiled()).thenReturn(true);
+        when(program.reserveParallelSlots(3, 256)).thenReturn(1);
+        when(program.run(eq("1 2"), eq(2), eq(256), any())).thenAnswer(prints("3", 10, 1000));
+        when(program.run(eq("2 2"), eq(2), eq(256), any()))
+                .thenReturn(ExecutionResult.builder().exitCode(1).errorOutput("Segmentation fault").build());
+
+        // Act
+        DockerExecutionResult result = judgeService.judge(Language.CPP, "code", testCases, 2, 256,
+                JudgeMode.FAN_OUT);
+
+        // Assert
+        assertTrue(result.getErrorMessage().startsWith("Runtime Error on test case 2"));
+        assertEquals(1, result.getPassedTestCases());
+        verify(program, never()).run(eq("10 5"), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Should prefer the battle's judge mode over the problem's")
+    void resolveMode_BattleOverridesProblem() {
+        // Arrange
+        Problem problem = Problem.builder().judgeMode(JudgeMode.FAIL_FAST).build();
+        Battle inherits = Battle.builder().problem(problem).build();
+        Battle overrides = Battle.builder().problem(problem).judgeMode(JudgeMode.FAN_OUT).build();
+        Battle defaults = Battle.builder().problem(Problem.builder().build()).build();
+
+        // Act & Assert
+        assertEquals(JudgeMode.FAIL_FAST, judgeService.resolveMode(inherits));
+        assertEquals(JudgeMode.FAN_OUT, judgeService.resolveMode(overrides));
+        assertEquals(JudgeMode.FULL, judgeService.resolveMode(defaults));
+    }
+
+    /**
+     * Streams {@code output} through the checker the judge passed in, like the sandbox does.
+     */
+    private static Answer<ExecutionResult> prints(String output, long timeMs, long memoryKb) {
+        return invocation -> {
+            OutputChecker checker = invocation.getArgument(3);
+            byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+            checker.accept(bytes, 0, bytes.length);
+            return ExecutionResult.builder()
+                    .success(true)
+                    .outputMatched(checker.finish() == OutputChecker.Verdict.MATCH)
+                    .executionTimeMs(timeMs)
+                    .memoryUsedKb(memoryKb)
+                    .build();
+        };
+    }
+}
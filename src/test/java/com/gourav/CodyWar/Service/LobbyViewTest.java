@@ -0,0 +1,239 @@
+package com.gourav.CodyWar.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gourav.CodyWar.Configuration.BattleCodecs;
+import com.gourav.CodyWar.Configuration.CompactRedisSerializer;
+import com.gourav.CodyWar.Configuration.RedisConfig;
+import com.gourav.CodyWar.Domain.Dto.CursorPage;
+import com.gourav.CodyWar.Domain.Dto.LobbyBattleDto;
+import com.gourav.CodyWar.Domain.Entity.*;
+import com.gourav.CodyWar.Repository.BattleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Lobby View Tests")
+class LobbyViewTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    @Mock
+    private BattleRepository battleRepository;
+
+    private LobbyView lobbyView;
+
+    @BeforeEach
+    void setUp() {
+        lobbyView = new LobbyView(redisTemplate, battleRepository);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    @DisplayName("Should store a public battle's entry and bump the version in one script")
+    void put_PublicBattle_WritesEntry() {
+        // Arrange
+        Battle battle = battle(false, BattleStatus.WAITING, 2, "alice");
+
+        // Act
+        lobbyView.put(battle);
+
+        // Assert
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of(LobbyView.BATTLES_KEY, LobbyView.VERSION_KEY, LobbyView.stageKey(battle.getId()))),
+                args.capture());
+        assertEquals(battle.getId().toString(), args.getValue()[0]);
+        LobbyBattleDto entry = (LobbyBattleDto) args.getValue()[1];
+        assertEquals(1, entry.getFreeSlots());
+        assertEquals(Difficulty.MEDIUM, entry.getDifficulty());
+        assertEquals(List.of("alice"), entry.getParticipants());
+        assertInstanceOf(ArrayList.class, entry.getParticipants());
+    }
+
+    @Test
+    @DisplayName("Should write entries the Redis value serializer can read back")
+    void entry_RoundTripsThroughRedisSerializer() {
+        // Arrange
+        ObjectMapper objectMapper = new RedisConfig().redisObjectMapper();
+        CompactRedisSerializer serializer = new CompactRedisSerializer(
+                new GenericJackson2JsonRedisSerializer(objectMapper), BattleCodecs.all(objectMapper), true);
+        lobbyView.put(battle(false, BattleStatus.IN_PROGRESS, 2, "alice", "bob"));
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), args.capture());
+        LobbyBattleDto entry = (LobbyBattleDto) args.getValue()[1];
+
+        // Act & Assert
+        assertEquals(entry, serializer.deserialize(serializer.serialize(entry)));
+        assertEquals(0, entry.getFreeSlots());
+    }
+
+    @Test
+    @DisplayName("Should write a running battle at a later stage than a waiting one, and removal after both")
+    void putAndRemove_CarryIncreasingStages() {
+        // Arrange
+        Battle waiting = battle(false, BattleStatus.WAITING, 2, "alice");
+        Battle running = battle(false, BattleStatus.IN_PROGRESS, 2, "alice", "bob");
+
+        // Act
+        lobbyView.put(waiting);
+        lobbyView.put(running);
+        lobbyView.remove(running.getId());
+
+        // Assert
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate, times(3)).execute(any(RedisScript.class), anyList(), args.capture());
+        long waitingStage = (long) args.getAllValues().get(0)[2];
+        long runningStage = (long) args.getAllValues().get(1)[2];
+        long removedStage = (long) args.getAllValues().get(2)[1];
+        assertTrue(waitingStage < runningStage && runningStage < removedStage);
+    }
+
+    @Test
+    @DisplayName("Should never list private battles")
+    void put_PrivateBattle_Ignored() {
+        // Act
+        lobbyView.put(battle(true, BattleStatus.WAITING, 2, "alice"));
+
+        // Assert
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Should filter by difficulty and free slots and page newest first")
+    void page_FiltersAndPages() {
+        // Arrange
+        Instant now = Instant.now();
+        LobbyBattleDto oldest = entry(now.minusSeconds(30), Difficulty.EASY, 1);
+        LobbyBattleDto full = entry(now.minusSeconds(20), Difficulty.EASY, 0);
+        LobbyBattleDto hard = entry(now.minusSeconds(15), Difficulty.HARD, 1);
+        LobbyBattleDto middle = entry(now.minusSeconds(10), Difficulty.EASY, 2);
+        LobbyBattleDto newest = entry(now, Difficulty.EASY, 1);
+        stubLobby(4L, oldest, full, hard, middle, newest);
+
+        // Act
+        CursorPage<LobbyBattleDto> first = lobbyView.page(null, 2, Difficulty.EASY, 1);
+        CursorPage<LobbyBattleDto> second = lobbyView.page(first.getNextCursor(), 2, Difficulty.EASY, 1);
+
+        // Assert
+        assertEquals(List.of(newest, middle), first.getItems());
+        assertEquals(4L, first.getVersion());
+        assertEquals(List.of(oldest), second.getItems());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Should re-read the lobby only when its version moved")
+    void page_RereadsOnlyChangedLobby() {
+        // Arrange
+        ReflectionTestUtils.setField(lobbyView, "refreshMs", 0L);
+        stubLobby(4L, entry(Instant.now(), Difficulty.EASY, 1));
+        lobbyView.page(null, 20, null, 0);
+
+        // Act: unchanged, then changed
+        when(valueOperations.get(LobbyView.VERSION_KEY)).thenReturn(4L);
+        lobbyView.page(null, 20, null, 0);
+        when(valueOperations.get(LobbyView.VERSION_KEY)).thenReturn(5L);
+        stubLobby(5L);
+        CursorPage<LobbyBattleDto> page = lobbyView.page(null, 20, null, 0);
+
+        // Assert
+        verify(redisTemplate, times(2)).executePipelined(any(SessionCallback.class));
+        assertEquals(5L, page.getVersion());
+        assertTrue(page.getItems().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should serve the snapshot without Redis inside the refresh window")
+    void page_WithinRefreshWindow_NoRedis() {
+        // Arrange
+        stubLobby(4L, entry(Instant.now(), Difficulty.EASY, 1));
+        lobbyView.page(null, 20, null, 0);
+
+        // Act
+        lobbyView.page(null, 20, null, 0);
+        lobbyView.page(null, 20, Difficulty.HARD, 0);
+
+        // Assert
+        verify(valueOperations, times(1)).get(LobbyView.VERSION_KEY);
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    @DisplayName("Should reject a cursor it did not issue")
+    void page_BadCursor_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> lobbyView.page("not-a-cursor", 20, null, 0));
+    }
+
+    // Helper methods
+
+    private void stubLobby(long version, LobbyBattleDto... entries) {
+        Map<Object, Object> hash = new LinkedHashMap<>();
+        for (LobbyBattleDto entry : entries) {
+            hash.put(entry.getId().toString(), entry);
+        }
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(version, hash));
+    }
+
+    private LobbyBattleDto entry(Instant createdAt, Difficulty difficulty, int freeSlots) {
+        return LobbyBattleDto.builder()
+                .id(UUID.randomUUID())
+                .status(BattleStatus.WAITING)
+                .difficulty(difficulty)
+                .maxParticipants(2)
+                .freeSlots(freeSlots)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private Battle battle(boolean isPrivate, BattleStatus status, int maxParticipants, String... usernames) {
+        Battle battle = Battle.builder()
+                .id(UUID.randomUUID())
+                .problem(Problem.builder()
+                        .id(UUID.randomUUID())
+                        .title("Two Sum")
+                        .difficulty(Difficulty.MEDIUM)
+                        .build())
+                .status(status)
+                .maxParticipants(maxParticipants)
+                .durationSeconds(1800)
+                .isPrivate(isPrivate)
+                .build();
+        battle.setCreatedAt(Instant.now());
+        for (String username : usernames) {
+            battle.getParticipants().add(BattleParticipant.builder()
+                    .battle(battle)
+                    .user(User.builder().id(UUID.randomUUID()).username(username).build())
+                    .build());
+        }
+        return battle;
+    }
+}
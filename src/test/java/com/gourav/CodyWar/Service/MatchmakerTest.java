@@ -0,0 +1,198 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.BattleEvent;
+import com.gourav.CodyWar.Domain.Dto.BattleResponseDto;
+import com.gourav.CodyWar.Domain.Dto.MatchmakingEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Matchmaker Tests")
+class MatchmakerTest {
+
+    @Mock
+    private MatchmakingQueue matchmakingQueue;
+
+    @Mock
+    private BattleService battleService;
+
+    @Mock
+    private BattleEventPublisher battleEventPublisher;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ShardLeases leases;
+
+    private Matchmaker matchmaker;
+    private final Instant now = Instant.now();
+
+    @BeforeEach
+    void setUp() {
+        matchmaker = new Matchmaker(matchmakingQueue, battleService, battleEventPublisher, redisTemplate,
+                new SimpleMeterRegistry());
+        matchmaker.init();
+        ReflectionTestUtils.setField(matchmaker, "leases", leases);
+        when(leases.owns(eq(0), anyLong())).thenReturn(true);
+        when(matchmakingQueue.windowFor(anyLong()))
+                .thenAnswer(invocation -> (int) Math.min(800, 200 + 5 * (long) invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("Should pair neighbours in rating order and leave out players nobody fits")
+    void formGroups_PairsNeighboursInRatingOrder() {
+        // Arrange
+        MatchmakingEntry a = entry(1500, now);
+        MatchmakingEntry b = entry(1000, now);
+        MatchmakingEntry c = entry(1550, now);
+        MatchmakingEntry d = entry(1100, now);
+        MatchmakingEntry loner = entry(2500, now);
+
+        // Act
+        List<List<MatchmakingEntry>> groups = matchmaker.formGroups(List.of(a, b, c, d, loner), now);
+
+        // Assert
+        assertEquals(List.of(List.of(b, d), List.of(a, c)), groups);
+    }
+
+    @Test
+    @DisplayName("Should only group players with the same duration and size preference")
+    void formGroups_RespectsPreferences() {
+        // Arrange
+        MatchmakingEntry shortA = entry(1500, now);
+        MatchmakingEntry longA = entry(1510, now);
+        longA.setPreferredDuration(3600);
+        MatchmakingEntry shortB = entry(1520, now);
+        MatchmakingEntry trio1 = entry(1400, now);
+        MatchmakingEntry trio2 = entry(1450, now);
+        MatchmakingEntry trio3 = entry(1480, now);
+        List.of(trio1, trio2, trio3).forEach(e -> e.setMaxParticipants(3));
+
+        // Act
+        List<List<MatchmakingEntry>> groups =
+                matchmaker.formGroups(List.of(shortA, longA, shortB, trio1, trio2, trio3), now);
+
+        // Assert
+        assertEquals(2, groups.size());
+        assertTrue(groups.contains(List.of(shortA, shortB)));
+        assertTrue(groups.contains(List.of(trio1, trio2, trio3)));
+    }
+
+    @Test
+    @DisplayName("Should accept a wide gap once a player has waited long enough")
+    void formGroups_LongWaitWidensWindow() {
+        // Arrange
+        MatchmakingEntry fresh = entry(1500, now);
+        MatchmakingEntry patient = entry(2000, now.minusSeconds(120));
+
+        // Act & Assert
+        assertEquals(1, matchmaker.formGroups(List.of(fresh, patient), now).size());
+        assertTrue(matchmaker.formGroups(List.of(fresh, entry(2000, now)), now).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should claim each group before creating its battle and skip groups already taken")
+    void matchQueuedPlayers_ClaimsThenCreates() {
+        // Arrange
+        MatchmakingEntry a = entry(1000, now);
+        MatchmakingEntry b = entry(1010, now);
+        MatchmakingEntry c = entry(1500, now);
+        MatchmakingEntry d = entry(1510, now);
+        when(matchmakingQueue.snapshot(anyInt())).thenReturn(List.of(a, b, c, d));
+        when(matchmakingQueue.claimAll(List.of(a.getOduserId(), b.getOduserId()))).thenReturn(true);
+        when(matchmakingQueue.claimAll(List.of(c.getOduserId(), d.getOduserId()))).thenReturn(false);
+        when(battleService.createQueuedMatch(anyList())).thenReturn(new BattleResponseDto());
+
+        // Act
+        matchmaker.matchQueuedPlayers();
+
+        // Assert
+        verify(battleService).createQueuedMatch(List.of(a, b));
+        verify(battleService, never()).createQueuedMatch(List.of(c, d));
+    }
+
+    @Test
+    @DisplayName("Should put a claimed group back when its battle cannot be created")
+    void matchQueuedPlayers_CreateFails_Requeues() {
+        // Arrange
+        MatchmakingEntry a = entry(1000, now);
+        MatchmakingEntry b = entry(1010, now);
+        when(matchmakingQueue.snapshot(anyInt())).thenReturn(List.of(a, b));
+        when(matchmakingQueue.claimAll(anyList())).thenReturn(true);
+        when(battleService.createQueuedMatch(anyList())).thenThrow(new IllegalStateException("No problems available"));
+
+        // Act
+        matchmaker.matchQueuedPlayers();
+
+        // Assert
+        verify(matchmakingQueue).add(a);
+        verify(matchmakingQueue).add(b);
+    }
+
+    @Test
+    @DisplayName("Should not sweep on an instance without the matchmaking lease")
+    void matchQueuedPlayers_NotLeaseHolder_DoesNothing() {
+        // Arrange
+        when(leases.owns(eq(0), anyLong())).thenReturn(false);
+
+        // Act
+        matchmaker.matchQueuedPlayers();
+
+        // Assert
+        verify(matchmakingQueue, never()).snapshot(anyInt());
+        verifyNoInteractions(battleService);
+    }
+
+    @Test
+    @DisplayName("Should tell every evicted player they timed out, working off a backlog in batches")
+    void evictExpiredEntries_NotifiesEachPlayer() {
+        // Arrange
+        List<MatchmakingEntry> fullBatch = IntStream.range(0, 200)
+                .mapToObj(i -> entry(1000 + i, now.minusSeconds(600)))
+                .toList();
+        MatchmakingEntry last = entry(1500, now.minusSeconds(400));
+        when(matchmakingQueue.evictExpired(anyInt())).thenReturn(fullBatch, List.of(last));
+
+        // Act
+        matchmaker.evictExpiredEntries();
+
+        // Assert
+        verify(matchmakingQueue, times(2)).evictExpired(anyInt());
+        ArgumentCaptor<BattleEvent> event = ArgumentCaptor.forClass(BattleEvent.class);
+        verify(battleEventPublisher).publishToUser(eq(last.getOduserId()), event.capture());
+        assertEquals(BattleEvent.EventType.MATCHMAKING_TIMEOUT, event.getValue().getType());
+        verify(battleEventPublisher, times(201)).publishToUser(any(), any());
+    }
+
+    // Helper methods
+
+    private MatchmakingEntry entry(int rating, Instant queuedAt) {
+        return MatchmakingEntry.builder()
+                .oduserId(UUID.randomUUID())
+                .username("user-" + rating)
+                .ratingScore(rating)
+                .queuedAt(queuedAt)
+                .build();
+    }
+}
@@ -0,0 +1,167 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Dto.MatchmakingEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Matchmaking Queue Tests")
+class MatchmakingQueueTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, Object> zSetOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private MatchmakingQueue queue;
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        queue = new MatchmakingQueue(redisTemplate, new SimpleMeterRegistry());
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    @DisplayName("Should claim an opponent with a single script call over all three keys")
+    void claimMatch_RunsClaimScript() {
+        // Arrange
+        MatchmakingEntry opponent = entry(UUID.randomUUID(), 1450, Instant.now());
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(opponent);
+
+        // Act
+        MatchmakingEntry match = queue.claimMatch(userId, 1500);
+
+        // Assert
+        assertSame(opponent, match);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of(MatchmakingQueue.RATINGS_KEY, MatchmakingQueue.WAITING_KEY, MatchmakingQueue.ENTRIES_KEY)),
+                args.capture());
+        assertEquals(userId.toString(), args.getValue()[0]);
+        assertEquals(1500, args.getValue()[1]);
+        verifyNoInteractions(zSetOperations, hashOperations);
+    }
+
+    @Test
+    @DisplayName("Should index a queued player by rating and by queue time")
+    void add_IndexesRatingAndQueueTime() {
+        // Arrange
+        Instant queuedAt = Instant.now();
+        MatchmakingEntry entry = entry(userId, 1500, queuedAt);
+
+        // Act
+        queue.add(entry);
+
+        // Assert
+        verify(hashOperations).put(MatchmakingQueue.ENTRIES_KEY, userId.toString(), entry);
+        verify(zSetOperations).add(MatchmakingQueue.RATINGS_KEY, userId.toString(), 1500);
+        verify(zSetOperations).add(MatchmakingQueue.WAITING_KEY, userId.toString(), queuedAt.toEpochMilli());
+        verify(redisTemplate, never()).expire(anyString(), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Should evict entries older than the queue timeout and return them")
+    void evictExpired_ReturnsEvictedEntries() {
+        // Arrange
+        MatchmakingEntry stale = entry(userId, 1500, Instant.now().minusSeconds(600));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any()))
+                .thenReturn(List.of(stale));
+
+        // Act
+        List<MatchmakingEntry> evicted = queue.evictExpired(50);
+
+        // Assert
+        assertEquals(List.of(stale), evicted);
+        ArgumentCaptor<Object> cutoff = ArgumentCaptor.forClass(Object.class);
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of(MatchmakingQueue.RATINGS_KEY, MatchmakingQueue.WAITING_KEY, MatchmakingQueue.ENTRIES_KEY)),
+                cutoff.capture(), eq(50));
+        long expectedCutoff = System.currentTimeMillis() - 300_000;
+        assertTrue(Math.abs((Long) cutoff.getValue() - expectedCutoff) < 5_000);
+    }
+
+    @Test
+    @DisplayName("Should list queued players in rating order, skipping ones whose entry is gone")
+    void snapshot_ReturnsEntriesInRatingOrder() {
+        // Arrange
+        MatchmakingEntry low = entry(UUID.randomUUID(), 1200, Instant.now());
+        MatchmakingEntry high = entry(UUID.randomUUID(), 1800, Instant.now());
+        Set<Object> ids = new LinkedHashSet<>(List.of(low.getOduserId().toString(), "gone",
+                high.getOduserId().toString()));
+        when(zSetOperations.range(MatchmakingQueue.RATINGS_KEY, 0, 99)).thenReturn(ids);
+        when(hashOperations.multiGet(MatchmakingQueue.ENTRIES_KEY, new ArrayList<>(ids)))
+                .thenReturn(Arrays.asList(low, null, high));
+
+        // Act
+        List<MatchmakingEntry> waiting = queue.snapshot(100);
+
+        // Assert
+        assertEquals(List.of(low, high), waiting);
+    }
+
+    @Test
+    @DisplayName("Should remove a player from both the index and the entries")
+    void remove_DeletesIndexAndEntry() {
+        // Arrange
+        when(hashOperations.delete(MatchmakingQueue.ENTRIES_KEY, userId.toString())).thenReturn(1L);
+
+        // Act
+        boolean removed = queue.remove(userId);
+
+        // Assert
+        assertTrue(removed);
+        verify(zSetOperations).remove(MatchmakingQueue.RATINGS_KEY, userId.toString());
+        verify(zSetOperations).remove(MatchmakingQueue.WAITING_KEY, userId.toString());
+    }
+
+    @Test
+    @DisplayName("Rating window should grow with wait time up to the cap")
+    void windowFor_GrowsAndCaps() {
+        assertEquals(200, queue.windowFor(0));
+        assertEquals(500, queue.windowFor(60));
+        assertEquals(800, queue.windowFor(3600));
+    }
+
+    // Helper methods
+
+    private MatchmakingEntry entry(UUID id, int rating, Instant queuedAt) {
+        return MatchmakingEntry.builder()
+                .oduserId(id)
+                .username("user-" + rating)
+                .ratingScore(rating)
+                .queuedAt(queuedAt)
+                .build();
+    }
+}
@@ -0,0 +1,167 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Configuration.RedisConfig;
+import com.gourav.CodyWar.Domain.Dto.MatchmakingEntry;
+import com.gourav.CodyWar.Domain.Entity.Battle;
+import com.gourav.CodyWar.Repository.BattleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the matchmaking queue's claim scripts and the open battle index's reserve script against a
+ * real Redis ({@code REDIS_HOST}, {@code REDIS_PORT}, database {@value #DATABASE}) through the
+ * production template and serializers, so argument encoding and Lua are checked together. The
+ * other tests only stub {@code execute}. Skipped when no Redis answers.
+ */
+@DisplayName("Matchmaking Redis Script Tests")
+class MatchmakingRedisScriptsTest {
+
+    private static final int DATABASE = 15;
+    private static final List<String> KEYS = List.of(MatchmakingQueue.RATINGS_KEY, MatchmakingQueue.WAITING_KEY,
+            MatchmakingQueue.ENTRIES_KEY, OpenBattleIndex.OPEN_KEY, OpenBattleIndex.SLOTS_KEY);
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private MatchmakingQueue queue;
+    private OpenBattleIndex index;
+
+    @BeforeAll
+    static void connect() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                env("REDIS_HOST", "localhost"), Integer.parseInt(env("REDIS_PORT", "6379")));
+        configuration.setDatabase(DATABASE);
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        boolean reachable;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            reachable = "PONG".equals(connection.ping());
+        } catch (RuntimeException e) {
+            reachable = false;
+        }
+        assumeTrue(reachable, "No Redis at " + configuration.getHostName() + ":" + configuration.getPort());
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        RedisConfig redisConfig = new RedisConfig();
+        redisTemplate = redisConfig.redisTemplate(connectionFactory, redisConfig.redisObjectMapper(), "binary");
+        redisTemplate.delete(KEYS);
+        queue = new MatchmakingQueue(redisTemplate, new SimpleMeterRegistry());
+        index = new OpenBattleIndex(redisTemplate, mock(BattleRepository.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        redisTemplate.delete(KEYS);
+    }
+
+    @Test
+    @DisplayName("Should dequeue the requester and claim the closest player within the window")
+    void claimMatch_ClaimsClosestPlayer() {
+        // Arrange
+        MatchmakingEntry alice = entry("alice", 1500);
+        MatchmakingEntry bob = entry("bob", 1550);
+        MatchmakingEntry carol = entry("carol", 2500);
+        MatchmakingEntry dave = entry("dave", 1520);
+        List.of(alice, bob, carol, dave).forEach(queue::add);
+
+        // Act
+        MatchmakingEntry claimed = queue.claimMatch(dave.getOduserId(), dave.getRatingScore());
+        MatchmakingEntry outOfWindow = queue.claimMatch(UUID.randomUUID(), 2000);
+
+        // Assert
+        assertEquals(alice, claimed);
+        assertNull(outOfWindow);
+        assertEquals(List.of(bob, carol), queue.snapshot(10));
+    }
+
+    @Test
+    @DisplayName("Should dequeue a whole group only while every member is still queued")
+    void claimAll_AllOrNothing() {
+        // Arrange
+        MatchmakingEntry alice = entry("alice", 1500);
+        MatchmakingEntry bob = entry("bob", 1550);
+        queue.add(alice);
+        queue.add(bob);
+
+        // Act
+        boolean withMissing = queue.claimAll(List.of(alice.getOduserId(), UUID.randomUUID()));
+        long sizeAfterMissing = queue.size();
+        boolean group = queue.claimAll(List.of(alice.getOduserId(), bob.getOduserId()));
+        boolean again = queue.claimAll(List.of(alice.getOduserId()));
+
+        // Assert
+        assertFalse(withMissing);
+        assertEquals(2, sizeAfterMissing);
+        assertTrue(group);
+        assertFalse(again);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    @DisplayName("Should reserve slots oldest battle first and close a battle on its last slot")
+    void reserve_TakesOldestOpenSlots() {
+        // Arrange
+        Battle older = battle(Instant.parse("2026-01-01T10:00:00Z"));
+        Battle newer = battle(Instant.parse("2026-01-01T10:05:00Z"));
+        index.open(older, 1);
+        index.open(newer, 2);
+
+        // Act
+        List<UUID> reserved = List.of(index.reserve(), index.reserve(), index.reserve());
+        UUID none = index.reserve();
+
+        // Assert
+        assertEquals(List.of(older.getId(), newer.getId(), newer.getId()), reserved);
+        assertNull(none);
+        assertEquals(0, redisTemplate.opsForZSet().zCard(OpenBattleIndex.OPEN_KEY));
+    }
+
+    // Helper methods
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? value : fallback;
+    }
+
+    private MatchmakingEntry entry(String username, int rating) {
+        return MatchmakingEntry.builder()
+                .oduserId(UUID.randomUUID())
+                .username(username)
+                .ratingScore(rating)
+                .queuedAt(Instant.now())
+                .build();
+    }
+
+    private Battle battle(Instant createdAt) {
+        return Battle.builder()
+                .id(UUID.randomUUID())
+                .maxParticipants(3)
+                .createdAt(createdAt)
+                .build();
+    }
+}
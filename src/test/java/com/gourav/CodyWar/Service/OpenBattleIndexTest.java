@@ -0,0 +1,202 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Battle;
+import com.gourav.CodyWar.Domain.Entity.BattleParticipant;
+import com.gourav.CodyWar.Domain.Entity.BattleStatus;
+import com.gourav.CodyWar.Repository.BattleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Open Battle Index Tests")
+class OpenBattleIndexTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, Object> zSetOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private BattleRepository battleRepository;
+
+    private OpenBattleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new OpenBattleIndex(redisTemplate, battleRepository);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    @DisplayName("Should list a public battle with its free slots, ordered by creation time")
+    void open_PublicBattle_IndexesSlots() {
+        // Arrange
+        Battle battle = battle(false, 4);
+
+        // Act
+        index.open(battle, 3);
+
+        // Assert
+        verify(hashOperations).put(OpenBattleIndex.SLOTS_KEY, battle.getId().toString(), 3);
+        verify(zSetOperations).add(OpenBattleIndex.OPEN_KEY, battle.getId().toString(),
+                battle.getCreatedAt().toEpochMilli());
+    }
+
+    @Test
+    @DisplayName("Should never list private or full battles")
+    void open_PrivateOrFull_Skipped() {
+        // Act
+        index.open(battle(true, 2), 1);
+        index.open(battle(false, 2), 0);
+
+        // Assert
+        verifyNoInteractions(zSetOperations, hashOperations);
+    }
+
+    @Test
+    @DisplayName("Should reserve a slot with one script call and return the battle id")
+    void reserve_ReturnsReservedBattle() {
+        // Arrange
+        UUID battleId = UUID.randomUUID();
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(battleId.toString());
+
+        // Act
+        UUID reserved = index.reserve();
+
+        // Assert
+        assertEquals(battleId, reserved);
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of(OpenBattleIndex.OPEN_KEY, OpenBattleIndex.SLOTS_KEY)), any());
+        verifyNoInteractions(battleRepository);
+    }
+
+    @Test
+    @DisplayName("Should return null when no open battle has a free slot")
+    void reserve_NothingOpen_ReturnsNull() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(null);
+
+        // Act & Assert
+        assertNull(index.reserve());
+    }
+
+    @Test
+    @DisplayName("Should drop a closed battle from both keys")
+    void close_RemovesBattle() {
+        // Arrange
+        UUID battleId = UUID.randomUUID();
+
+        // Act
+        index.close(battleId);
+
+        // Assert
+        verify(zSetOperations).remove(OpenBattleIndex.OPEN_KEY, battleId.toString());
+        verify(hashOperations).delete(OpenBattleIndex.SLOTS_KEY, battleId.toString());
+    }
+
+    @Test
+    @DisplayName("Should only write to the index once the surrounding transaction commits")
+    void writes_InTransaction_WaitForCommit() {
+        // Arrange
+        Battle battle = battle(false, 4);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.open(battle, 3);
+            index.close(UUID.randomUUID());
+            verifyNoInteractions(zSetOperations, hashOperations);
+
+            // Act
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.get(0).afterCommit();
+
+            // Assert
+            verify(hashOperations).put(OpenBattleIndex.SLOTS_KEY, battle.getId().toString(), 3);
+            verify(zSetOperations, never()).remove(anyString(), any());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should hand a reserved slot back only when the reserving transaction rolls back")
+    void releaseOnRollback_ReleasesOnRollbackOnly() {
+        // Arrange
+        Battle committed = battle(false, 4);
+        Battle rolledBack = battle(false, 4);
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> synchronizations;
+        try {
+            index.releaseOnRollback(committed);
+            index.releaseOnRollback(rolledBack);
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Act
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Assert
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq(rolledBack.getId().toString()),
+                anyLong(), eq(4));
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), eq(committed.getId().toString()),
+                anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should seed from the database only when the index is missing")
+    void seedIfEmpty_SeedsFromDatabase() {
+        // Arrange
+        Battle battle = battle(false, 3);
+        battle.getParticipants().add(new BattleParticipant());
+        when(redisTemplate.hasKey(OpenBattleIndex.SLOTS_KEY)).thenReturn(false, true);
+        when(battleRepository.findAvailablePublicBattles(BattleStatus.WAITING)).thenReturn(List.of(battle));
+
+        // Act
+        index.seedIfEmpty();
+        index.seedIfEmpty();
+
+        // Assert
+        verify(battleRepository, times(1)).findAvailablePublicBattles(BattleStatus.WAITING);
+        verify(hashOperations).put(OpenBattleIndex.SLOTS_KEY, battle.getId().toString(), 2);
+    }
+
+    // Helper methods
+
+    private Battle battle(boolean isPrivate, int maxParticipants) {
+        return Battle.builder()
+                .id(UUID.randomUUID())
+                .status(BattleStatus.WAITING)
+                .isPrivate(isPrivate)
+                .maxParticipants(maxParticipants)
+                .createdAt(Instant.now().minusSeconds(30))
+                .build();
+    }
+}
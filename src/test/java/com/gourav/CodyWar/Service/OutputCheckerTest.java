@@ -0,0 +1,99 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.CheckerType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Output Checker Tests")
+class OutputCheckerTest {
+
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    @Test
+    @DisplayName("Exact checker should ignore only leading and trailing whitespace")
+    void exact_TrimsEndsOnly() {
+        assertEquals(OutputChecker.Verdict.MATCH, check(CheckerType.EXACT, "\n 1 2\n3 \n\n", "1 2\n3"));
+        assertEquals(OutputChecker.Verdict.MATCH, check(CheckerType.EXACT, "", "  \n"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.EXACT, "1  2\n3", "1 2\n3"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.EXACT, "1 2", "1 2\n3"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.EXACT, "1 2\n3\n4", "1 2\n3"));
+    }
+
+    @Test
+    @DisplayName("Token checker should ignore the amount and kind of whitespace")
+    void token_IgnoresWhitespaceRuns() {
+        assertEquals(OutputChecker.Verdict.MATCH, check(CheckerType.TOKEN, "1\t2\r\n\n3  ", " 1 2\n3"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.TOKEN, "12 3", "1 2 3"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.TOKEN, "1 2", "1 2 3"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.TOKEN, "1 2 3 4", "1 2 3"));
+    }
+
+    @Test
+    @DisplayName("Float checker should accept numbers within epsilon and compare other tokens exactly")
+    void float_ToleratesEpsilon() {
+        assertEquals(OutputChecker.Verdict.MATCH, check(CheckerType.FLOAT, "0.3333334 yes\n", "0.333333 yes"));
+        assertEquals(OutputChecker.Verdict.MATCH, check(CheckerType.FLOAT, "1000000.5", "1000000.0"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.FLOAT, "0.34", "0.333333"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.FLOAT, "Yes", "yes"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.FLOAT, "NaN", "0"));
+    }
+
+    @Test
+    @DisplayName("Float checker should compare tokens longer than its window in exact chunks")
+    void float_LongTokens() {
+        String longToken = "ab".repeat(OutputChecker.FloatChecker.MAX_TOKEN_LENGTH);
+        assertEquals(OutputChecker.Verdict.MATCH, check(CheckerType.FLOAT, longToken + " 1", longToken + "\n1"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.FLOAT, longToken + "c 1", longToken + " 1"));
+        assertEquals(OutputChecker.Verdict.MISMATCH, check(CheckerType.FLOAT, longToken, longToken + "c"));
+    }
+
+    @Test
+    @DisplayName("Should decode multi-byte characters split across chunks")
+    void accept_SplitUtf8_Decodes() {
+        OutputChecker checker = OutputChecker.create(CheckerType.EXACT, "héllo ✓", 0, NO_LIMIT);
+        byte[] bytes = "héllo ✓".getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i < bytes.length; i++) {
+            assertTrue(checker.accept(bytes, i, 1));
+        }
+
+        assertEquals(OutputChecker.Verdict.MATCH, checker.finish());
+    }
+
+    @Test
+    @DisplayName("Should reject as soon as the output diverges, before it ends")
+    void accept_EarlyMismatch_StopsImmediately() {
+        OutputChecker checker = OutputChecker.create(CheckerType.TOKEN, "1 2 3", 0, NO_LIMIT);
+
+        assertTrue(checker.accept("1 ".getBytes(StandardCharsets.UTF_8), 0, 2));
+        assertFalse(checker.accept("9".getBytes(StandardCharsets.UTF_8), 0, 1));
+        assertEquals(OutputChecker.Verdict.MISMATCH, checker.getVerdict());
+    }
+
+    @Test
+    @DisplayName("Should stop once the output grows past the limit")
+    void accept_OverLimit_FlagsOutputLimit() {
+        OutputChecker checker = OutputChecker.create(CheckerType.EXACT, "y".repeat(100), 0, 10);
+        byte[] chunk = "yyyyyy".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(checker.accept(chunk, 0, chunk.length));
+        assertFalse(checker.accept(chunk, 0, chunk.length));
+        assertEquals(OutputChecker.Verdict.OUTPUT_LIMIT_EXCEEDED, checker.finish());
+    }
+
+    private static OutputChecker.Verdict check(CheckerType type, String actual, String expected) {
+        OutputChecker checker = OutputChecker.create(type, expected, 1e-6, NO_LIMIT);
+        byte[] bytes = actual.getBytes(StandardCharsets.UTF_8);
+        // Feed in small uneven chunks so state has to carry across calls
+        for (int offset = 0; offset < bytes.length; offset += 3) {
+            if (!checker.accept(bytes, offset, Math.min(3, bytes.length - offset))) {
+                break;
+            }
+        }
+        return checker.finish();
+    }
+}
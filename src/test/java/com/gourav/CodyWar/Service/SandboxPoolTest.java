@@ -0,0 +1,96 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Language;
+import com.gourav.CodyWar.Exception.SubmissionProcessingException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Sandbox Pool Tests")
+class SandboxPoolTest {
+
+    @Mock
+    private SandboxBackend backend;
+
+    @Mock
+    private SandboxWorker worker;
+
+    private SandboxPool sandboxPool;
+
+    @BeforeEach
+    void setUp() {
+        sandboxPool = new SandboxPool(backend);
+        ReflectionTestUtils.setField(sandboxPool, "warmLanguages", new String[0]);
+        ReflectionTestUtils.setField(sandboxPool, "warmSize", 1);
+        ReflectionTestUtils.setField(sandboxPool, "maxSize", 1);
+        ReflectionTestUtils.setField(sandboxPool, "acquireTimeoutMs", 50L);
+    }
+
+    @Test
+    @DisplayName("Should reuse a released worker instead of cold-starting another")
+    void acquire_ReusesReleasedWorker() {
+        // Arrange
+        when(backend.startWorker(Language.PYTHON)).thenReturn(worker);
+        when(worker.getLanguage()).thenReturn(Language.PYTHON);
+        when(worker.isHealthy()).thenReturn(true);
+
+        // Act
+        SandboxWorker first = sandboxPool.acquire(Language.PYTHON);
+        sandboxPool.release(first);
+        SandboxWorker second = sandboxPool.acquire(Language.PYTHON);
+
+        // Assert
+        assertSame(first, second);
+        verify(backend, times(1)).startWorker(Language.PYTHON);
+        verify(worker).reset();
+        assertEquals(1, sandboxPool.getTotalCount(Language.PYTHON));
+    }
+
+    @Test
+    @DisplayName("Should close unhealthy workers instead of returning them to the pool")
+    void release_UnhealthyWorker_IsDiscarded() {
+        // Arrange
+        when(backend.startWorker(Language.JAVA)).thenReturn(worker);
+        when(worker.getLanguage()).thenReturn(Language.JAVA);
+        when(worker.isHealthy()).thenReturn(false);
+
+        // Act
+        sandboxPool.release(sandboxPool.acquire(Language.JAVA));
+
+        // Assert
+        verify(worker).close();
+        assertEquals(0, sandboxPool.getIdleCount(Language.JAVA));
+        assertEquals(0, sandboxPool.getTotalCount(Language.JAVA));
+    }
+
+    @Test
+    @DisplayName("Should time out when the language is at max size and nothing is released")
+    void acquire_PoolExhausted_ThrowsException() {
+        // Arrange
+        when(backend.startWorker(Language.CPP)).thenReturn(worker);
+        sandboxPool.acquire(Language.CPP);
+
+        // Act & Assert
+        assertThrows(SubmissionProcessingException.class, () -> sandboxPool.acquire(Language.CPP));
+        verify(backend, times(1)).startWorker(Language.CPP);
+    }
+
+    @Test
+    @DisplayName("Should free the slot when a worker fails to start")
+    void acquire_BackendFailure_ReleasesSlot() {
+        // Arrange
+        when(backend.startWorker(Language.GO)).thenThrow(new IllegalStateException("docker run failed"));
+
+        // Act & Assert
+        assertThrows(SubmissionProcessingException.class, () -> sandboxPool.acquire(Language.GO));
+        assertEquals(0, sandboxPool.getTotalCount(Language.GO));
+    }
+}
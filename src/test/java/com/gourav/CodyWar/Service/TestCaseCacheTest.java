@@ -0,0 +1,215 @@
+package com.gourav.CodyWar.Service;
+
+import com.gourav.CodyWar.Domain.Entity.Problem;
+import com.gourav.CodyWar.Domain.Entity.TestCase;
+import com.gourav.CodyWar.Repository.TestCaseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test Case Cache Tests")
+class TestCaseCacheTest {
+
+    @Mock
+    private TestCaseRepository testCaseRepository;
+
+    @TempDir
+    Path spillDir;
+
+    private MeterRegistry meterRegistry;
+    private TestCaseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new TestCaseCache(testCaseRepository, meterRegistry);
+        ReflectionTestUtils.setField(cache, "spillDir", spillDir.toString());
+        ReflectionTestUtils.setField(cache, "spillThresholdKb", 1L);
+        cache.registerMetrics();
+    }
+
+    @Test
+    @DisplayName("Should load a problem's cases once and serve later lookups from memory")
+    void acquire_SecondLookup_Hits() {
+        // Arrange
+        List<TestCase> testCases = List.of(testCase(0, "1 2", "3"), testCase(1, "2 2", "4"));
+        Problem problem = problem(testCases);
+        when(testCaseRepository.findByProblemIdOrderByOrderIndexAsc(problem.getId())).thenReturn(testCases);
+
+        // Act
+        try (TestSet first = cache.acquire(problem); TestSet second = cache.acquire(problem)) {
+
+            // Assert
+            assertSame(first, second);
+            assertEquals(2, second.size());
+            assertEquals("3", read(second.getTestCases().get(0).openExpected()));
+        }
+        verify(testCaseRepository, times(1)).findByProblemIdOrderByOrderIndexAsc(problem.getId());
+        assertEquals(1.0, meterRegistry.get("judge.testcache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("judge.testcache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should reload when the problem's test set hash no longer matches the cached cases")
+    void acquire_HashChanged_Reloads() {
+        // Arrange
+        List<TestCase> original = List.of(testCase(0, "1", "1"));
+        List<TestCase> edited = List.of(testCase(0, "1", "2"));
+        Problem problem = problem(original);
+        when(testCaseRepository.findByProblemIdOrderByOrderIndexAsc(problem.getId())).thenReturn(original, edited);
+        cache.acquire(problem).close();
+
+        // Act
+        problem.setTestSetHash(TestSet.hashOf(edited));
+        try (TestSet reloaded = cache.acquire(problem)) {
+
+            // Assert
+            assertEquals(TestSet.hashOf(edited), reloaded.getHash());
+            assertEquals("2", read(reloaded.getTestCases().get(0).openExpected()));
+        }
+        verify(testCaseRepository, times(2)).findByProblemIdOrderByOrderIndexAsc(problem.getId());
+    }
+
+    @Test
+    @DisplayName("Should reload after an explicit invalidation")
+    void invalidate_ForcesReload() {
+        // Arrange
+        List<TestCase> testCases = List.of(testCase(0, "1", "1"));
+        Problem problem = problem(testCases);
+        when(testCaseRepository.findByProblemIdOrderByOrderIndexAsc(problem.getId())).thenReturn(testCases);
+        cache.acquire(problem).close();
+
+        // Act
+        cache.invalidate(problem.getId());
+        cache.acquire(problem).close();
+
+        // Assert
+        verify(testCaseRepository, times(2)).findByProblemIdOrderByOrderIndexAsc(problem.getId());
+        assertEquals(1.0, meterRegistry.get("judge.testcache.evictions").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should spill large cases to files and delete them once evicted and released")
+    void acquire_LargeCase_SpillsToFiles() throws IOException {
+        // Arrange
+        String largeInput = "7\n".repeat(1024);
+        String largeExpected = "49\n".repeat(1024);
+        List<TestCase> testCases = List.of(testCase(0, "small", "small"), testCase(1, largeInput, largeExpected));
+        Problem problem = problem(testCases);
+        when(testCaseRepository.findByProblemIdOrderByOrderIndexAsc(problem.getId())).thenReturn(testCases);
+
+        // Act
+        Path inputFile;
+        try (TestSet testSet = cache.acquire(problem)) {
+            CachedTestCase small = testSet.getTestCases().get(0);
+            CachedTestCase large = testSet.getTestCases().get(1);
+
+            // Assert
+            assertFalse(small.isSpilled());
+            assertTrue(large.isSpilled());
+            inputFile = large.getInputFile();
+            assertEquals(largeInput, Files.readString(inputFile));
+            assertEquals(largeExpected, read(large.openExpected()));
+            assertTrue(cache.diskBytes() > 0);
+
+            cache.invalidate(problem.getId());
+            assertTrue(Files.exists(inputFile), "files must survive while the set is borrowed");
+        }
+        assertFalse(Files.exists(inputFile));
+        assertEquals(0, cache.diskBytes());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used problem when over the heap bound")
+    void acquire_OverHeapBound_EvictsLeastRecentlyUsed() {
+        // Arrange
+        ReflectionTestUtils.setField(cache, "spillEnabled", false);
+        ReflectionTestUtils.setField(cache, "maxHeapMb", 1L);
+        String filler = "x".repeat(200 * 1024);  // ~400 KB of heap per problem
+        List<TestCase> casesA = List.of(testCase(0, filler, "a"));
+        List<TestCase> casesB = List.of(testCase(0, filler, "b"));
+        List<TestCase> casesC = List.of(testCase(0, filler, "c"));
+        Problem a = problem(casesA);
+        Problem b = problem(casesB);
+        Problem c = problem(casesC);
+        when(testCaseRepository.findByProblemIdOrderByOrderIndexAsc(a.getId())).thenReturn(casesA);
+        when(testCaseRepository.findByProblemIdOrderByOrderIndexAsc(b.getId())).thenReturn(casesB);
+        when(testCaseRepository.findByProblemIdOrderByOrderIndexAsc(c.getId())).thenReturn(casesC);
+        cache.acquire(a).close();
+        cache.acquire(b).close();
+        cache.acquire(a).close();  // b is now the least recently used
+
+        // Act
+        cache.acquire(c).close();
+        cache.acquire(a).close();
+        cache.acquire(b).close();
+
+        // Assert
+        verify(testCaseRepository, times(1)).findByProblemIdOrderByOrderIndexAsc(a.getId());
+        verify(testCaseRepository, times(2)).findByProblemIdOrderByOrderIndexAsc(b.getId());
+        assertTrue(cache.heapBytes() <= 1024 * 1024);
+    }
+
+    @Test
+    @DisplayName("Should hash only judged content, ignoring visibility")
+    void hashOf_IgnoresVisibility() {
+        // Arrange
+        TestCase visible = testCase(0, "1", "1");
+        TestCase hidden = testCase(0, "1", "1");
+        hidden.setHidden(true);
+        visible.setHidden(false);
+
+        // Act & Assert
+        assertEquals(TestSet.hashOf(List.of(visible)), TestSet.hashOf(List.of(hidden)));
+        assertNotEquals(TestSet.hashOf(List.of(testCase(0, "ab", "c"))),
+                TestSet.hashOf(List.of(testCase(0, "a", "bc"))));
+    }
+
+    // Helper methods
+
+    private Problem problem(List<TestCase> testCases) {
+        Problem problem = new Problem();
+        problem.setId(UUID.randomUUID());
+        problem.setTestSetHash(TestSet.hashOf(testCases));
+        return problem;
+    }
+
+    private TestCase testCase(int orderIndex, String input, String expectedOutput) {
+        return TestCase.builder()
+                .input(input)
+                .expectedOutput(expectedOutput)
+                .orderIndex(orderIndex)
+                .build();
+    }
+
+    private String read(Reader reader) {
+        try (reader) {
+            StringBuilder out = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1) {
+                out.append((char) c);
+            }
+            return out.toString();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}